@@ -78,6 +78,10 @@ public class NacpTreeDataSource extends TextPointDataSource {
 
     private static String header = "(index) -> (Time,Longitude,Latitude,Altitude,id(Text),Condition(Text),Species(Text),dbh,Crown_along_slope,Crown_cross_slope,Crown_form(Text),Height,Crown_base,Distance,Azimuth,Notes(Text))\nTime[fmt=\"yyyy-MM-dd\"],Longitude[unit=\"degrees\" ],Latitude[unit=\"degrees\"],Altitude[units=\"m\"],id(Text),Condition(Text),Species(Text),dbh[unit=\"cm\" missing=\"-999.9\"],Crown_along_slope[unit=\"cm\" missing=\"-999.9\"],Crown_cross_slope[unit=\"cm\" missing=\"-999.9\"],Crown_form(Text),Height[unit=\"m\"  missing=\"-999.9\"],Crown_base[unit=\"m\"  missing=\"-999.9\"],Distance[unit=\"m\" missing=\"-999.9\"],Azimuth[unit=\"m\" missing=\"-999.9\"],Notes(Text)";
 
+    protected boolean canStream(String source) {
+        return false;
+    }
+
     protected String getContents(String sourceFile, boolean sampleIt) throws Exception {
 	return process(sourceFile, sampleIt);
     }
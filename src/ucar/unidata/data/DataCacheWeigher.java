@@ -0,0 +1,103 @@
+/*
+ * Copyright 1997-2020 Unidata Program Center/University Corporation for
+ * Atmospheric Research, P.O. Box 3000, Boulder, CO 80307,
+ * support@unidata.ucar.edu.
+ * 
+ * This library is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation; either version 2.1 of the License, or (at
+ * your option) any later version.
+ * 
+ * This library is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU Lesser
+ * General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this library; if not, write to the Free Software Foundation,
+ * Inc., 59 Temple Place, Suite 330, Boston, MA 02111-1307 USA
+ */
+
+
+package ucar.unidata.data;
+
+
+import ucar.unidata.util.CacheManager;
+
+import visad.FieldImpl;
+import visad.FlatField;
+import visad.FunctionType;
+import visad.Real;
+import visad.Text;
+import visad.Tuple;
+
+
+/**
+ * Estimates the memory used by VisAD data held in the
+ * {@link ucar.unidata.util.CacheManager}.  FlatFields are weighed by their
+ * sample count times their range dimension. FieldImpls are weighed by their
+ * length times the weight of their first sample.
+ *
+ * @author IDV development team
+ */
+public class DataCacheWeigher implements CacheManager.Weigher {
+
+    /** Approximate overhead of a VisAD data object */
+    private static final long OBJECT_WEIGHT = 64;
+
+    /**
+     * Default ctor
+     */
+    public DataCacheWeigher() {}
+
+    /**
+     * Estimate the size of the object
+     *
+     * @param value The object
+     *
+     * @return size in bytes or -1 if value is not VisAD data
+     */
+    public long weigh(Object value) {
+        try {
+            if (value instanceof FlatField) {
+                FlatField ff = (FlatField) value;
+                int rangeDim =
+                    ((FunctionType) ff.getType()).getFlatRange()
+                        .getDimension();
+                return OBJECT_WEIGHT + 4L * ff.getLength() * rangeDim;
+            }
+            if (value instanceof FieldImpl) {
+                FieldImpl fi     = (FieldImpl) value;
+                int       length = fi.getLength();
+                if (length == 0) {
+                    return OBJECT_WEIGHT;
+                }
+                long sampleWeight = weigh(fi.getSample(0, false));
+                if (sampleWeight < 0) {
+                    sampleWeight = OBJECT_WEIGHT;
+                }
+                return OBJECT_WEIGHT + length * sampleWeight;
+            }
+            if (value instanceof Tuple) {
+                Tuple tuple  = (Tuple) value;
+                long  weight = OBJECT_WEIGHT;
+                for (int i = 0; i < tuple.getDimension(); i++) {
+                    long componentWeight = weigh(tuple.getComponent(i));
+                    weight += ((componentWeight < 0)
+                               ? OBJECT_WEIGHT
+                               : componentWeight);
+                }
+                return weight;
+            }
+            if (value instanceof Real) {
+                return OBJECT_WEIGHT;
+            }
+            if (value instanceof Text) {
+                return OBJECT_WEIGHT + 2L * ((Text) value).getValue().length();
+            }
+        } catch (Exception exc) {
+            return CacheManager.DEFAULT_WEIGHT;
+        }
+        return -1;
+    }
+}
@@ -133,6 +133,10 @@ public class DataManager {
     /** The cache percent property */
     public static final String PROP_CACHE_PERCENT = "idv.data.cache.percent";
 
+    /** The percent of the max heap used for the in-memory data cache */
+    public static final String PROP_MEMORY_CACHE_PERCENT =
+        "idv.data.memorycache.percent";
+
     /** bbox property */
     public static final String PROP_GEOSUBSET_BBOX =
         "idv.data.geosubset.bbox";
@@ -332,6 +336,13 @@ public class DataManager {
                 "visad.sampledset.cachesizethreshold",
                 10000));
 
+        CacheManager.setWeigher(new DataCacheWeigher());
+        CacheManager.setMaxMemoryCacheSize(
+            (long) (Runtime.getRuntime().maxMemory()
+                    * dataContext.getIdv().getStateManager()
+                        .getPreferenceOrProperty(PROP_MEMORY_CACHE_PERCENT,
+                            0.25)));
+
 
         //The IDV can run normally (i.e., the usual interactive IDV) and also in server mode (e.g., within RAMADDA)
         //If in server mode then its expected that the server has done this configuration
@@ -74,6 +74,9 @@ import java.rmi.RemoteException;
 
 import java.util.*;
 import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.FutureTask;
 
 import javax.swing.AbstractAction;
 import javax.swing.Action;
@@ -96,7 +99,11 @@ import javax.swing.filechooser.FileFilter;
  * Holds a DataContext, name and description and manages a list of DataChoice-s.
  *
  * <p>This class is thread-compatible but not thread-safe.  Concurrent access to
- *  instances of this class should be externally symchronized by the client.</p>
+ *  instances of this class should be externally symchronized by the client.
+ *  The exception is {@link #getData(DataChoice, DataCategory, DataSelection, Hashtable)},
+ *  which may be called concurrently. Requests with the same cache key share
+ *  one load and, if {@link #canLoadConcurrently()} is true, requests with
+ *  different cache keys are loaded in parallel.</p>
  *
  *  @author IDV Development Team
  *  @version $Revision: 1.221 $
@@ -135,6 +142,19 @@ public class DataSourceImpl extends SharableImpl implements DataSource,
     /** Use this so this object is unique in the data cache */
     protected Object dataCacheKey = ucar.unidata.util.Misc.getUniqueId();
 
+    /**
+     * Maps cache key to the load currently in flight for that key so
+     * concurrent requests for the same data share one getDataInner call
+     */
+    private final Hashtable<Object, FutureTask<Data>> pendingLoads =
+        new Hashtable<Object, FutureTask<Data>>();
+
+    /**
+     * Bumped by flushCache so a load that started before the flush does
+     * not put its stale data in the cache. Guarded by pendingLoads.
+     */
+    private int cacheGeneration = 0;
+
     /**
      *  The alias property.
      */
@@ -240,6 +260,9 @@ public class DataSourceImpl extends SharableImpl implements DataSource,
     /** mutex used when accessing the outstanding getdata calls counter */
     private static Object MUTEX_OUTSTANDINGGETDATACALLS = new Object();
 
+    /** How many get data calls of this data source are we waiting on */
+    private int activeGetDataCalls = 0;
+
 
     /** properties widget */
     private JCheckBox cacheDataToDiskCbx;
@@ -1091,7 +1114,15 @@ public class DataSourceImpl extends SharableImpl implements DataSource,
      */
     protected void flushCache() {
         // System.out.println("flushing cache");
+        synchronized (pendingLoads) {
+            //Loads in flight now read the old data so new requests
+            //don't wait on them and they don't cache what they read
+            cacheGeneration++;
+            pendingLoads.clear();
+        }
         CacheManager.remove(dataCacheKey);
+        //And anything computed from our data
+        DerivedDataChoice.removeCachedResults(this);
     }
 
 
@@ -2298,6 +2329,19 @@ public class DataSourceImpl extends SharableImpl implements DataSource,
         return outstandingGetDataCalls;
     }
 
+    /**
+     * How many get data calls of this data source are we waiting on. Unlike
+     * {@link #getOutstandingGetDataCalls()} this is not shared with the
+     * other IDVs in the JVM.
+     *
+     * @return Outstanding calls
+     */
+    public int getActiveGetDataCalls() {
+        synchronized (MUTEX_OUTSTANDINGGETDATACALLS) {
+            return activeGetDataCalls;
+        }
+    }
+
     /**
      * Increment the static count of get data calls
      */
@@ -2334,8 +2378,27 @@ public class DataSourceImpl extends SharableImpl implements DataSource,
 
     //    boolean first = true;
 
+    /**
+     * Can getDataInner be called concurrently for different data choices
+     * and selections. The default is false so derived classes that hold
+     * unsynchronized state keep their loads serialized. Derived classes
+     * whose getDataInner is safe to call from multiple threads should
+     * override this to return true.
+     *
+     * @return true if getDataInner may run on multiple threads at once
+     */
+    protected boolean canLoadConcurrently() {
+        return false;
+    }
+
+
     /**
      * Get the data applicable to the DataChoice and selection criteria.
+     * This may be called from multiple threads. If there is already a load
+     * in progress for the same cache key then this waits on that load
+     * instead of calling getDataInner again. The getDataInner calls of
+     * data sources that cannot load concurrently are synchronized on this
+     * data source, as is the initialization done here.
      *
      * @param dataChoice         choice that defines the data
      * @param category           the data category
@@ -2346,10 +2409,10 @@ public class DataSourceImpl extends SharableImpl implements DataSource,
      * @throws RemoteException    Java RMI problem
      * @throws VisADException     VisAD problem
      */
-    public synchronized Data getData(DataChoice dataChoice,
-                                     DataCategory category,
-                                     DataSelection incomingDataSelection,
-                                     Hashtable requestProperties)
+    public Data getData(final DataChoice dataChoice,
+                        final DataCategory category,
+                        DataSelection incomingDataSelection,
+                        final Hashtable requestProperties)
             throws VisADException, RemoteException {
 
 
@@ -2357,22 +2420,24 @@ public class DataSourceImpl extends SharableImpl implements DataSource,
             return null;
         }
 
-        //start up polling if we have not done so already.
-        initPolling();
+        synchronized (this) {
+            //start up polling if we have not done so already.
+            initPolling();
 
 
-        //Just call this in case it has not been called yet
-        //because it can trigger a failure in some of
-        //the derived DataSource classes.
-        getDataChoices();
-        getAllDateTimes();
+            //Just call this in case it has not been called yet
+            //because it can trigger a failure in some of
+            //the derived DataSource classes.
+            getDataChoices();
+            getAllDateTimes();
+        }
 
 
         log_.debug("data source data selection:" + getDataSelection());
         log_.debug("incoming data selection:" + incomingDataSelection);
 
-        DataSelection selection = DataSelection.merge(incomingDataSelection,
-                                      getDataSelection());
+        final DataSelection selection =
+            DataSelection.merge(incomingDataSelection, getDataSelection());
 
         DataSelection lselection = selection.cloneMe();
 
@@ -2382,9 +2447,9 @@ public class DataSourceImpl extends SharableImpl implements DataSource,
 
         Object baseCacheKey = createCacheKey(dataChoice, lselection,
                                              requestProperties);
-        List cacheKey = ((baseCacheKey != null)
-                         ? Misc.newList(baseCacheKey)
-                         : null);
+        final List cacheKey = ((baseCacheKey != null)
+                               ? Misc.newList(baseCacheKey)
+                               : null);
 
         if (requestProperties != null) {
             Hashtable newProperties = (Hashtable) requestProperties.clone();
@@ -2394,37 +2459,129 @@ public class DataSourceImpl extends SharableImpl implements DataSource,
             }
         }
 
-        /**
-         * if(true)
-         *   throw new IllegalArgumentException("BADNESS");
-         * if(!first)
-         *   throw new IllegalArgumentException("BADNESS");
-         * first = false;
-         */
+        if (cacheKey == null) {
+            return loadData(dataChoice, category, selection,
+                            requestProperties, null, 0);
+        }
 
         // System.out.println(cacheKey.hashCode());
-        Data cachedData = ((cacheKey != null)
-                           ? (Data) getCache(cacheKey)
-                           : null);
-        if (cachedData == null) {
-            incrOutstandingGetDataCalls();
-            try {
-                LogUtil.message("Data: " + toStringTruncated() + ": "
-                                + dataChoice);
-                cachedData = getDataInner(dataChoice, category, selection,
-                                          requestProperties);
+        Data cachedData = (Data) getCache(cacheKey);
+        if (cachedData != null) {
+            return cachedData;
+        }
+
+        FutureTask<Data> load;
+        boolean          startedLoad = false;
+        synchronized (pendingLoads) {
+            //Check again in case a load finished since we last looked
+            cachedData = (Data) getCache(cacheKey);
+            if (cachedData != null) {
+                return cachedData;
+            }
+            load = pendingLoads.get(cacheKey);
+            if (load == null) {
+                final int generation = cacheGeneration;
+                load = new FutureTask<Data>(new Callable<Data>() {
+                    public Data call() throws Exception {
+                        return loadData(dataChoice, category, selection,
+                                        requestProperties, cacheKey,
+                                        generation);
+                    }
+                });
+                pendingLoads.put(cacheKey, load);
+                startedLoad = true;
+            }
+        }
 
-                LogUtil.message("");
+        if (startedLoad) {
+            //Run the load on this thread
+            try {
+                load.run();
             } finally {
-                decrOutstandingGetDataCalls();
+                //A flush may have let a newer load in under this key
+                pendingLoads.remove(cacheKey, load);
+            }
+        }
+
+        try {
+            return load.get();
+        } catch (InterruptedException ie) {
+            throw new DataCancelException();
+        } catch (ExecutionException ee) {
+            Throwable cause = ee.getCause();
+            if (cause instanceof VisADException) {
+                throw (VisADException) cause;
             }
-            if ((cacheKey != null) && (cachedData != null)
-                    && shouldCache(dataChoice, cachedData)) {
-                // System.out.println(cacheKey.hashCode());
-                putCache(cacheKey, cachedData);
+            if (cause instanceof RemoteException) {
+                throw (RemoteException) cause;
             }
-        } else {}
-        return cachedData;
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            if (cause instanceof Error) {
+                throw (Error) cause;
+            }
+            throw new WrapperException(cause);
+        }
+    }
+
+
+    /**
+     * Call getDataInner, keeping the outstanding get data call count,
+     * and cache the result.
+     *
+     * @param dataChoice         choice that defines the data
+     * @param category           the data category
+     * @param selection          the merged DataSelection
+     * @param requestProperties  extra request properties
+     * @param cacheKey           key to cache the result under. May be null.
+     * @param generation         the cache generation when the load was
+     *                           started. The result is not cached if the
+     *                           cache has been flushed since.
+     *
+     * @return  the loaded data
+     *
+     * @throws RemoteException    Java RMI problem
+     * @throws VisADException     VisAD problem
+     */
+    private Data loadData(DataChoice dataChoice, DataCategory category,
+                          DataSelection selection,
+                          Hashtable requestProperties, Object cacheKey,
+                          int generation)
+            throws VisADException, RemoteException {
+        Data data;
+        incrOutstandingGetDataCalls();
+        synchronized (MUTEX_OUTSTANDINGGETDATACALLS) {
+            activeGetDataCalls++;
+        }
+        try {
+            LogUtil.message("Data: " + toStringTruncated() + ": "
+                            + dataChoice);
+            if (canLoadConcurrently()) {
+                data = getDataInner(dataChoice, category, selection,
+                                    requestProperties);
+            } else {
+                synchronized (this) {
+                    data = getDataInner(dataChoice, category, selection,
+                                        requestProperties);
+                }
+            }
+            LogUtil.message("");
+        } finally {
+            synchronized (MUTEX_OUTSTANDINGGETDATACALLS) {
+                activeGetDataCalls--;
+            }
+            decrOutstandingGetDataCalls();
+        }
+        if ((cacheKey != null) && (data != null)
+                && shouldCache(dataChoice, data)) {
+            synchronized (pendingLoads) {
+                if (generation == cacheGeneration) {
+                    putCache(cacheKey, data);
+                }
+            }
+        }
+        return data;
     }
 
 
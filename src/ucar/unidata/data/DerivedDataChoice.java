@@ -33,6 +33,8 @@ import visad.*;
 
 
 
+import java.lang.ref.WeakReference;
+
 import java.rmi.RemoteException;
 
 import java.util.ArrayList;
@@ -40,6 +42,14 @@ import java.util.Enumeration;
 import java.util.Hashtable;
 import java.util.List;
 import java.util.Properties;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 //import jep.Jep;
 //import jep.JepException;
@@ -57,6 +67,19 @@ public class DerivedDataChoice extends ListDataChoice {
      */
     public static String PROP_FROMDERIVED = "fromderived";
 
+    /** The CacheManager owner of the cached results */
+    private static final String RESULT_CACHE = "DerivedDataChoice.results";
+
+    /** Max number of operand reads done at the same time */
+    private static final int NUM_READERS = 4;
+
+    /** The threads that read operands. Shared by all derived choices */
+    private static ThreadPoolExecutor readExecutor;
+
+    /** Set on the threads of the read executor */
+    private static final ThreadLocal<Boolean> isReaderThread =
+        new ThreadLocal<Boolean>();
+
 
     /**
      *  Where we might have come from.
@@ -493,7 +516,8 @@ public class DerivedDataChoice extends ListDataChoice {
         }
 
 
-        Hashtable dataChoiceToData = new Hashtable();
+        Hashtable          dataChoiceToData = new Hashtable();
+        List<OperandFetch> fetches          = new ArrayList<OperandFetch>();
 
         //Go through the list of jython operands and put any that
         //we don't have in the list of DataOperands
@@ -541,8 +565,8 @@ public class DerivedDataChoice extends ListDataChoice {
                     }
                 }
             }
-            setData(boundChoice, op, dataChoiceToData, dataSelection,
-                    requestProperties);
+            setData(boundChoice, op, dataChoiceToData, fetches,
+                    dataSelection, requestProperties);
         }
 
 
@@ -588,8 +612,8 @@ public class DerivedDataChoice extends ListDataChoice {
                 userSelectedChoices.put(op.getParamName(), selectedChoice);
                 //Do an .equals instead of an instanceof because DerivedDataChoice
                 //derived from ListDataChoice
-                setData(selectedChoice, op, dataChoiceToData, dataSelection,
-                        requestProperties);
+                setData(selectedChoice, op, dataChoiceToData, fetches,
+                        dataSelection, requestProperties);
             }
         }
 
@@ -599,11 +623,14 @@ public class DerivedDataChoice extends ListDataChoice {
             Object      data = op.getData();
             if (data instanceof DataChoice) {
                 DataChoice dataChoice = (DataChoice) data;
-                setData(dataChoice, op, dataChoiceToData, dataSelection,
-                        requestProperties);
+                setData(dataChoice, op, dataChoiceToData, fetches,
+                        dataSelection, requestProperties);
             }
         }
 
+        //And read the data for all of them
+        fetchOperands(fetches, dataChoiceToData, requestProperties);
+
         operands.addAll(allUserOperands);
         //Done, return the list of DataOperand-s
         return operands;
@@ -611,11 +638,14 @@ public class DerivedDataChoice extends ListDataChoice {
 
 
     /**
-     * get the data from the dataChoice and set it on the operand
+     * Set up the read of the data from the dataChoice for the operand.
+     * The data is read, and set on the operand, by
+     * {@link #fetchOperands(List, Hashtable, Hashtable)}
      *
      * @param dataChoice the data choice
      * @param dataOperand the operand
      * @param dataChoiceToData map of previously created data
+     * @param fetches the reads set up so far
      * @param dataSelection properties
      * @param requestProperties properties
      *
@@ -624,26 +654,219 @@ public class DerivedDataChoice extends ListDataChoice {
      */
     private void setData(DataChoice dataChoice, DataOperand dataOperand,
                          Hashtable dataChoiceToData,
+                         List<OperandFetch> fetches,
                          DataSelection dataSelection,
                          Hashtable requestProperties)
             throws VisADException, RemoteException {
         //System.out.println("getting data for " + dataChoice.getName() + "," + dataOperand.getName());
         Object data = dataChoiceToData.get(dataOperand.getName());
         if (data == null) {
+            if ( !dataChoice.getClass().equals(ListDataChoice.class)) {
+                //                System.err.println("Calling checkLevel");
+                checkLevel(dataChoice, dataOperand, dataSelection);
+            }
+            //The level gets set on the shared selection so the read gets
+            //a copy of it as it is now
+            DataSelection fetchSelection = (dataSelection == null)
+                                           ? null
+                                           : dataSelection.cloneMe();
+            OperandFetch fetch = new OperandFetch(dataChoice,
+                                     fetchSelection, requestProperties);
+            fetches.add(fetch);
+            dataChoiceToData.put(dataOperand.getName(), fetch);
+            data = fetch;
+        }
+        if (data instanceof OperandFetch) {
+            ((OperandFetch) data).operands.add(dataOperand);
+        } else {
+            dataOperand.setData(data);
+        }
+        //        return data;
+    }
+
+
+    /**
+     * Read the data for the operands. The reads from regular data choices
+     * are done at the same time on the read executor. These block on
+     * I/O so we keep them out of the {@link ComputePool}. Reads from
+     * other derived or list choices, which may need to ask the user for
+     * their operands, are done in this thread, as are the reads of a
+     * choice that is itself being read on the executor so a full
+     * executor can't wait on itself. If any read fails or is cancelled
+     * the reads that have not started yet are cancelled.
+     *
+     * @param fetches the reads
+     * @param dataChoiceToData map of operand name to data
+     * @param requestProperties properties. Any properties set by the
+     *                          reads are put back in here
+     *
+     * @throws RemoteException On badness
+     * @throws VisADException On badness
+     */
+    private void fetchOperands(List<OperandFetch> fetches,
+                               Hashtable dataChoiceToData,
+                               Hashtable requestProperties)
+            throws VisADException, RemoteException {
+        AtomicBoolean      cancelled  = new AtomicBoolean(false);
+        List<OperandFetch> concurrent = new ArrayList<OperandFetch>();
+        List<OperandFetch> serial     = new ArrayList<OperandFetch>();
+        for (OperandFetch fetch : fetches) {
+            fetch.cancelled = cancelled;
+            if (fetch.dataChoice instanceof ListDataChoice) {
+                serial.add(fetch);
+            } else {
+                concurrent.add(fetch);
+            }
+        }
+        if ((concurrent.size() == 1)
+                || Boolean.TRUE.equals(isReaderThread.get())) {
+            serial.addAll(0, concurrent);
+            concurrent.clear();
+        }
+
+        List<Future<Object>> futures = new ArrayList<Future<Object>>();
+        try {
+            for (OperandFetch fetch : concurrent) {
+                futures.add(getReadExecutor().submit(fetch));
+            }
+            for (OperandFetch fetch : serial) {
+                fetch.call();
+            }
+            for (Future<Object> future : futures) {
+                future.get();
+            }
+        } catch (Exception exc) {
+            cancelled.set(true);
+            for (Future<Object> future : futures) {
+                future.cancel(true);
+            }
+            Throwable cause = exc;
+            if ((exc instanceof ExecutionException)
+                    && (exc.getCause() != null)) {
+                cause = exc.getCause();
+            }
+            if (cause instanceof InterruptedException) {
+                throw new DataCancelException();
+            }
+            if (cause instanceof VisADException) {
+                throw (VisADException) cause;
+            }
+            if (cause instanceof RemoteException) {
+                throw (RemoteException) cause;
+            }
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            if (cause instanceof Error) {
+                throw (Error) cause;
+            }
+            throw new WrapperException(cause);
+        }
+
+        for (OperandFetch fetch : fetches) {
+            for (Enumeration keys = fetch.requestProperties.keys();
+                    keys.hasMoreElements(); ) {
+                Object key = keys.nextElement();
+                requestProperties.put(key, fetch.requestProperties.get(key));
+            }
+            for (DataOperand operand : fetch.operands) {
+                if (fetch.data != null) {
+                    dataChoiceToData.put(operand.getName(), fetch.data);
+                }
+                operand.setData(fetch.data);
+            }
+        }
+    }
+
+
+    /**
+     * Get the executor the operands are read on, creating it if needed
+     *
+     * @return the executor
+     */
+    private static synchronized ThreadPoolExecutor getReadExecutor() {
+        if (readExecutor == null) {
+            readExecutor = new ThreadPoolExecutor(NUM_READERS, NUM_READERS,
+                    60, TimeUnit.SECONDS, new LinkedBlockingQueue<Runnable>(),
+                    new ThreadFactory() {
+                public Thread newThread(final Runnable r) {
+                    Thread thread = new Thread(new Runnable() {
+                        public void run() {
+                            isReaderThread.set(Boolean.TRUE);
+                            r.run();
+                        }
+                    }, "Derived operand reader");
+                    thread.setDaemon(true);
+                    return thread;
+                }
+            });
+            readExecutor.allowCoreThreadTimeOut(true);
+        }
+        return readExecutor;
+    }
+
+
+    /**
+     * Reads the data of one data choice for the operands that use it
+     */
+    private static class OperandFetch implements Callable<Object> {
+
+        /** the data choice */
+        private DataChoice dataChoice;
+
+        /** the data selection to use */
+        private DataSelection dataSelection;
+
+        /** Our own copy of the request properties */
+        private Hashtable requestProperties;
+
+        /** The operands that get the data */
+        private List<DataOperand> operands = new ArrayList<DataOperand>();
+
+        /** Set when the reads of the group are cancelled */
+        private AtomicBoolean cancelled;
+
+        /** The data */
+        private Object data;
+
+        /**
+         * Create the read
+         *
+         * @param dataChoice the data choice
+         * @param dataSelection the data selection
+         * @param requestProperties request properties
+         */
+        private OperandFetch(DataChoice dataChoice,
+                             DataSelection dataSelection,
+                             Hashtable requestProperties) {
+            this.dataChoice        = dataChoice;
+            this.dataSelection     = dataSelection;
+            this.requestProperties = (requestProperties == null)
+                                     ? new Hashtable()
+                                     : new Hashtable(requestProperties);
+        }
+
+        /**
+         * Read the data
+         *
+         * @return the data
+         *
+         * @throws Exception On badness
+         */
+        public Object call() throws Exception {
+            if ((cancelled != null) && cancelled.get()) {
+                throw new DataCancelException();
+            }
             if (dataChoice.getClass().equals(ListDataChoice.class)) {
                 ListDataChoice ldc = (ListDataChoice) dataChoice;
                 data = ldc.getDataList(DataCategory.NULL, dataSelection,
                                        requestProperties);
             } else {
-                //                System.err.println("Calling checkLevel");
-                checkLevel(dataChoice, dataOperand, dataSelection);
                 data = dataChoice.getData(DataCategory.NULL, dataSelection,
                                           requestProperties);
             }
-            dataChoiceToData.put(dataOperand.getName(), data);
+            return data;
         }
-        dataOperand.setData(data);
-        //        return data;
     }
 
 
@@ -724,14 +947,6 @@ public class DerivedDataChoice extends ListDataChoice {
             DataSelection.merge(incomingDataSelection, myDataSelection);
 
 
-        /**
-         *  For now, don't do any caching here.
-         * Object cacheKey = Misc.newList (category, dataSelection);
-         * Data cachedData = (Data) CacheManager.get (this, cacheKey);
-         * if (cachedData != null) {
-         *   return cachedData;
-         * }
-         */
         if (requestProperties == null) {
             requestProperties = new Hashtable();
         }
@@ -754,12 +969,24 @@ public class DerivedDataChoice extends ListDataChoice {
             throw new DataCancelException();
         }
 
+        //See if we have already evaluated this code with these operands
+        ResultKey resultKey = makeResultKey(ops);
+        if (resultKey != null) {
+            Data cachedResult = (Data) CacheManager.get(RESULT_CACHE,
+                                    resultKey);
+            if (cachedResult != null) {
+                Trace.call2("DerivedData.getData");
+                return cachedResult;
+            }
+        }
+
         Data result = null;
 
-        //Get the interpreter, synchronize so we don't have conflicts with the
-        //operand setting.
+        //Check out an interpreter from the pool. It is ours until we give it
+        //back but we still synchronize on it as the main derived data
+        //interpreter is also used directly by others.
         PythonInterpreter interp =
-            dataContext.getJythonManager().getDerivedDataInterpreter(
+            dataContext.getJythonManager().checkOutDerivedDataInterpreter(
                 methodName);
         //Jep jep = null;
 
@@ -767,121 +994,304 @@ public class DerivedDataChoice extends ListDataChoice {
         //    jep = new Jep(false);
        // } catch (JepException e){}
 
-        synchronized (interp) {
-            //Bind the operand name to the appropriate values.
-            List<String> setVariables = new ArrayList<String>();
-            Hashtable setVariables1 = new Hashtable();
-            try {
-                for (int i = 0; i < ops.size(); i++) {
-                    DataOperand op               = (DataOperand) ops.get(i);
-                    String      cleanOperandName = op.makeLegalJython();
-                    constructedCode = StringUtil.replace(constructedCode,
-                            op.getName(), cleanOperandName);
-                    if(interp.get(cleanOperandName) == null ) {
-                        setVariables.add(cleanOperandName);
-                    } else if(cleanOperandName.charAt(0)=='D' &&
-                            Character.isDigit(cleanOperandName.charAt(1))) {
-                        //this block is very unlikely to get in but just in case
-                        setVariables.add(cleanOperandName);
-                    } else {
-                        setVariables1.put(cleanOperandName, interp.get(cleanOperandName));
+        try {
+            synchronized (interp) {
+                //Bind the operand name to the appropriate values.
+                List<String> setVariables = new ArrayList<String>();
+                Hashtable setVariables1 = new Hashtable();
+                try {
+                    for (int i = 0; i < ops.size(); i++) {
+                        DataOperand op               = (DataOperand) ops.get(i);
+                        String      cleanOperandName = op.makeLegalJython();
+                        constructedCode = StringUtil.replace(constructedCode,
+                                op.getName(), cleanOperandName);
+                        if(interp.get(cleanOperandName) == null ) {
+                            setVariables.add(cleanOperandName);
+                        } else if(cleanOperandName.charAt(0)=='D' &&
+                                Character.isDigit(cleanOperandName.charAt(1))) {
+                            //this block is very unlikely to get in but just in case
+                            setVariables.add(cleanOperandName);
+                        } else {
+                            setVariables1.put(cleanOperandName, interp.get(cleanOperandName));
+                        }
+                        interp.set(cleanOperandName, op.getData());
                     }
-                    interp.set(cleanOperandName, op.getData());
-                }
 
-                //Check here because the hashCode/equals on this object
-                //that the cache manager uses to do lookups
-                //is set in the code above.
-                /*
-                  for now don't do any caching
-                  result = (Data) CacheManager.get (this, cacheKey);
-                */
-
-                interp.set("derivedDataChoice", this);
-                if (result == null) {
-                    //Sometime we may want to do an exec here, instead of an eval.
-                    //If we do the exec we need to have the contructed code
-                    //have a "result=" in it and then we retrieve the
-                    //value of "result" from the interpreter
-
-                    PyObject pyResult     = interp.eval(constructedCode);
-
-                    //try {
-                    //    jep.getValue(constructedCode);
-                    //} catch (JepException e){}
-
-                    Object   resultObject = null;
-                    if (pyResult.getType().toString().contains("ArrayList")) {
-                        resultObject = pyResult.__tojava__(List.class);
-                    } else {
-                        resultObject = pyResult.__tojava__(visad.Data.class);
-                    }
+                    interp.set("derivedDataChoice", this);
+                    if (result == null) {
+                        //Sometime we may want to do an exec here, instead of an eval.
+                        //If we do the exec we need to have the contructed code
+                        //have a "result=" in it and then we retrieve the
+                        //value of "result" from the interpreter
 
-                    if (pyResult.getType().toString().contains("ArrayList")) {
-                        result = (Data) ((List) resultObject).get(0);
-                        //Make sure we got the right kind of return value
-                    } else if ((resultObject != null)
-                               && !(resultObject instanceof Data)) {
-                        resultObject = pyResult.__tojava__(DataChoice.class);
-                        //If we get back a data choice then we reset our expression to be
-                        //"bounddatachoice" and we add the data choice to our selves
-                        if (resultObject instanceof DataChoice) {
-                            DataChoice dataChoice = (DataChoice) resultObject;
-                            result =
-                                dataChoice.getData(incomingDataSelection);
-                            code                = "bounddatachoice";
-                            userSelectedChoices = new Hashtable();
-                            userSelectedChoices.put(code, dataChoice);
-                            childrenChoices = new ArrayList();
-                            childrenChoices.add(dataChoice);
+                        PyObject pyResult     = interp.eval(constructedCode);
+
+                        //try {
+                        //    jep.getValue(constructedCode);
+                        //} catch (JepException e){}
+
+                        Object   resultObject = null;
+                        if (pyResult.getType().toString().contains("ArrayList")) {
+                            resultObject = pyResult.__tojava__(List.class);
+                        } else {
+                            resultObject = pyResult.__tojava__(visad.Data.class);
+                        }
+
+                        if (pyResult.getType().toString().contains("ArrayList")) {
+                            result = (Data) ((List) resultObject).get(0);
+                            //Make sure we got the right kind of return value
+                        } else if ((resultObject != null)
+                                   && !(resultObject instanceof Data)) {
+                            resultObject = pyResult.__tojava__(DataChoice.class);
+                            //If we get back a data choice then we reset our expression to be
+                            //"bounddatachoice" and we add the data choice to our selves
+                            if (resultObject instanceof DataChoice) {
+                                DataChoice dataChoice = (DataChoice) resultObject;
+                                result =
+                                    dataChoice.getData(incomingDataSelection);
+                                code                = "bounddatachoice";
+                                userSelectedChoices = new Hashtable();
+                                userSelectedChoices.put(code, dataChoice);
+                                childrenChoices = new ArrayList();
+                                childrenChoices.add(dataChoice);
+                                //We have changed so don't cache
+                                resultKey = null;
+                            } else {
+                                throw new IllegalArgumentException(
+                                    "Unknown return value type:"
+                                    + resultObject.getClass().getName()
+                                    + "\n Value=" + resultObject + "\nCode:"
+                                    + constructedCode);
+                            }
                         } else {
-                            throw new IllegalArgumentException(
-                                "Unknown return value type:"
-                                + resultObject.getClass().getName()
-                                + "\n Value=" + resultObject + "\nCode:"
-                                + constructedCode);
+                            result = (Data) resultObject;
                         }
-                    } else {
-                        result = (Data) resultObject;
                     }
-                    //              System.err.println ("adding to cache:" + this);
-                    /*
-                      for now don't do any caching
-                      CacheManager.put (this, cacheKey, result);
-                    */
 
-                } else {
-                    //              System.err.println ("had data in cache:" + this);
-                }
+                } finally {
+                    //Now, go thru each arg that we just set and clear it so we don't leak
+                    try {
+                        interp.set("derivedDataChoice", null);
+                    } catch (Exception ignore) {}
+                    try {
+                        for (String varName : setVariables) {
+                            interp.set(varName, null);
+                        }
 
-            } finally {
-                //Now, go thru each arg that we just set and clear it so we don't leak
-                try {
-                    interp.set("derivedDataChoice", null);
-                } catch (Exception ignore) {}
-                try {
-                    for (String varName : setVariables) {
-                        interp.set(varName, null);
-                    }
+                    } catch (Exception ignore) {}
+                    if(setVariables1.size() > 0){
+                        Enumeration keys = setVariables1.keys();
+                        while (keys.hasMoreElements()) {
+                            Object key = keys.nextElement();
+                            String varName = (String)key;
+                            interp.set(varName, null);
+                            interp.set(varName, setVariables1.get(varName));
+                        }
 
-                } catch (Exception ignore) {}
-                if(setVariables1.size() > 0){
-                    Enumeration keys = setVariables1.keys();
-                    while (keys.hasMoreElements()) {
-                        Object key = keys.nextElement();
-                        String varName = (String)key;
-                        interp.set(varName, null);
-                        interp.set(varName, setVariables1.get(varName));
                     }
-
                 }
             }
+        } finally {
+            dataContext.getJythonManager().returnDerivedDataInterpreter(
+                interp);
+        }
+        if ((resultKey != null) && (result != null)) {
+            CacheManager.put(RESULT_CACHE, resultKey, result);
         }
         Trace.call2("DerivedData.getData");
         return result;
     }
 
 
+    /**
+     * Make the key for caching the result of evaluating our code with the
+     * given operands. The key holds the code, the operand values and
+     * the data sources the operands came from. Operand data is matched
+     * by identity. The data sources hand back the same objects from their
+     * caches until they are flushed.
+     *
+     * @param ops the operands, with their data
+     *
+     * @return the key or null if the result can't be cached
+     */
+    private ResultKey makeResultKey(List ops) {
+        if (constructedCode == null) {
+            return null;
+        }
+        List<DataSource> sources = new ArrayList<DataSource>();
+        findDataSources(this, sources);
+        if (sources.isEmpty()) {
+            //e.g., all user operands
+            return null;
+        }
+        Object[] values = new Object[ops.size() * 2];
+        for (int i = 0; i < ops.size(); i++) {
+            DataOperand op   = (DataOperand) ops.get(i);
+            Object      data = op.getData();
+            if ((data == null) || (data instanceof DataChoice)) {
+                return null;
+            }
+            values[i * 2]     = op.getName();
+            values[i * 2 + 1] = data;
+        }
+        return new ResultKey(constructedCode, values, sources);
+    }
+
+
+    /**
+     * Find the data sources of the given data choice and its children
+     *
+     * @param dataChoice the data choice
+     * @param sources the list to add them to
+     */
+    private static void findDataSources(DataChoice dataChoice,
+                                        List<DataSource> sources) {
+        if (dataChoice instanceof DirectDataChoice) {
+            DataSource source =
+                ((DirectDataChoice) dataChoice).getDataSource();
+            if ((source != null) && !sources.contains(source)) {
+                sources.add(source);
+            }
+        } else if (dataChoice instanceof ListDataChoice) {
+            List children = ((ListDataChoice) dataChoice).getChoices();
+            if (children == null) {
+                return;
+            }
+            for (int i = 0; i < children.size(); i++) {
+                findDataSources((DataChoice) children.get(i), sources);
+            }
+        }
+    }
+
+
+    /**
+     * Remove the cached results computed from the data of the given data
+     * source. This is called when the data source flushes its cache.
+     *
+     * @param source the data source
+     */
+    public static void removeCachedResults(DataSource source) {
+        Hashtable results = CacheManager.findOrCreate(RESULT_CACHE);
+        for (Enumeration keys = results.keys(); keys.hasMoreElements(); ) {
+            ResultKey key = (ResultKey) keys.nextElement();
+            if (key.usesDataSource(source)) {
+                CacheManager.remove(RESULT_CACHE, key);
+            }
+        }
+    }
+
+
+    /**
+     * The key for a cached result. Data operands are held weakly and
+     * matched by identity. Other operand values (e.g., user entered
+     * values) are matched with equals.
+     */
+    private static class ResultKey {
+
+        /** the code */
+        private String code;
+
+        /** operand names and values */
+        private Object[] values;
+
+        /** the data sources the operands came from */
+        private List<WeakReference<DataSource>> sources;
+
+        /** the hash code */
+        private int hashCode;
+
+        /**
+         * Create the key
+         *
+         * @param code the code
+         * @param values operand names and values
+         * @param sources the data sources the operands came from
+         */
+        private ResultKey(String code, Object[] values,
+                          List<DataSource> sources) {
+            this.code     = code;
+            this.values   = new Object[values.length];
+            this.hashCode = code.hashCode();
+            for (int i = 0; i < values.length; i++) {
+                Object value = values[i];
+                if ((value instanceof Data) || (value instanceof List)) {
+                    this.values[i] = new WeakReference<Object>(value);
+                    hashCode = 31 * hashCode
+                               + System.identityHashCode(value);
+                } else {
+                    this.values[i] = value;
+                    hashCode       = 31 * hashCode + Misc.hashcode(value);
+                }
+            }
+            this.sources = new ArrayList<WeakReference<DataSource>>();
+            for (DataSource source : sources) {
+                this.sources.add(new WeakReference<DataSource>(source));
+            }
+        }
+
+        /**
+         * Did any of the operands come from the data source
+         *
+         * @param source the data source
+         *
+         * @return true if it did
+         */
+        private boolean usesDataSource(DataSource source) {
+            for (WeakReference<DataSource> ref : sources) {
+                if (ref.get() == source) {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        /**
+         * hash code
+         *
+         * @return hash code
+         */
+        public int hashCode() {
+            return hashCode;
+        }
+
+        /**
+         * equals
+         *
+         * @param o object
+         *
+         * @return equals
+         */
+        public boolean equals(Object o) {
+            if (o == this) {
+                return true;
+            }
+            if ( !(o instanceof ResultKey)) {
+                return false;
+            }
+            ResultKey that = (ResultKey) o;
+            if ((hashCode != that.hashCode) || !code.equals(that.code)
+                    || (values.length != that.values.length)) {
+                return false;
+            }
+            for (int i = 0; i < values.length; i++) {
+                Object v1 = values[i];
+                Object v2 = that.values[i];
+                if ((v1 instanceof WeakReference)
+                        && (v2 instanceof WeakReference)) {
+                    Object data = ((WeakReference) v1).get();
+                    if ((data == null)
+                            || (data != ((WeakReference) v2).get())) {
+                        return false;
+                    }
+                } else if ( !Misc.equals(v1, v2)) {
+                    return false;
+                }
+            }
+            return true;
+        }
+    }
+
+
 
 
 
@@ -0,0 +1,168 @@
+/*
+ * Copyright 1997-2020 Unidata Program Center/University Corporation for
+ * Atmospheric Research, P.O. Box 3000, Boulder, CO 80307,
+ * support@unidata.ucar.edu.
+ *
+ * This library is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation; either version 2.1 of the License, or (at
+ * your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU Lesser
+ * General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this library; if not, write to the Free Software Foundation,
+ * Inc., 59 Temple Place, Suite 330, Boston, MA 02111-1307 USA
+ */
+
+package ucar.unidata.data;
+
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+
+import java.util.Map;
+import java.util.WeakHashMap;
+
+
+/**
+ * Hands out the locks used to serialize reads from open datasets. Reads
+ * through one handle on a file (e.g., one NetcdfDataset) have to be done
+ * one at a time, but reads through different handles, or from different
+ * files, do not. So each open handle gets its own lock.
+ * <p>
+ * For file formats that are safe to read through several handles at once
+ * (local NetCDF-3, NetCDF-4 and HDF5 files) a data source can open a few
+ * handles on the file and spread its reads over them. See
+ * {@link #canReadConcurrently(String)}.
+ *
+ * @author IDV Development Team
+ */
+public class ReadLockManager {
+
+    /** Default max number of handles to open on one file */
+    public static final int DEFAULT_MAX_HANDLES = 4;
+
+    /** NetCDF-3 magic number */
+    private static final byte[] NETCDF3_MAGIC = { 'C', 'D', 'F' };
+
+    /** HDF5 (and NetCDF-4) magic number */
+    private static final byte[] HDF5_MAGIC = {
+        (byte) 0x89, 'H', 'D', 'F', '\r', '\n', 0x1a, '\n'
+    };
+
+    /** The locks. Weak so they go away with their handles */
+    private static final Map<Object, Object> locks = new WeakHashMap<Object,
+                                                         Object>();
+
+    /** max number of handles to open on one file */
+    private static int maxHandles = DEFAULT_MAX_HANDLES;
+
+    /**
+     * Default ctor
+     */
+    private ReadLockManager() {}
+
+    /**
+     * Get the lock to use when reading through the given handle
+     *
+     * @param handle the open dataset (e.g., a NetcdfDataset)
+     *
+     * @return the lock for the handle
+     */
+    public static Object getLock(Object handle) {
+        synchronized (locks) {
+            Object lock = locks.get(handle);
+            if (lock == null) {
+                lock = new Object();
+                locks.put(handle, lock);
+            }
+            return lock;
+        }
+    }
+
+    /**
+     * Set the max number of handles a data source should open on one file
+     *
+     * @param handles max handles. 1 reads all through one handle
+     */
+    public static void setMaxHandles(int handles) {
+        maxHandles = Math.max(1, handles);
+    }
+
+    /**
+     * Get the max number of handles a data source should open on one file
+     *
+     * @return max handles
+     */
+    public static int getMaxHandles() {
+        return maxHandles;
+    }
+
+    /**
+     * Can the file be read through several handles at once. This is
+     * true for local NetCDF-3, NetCDF-4 and HDF5 files. It is not for
+     * remote data, aggregations or, e.g., GRIB where the handles share
+     * indices.
+     *
+     * @param path the file
+     *
+     * @return true if it is safe to open several handles on the file
+     */
+    public static boolean canReadConcurrently(String path) {
+        if ((path == null) || !new File(path).isFile()) {
+            return false;
+        }
+        byte[]      header = new byte[HDF5_MAGIC.length];
+        InputStream is     = null;
+        try {
+            is = new FileInputStream(path);
+            int read = 0;
+            while (read < header.length) {
+                int cnt = is.read(header, read, header.length - read);
+                if (cnt < 0) {
+                    break;
+                }
+                read += cnt;
+            }
+            return startsWith(header, read, NETCDF3_MAGIC)
+                   || startsWith(header, read, HDF5_MAGIC);
+        } catch (IOException ioe) {
+            return false;
+        } finally {
+            if (is != null) {
+                try {
+                    is.close();
+                } catch (IOException ignore) {}
+            }
+        }
+    }
+
+    /**
+     * Does the header start with the magic number
+     *
+     * @param header the header bytes
+     * @param length number of header bytes read
+     * @param magic the magic number
+     *
+     * @return true if it does
+     */
+    private static boolean startsWith(byte[] header, int length,
+                                      byte[] magic) {
+        if (length < magic.length) {
+            return false;
+        }
+        for (int i = 0; i < magic.length; i++) {
+            if (header[i] != magic[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+}
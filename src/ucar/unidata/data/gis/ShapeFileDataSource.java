@@ -371,28 +371,36 @@ public class ShapeFileDataSource extends FilesDataSource {
                 }
 
 
-                if (getProperty(PROP_CACHEABLE, false)) {
-                    bytes = CacheManager.getCachedFile("ShapeFileDataSource",
-                            filename);
-                }
-
-                if (bytes == null) {
-                    Object loadId =
-                        JobManager.getManager().startLoad("Map File");
-                    bytes = IOUtil.readBytes(IOUtil.getInputStream(filename,
-                            getClass()), loadId);
-                    JobManager.getManager().stopLoad(loadId);
-                }
+                ShapefileAdapter sfa;
+                if (IOUtil.hasSuffix(filename, ".shp")
+                        && new File(filename).isFile()
+                        && !getProperty(PROP_CACHEABLE, false)) {
+                    // local shapefiles are mapped and read as needed
+                    sfa = new ShapefileAdapter(filename, box, coarseness);
+                } else {
+                    if (getProperty(PROP_CACHEABLE, false)) {
+                        bytes = CacheManager.getCachedFile(
+                            "ShapeFileDataSource", filename);
+                    }
 
-                if (bytes == null) {
-                    return null;
-                }
+                    if (bytes == null) {
+                        Object loadId =
+                            JobManager.getManager().startLoad("Map File");
+                        bytes = IOUtil.readBytes(
+                            IOUtil.getInputStream(filename, getClass()),
+                            loadId);
+                        JobManager.getManager().stopLoad(loadId);
+                    }
 
-                InputStream inputStream = new ByteArrayInputStream(bytes, 0,
-                                              bytes.length);
-                ShapefileAdapter sfa = new ShapefileAdapter(inputStream,
-                                           filename, box, coarseness);
+                    if (bytes == null) {
+                        return null;
+                    }
 
+                    InputStream inputStream =
+                        new ByteArrayInputStream(bytes, 0, bytes.length);
+                    sfa = new ShapefileAdapter(inputStream, filename, box,
+                                               coarseness);
+                }
 
                 dbFile = sfa.getDbFile();
                 //If this is a .shp file then try to read in the dbf file
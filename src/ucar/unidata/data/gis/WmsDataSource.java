@@ -101,6 +101,27 @@ public class WmsDataSource extends DataSourceImpl {
     /** request property */
     public static final String PROP_LAYERS = "prop.wms.layers";
 
+    /** request property to turn tiled fetching on or off */
+    public static final String PROP_TILED = "prop.wms.tiled";
+
+    /** idv property for the default of tiled fetching */
+    public static final String PROP_TILES_DEFAULT = "idv.wms.tiles";
+
+    /** idv property for the MB of tiles to keep in memory */
+    public static final String PROP_TILES_MEMORY = "idv.wms.tiles.memory";
+
+    /** idv property for the MB of tiles to keep on disk */
+    public static final String PROP_TILES_DISK = "idv.wms.tiles.disk";
+
+    /** idv property for how many minutes a tile is good for */
+    public static final String PROP_TILES_MAXAGE = "idv.wms.tiles.maxage";
+
+    /** idv property for how many tiles are read at once */
+    public static final String PROP_TILES_THREADS = "idv.wms.tiles.threads";
+
+    /** The tile cache, shared by all of the WMS data sources */
+    private static WmsTileCache tileCache;
+
     /** categories */
     private List categories = DataCategory.parseCategories("GIS-WMS", false);
 
@@ -118,6 +139,15 @@ public class WmsDataSource extends DataSourceImpl {
     /** _more_          */
     private JCheckBox maintainRatioCbx;
 
+    /**
+     * Read the images as tiles of a fixed pyramid. null to use the
+     * idv property
+     */
+    private Boolean tiled;
+
+    /** Checkbox for tiled */
+    private JCheckBox tiledCbx;
+
 
     /**
      * The bytes of the last image we loaded. Keep this around for resonding easily to the
@@ -352,9 +382,23 @@ public class WmsDataSource extends DataSourceImpl {
 
             double diff = Math.abs(boundsToUse.getMinLon()
                                    - boundsToUse.getMaxLon());
-            String url = wmsInfo.assembleRequest(boundsToUse,
-                             (int) (imageWidth / resolution),
-                             (int) (imageHeight / resolution));
+            WmsTileCache.TileSet tileSet = null;
+            if ((writeFile == null) && wmsInfo.getAllowSubsets()
+                    && (wmsInfo.getFixedWidth() < 0)
+                    && (wmsInfo.getFixedHeight() < 0)
+                    && Misc.getProperty(requestProperties, PROP_TILED,
+                                        getTiledToUse())) {
+                tileSet = WmsTileCache.getTileSet(boundsToUse,
+                        (int) (imageWidth / resolution));
+                boundsToUse = tileSet.getBounds();
+            }
+
+            String url = ((tileSet != null)
+                          ? wmsInfo.assembleRequest(boundsToUse,
+                              tileSet.getWidth(), tileSet.getHeight())
+                          : wmsInfo.assembleRequest(boundsToUse,
+                              (int) (imageWidth / resolution),
+                              (int) (imageHeight / resolution)));
 
 
             String cacheGroup = "WMS";
@@ -374,6 +418,26 @@ public class WmsDataSource extends DataSourceImpl {
 
 
             try {
+                if (tileSet != null) {
+                    LogUtil.message("Reading WMS tiles: " + wmsInfo);
+                    try {
+                        image = getTileCache().getImage(wmsInfo, tileSet,
+                                myLoadId);
+                    } catch (WmsTileCache.TileException exc) {
+                        url          = exc.getUrl();
+                        imageContent = exc.getContent();
+                        throw exc;
+                    }
+                    LogUtil.message("");
+                    if (image == null) {
+                        return null;
+                    }
+                    lastUrl = url;
+                    updateDetailsText();
+                    if ( !JobManager.getManager().canContinue(myLoadId)) {
+                        return null;
+                    }
+                }
                 if (image == null) {
                     if (Misc.equals(url, lastUrl)
                             && (lastImageContent != null)) {
@@ -558,6 +622,10 @@ public class WmsDataSource extends DataSourceImpl {
         maintainRatioCbx = new JCheckBox("Match Ration", maintainRatio);
         comps.add(GuiUtils.filler());
         comps.add(GuiUtils.left(maintainRatioCbx));
+        tiledCbx = new JCheckBox("Fetch and cache images as tiles",
+                                 getTiledToUse());
+        comps.add(GuiUtils.filler());
+        comps.add(GuiUtils.left(tiledCbx));
     }
 
     /**
@@ -570,6 +638,9 @@ public class WmsDataSource extends DataSourceImpl {
             return false;
         }
         maintainRatio = maintainRatioCbx.isSelected();
+        if (tiledCbx.isSelected() != getTiledToUse()) {
+            tiled = Boolean.valueOf(tiledCbx.isSelected());
+        }
         return true;
 
     }
@@ -682,5 +753,71 @@ public class WmsDataSource extends DataSourceImpl {
         return this.maintainRatio;
     }
 
+    /**
+     * Set the Tiled property.
+     *
+     * @param value true to read the images as tiles. null to use the idv
+     *              property
+     */
+    public void setTiled(Boolean value) {
+        this.tiled = value;
+    }
+
+    /**
+     * Get the Tiled property.
+     *
+     * @return The Tiled
+     */
+    public Boolean getTiled() {
+        return this.tiled;
+    }
+
+    /**
+     * Should the images be read as tiles. Uses the idv property
+     * {@link #PROP_TILES_DEFAULT} if the Tiled property is not set.
+     *
+     * @return true to read tiles
+     */
+    private boolean getTiledToUse() {
+        if (tiled != null) {
+            return tiled.booleanValue();
+        }
+        return (getIdv() != null)
+               && getIdv().getProperty(PROP_TILES_DEFAULT, false);
+    }
+
+    /**
+     * Get the tile cache, making it if needed. The tiles go in the wmstiles
+     * directory of the data cache.
+     *
+     * @return the tile cache
+     */
+    private WmsTileCache getTileCache() {
+        synchronized (WmsDataSource.class) {
+            if (tileCache == null) {
+                File   dir     = null;
+                int    memory  = 64;
+                int    disk    = 256;
+                double maxAge  = 30;
+                int    threads = 4;
+                if (getIdv() != null) {
+                    dir = new File(IOUtil.joinDir(
+                        getIdv().getDataManager().getDataCacheDirectory(),
+                        "wmstiles"));
+                    memory  = getIdv().getProperty(PROP_TILES_MEMORY, memory);
+                    disk    = getIdv().getProperty(PROP_TILES_DISK, disk);
+                    maxAge  = getIdv().getProperty(PROP_TILES_MAXAGE, maxAge);
+                    threads = getIdv().getProperty(PROP_TILES_THREADS,
+                            threads);
+                }
+                tileCache = new WmsTileCache(dir, memory * 1024L * 1024L,
+                                             disk * 1024L * 1024L,
+                                             (long) (maxAge * 60 * 1000),
+                                             threads);
+            }
+            return tileCache;
+        }
+    }
+
 
 }
@@ -0,0 +1,793 @@
+/*
+ * Copyright 1997-2020 Unidata Program Center/University Corporation for
+ * Atmospheric Research, P.O. Box 3000, Boulder, CO 80307,
+ * support@unidata.ucar.edu.
+ *
+ * This library is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation; either version 2.1 of the License, or (at
+ * your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU Lesser
+ * General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this library; if not, write to the Free Software Foundation,
+ * Inc., 59 Temple Place, Suite 330, Boston, MA 02111-1307 USA
+ */
+
+package ucar.unidata.data.gis;
+
+
+import ucar.unidata.data.GeoLocationInfo;
+import ucar.unidata.util.IOUtil;
+import ucar.unidata.util.JobManager;
+
+import java.awt.Graphics2D;
+import java.awt.image.BufferedImage;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+
+import javax.imageio.ImageIO;
+
+
+/**
+ * Fetches WMS images as tiles of a fixed pyramid and keeps the tiles in
+ * memory and on disk, so a view that moves a little only needs the tiles
+ * at its edges. Level z of the pyramid has 2^(z+1) by 2^z tiles of
+ * {@link #TILE_SIZE} pixels covering -180 to 180 longitude and -90 to 90
+ * latitude (the bounding boxes sent to the server are always in degrees,
+ * see {@link WmsSelection#assembleRequest}). The tiles are kept per
+ * server, layer, SRS, format and transparency. Missing tiles are read in
+ * parallel.
+ *
+ * @author IDV Development Team
+ */
+public class WmsTileCache {
+
+    /** Width and height of a tile in pixels */
+    public static final int TILE_SIZE = 256;
+
+    /** Deepest pyramid level */
+    public static final int MAX_LEVEL = 20;
+
+    /** Most pixels in each direction of a composited image */
+    public static final int MAX_PIXELS = 4096;
+
+    /** Suffix of the tile files */
+    private static final String TILE_SUFFIX = ".tile";
+
+    /** Directory of the disk cache. null for no disk cache */
+    private File cacheDir;
+
+    /** Bytes of decoded tiles to keep in memory */
+    private long maxMemory;
+
+    /** Bytes of tile files to keep on disk */
+    private long maxDisk;
+
+    /** How long a tile is good for, in milliseconds. &lt;= 0 for ever */
+    private long maxAge;
+
+    /** Bytes of the tiles in memory */
+    private long memoryBytes = 0;
+
+    /** Bytes of the tile files. -1 until the directory has been looked at */
+    private long diskBytes = -1;
+
+    /** The tiles in memory, least recently used first */
+    private LinkedHashMap<String, Tile> tiles = new LinkedHashMap<String,
+                                                    Tile>(64, 0.75f, true);
+
+    /** Reads the tiles */
+    private ExecutorService executor;
+
+    /** Number of tiles read from the server */
+    private long serverCnt = 0;
+
+    /** Number of tiles found in memory or on disk */
+    private long hitCnt = 0;
+
+    /**
+     * A decoded tile
+     */
+    private static class Tile {
+
+        /** The image. null if the server had nothing for the tile */
+        BufferedImage image;
+
+        /** When it was read from the server */
+        long time;
+
+        /**
+         * ctor
+         *
+         * @param image the image
+         * @param time when it was read
+         */
+        Tile(BufferedImage image, long time) {
+            this.image = image;
+            this.time  = time;
+        }
+
+        /**
+         * Get the memory used
+         *
+         * @return bytes
+         */
+        long getBytes() {
+            return (image == null)
+                   ? 64
+                   : 4L * image.getWidth() * image.getHeight();
+        }
+    }
+
+    /**
+     * Thrown when the server sends something that isn't an image for a
+     * tile (e.g., a ServiceExceptionReport)
+     */
+    public static class TileException extends IOException {
+
+        /** The url of the tile */
+        private String url;
+
+        /** What the server sent. May be null */
+        private byte[] content;
+
+        /**
+         * ctor
+         *
+         * @param msg message
+         * @param url url of the tile
+         * @param content what the server sent
+         */
+        public TileException(String msg, String url, byte[] content) {
+            super(msg);
+            this.url     = url;
+            this.content = content;
+        }
+
+        /**
+         * Get the url of the tile
+         *
+         * @return url
+         */
+        public String getUrl() {
+            return url;
+        }
+
+        /**
+         * Get what the server sent
+         *
+         * @return the bytes or null
+         */
+        public byte[] getContent() {
+            return content;
+        }
+    }
+
+    /**
+     * The tiles of one level that cover a region
+     */
+    public static class TileSet {
+
+        /** Pyramid level */
+        private int level;
+
+        /** First and last column, west to east */
+        private int col0, col1;
+
+        /** First and last row, south to north */
+        private int row0, row1;
+
+        /**
+         * ctor
+         *
+         * @param level level
+         * @param col0 first column
+         * @param col1 last column
+         * @param row0 first row
+         * @param row1 last row
+         */
+        TileSet(int level, int col0, int col1, int row0, int row1) {
+            this.level = level;
+            this.col0  = col0;
+            this.col1  = col1;
+            this.row0  = row0;
+            this.row1  = row1;
+        }
+
+        /**
+         * Get the pyramid level
+         *
+         * @return level
+         */
+        public int getLevel() {
+            return level;
+        }
+
+        /**
+         * Get the number of tiles
+         *
+         * @return number of tiles
+         */
+        public int getNumTiles() {
+            return (col1 - col0 + 1) * (row1 - row0 + 1);
+        }
+
+        /**
+         * Get the width of the composited image
+         *
+         * @return pixels
+         */
+        public int getWidth() {
+            return (col1 - col0 + 1) * TILE_SIZE;
+        }
+
+        /**
+         * Get the height of the composited image
+         *
+         * @return pixels
+         */
+        public int getHeight() {
+            return (row1 - row0 + 1) * TILE_SIZE;
+        }
+
+        /**
+         * Get the area covered by the tiles
+         *
+         * @return bounds
+         */
+        public GeoLocationInfo getBounds() {
+            double deg = getTileDegrees(level);
+            return new GeoLocationInfo(-90 + (row1 + 1) * deg,
+                                       -180 + col0 * deg, -90 + row0 * deg,
+                                       -180 + (col1 + 1) * deg);
+        }
+
+        /**
+         * Get the bounds of a tile
+         *
+         * @param col column
+         * @param row row
+         *
+         * @return bounds
+         */
+        GeoLocationInfo getTileBounds(int col, int row) {
+            double deg = getTileDegrees(level);
+            return new GeoLocationInfo(-90 + (row + 1) * deg,
+                                       -180 + col * deg, -90 + row * deg,
+                                       -180 + (col + 1) * deg);
+        }
+    }
+
+    /**
+     * Create the cache
+     *
+     * @param cacheDir directory for the tile files. null for no disk cache
+     * @param maxMemory bytes of decoded tiles to keep in memory
+     * @param maxDisk bytes of tile files to keep on disk
+     * @param maxAge how long a tile is good for, in milliseconds.
+     *               &lt;= 0 to keep them until they are pushed out
+     * @param numThreads most tiles to read at once
+     */
+    public WmsTileCache(File cacheDir, long maxMemory, long maxDisk,
+                        long maxAge, int numThreads) {
+        this.cacheDir  = cacheDir;
+        this.maxMemory = maxMemory;
+        this.maxDisk   = maxDisk;
+        this.maxAge    = maxAge;
+        if (cacheDir != null) {
+            cacheDir.mkdirs();
+        }
+        executor = Executors.newFixedThreadPool(Math.max(1, numThreads),
+                new ThreadFactory() {
+            public Thread newThread(Runnable r) {
+                Thread thread = new Thread(r, "WMS tile reader");
+                thread.setDaemon(true);
+                return thread;
+            }
+        });
+    }
+
+    /**
+     * Get the size of a tile at a level
+     *
+     * @param level the level
+     *
+     * @return degrees
+     */
+    public static double getTileDegrees(int level) {
+        return 180.0 / (1 << level);
+    }
+
+    /**
+     * Find the tiles that cover the bounds at about the resolution of an
+     * image of the given width. The level is the one closest to that
+     * resolution whose composited image isn't more than
+     * {@link #MAX_PIXELS} across.
+     *
+     * @param bounds the region
+     * @param imageWidth width of the image wanted
+     *
+     * @return the tiles
+     */
+    public static TileSet getTileSet(GeoLocationInfo bounds,
+                                     int imageWidth) {
+        double degPerPixel = bounds.getDegreesX() / Math.max(1, imageWidth);
+        int level = (int) Math.round(Math.log(180.0
+                        / (TILE_SIZE * degPerPixel)) / Math.log(2));
+        level = Math.max(0, Math.min(MAX_LEVEL, level));
+        while (true) {
+            double deg  = getTileDegrees(level);
+            int    cols = 2 << level;
+            int    rows = 1 << level;
+            int col0 = clamp((int) Math.floor((bounds.getMinLon() + 180)
+                                              / deg), cols);
+            int col1 = clamp((int) Math.ceil((bounds.getMaxLon() + 180)
+                                             / deg) - 1, cols);
+            int row0 = clamp((int) Math.floor((bounds.getMinLat() + 90)
+                                              / deg), rows);
+            int row1 = clamp((int) Math.ceil((bounds.getMaxLat() + 90)
+                                             / deg) - 1, rows);
+            TileSet tileSet = new TileSet(level, col0, Math.max(col0, col1),
+                                          row0, Math.max(row0, row1));
+            if ((level == 0)
+                    || ((tileSet.getWidth() <= MAX_PIXELS)
+                        && (tileSet.getHeight() <= MAX_PIXELS))) {
+                return tileSet;
+            }
+            level--;
+        }
+    }
+
+    /**
+     * Clamp a tile index
+     *
+     * @param index the index
+     * @param num number of tiles
+     *
+     * @return the index, between 0 and num-1
+     */
+    private static int clamp(int index, int num) {
+        return Math.max(0, Math.min(num - 1, index));
+    }
+
+    /**
+     * Get the image for the tiles, reading the ones that aren't cached.
+     * Tiles the server had nothing for are left transparent.
+     *
+     * @param wmsInfo the layer
+     * @param tileSet the tiles
+     * @param loadId If non-null check with the JobManager if we should
+     *               continue
+     *
+     * @return the image or null if the load was stopped
+     *
+     * @throws IOException problem reading a tile
+     */
+    public BufferedImage getImage(final WmsSelection wmsInfo,
+                                  final TileSet tileSet, final Object loadId)
+            throws IOException {
+        final String layerKey = getLayerKey(wmsInfo);
+        BufferedImage image = new BufferedImage(tileSet.getWidth(),
+                                  tileSet.getHeight(),
+                                  BufferedImage.TYPE_INT_ARGB);
+        Graphics2D          g       = image.createGraphics();
+        List<Future<Tile>>  futures = new ArrayList<Future<Tile>>();
+        List<int[]>         missing = new ArrayList<int[]>();
+        try {
+            for (int row = tileSet.row0; row <= tileSet.row1; row++) {
+                for (int col = tileSet.col0; col <= tileSet.col1; col++) {
+                    Tile tile = getCached(layerKey, tileSet.level, col, row);
+                    if (tile != null) {
+                        draw(g, tileSet, tile, col, row);
+                        continue;
+                    }
+                    final int c = col;
+                    final int r = row;
+                    missing.add(new int[] { col, row });
+                    futures.add(executor.submit(new Callable<Tile>() {
+                        public Tile call() throws Exception {
+                            return readTile(wmsInfo, layerKey, tileSet, c,
+                                            r, loadId);
+                        }
+                    }));
+                }
+            }
+            for (int i = 0; i < futures.size(); i++) {
+                Tile tile;
+                try {
+                    tile = futures.get(i).get();
+                } catch (InterruptedException exc) {
+                    throw new IOException("Interrupted reading WMS tiles");
+                } catch (ExecutionException exc) {
+                    Throwable cause = exc.getCause();
+                    if (cause instanceof IOException) {
+                        throw (IOException) cause;
+                    }
+                    throw new IOException(cause.toString());
+                }
+                if (tile == null) {
+                    return null;
+                }
+                int[] colRow = missing.get(i);
+                draw(g, tileSet, tile, colRow[0], colRow[1]);
+            }
+        } finally {
+            for (Future<Tile> future : futures) {
+                future.cancel(false);
+            }
+            g.dispose();
+        }
+        return image;
+    }
+
+    /**
+     * Draw a tile into the composited image
+     *
+     * @param g graphics of the image
+     * @param tileSet the tiles of the image
+     * @param tile the tile
+     * @param col its column
+     * @param row its row
+     */
+    private void draw(Graphics2D g, TileSet tileSet, Tile tile, int col,
+                      int row) {
+        if (tile.image == null) {
+            return;
+        }
+        g.drawImage(tile.image, (col - tileSet.col0) * TILE_SIZE,
+                    (tileSet.row1 - row) * TILE_SIZE, TILE_SIZE, TILE_SIZE,
+                    null);
+    }
+
+    /**
+     * Get a tile from memory or disk
+     *
+     * @param layerKey the layer
+     * @param level pyramid level
+     * @param col column
+     * @param row row
+     *
+     * @return the tile or null if it isn't cached or is too old
+     */
+    private Tile getCached(String layerKey, int level, int col, int row) {
+        String key = layerKey + "/" + level + "/" + col + "_" + row;
+        synchronized (tiles) {
+            Tile tile = tiles.get(key);
+            if (tile != null) {
+                if ( !isTooOld(tile.time)) {
+                    hitCnt++;
+                    return tile;
+                }
+                tiles.remove(key);
+                memoryBytes -= tile.getBytes();
+            }
+        }
+        File file = getTileFile(layerKey, level, col, row);
+        if ((file == null) || !file.isFile()
+                || isTooOld(file.lastModified())) {
+            return null;
+        }
+        try {
+            byte[] bytes = IOUtil.readBytes(IOUtil.getInputStream(
+                               file.getPath()));
+            Tile tile = new Tile((bytes.length == 0)
+                                 ? null
+                                 : ImageIO.read(
+                                     new ByteArrayInputStream(bytes)), file
+                                         .lastModified());
+            if ((bytes.length > 0) && (tile.image == null)) {
+                file.delete();
+                return null;
+            }
+            putInMemory(key, tile);
+            synchronized (tiles) {
+                hitCnt++;
+            }
+            return tile;
+        } catch (IOException exc) {
+            file.delete();
+            return null;
+        }
+    }
+
+    /**
+     * Read a tile from the server and cache it
+     *
+     * @param wmsInfo the layer
+     * @param layerKey key of the layer
+     * @param tileSet the tiles
+     * @param col column
+     * @param row row
+     * @param loadId If non-null check with the JobManager if we should
+     *               continue
+     *
+     * @return the tile or null if the load was stopped
+     *
+     * @throws IOException problem reading the tile
+     */
+    private Tile readTile(WmsSelection wmsInfo, String layerKey,
+                          TileSet tileSet, int col, int row, Object loadId)
+            throws IOException {
+        if ((loadId != null)
+                && !JobManager.getManager().canContinue(loadId)) {
+            return null;
+        }
+        String url = wmsInfo.assembleRequest(tileSet.getTileBounds(col,
+                         row), TILE_SIZE, TILE_SIZE);
+        byte[] bytes;
+        try {
+            bytes = IOUtil.readBytes(IOUtil.getInputStream(url), loadId);
+        } catch (IOException exc) {
+            throw new TileException(exc.toString(), url, null);
+        }
+        if (bytes == null) {
+            return null;
+        }
+        BufferedImage image = null;
+        try {
+            image = ImageIO.read(new ByteArrayInputStream(bytes));
+        } catch (IOException ignore) {}
+        if (image == null) {
+            throw new TileException("Could not read WMS tile", url, bytes);
+        }
+        if (isEmpty(image)) {
+            // nothing there. Keep an empty file so we don't ask again
+            image = null;
+            bytes = new byte[0];
+        }
+        Tile   tile = new Tile(image, System.currentTimeMillis());
+        String key  = layerKey + "/" + tileSet.level + "/" + col + "_" + row;
+        putInMemory(key, tile);
+        writeTile(getTileFile(layerKey, tileSet.level, col, row), bytes);
+        synchronized (tiles) {
+            serverCnt++;
+        }
+        return tile;
+    }
+
+    /**
+     * Is the image all transparent
+     *
+     * @param image the image
+     *
+     * @return true if all of its pixels are transparent
+     */
+    private static boolean isEmpty(BufferedImage image) {
+        if ( !image.getColorModel().hasAlpha()) {
+            return false;
+        }
+        int[] row = new int[image.getWidth()];
+        for (int y = 0; y < image.getHeight(); y++) {
+            image.getRGB(0, y, row.length, 1, row, 0, row.length);
+            for (int x = 0; x < row.length; x++) {
+                if ((row[x] >>> 24) != 0) {
+                    return false;
+                }
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Is something read at the given time too old to use
+     *
+     * @param time when it was read
+     *
+     * @return true if too old
+     */
+    private boolean isTooOld(long time) {
+        return (maxAge > 0) && (System.currentTimeMillis() - time > maxAge);
+    }
+
+    /**
+     * Put a tile in memory, dropping the least recently used ones if
+     * there are too many
+     *
+     * @param key key of the tile
+     * @param tile the tile
+     */
+    private void putInMemory(String key, Tile tile) {
+        synchronized (tiles) {
+            Tile old = tiles.put(key, tile);
+            if (old != null) {
+                memoryBytes -= old.getBytes();
+            }
+            memoryBytes += tile.getBytes();
+            Iterator<Map.Entry<String, Tile>> it =
+                tiles.entrySet().iterator();
+            while ((memoryBytes > maxMemory) && (tiles.size() > 1)) {
+                memoryBytes -= it.next().getValue().getBytes();
+                it.remove();
+            }
+        }
+    }
+
+    /**
+     * Write a tile file and prune the disk cache if it is too big
+     *
+     * @param file the file. May be null
+     * @param bytes what the server sent
+     */
+    private void writeTile(File file, byte[] bytes) {
+        if (file == null) {
+            return;
+        }
+        file.getParentFile().mkdirs();
+        File             tmpFile = new File(file.getPath() + ".tmp");
+        FileOutputStream fos     = null;
+        try {
+            fos = new FileOutputStream(tmpFile);
+            fos.write(bytes);
+            fos.close();
+            fos = null;
+            long oldLength = file.length();
+            file.delete();
+            if ( !tmpFile.renameTo(file)) {
+                tmpFile.delete();
+                return;
+            }
+            synchronized (this) {
+                if (diskBytes >= 0) {
+                    diskBytes += bytes.length - oldLength;
+                }
+            }
+        } catch (IOException exc) {
+            tmpFile.delete();
+        } finally {
+            IOUtil.close(fos);
+        }
+        pruneDisk();
+    }
+
+    /**
+     * Delete the oldest tile files until the disk cache is down to 3/4 of
+     * its size if it is over
+     */
+    private synchronized void pruneDisk() {
+        if (diskBytes < 0) {
+            diskBytes = 0;
+            for (File file : listTileFiles()) {
+                diskBytes += file.length();
+            }
+        }
+        if (diskBytes <= maxDisk) {
+            return;
+        }
+        List<File> files = listTileFiles();
+        final Map<File, Long> times = new HashMap<File, Long>();
+        for (File file : files) {
+            times.put(file, file.lastModified());
+        }
+        File[] sorted = files.toArray(new File[files.size()]);
+        Arrays.sort(sorted, new Comparator<File>() {
+            public int compare(File a, File b) {
+                return times.get(a).compareTo(times.get(b));
+            }
+        });
+        for (int i = 0; (i < sorted.length) && (diskBytes > maxDisk * 3 / 4);
+                i++) {
+            long length = sorted[i].length();
+            if (sorted[i].delete()) {
+                diskBytes -= length;
+            }
+        }
+    }
+
+    /**
+     * Find all of the tile files
+     *
+     * @return the files
+     */
+    private List<File> listTileFiles() {
+        List<File> files = new ArrayList<File>();
+        if (cacheDir != null) {
+            listTileFiles(cacheDir, files);
+        }
+        return files;
+    }
+
+    /**
+     * Find the tile files under a directory
+     *
+     * @param dir the directory
+     * @param files add them here
+     */
+    private void listTileFiles(File dir, List<File> files) {
+        File[] children = dir.listFiles();
+        if (children == null) {
+            return;
+        }
+        for (File child : children) {
+            if (child.isDirectory()) {
+                listTileFiles(child, files);
+            } else if (child.getName().endsWith(TILE_SUFFIX)) {
+                files.add(child);
+            }
+        }
+    }
+
+    /**
+     * Get the file of a tile
+     *
+     * @param layerKey key of the layer
+     * @param level pyramid level
+     * @param col column
+     * @param row row
+     *
+     * @return the file or null if there is no disk cache
+     */
+    private File getTileFile(String layerKey, int level, int col, int row) {
+        if (cacheDir == null) {
+            return null;
+        }
+        return new File(cacheDir,
+                        layerKey + File.separator + level + File.separator
+                        + col + "_" + row + TILE_SUFFIX);
+    }
+
+    /**
+     * Get the key of a layer. The tiles of two selections are the same if
+     * their keys are.
+     *
+     * @param wmsInfo the layer
+     *
+     * @return a key that can be used as a file name
+     */
+    private static String getLayerKey(WmsSelection wmsInfo) {
+        String id = wmsInfo.getServer() + "|" + wmsInfo.getVersion() + "|"
+                    + wmsInfo.getLayer() + "|" + wmsInfo.getSRS() + "|"
+                    + wmsInfo.getFormat() + "|" + wmsInfo.getOpaque();
+        String name = String.valueOf(wmsInfo.getLayer()).replaceAll(
+                          "[^A-Za-z0-9_.-]", "_");
+        if (name.length() > 40) {
+            name = name.substring(0, 40);
+        }
+        return name + "_" + Integer.toHexString(id.hashCode());
+    }
+
+    /**
+     * Get the number of tiles read from the server
+     *
+     * @return count
+     */
+    public long getServerCount() {
+        synchronized (tiles) {
+            return serverCnt;
+        }
+    }
+
+    /**
+     * Get the number of tiles found in memory or on disk
+     *
+     * @return count
+     */
+    public long getHitCount() {
+        synchronized (tiles) {
+            return hitCnt;
+        }
+    }
+
+}
@@ -0,0 +1,172 @@
+/*
+ * Copyright 1997-2020 Unidata Program Center/University Corporation for
+ * Atmospheric Research, P.O. Box 3000, Boulder, CO 80307,
+ * support@unidata.ucar.edu.
+ *
+ * This library is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation; either version 2.1 of the License, or (at
+ * your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU Lesser
+ * General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this library; if not, write to the Free Software Foundation,
+ * Inc., 59 Temple Place, Suite 330, Boston, MA 02111-1307 USA
+ */
+
+package ucar.unidata.data.grid;
+
+
+import ucar.visad.UtcDate;
+
+import visad.Data;
+import visad.FieldImpl;
+import visad.FlatField;
+import visad.FunctionType;
+import visad.Gridded1DSet;
+import visad.SetType;
+import visad.VisADException;
+
+import java.rmi.RemoteException;
+
+
+/**
+ * A time sequence of daily anomalies, (time -&gt; anomaly grid), that
+ * makes the anomaly of a day from the daily data and a climatology when
+ * it is asked for. The anomalies are not held on to so the sequence can
+ * be walked without having all of the daily data in memory.
+ *
+ * @author IDV Development Team
+ * @see DerivedGridFactory#calculateStreamingDailyAnomaly
+ */
+public class DailyAnomalyField extends FieldImpl {
+
+    /** The daily data */
+    private FieldImpl dailyData;
+
+    /** The climatology */
+    private FieldImpl dailyClim;
+
+    /** julian day of each time */
+    private int[] jdays;
+
+    /** julian days of the climatology */
+    private int[] climdays;
+
+    /** make the anomaly as a percent of normal */
+    private boolean asPercent;
+
+    /**
+     * Create the field
+     *
+     * @param dailyData  the daily data
+     * @param dailyClim  the climatology
+     * @param asPercent  make the values a percentage of normal (+/-)
+     *
+     * @throws RemoteException Java RMI error
+     * @throws VisADException  VisAD Error
+     */
+    public DailyAnomalyField(FieldImpl dailyData, FieldImpl dailyClim,
+                             boolean asPercent)
+            throws VisADException, RemoteException {
+        this(dailyData, dailyClim, asPercent,
+             (Gridded1DSet) GridUtil.getTimeSet(dailyData));
+    }
+
+    /**
+     * Create the field
+     *
+     * @param dailyData  the daily data
+     * @param dailyClim  the climatology
+     * @param asPercent  make the values a percentage of normal (+/-)
+     * @param dailyTimes  the times of the daily data
+     *
+     * @throws RemoteException Java RMI error
+     * @throws VisADException  VisAD Error
+     */
+    private DailyAnomalyField(FieldImpl dailyData, FieldImpl dailyClim,
+                              boolean asPercent, Gridded1DSet dailyTimes)
+            throws VisADException, RemoteException {
+        super(new FunctionType(((SetType) dailyTimes.getType()).getDomain(),
+                               makeAnomaly(dailyData, dailyClim, asPercent,
+                                           dailyTimes).getType()),
+              dailyTimes);
+        this.dailyData = dailyData;
+        this.dailyClim = dailyClim;
+        this.asPercent = asPercent;
+        this.jdays     = UtcDate.convertDateTimeToJulianDay(dailyTimes);
+        this.climdays  = UtcDate.convertDateTimeToJulianDay(
+            (Gridded1DSet) GridUtil.getTimeSet(dailyClim));
+    }
+
+    /**
+     * Make the anomaly of the first day, to get its type
+     *
+     * @param dailyData  the daily data
+     * @param dailyClim  the climatology
+     * @param asPercent  make the values a percentage of normal (+/-)
+     * @param dailyTimes  the times of the daily data
+     *
+     * @return the anomaly of the first day
+     *
+     * @throws RemoteException Java RMI error
+     * @throws VisADException  VisAD Error
+     */
+    private static FlatField makeAnomaly(FieldImpl dailyData,
+                                         FieldImpl dailyClim,
+                                         boolean asPercent,
+                                         Gridded1DSet dailyTimes)
+            throws VisADException, RemoteException {
+        return DerivedGridFactory.makeDailyAnomaly(
+            (FlatField) dailyData.getSample(0, false), 0,
+            UtcDate.convertDateTimeToJulianDay(dailyTimes)[0], dailyClim,
+            UtcDate.convertDateTimeToJulianDay(
+                (Gridded1DSet) GridUtil.getTimeSet(dailyClim)), asPercent);
+    }
+
+    /**
+     * Get the anomaly at the given index
+     *
+     * @param index index of the day
+     *
+     * @return the anomaly
+     *
+     * @throws RemoteException Java RMI error
+     * @throws VisADException  VisAD Error
+     */
+    public Data getSample(int index) throws VisADException, RemoteException {
+        return getSample(index, false);
+    }
+
+    /**
+     * Get the anomaly at the given index
+     *
+     * @param index index of the day
+     * @param metadataOnly ignored
+     *
+     * @return the anomaly
+     *
+     * @throws RemoteException Java RMI error
+     * @throws VisADException  VisAD Error
+     */
+    public Data getSample(int index, boolean metadataOnly)
+            throws VisADException, RemoteException {
+        return DerivedGridFactory.makeDailyAnomaly(
+            (FlatField) dailyData.getSample(index, false), index,
+            jdays[index], dailyClim, climdays, asPercent);
+    }
+
+    /**
+     * Is this missing
+     *
+     * @return false, there is always a daily grid
+     */
+    public boolean isMissing() {
+        return false;
+    }
+
+}
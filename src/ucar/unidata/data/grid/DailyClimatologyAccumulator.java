@@ -0,0 +1,388 @@
+/*
+ * Copyright 1997-2020 Unidata Program Center/University Corporation for
+ * Atmospheric Research, P.O. Box 3000, Boulder, CO 80307,
+ * support@unidata.ucar.edu.
+ *
+ * This library is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation; either version 2.1 of the License, or (at
+ * your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU Lesser
+ * General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this library; if not, write to the Free Software Foundation,
+ * Inc., 59 Temple Place, Suite 330, Boston, MA 02111-1307 USA
+ */
+
+package ucar.unidata.data.grid;
+
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+
+/**
+ * Running statistics (count, sum, sum of squares, min and max) of each
+ * grid value for each day of the year, so a daily climatology can be made
+ * by walking a long series of daily grids once without holding on to them.
+ * The accumulators of the days not used recently are spilled to a
+ * temporary file when they don't fit in the memory given.
+ *
+ * @author IDV Development Team
+ */
+public class DailyClimatologyAccumulator {
+
+    /** Bytes per value in a day's accumulators */
+    private static final int BYTES_PER_VALUE = 8 + 8 + 4 + 4 + 4;
+
+    /** Number of days of the year */
+    private int numDays;
+
+    /** Number of range components of the grids */
+    private int numComponents;
+
+    /** Number of values in each component */
+    private int numPoints;
+
+    /** Most days to keep in memory */
+    private int maxDaysInMemory;
+
+    /** Directory for the spill file. null for the default temp dir */
+    private File spillDir;
+
+    /** The spill file. Made when first needed */
+    private File spillFile;
+
+    /** The open spill file */
+    private RandomAccessFile spill;
+
+    /** Is the day in the spill file */
+    private boolean[] spilled;
+
+    /** The days in memory, least recently used first */
+    private LinkedHashMap<Integer, Day> days =
+        new LinkedHashMap<Integer, Day>(16, 0.75f, true);
+
+    /**
+     * The accumulators for one day
+     */
+    private static class Day {
+
+        /** number of values */
+        int[] count;
+
+        /** sum of the values */
+        double[] sum;
+
+        /** sum of the squares of the values */
+        double[] sumSquares;
+
+        /** min value */
+        float[] min;
+
+        /** max value */
+        float[] max;
+
+        /**
+         * Make empty accumulators
+         *
+         * @param size number of values
+         */
+        Day(int size) {
+            count      = new int[size];
+            sum        = new double[size];
+            sumSquares = new double[size];
+            min        = new float[size];
+            max        = new float[size];
+            Arrays.fill(min, Float.NaN);
+            Arrays.fill(max, Float.NaN);
+        }
+    }
+
+    /**
+     * Create the accumulator. Up to a quarter of the max heap is used
+     * before spilling to the default temp directory.
+     *
+     * @param numDays number of days (365 or 366)
+     * @param numComponents number of range components of the grids
+     * @param numPoints number of points in the grids
+     */
+    public DailyClimatologyAccumulator(int numDays, int numComponents,
+                                       int numPoints) {
+        this(numDays, numComponents, numPoints,
+             Runtime.getRuntime().maxMemory() / 4, null);
+    }
+
+    /**
+     * Create the accumulator
+     *
+     * @param numDays number of days (365 or 366)
+     * @param numComponents number of range components of the grids
+     * @param numPoints number of points in the grids
+     * @param maxMemory bytes of accumulators to keep in memory. At least
+     *                  one day is always kept
+     * @param spillDir directory for the spill file. null for the default
+     *                 temp directory
+     */
+    public DailyClimatologyAccumulator(int numDays, int numComponents,
+                                       int numPoints, long maxMemory,
+                                       File spillDir) {
+        this.numDays       = numDays;
+        this.numComponents = numComponents;
+        this.numPoints     = numPoints;
+        this.spillDir      = spillDir;
+        long dayBytes = (long) BYTES_PER_VALUE * numComponents * numPoints;
+        maxDaysInMemory = (int) Math.max(1,
+                                         Math.min(numDays,
+                                             maxMemory / Math.max(1,
+                                                 dayBytes)));
+        spilled = new boolean[numDays];
+    }
+
+    /**
+     * Get the number of days
+     *
+     * @return number of days
+     */
+    public int getNumDays() {
+        return numDays;
+    }
+
+    /**
+     * Add the values of a grid
+     *
+     * @param values the grid values, [component][point]
+     * @param day day of the year, 0 based. Days past the last are ignored
+     *
+     * @throws IOException problem with the spill file
+     */
+    public synchronized void add(float[][] values, int day)
+            throws IOException {
+        if ((day < 0) || (day >= numDays)) {
+            return;
+        }
+        Day acc = getDay(day);
+        for (int c = 0; c < numComponents; c++) {
+            float[] v      = values[c];
+            int     offset = c * numPoints;
+            for (int i = 0; i < numPoints; i++) {
+                float value = v[i];
+                if (value != value) {
+                    continue;
+                }
+                int k = offset + i;
+                if (acc.count[k] == 0) {
+                    acc.min[k] = value;
+                    acc.max[k] = value;
+                } else {
+                    if (value < acc.min[k]) {
+                        acc.min[k] = value;
+                    }
+                    if (value > acc.max[k]) {
+                        acc.max[k] = value;
+                    }
+                }
+                acc.count[k]++;
+                acc.sum[k]        += value;
+                acc.sumSquares[k] += (double) value * value;
+            }
+        }
+    }
+
+    /**
+     * Has anything been added for the day
+     *
+     * @param day the day, 0 based
+     *
+     * @return true if there are values for the day
+     *
+     * @throws IOException problem with the spill file
+     */
+    public synchronized boolean hasData(int day) throws IOException {
+        if ( !days.containsKey(day) && !spilled[day]) {
+            return false;
+        }
+        int[] count = getDay(day).count;
+        for (int i = 0; i < count.length; i++) {
+            if (count[i] > 0) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Get a statistic of the values of a day
+     *
+     * @param day the day, 0 based
+     * @param function {@link GridMath#FUNC_AVERAGE},
+     *                 {@link GridMath#FUNC_STDEV}, {@link GridMath#FUNC_MIN}
+     *                 or {@link GridMath#FUNC_MAX}
+     *
+     * @return the statistic, [component][point]. NaN where there are no
+     *         values
+     *
+     * @throws IOException problem with the spill file
+     */
+    public synchronized float[][] getValues(int day, String function)
+            throws IOException {
+        Day       acc    = getDay(day);
+        float[][] values = new float[numComponents][numPoints];
+        for (int c = 0; c < numComponents; c++) {
+            int offset = c * numPoints;
+            for (int i = 0; i < numPoints; i++) {
+                int k   = offset + i;
+                int num = acc.count[k];
+                if (num == 0) {
+                    values[c][i] = Float.NaN;
+                } else if (function.equals(GridMath.FUNC_MIN)) {
+                    values[c][i] = acc.min[k];
+                } else if (function.equals(GridMath.FUNC_MAX)) {
+                    values[c][i] = acc.max[k];
+                } else if (function.equals(GridMath.FUNC_STDEV)) {
+                    double mean = acc.sum[k] / num;
+                    double var  = acc.sumSquares[k] / num - mean * mean;
+                    values[c][i] = (float) Math.sqrt(Math.max(var, 0));
+                } else {
+                    values[c][i] = (float) (acc.sum[k] / num);
+                }
+            }
+        }
+        return values;
+    }
+
+    /**
+     * Get the accumulators for a day, reading them from the spill file or
+     * making them if needed. Spills the least recently used day if there
+     * are too many in memory.
+     *
+     * @param day the day
+     *
+     * @return the accumulators
+     *
+     * @throws IOException problem with the spill file
+     */
+    private Day getDay(int day) throws IOException {
+        Day acc = days.get(day);
+        if (acc != null) {
+            return acc;
+        }
+        acc = new Day(numComponents * numPoints);
+        if (spilled[day]) {
+            readDay(day, acc);
+        }
+        if (days.size() >= maxDaysInMemory) {
+            Iterator<Map.Entry<Integer, Day>> it = days.entrySet().iterator();
+            Map.Entry<Integer, Day>           lru = it.next();
+            writeDay(lru.getKey(), lru.getValue());
+            it.remove();
+        }
+        days.put(day, acc);
+        return acc;
+    }
+
+    /**
+     * Get the open spill file, making it if needed
+     *
+     * @return the spill file
+     *
+     * @throws IOException problem making the file
+     */
+    private FileChannel getSpill() throws IOException {
+        if (spill == null) {
+            spillFile = File.createTempFile("climatology", ".acc", spillDir);
+            spillFile.deleteOnExit();
+            spill = new RandomAccessFile(spillFile, "rw");
+        }
+        return spill.getChannel();
+    }
+
+    /**
+     * Write a day's accumulators to the spill file
+     *
+     * @param day the day
+     * @param acc its accumulators
+     *
+     * @throws IOException problem writing
+     */
+    private void writeDay(int day, Day acc) throws IOException {
+        FileChannel channel = getSpill();
+        int         size    = acc.count.length;
+        ByteBuffer  buffer  = ByteBuffer.allocate(BYTES_PER_VALUE * size);
+        buffer.asIntBuffer().put(acc.count);
+        buffer.position(4 * size);
+        buffer.slice().asDoubleBuffer().put(acc.sum);
+        buffer.position(12 * size);
+        buffer.slice().asDoubleBuffer().put(acc.sumSquares);
+        buffer.position(20 * size);
+        buffer.slice().asFloatBuffer().put(acc.min);
+        buffer.position(24 * size);
+        buffer.slice().asFloatBuffer().put(acc.max);
+        buffer.position(0);
+        long position = (long) day * buffer.capacity();
+        while (buffer.hasRemaining()) {
+            position += channel.write(buffer, position);
+        }
+        spilled[day] = true;
+    }
+
+    /**
+     * Read a day's accumulators from the spill file
+     *
+     * @param day the day
+     * @param acc where to put them
+     *
+     * @throws IOException problem reading
+     */
+    private void readDay(int day, Day acc) throws IOException {
+        FileChannel channel = getSpill();
+        int         size    = acc.count.length;
+        ByteBuffer  buffer  = ByteBuffer.allocate(BYTES_PER_VALUE * size);
+        long        position = (long) day * buffer.capacity();
+        while (buffer.hasRemaining()) {
+            int read = channel.read(buffer, position);
+            if (read < 0) {
+                throw new IOException("Climatology spill file is short");
+            }
+            position += read;
+        }
+        buffer.position(0);
+        buffer.asIntBuffer().get(acc.count);
+        buffer.position(4 * size);
+        buffer.slice().asDoubleBuffer().get(acc.sum);
+        buffer.position(12 * size);
+        buffer.slice().asDoubleBuffer().get(acc.sumSquares);
+        buffer.position(20 * size);
+        buffer.slice().asFloatBuffer().get(acc.min);
+        buffer.position(24 * size);
+        buffer.slice().asFloatBuffer().get(acc.max);
+    }
+
+    /**
+     * Close and delete the spill file and drop the accumulators
+     */
+    public synchronized void dispose() {
+        days.clear();
+        if (spill != null) {
+            try {
+                spill.close();
+            } catch (IOException ignore) {}
+            spill = null;
+            spillFile.delete();
+        }
+    }
+
+}
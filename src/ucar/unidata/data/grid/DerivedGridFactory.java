@@ -39,6 +39,8 @@ import visad.georef.EarthLocationLite;
 
 import visad.util.DataUtility;
 
+import java.io.IOException;
+
 import java.rmi.RemoteException;
 
 import java.util.ArrayList;
@@ -3254,6 +3256,383 @@ public class DerivedGridFactory {
 
     }
 
+    /**
+     * Make a grid of the surface based CAPE of each column of a 3D grid
+     *
+     * @param temperFI grid of air temperature, with pressure (or height)
+     *                 in the vertical; possibly a sequence of times
+     * @param humidityFI grid of dewpoint or relative humidity
+     *
+     * @return 2D grid of CAPE
+     *
+     * @throws RemoteException  Java RMI error
+     * @throws VisADException   VisAD Error
+     */
+    public static FieldImpl createCAPE(FieldImpl temperFI,
+                                       FieldImpl humidityFI)
+            throws VisADException, RemoteException {
+        return createCAPE(temperFI, humidityFI, null);
+    }
+
+    /**
+     * Make a grid of the CAPE of each column of a 3D grid
+     *
+     * @param temperFI grid of air temperature, with pressure (or height)
+     *                 in the vertical; possibly a sequence of times
+     * @param humidityFI grid of dewpoint or relative humidity
+     * @param parcel  the parcel to lift: "surface", "mixed" (lowest 100 hPa)
+     *                or "mostunstable" (lowest 300 hPa)
+     *
+     * @return 2D grid of CAPE
+     *
+     * @throws RemoteException  Java RMI error
+     * @throws VisADException   VisAD Error
+     */
+    public static FieldImpl createCAPE(FieldImpl temperFI,
+                                       FieldImpl humidityFI, String parcel)
+            throws VisADException, RemoteException {
+        return createParcelParameters(temperFI, humidityFI, parcel,
+                                      new int[] { ParcelLifter.CAPE });
+    }
+
+    /**
+     * Make a grid of the surface based CIN of each column of a 3D grid
+     *
+     * @param temperFI grid of air temperature, with pressure (or height)
+     *                 in the vertical; possibly a sequence of times
+     * @param humidityFI grid of dewpoint or relative humidity
+     *
+     * @return 2D grid of CIN
+     *
+     * @throws RemoteException  Java RMI error
+     * @throws VisADException   VisAD Error
+     */
+    public static FieldImpl createCIN(FieldImpl temperFI,
+                                      FieldImpl humidityFI)
+            throws VisADException, RemoteException {
+        return createCIN(temperFI, humidityFI, null);
+    }
+
+    /**
+     * Make a grid of the CIN of each column of a 3D grid. CIN is
+     * missing where there is no level of free convection.
+     *
+     * @param temperFI grid of air temperature, with pressure (or height)
+     *                 in the vertical; possibly a sequence of times
+     * @param humidityFI grid of dewpoint or relative humidity
+     * @param parcel  the parcel to lift: "surface", "mixed" (lowest 100 hPa)
+     *                or "mostunstable" (lowest 300 hPa)
+     *
+     * @return 2D grid of CIN
+     *
+     * @throws RemoteException  Java RMI error
+     * @throws VisADException   VisAD Error
+     */
+    public static FieldImpl createCIN(FieldImpl temperFI,
+                                      FieldImpl humidityFI, String parcel)
+            throws VisADException, RemoteException {
+        return createParcelParameters(temperFI, humidityFI, parcel,
+                                      new int[] { ParcelLifter.CIN });
+    }
+
+    /**
+     * Make a grid of the pressure of the lifting condensation level of
+     * the surface parcel of each column of a 3D grid
+     *
+     * @param temperFI grid of air temperature, with pressure (or height)
+     *                 in the vertical; possibly a sequence of times
+     * @param humidityFI grid of dewpoint or relative humidity
+     *
+     * @return 2D grid of LCL pressure
+     *
+     * @throws RemoteException  Java RMI error
+     * @throws VisADException   VisAD Error
+     */
+    public static FieldImpl createLCL(FieldImpl temperFI,
+                                      FieldImpl humidityFI)
+            throws VisADException, RemoteException {
+        return createLCL(temperFI, humidityFI, null);
+    }
+
+    /**
+     * Make a grid of the pressure of the lifting condensation level of
+     * each column of a 3D grid
+     *
+     * @param temperFI grid of air temperature, with pressure (or height)
+     *                 in the vertical; possibly a sequence of times
+     * @param humidityFI grid of dewpoint or relative humidity
+     * @param parcel  the parcel to lift: "surface", "mixed" (lowest 100 hPa)
+     *                or "mostunstable" (lowest 300 hPa)
+     *
+     * @return 2D grid of LCL pressure
+     *
+     * @throws RemoteException  Java RMI error
+     * @throws VisADException   VisAD Error
+     */
+    public static FieldImpl createLCL(FieldImpl temperFI,
+                                      FieldImpl humidityFI, String parcel)
+            throws VisADException, RemoteException {
+        return createParcelParameters(temperFI, humidityFI, parcel,
+                                      new int[] { ParcelLifter.LCL });
+    }
+
+    /**
+     * Make a grid of the pressure of the level of free convection of
+     * the surface parcel of each column of a 3D grid
+     *
+     * @param temperFI grid of air temperature, with pressure (or height)
+     *                 in the vertical; possibly a sequence of times
+     * @param humidityFI grid of dewpoint or relative humidity
+     *
+     * @return 2D grid of LFC pressure
+     *
+     * @throws RemoteException  Java RMI error
+     * @throws VisADException   VisAD Error
+     */
+    public static FieldImpl createLFC(FieldImpl temperFI,
+                                      FieldImpl humidityFI)
+            throws VisADException, RemoteException {
+        return createLFC(temperFI, humidityFI, null);
+    }
+
+    /**
+     * Make a grid of the pressure of the level of free convection of
+     * each column of a 3D grid
+     *
+     * @param temperFI grid of air temperature, with pressure (or height)
+     *                 in the vertical; possibly a sequence of times
+     * @param humidityFI grid of dewpoint or relative humidity
+     * @param parcel  the parcel to lift: "surface", "mixed" (lowest 100 hPa)
+     *                or "mostunstable" (lowest 300 hPa)
+     *
+     * @return 2D grid of LFC pressure
+     *
+     * @throws RemoteException  Java RMI error
+     * @throws VisADException   VisAD Error
+     */
+    public static FieldImpl createLFC(FieldImpl temperFI,
+                                      FieldImpl humidityFI, String parcel)
+            throws VisADException, RemoteException {
+        return createParcelParameters(temperFI, humidityFI, parcel,
+                                      new int[] { ParcelLifter.LFC });
+    }
+
+    /**
+     * Make a grid of the pressure of the equilibrium level of the surface
+     * parcel of each column of a 3D grid
+     *
+     * @param temperFI grid of air temperature, with pressure (or height)
+     *                 in the vertical; possibly a sequence of times
+     * @param humidityFI grid of dewpoint or relative humidity
+     *
+     * @return 2D grid of EL pressure
+     *
+     * @throws RemoteException  Java RMI error
+     * @throws VisADException   VisAD Error
+     */
+    public static FieldImpl createEL(FieldImpl temperFI,
+                                     FieldImpl humidityFI)
+            throws VisADException, RemoteException {
+        return createEL(temperFI, humidityFI, null);
+    }
+
+    /**
+     * Make a grid of the pressure of the equilibrium level of each column
+     * of a 3D grid
+     *
+     * @param temperFI grid of air temperature, with pressure (or height)
+     *                 in the vertical; possibly a sequence of times
+     * @param humidityFI grid of dewpoint or relative humidity
+     * @param parcel  the parcel to lift: "surface", "mixed" (lowest 100 hPa)
+     *                or "mostunstable" (lowest 300 hPa)
+     *
+     * @return 2D grid of EL pressure
+     *
+     * @throws RemoteException  Java RMI error
+     * @throws VisADException   VisAD Error
+     */
+    public static FieldImpl createEL(FieldImpl temperFI,
+                                     FieldImpl humidityFI, String parcel)
+            throws VisADException, RemoteException {
+        return createParcelParameters(temperFI, humidityFI, parcel,
+                                      new int[] { ParcelLifter.EL });
+    }
+
+    /**
+     * Make a grid of (CAPE, CIN, LCL, LFC, EL) of each column of a 3D
+     * grid. The parcel is lifted once for all of them.
+     *
+     * @param temperFI grid of air temperature, with pressure (or height)
+     *                 in the vertical; possibly a sequence of times
+     * @param humidityFI grid of dewpoint or relative humidity
+     * @param parcel  the parcel to lift: "surface", "mixed" (lowest 100 hPa)
+     *                or "mostunstable" (lowest 300 hPa)
+     *
+     * @return 2D grid of the parcel parameters
+     *
+     * @throws RemoteException  Java RMI error
+     * @throws VisADException   VisAD Error
+     */
+    public static FieldImpl createParcelParameters(FieldImpl temperFI,
+            FieldImpl humidityFI, String parcel)
+            throws VisADException, RemoteException {
+        return createParcelParameters(temperFI, humidityFI, parcel,
+                                      new int[] {
+            ParcelLifter.CAPE, ParcelLifter.CIN, ParcelLifter.LCL,
+            ParcelLifter.LFC, ParcelLifter.EL
+        });
+    }
+
+    /**
+     * Lift the parcel of each column of the grid (for each time or
+     * ensemble member) and make a 2D grid of some of the results
+     *
+     * @param temperFI grid of air temperature
+     * @param humidityFI grid of dewpoint or relative humidity
+     * @param parcel  the parcel name
+     * @param params  which of the {@link ParcelLifter} results to keep
+     *
+     * @return 2D grid of the parameters
+     *
+     * @throws RemoteException  Java RMI error
+     * @throws VisADException   VisAD Error
+     */
+    private static FieldImpl createParcelParameters(FieldImpl temperFI,
+            FieldImpl humidityFI, String parcel, int[] params)
+            throws VisADException, RemoteException {
+        int parcelType;
+        try {
+            parcelType = ParcelLifter.getParcelType(parcel);
+        } catch (IllegalArgumentException iae) {
+            throw new VisADException(iae.getMessage());
+        }
+        if (temperFI instanceof FlatField) {
+            return makeParcelParameters((FlatField) temperFI,
+                                        (FlatField) humidityFI, parcelType,
+                                        params);
+        }
+
+        // times or ensemble members
+        Set domain = temperFI.getDomainSet();
+        if (domain.getLength() > 1) {
+            humidityFI = (FieldImpl) humidityFI.resample(domain);
+        }
+        FieldImpl result = null;
+        for (int i = 0; i < domain.getLength(); i++) {
+            FieldImpl sample =
+                createParcelParameters((FieldImpl) temperFI.getSample(i,
+                    false), (FieldImpl) humidityFI.getSample(i, false),
+                            parcel, params);
+            if (result == null) {
+                result = new FieldImpl(
+                    new FunctionType(
+                        ((SetType) domain.getType()).getDomain(),
+                        sample.getType()), domain);
+            }
+            result.setSample(i, sample, false);
+        }
+        return result;
+    }
+
+    /**
+     * Lift the parcel of each column of one 3D grid
+     *
+     * @param temperFF grid of air temperature
+     * @param humidityFF grid of dewpoint or relative humidity
+     * @param parcelType  the {@link ParcelLifter} parcel type
+     * @param params  which of the {@link ParcelLifter} results to keep
+     *
+     * @return 2D grid of the parameters
+     *
+     * @throws RemoteException  Java RMI error
+     * @throws VisADException   VisAD Error
+     */
+    private static FlatField makeParcelParameters(FlatField temperFF,
+            FlatField humidityFF, int parcelType, int[] params)
+            throws VisADException, RemoteException {
+        GriddedSet domainSet = (GriddedSet) temperFF.getDomainSet();
+        if (domainSet.getManifoldDimension() != 3) {
+            throw new VisADException("parcel parameters need a 3D grid");
+        }
+        if ( !humidityFF.getDomainSet().equals(domainSet)) {
+            humidityFF = (FlatField) humidityFF.resample(domainSet);
+        }
+        int[] lengths    = domainSet.getLengths();
+        int   numColumns = lengths[0] * lengths[1];
+
+        FlatField pressFF = createPressureGridFromDomain(temperFF);
+        float[] pressure = CommonUnits.PASCAL.toThis(
+                               pressFF.getFloats(false)[0],
+                               pressFF.getRangeUnits()[0][0]);
+        float[] temperature =
+            SI.kelvin.toThis(temperFF.getFloats(false)[0],
+                             temperFF.getRangeUnits()[0][0]);
+        Unit    humidityUnit = humidityFF.getRangeUnits()[0][0];
+        float[] humidity     = humidityFF.getFloats(false)[0];
+        float[] dewpoint;
+        if ((humidityUnit != null)
+                && Unit.canConvert(humidityUnit, SI.kelvin)) {
+            dewpoint = SI.kelvin.toThis(humidity, humidityUnit);
+        } else {
+            if ((humidityUnit != null)
+                    && Unit.canConvert(humidityUnit, CommonUnits.PERCENT)) {
+                humidity = CommonUnits.PERCENT.toThis(humidity,
+                        humidityUnit);
+            } else {
+                Range[] minMax = GridUtil.fieldMinMax(humidityFF);
+                if ((minMax[0].max <= 1.1) && (minMax[0].min > 0)) {
+                    //it is fraction
+                    float[] percent = new float[humidity.length];
+                    for (int i = 0; i < percent.length; i++) {
+                        percent[i] = 100 * humidity[i];
+                    }
+                    humidity = percent;
+                }
+            }
+            dewpoint = ParcelLifter.getDewpoint(temperature, humidity);
+        }
+
+        float[][] values = ParcelLifter.lift(pressure, temperature, dewpoint,
+                                             numColumns, parcelType);
+
+        RealType[] types = new RealType[params.length];
+        float[][]  range = new float[params.length][];
+        for (int i = 0; i < params.length; i++) {
+            range[i] = values[params[i]];
+            switch (params[i]) {
+
+              case ParcelLifter.CAPE :
+                  types[i] = CAPE.getRealType();
+                  break;
+
+              case ParcelLifter.CIN :
+                  types[i] = CIN.getRealType();
+                  break;
+
+              default :
+                  String name = (params[i] == ParcelLifter.LCL)
+                                ? "LCL"
+                                : (params[i] == ParcelLifter.LFC)
+                                  ? "LFC"
+                                  : "EL";
+                  types[i] = DataUtil.makeRealType(name + "_pressure",
+                          CommonUnits.HECTOPASCAL);
+                  range[i] = CommonUnits.HECTOPASCAL.toThis(range[i],
+                          CommonUnits.PASCAL);
+                  break;
+            }
+        }
+        Gridded2DSet domain2D = GridUtil.makeDomain2D(domainSet);
+        FunctionType functionType =
+            new FunctionType(((SetType) domain2D.getType()).getDomain(),
+                             (types.length == 1)
+                             ? (MathType) types[0]
+                             : new RealTupleType(types));
+        FlatField result = new FlatField(functionType, domain2D);
+        result.setSamples(range, false);
+        return result;
+    }
+
     /**
      * @param  geoPH  one grid or a time sequence of geo potential height
      *                   with a spatial domain that includes pressure
@@ -6037,8 +6416,54 @@ public class DerivedGridFactory {
     public static FieldImpl createDailyClimatology(FieldImpl dailyData,
             boolean use366)
             throws VisADException {
-        FieldImpl dailyClim = null;
-        Set       timeSet   = GridUtil.getTimeSet(dailyData);
+        return createDailyClimatology(dailyData, use366,
+                                      GridMath.FUNC_AVERAGE);
+    }
+
+    /**
+     * Calculate a daily climatology of some statistic from a grid of
+     * daily values for a period of time
+     *
+     * @param dailyData  the daily data
+     * @param use366  create a 366 day climatology
+     * @param function  {@link GridMath#FUNC_AVERAGE},
+     *                  {@link GridMath#FUNC_STDEV}, {@link GridMath#FUNC_MIN}
+     *                  or {@link GridMath#FUNC_MAX}
+     *
+     * @return  the daily climatology grid
+     *
+     * @throws VisADException  illegal grid or problem calculating climatology
+     */
+    public static FieldImpl createDailyClimatology(FieldImpl dailyData,
+            boolean use366, String function)
+            throws VisADException {
+        return createDailyClimatologies(dailyData, use366,
+                                        new String[] { function })[0];
+    }
+
+    /**
+     * Calculate daily climatologies of some statistics from a grid of
+     * daily values for a period of time. The daily grids are read once,
+     * in order, and only running sums for each day of the year are kept
+     * (spilling to a temporary file if they don't fit in memory), so the
+     * daily data can be much larger than memory.
+     *
+     * @param dailyData  the daily data
+     * @param use366  create a 366 day climatology
+     * @param functions  any of {@link GridMath#FUNC_AVERAGE},
+     *                   {@link GridMath#FUNC_STDEV},
+     *                   {@link GridMath#FUNC_MIN} or
+     *                   {@link GridMath#FUNC_MAX}
+     *
+     * @return  the daily climatology grid for each function
+     *
+     * @throws VisADException  illegal grid or problem calculating climatology
+     */
+    public static FieldImpl[] createDailyClimatologies(FieldImpl dailyData,
+            boolean use366, String[] functions)
+            throws VisADException {
+        FieldImpl[] dailyClims = new FieldImpl[functions.length];
+        Set         timeSet    = GridUtil.getTimeSet(dailyData);
         int[] jdays =
             UtcDate.convertDateTimeToJulianDay((Gridded1DSet) timeSet);
         // sanity check on the input
@@ -6055,44 +6480,79 @@ public class DerivedGridFactory {
         Integer1DSet climTimes = new Integer1DSet(RealTupleType.Time1DTuple,
                                      numDays, null,
                                      new Unit[] { CLIMATE_UNITS }, null);
+        DailyClimatologyAccumulator accumulator = null;
         try {
-            for (int i = 0; i < numDays; i++) {
-                int[] indexes = Misc.find(i + 1, jdays);  // jdays is 1 based
-                if (indexes.length == 0) {
+            // one pass over the days, not holding on to them
+            FlatField template = null;
+            for (int t = 0; t < jdays.length; t++) {
+                FlatField dayData = (FlatField) dailyData.getSample(t,
+                                        false);
+                if ((dayData == null) || dayData.isMissing()) {
                     continue;
                 }
-                FlatField[] grids = new FlatField[indexes.length];
-                for (int g = 0; g < indexes.length; g++) {
-                    grids[g] = (FlatField) dailyData.getSample(indexes[g],
-                            false);
+                float[][] values = dayData.getFloats(false);
+                if (accumulator == null) {
+                    accumulator = new DailyClimatologyAccumulator(numDays,
+                            values.length, values[0].length);
+                    template = dayData;
                 }
-                FlatField avgGrid = GridMath.applyFunctionOverGrids(grids,
-                                        GridMath.FUNC_AVERAGE);
-                if (avgGrid == null) {
-                    continue;
+                // jdays is 1 based
+                accumulator.add(values, jdays[t] - 1);
+            }
+            if (accumulator == null) {
+                return dailyClims;
+            }
+            for (int f = 0; f < functions.length; f++) {
+                FieldImpl dailyClim = null;
+                for (int i = 0; i < numDays; i++) {
+                    if ( !accumulator.hasData(i)) {
+                        continue;
+                    }
+                    FlatField grid = (FlatField) template.clone();
+                    grid.setSamples(accumulator.getValues(i, functions[f]),
+                                    false);
+                    if (dailyClim == null) {
+                        FunctionType ftype =
+                            new FunctionType(RealTupleType.Time1DTuple,
+                                             grid.getType());
+                        dailyClim = new FieldImpl(ftype, climTimes);
+                    }
+                    dailyClim.setSample(i, grid, false, false);
                 }
-                if (dailyClim == null) {
-                    FunctionType ftype =
-                        new FunctionType(RealTupleType.Time1DTuple,
-                                         avgGrid.getType());
-                    dailyClim = new FieldImpl(ftype, climTimes);
+                if (use366 && (dailyClim != null)) {
+                    FlatField firstDay =
+                        (FlatField) dailyClim.getSample(0, false);
+                    FlatField lastDay = (FlatField) dailyClim.getSample(364,
+                                            false);
+                    if ((firstDay != null) && !firstDay.isMissing()
+                            && (lastDay != null) && !lastDay.isMissing()) {
+                        String combine =
+                            (functions[f].equals(GridMath.FUNC_MIN)
+                             || functions[f].equals(GridMath.FUNC_MAX))
+                            ? functions[f]
+                            : GridMath.FUNC_AVERAGE;
+                        dailyClim.setSample(
+                            365,
+                            GridMath.applyFunctionOverGrids(
+                                new FlatField[] { firstDay,
+                                        lastDay }, combine), false, false);
+                    }
                 }
-                dailyClim.setSample(i, avgGrid, false, false);
+                dailyClims[f] = dailyClim;
             }
-            if (use366) {
-                FlatField firstDay = (FlatField) dailyClim.getSample(0,
-                                         false);
-                FlatField lastDay = (FlatField) dailyClim.getSample(364,
-                                        false);
-                dailyClim.setSample(
-                    365,
-                    GridMath.applyFunctionOverGrids(
-                        new FlatField[] { firstDay,
-                                          lastDay },
-                        GridMath.FUNC_AVERAGE), false, false);
+        } catch (IOException ioe) {
+            throw new VisADException("createDailyClimatology: " + ioe);
+        } catch (CloneNotSupportedException cnse) {
+            throw new VisADException("Cannot clone field");
+        } catch (RemoteException re) {
+            throw new VisADException(
+                "RemoteException in createDailyClimatology");
+        } finally {
+            if (accumulator != null) {
+                accumulator.dispose();
             }
-        } catch (RemoteException re) {}
-        return dailyClim;
+        }
+        return dailyClims;
     }
 
 
@@ -6133,76 +6593,13 @@ public class DerivedGridFactory {
             (Gridded1DSet) GridUtil.getTimeSet(dailyClim);
         int[]     jdays     = UtcDate.convertDateTimeToJulianDay(dailyTimes);
         int[]     climdays  = UtcDate.convertDateTimeToJulianDay(climTimes);
-        boolean   leapClim  = climdays.length == 366;
-        int[]     leaps     = Misc.find(366, climdays);
         FieldImpl dailyAnom = null;
         try {
             for (int i = 0; i < jdays.length; i++) {
-                int     climDay   = jdays[i] - 1;
-                boolean isLeapDay = false;
-                if (leaps.length > 0) {
-                    for (int l = 0; l < leaps.length; l++) {
-                        if (i == leaps[l] - 306) {
-                            isLeapDay = true;
-                        }
-                    }
-                }
                 FlatField dayData  = (FlatField) dailyData.getSample(i,
                                          false);
-                FlatField climData = null;
-                // TODO: figure out leap years
-                if (isLeapDay) {
-                    if ( !leapClim) {
-                        if (climDay == 60) {  // Feb 29 = average Feb 28 and March 1
-                            FlatField climData1 =
-                                (FlatField) dailyClim.getSample(59, false);
-                            FlatField climData2 =
-                                (FlatField) dailyClim.getSample(59, false);
-                            climData = (FlatField) GridMath.add(climData1,
-                                    climData2).subtract(new Real(2));
-                            climData =
-                                (FlatField) GridUtil.setParamType(climData,
-                                    GridUtil.getParamType(climData1), false);
-                        } else {
-                            climData =
-                                (FlatField) dailyClim.getSample(climDay - 1,
-                                    false);
-                        }
-                    } else {
-                        if ( !leapClim && (climDay == 365)) {
-                            // no leap day in clim, average last and first
-                            FlatField climData1 =
-                                (FlatField) dailyClim.getSample(364, false);
-                            FlatField climData2 =
-                                (FlatField) dailyClim.getSample(0, false);
-                            climData = (FlatField) GridMath.add(climData1,
-                                    climData2).subtract(new Real(2));
-                            climData =
-                                (FlatField) GridUtil.setParamType(climData,
-                                    GridUtil.getParamType(climData1), false);
-                        } else {
-                            climData =
-                                (FlatField) dailyClim.getSample(climDay,
-                                    false);
-                        }
-                    }
-                } else {
-                    climData = (FlatField) dailyClim.getSample(climDay,
-                            false);
-                }
-                FlatField dayAnom;
-                if (asPercent) {
-                    dayAnom = (FlatField) GridMath.divide(dayData, climData);
-                    dayAnom = (FlatField) GridUtil.setParamType(dayAnom,
-                            ANOM_PERCENT_TYPE, false);
-                    // subtract 100% to get the percent change from normal
-                    dayAnom = (FlatField) dayAnom.subtract(
-                        new Real(ANOM_PERCENT_TYPE,
-                                 100));
-                } else {
-                    dayAnom = (FlatField) GridMath.subtract(dayData,
-                            climData);
-                }
+                FlatField dayAnom = makeDailyAnomaly(dayData, i, jdays[i],
+                                        dailyClim, climdays, asPercent);
                 if (dailyAnom == null) {
                     FunctionType ft =
                         new FunctionType(
@@ -6218,6 +6615,118 @@ public class DerivedGridFactory {
         return dailyAnom;
     }
 
+    /**
+     * Calculate the daily anomaly without making it all at once. The
+     * anomaly of each day is made from the daily data and the climatology
+     * when it is asked for and is not held on to, so the daily data can
+     * be much larger than memory.
+     *
+     * @param dailyData  the daily data
+     * @param dailyClim  the climatology
+     * @param asPercent  return the values as a percentage of normal (+/-)
+     *
+     * @return  the daily anomaly
+     *
+     * @throws VisADException bad input or problem creating fields
+     */
+    public static FieldImpl calculateStreamingDailyAnomaly(
+            FieldImpl dailyData, FieldImpl dailyClim, boolean asPercent)
+            throws VisADException {
+        try {
+            return new DailyAnomalyField(dailyData, dailyClim, asPercent);
+        } catch (RemoteException re) {
+            throw new VisADException(
+                "RemoteException in calculateStreamingDailyAnomaly");
+        }
+    }
+
+    /**
+     * Calculate the anomaly of one day
+     *
+     * @param dayData  the data for the day
+     * @param timeIndex  index of the day in the daily data
+     * @param jday  the (1 based) julian day of the day
+     * @param dailyClim  the climatology
+     * @param climdays  the julian days of the climatology
+     * @param asPercent  return the values as a percentage of normal (+/-)
+     *
+     * @return  the anomaly
+     *
+     * @throws RemoteException Java RMI error
+     * @throws VisADException problem creating fields
+     */
+    static FlatField makeDailyAnomaly(FlatField dayData, int timeIndex,
+                                      int jday, FieldImpl dailyClim,
+                                      int[] climdays, boolean asPercent)
+            throws VisADException, RemoteException {
+        boolean leapClim  = climdays.length == 366;
+        int[]   leaps     = Misc.find(366, climdays);
+        int     climDay   = jday - 1;
+        boolean isLeapDay = false;
+        if (leaps.length > 0) {
+            for (int l = 0; l < leaps.length; l++) {
+                if (timeIndex == leaps[l] - 306) {
+                    isLeapDay = true;
+                }
+            }
+        }
+        FlatField climData = null;
+        // TODO: figure out leap years
+        if (isLeapDay) {
+            if ( !leapClim) {
+                if (climDay == 60) {  // Feb 29 = average Feb 28 and March 1
+                    FlatField climData1 =
+                        (FlatField) dailyClim.getSample(59, false);
+                    FlatField climData2 =
+                        (FlatField) dailyClim.getSample(59, false);
+                    climData = (FlatField) GridMath.add(climData1,
+                            climData2).subtract(new Real(2));
+                    climData =
+                        (FlatField) GridUtil.setParamType(climData,
+                            GridUtil.getParamType(climData1), false);
+                } else {
+                    climData =
+                        (FlatField) dailyClim.getSample(climDay - 1,
+                            false);
+                }
+            } else {
+                if ( !leapClim && (climDay == 365)) {
+                    // no leap day in clim, average last and first
+                    FlatField climData1 =
+                        (FlatField) dailyClim.getSample(364, false);
+                    FlatField climData2 =
+                        (FlatField) dailyClim.getSample(0, false);
+                    climData = (FlatField) GridMath.add(climData1,
+                            climData2).subtract(new Real(2));
+                    climData =
+                        (FlatField) GridUtil.setParamType(climData,
+                            GridUtil.getParamType(climData1), false);
+                } else {
+                    climData =
+                        (FlatField) dailyClim.getSample(climDay,
+                            false);
+                }
+            }
+        } else {
+            climData = (FlatField) dailyClim.getSample(climDay,
+                    false);
+        }
+        FlatField dayAnom;
+        if (asPercent) {
+            dayAnom = (FlatField) GridMath.divide(dayData, climData);
+            dayAnom = (FlatField) GridUtil.setParamType(dayAnom,
+                    ANOM_PERCENT_TYPE, false);
+            // subtract 100% to get the percent change from normal
+            dayAnom = (FlatField) dayAnom.subtract(
+                new Real(ANOM_PERCENT_TYPE,
+                         100));
+        } else {
+            dayAnom = (FlatField) GridMath.subtract(dayData,
+                    climData);
+        }
+        return dayAnom;
+    }
+
     /**
      * Calculate the surface wind angle at certain level
      *
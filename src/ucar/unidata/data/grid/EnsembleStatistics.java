@@ -0,0 +1,656 @@
+/*
+ * Copyright 1997-2020 Unidata Program Center/University Corporation for
+ * Atmospheric Research, P.O. Box 3000, Boulder, CO 80307,
+ * support@unidata.ucar.edu.
+ *
+ * This library is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation; either version 2.1 of the License, or (at
+ * your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU Lesser
+ * General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this library; if not, write to the Free Software Foundation,
+ * Inc., 59 Temple Place, Suite 330, Boston, MA 02111-1307 USA
+ */
+
+
+package ucar.unidata.data.grid;
+
+
+import ucar.unidata.util.ComputePool;
+
+import visad.VisADException;
+
+
+import java.util.Arrays;
+import java.util.concurrent.RecursiveAction;
+
+
+/**
+ * Computes statistics over the members of an ensemble at each grid point.
+ * The member values are held in flat buffers, one per range component, with
+ * the members of a grid point stored next to each other, i.e.,
+ * <code>values[param][point * numMembers + member]</code>.
+ * Percentiles use selection rather than a full sort, the per point
+ * work does not allocate and the grid points are split across
+ * cores with fork/join.
+ *
+ * @author IDV Development Team
+ */
+public class EnsembleStatistics {
+
+    /** Don't split the grid into tasks with fewer points than this */
+    private static final int MIN_TASK_POINTS = 4096;
+
+    /**
+     * Default ctor
+     */
+    private EnsembleStatistics() {}
+
+    /**
+     * Compute the given function over the members at each grid point.
+     *
+     * @param memberValues the values, <code>[param][point * numMembers + member]</code>
+     * @param numPoints number of grid points
+     * @param numMembers number of members
+     * @param function One of GridMath.FUNC_PRCNTL, FUNC_MODE or FUNC_UPROB
+     * @param statThreshold percent for FUNC_PRCNTL, probability threshold for FUNC_UPROB
+     * @param exptdLoBound expected lo bound for FUNC_UPROB
+     * @param exptdUpBound expected hi bound for FUNC_UPROB
+     *
+     * @return the values, <code>[param][point]</code>
+     *
+     * @throws VisADException On a bad function or percentile
+     */
+    public static float[][] compute(float[][] memberValues, int numPoints,
+                                    int numMembers, String function,
+                                    float statThreshold, float exptdLoBound,
+                                    float exptdUpBound)
+            throws VisADException {
+        int type;
+        if (function.equals(GridMath.FUNC_PRCNTL)) {
+            type = Job.PERCENTILE;
+            statThreshold = (int) statThreshold;
+            if ((statThreshold > 100) || (statThreshold <= 0)) {
+                throw new VisADException(
+                    "out of bounds percentile value:  must be in (0, 100)");
+            }
+        } else if (function.equals(GridMath.FUNC_MODE)) {
+            type = Job.MODE;
+        } else if (function.equals(GridMath.FUNC_UPROB)) {
+            type = Job.UPROB;
+        } else {
+            throw new VisADException("Unknown ensemble function:"
+                                     + function);
+        }
+        float[][] result = new float[memberValues.length][numPoints];
+        Job job = new Job(type, memberValues, result, numPoints, numMembers,
+                          statThreshold, exptdLoBound, exptdUpBound);
+        if (numPoints <= MIN_TASK_POINTS) {
+            job.computeRange(0, numPoints);
+        } else {
+            ComputePool.getPool().invoke(new StatsTask(job, 0,
+                    numPoints));
+        }
+        return result;
+    }
+
+    /**
+     * Find the percentile of the values. This reorders the values in
+     * the given range.
+     *
+     * @param values the values
+     * @param begin  the starting index
+     * @param length  number of points
+     * @param p  the percentage
+     * @return the percentile
+     */
+    public static float percentileInPlace(float[] values, int begin,
+                                          int length, double p) {
+        if (length == 0) {
+            return Float.NaN;
+        }
+        if (length == 1) {
+            return values[begin];
+        }
+        double n      = length;
+        double pos    = p * (n + 1) / 100;
+        double fpos   = Math.floor(pos);
+        int    intPos = (int) fpos;
+        float  dif    = (float) (pos - fpos);
+        if (pos < 1) {
+            return min(values, begin, length);
+        }
+        if (pos >= n) {
+            return max(values, begin, length);
+        }
+        float lower = select(values, begin, length, intPos - 1);
+        //select leaves everything after intPos-1 >= lower
+        float upper = min(values, begin + intPos, length - intPos);
+        return lower + dif * (upper - lower);
+    }
+
+    /**
+     * Find the k'th smallest value in the range with quickselect.
+     * When done the values after the k'th one are all &gt;= it
+     * and the ones before it are all &lt;= it.
+     *
+     * @param a the values
+     * @param begin start index
+     * @param length number of values
+     * @param k which one (0 based)
+     *
+     * @return the k'th smallest value
+     */
+    public static float select(float[] a, int begin, int length, int k) {
+        int left   = begin;
+        int right  = begin + length - 1;
+        int target = begin + k;
+        while (right > left) {
+            int mid = (left + right) >>> 1;
+            if (a[mid] < a[left]) {
+                swap(a, left, mid);
+            }
+            if (a[right] < a[left]) {
+                swap(a, left, right);
+            }
+            if (a[right] < a[mid]) {
+                swap(a, mid, right);
+            }
+            float pivot = a[mid];
+            int   i     = left;
+            int   j     = right;
+            while (i <= j) {
+                while (a[i] < pivot) {
+                    i++;
+                }
+                while (a[j] > pivot) {
+                    j--;
+                }
+                if (i <= j) {
+                    swap(a, i, j);
+                    i++;
+                    j--;
+                }
+            }
+            if (target <= j) {
+                right = j;
+            } else if (target >= i) {
+                left = i;
+            } else {
+                break;
+            }
+        }
+        return a[target];
+    }
+
+    /**
+     * Find the mode of the values. If more than one value occurs the most
+     * often then the one that comes first is returned.
+     *
+     * @param data the values
+     * @param begin start index
+     * @param length number of values
+     * @param scratch work array of at least length values
+     *
+     * @return the mode
+     */
+    public static float mode(float[] data, int begin, int length,
+                             float[] scratch) {
+        if (length == 0) {
+            return 0;
+        }
+        System.arraycopy(data, begin, scratch, 0, length);
+        Arrays.sort(scratch, 0, length);
+        int maxCount = 1;
+        int count    = 1;
+        for (int i = 1; i < length; i++) {
+            if (scratch[i] == scratch[i - 1]) {
+                count++;
+                if (count > maxCount) {
+                    maxCount = count;
+                }
+            } else {
+                count = 1;
+            }
+        }
+        if (maxCount == 1) {
+            return data[begin];
+        }
+        for (int t = 0; t < length; t++) {
+            float v = data[begin + t];
+            if (upperBound(scratch, length, v) - lowerBound(scratch, length, v)
+                    == maxCount) {
+                return v;
+            }
+        }
+        return data[begin];
+    }
+
+    /**
+     * Evaluate the univariate probability of "variable with n ensemble
+     * values" &lt; pValue. This sorts the values in place and uses
+     * the workspace arrays so it does not allocate.
+     *
+     * @param values the values, within the user specified range, at a given grid point.
+     *               This needs to be able to hold at least 2 values.
+     * @param count  number of values
+     * @param pValue the threshold used in the probability calculation - P(value &lt; pValue)
+     * @param length  number of ensemble members (might not be the same as count)
+     * @param ws  work arrays
+     *
+     * @return the univariate probability that the value at the grid point is less than pValue
+     *
+     * @see GridMath#evaluateUProbability(float[], float, int)
+     */
+    public static float evaluateUProbability(float[] values, int count,
+                                             float pValue, int length,
+                                             Workspace ws) {
+
+        // tolerance for comparing if two floats are the same (used to replace G_DIFF calls from GEMPAK c code)
+        double   floatDiffTol = 0.000001D;
+        double[] weights      = ws.weights;
+        double[] zfreq        = ws.zfreq;
+        double[] zwts         = ws.zwts;
+        double[] newWeights   = ws.newWeights;
+        double[] newValues    = ws.newValues;
+
+        // Sort the values. All of the weights are the same
+        Arrays.sort(values, 0, count);
+        for (int ii = 0; ii < count; ii++) {
+            weights[ii] = 1.0d / (double) count;
+            zfreq[ii]   = 1.0D;
+        }
+
+        // Check for identical values and compute intrinsic weight frequency
+        int    mm  = count;
+        double tol = 0.001D * (values[mm - 1] - values[0]) / mm;
+        for (int kk = 0; kk < mm - 1; kk++) {
+            if (Math.abs(values[kk] - values[kk + 1]) <= tol) {
+                weights[kk] += weights[kk + 1];
+                zfreq[kk]   = zfreq[kk] + 1.0D;
+                mm--;
+                for (int jj = kk; jj < mm - 1; jj++) {
+                    values[jj]  = values[jj + 1];
+                    weights[jj] = weights[jj + 1];
+                }
+                kk--;
+            }
+        }
+
+        // Fabricate order statistics if it has collapsed to a single value.
+        if (mm == 1) {
+            if (Math.abs(values[0] - 0.0D) < floatDiffTol) {
+                values[0] = -0.00001F;
+                values[1] = 0.00001F;
+            } else {
+                float delta = 0.00001F * Math.abs(values[0]);
+                values[1] = values[0] + delta;
+                values[0] -= delta;
+            }
+            weights[0] = 0.5D;
+            weights[1] = 0.5D;
+            mm         = 2;
+            zfreq[0]   = 1.0D;
+            zfreq[1]   = 1.0D;
+        }
+
+        // Compute and sum intrinsic weights.
+        zwts[0] = zfreq[0] / (values[1] - values[0]);
+        double zsum = zwts[0];
+        for (int kk = 1; kk < mm - 1; kk++) {
+            zwts[kk] = (zfreq[kk] * 2.0F) / (values[kk + 1] - values[kk - 1]);
+            zsum     = zsum + zwts[kk];
+        }
+        zwts[mm - 1] = zfreq[mm - 1] / (values[mm - 1] - values[mm - 2]);
+        zsum         = zsum + zwts[mm - 1];
+
+        // Scale external weights by normalized intrinsic weights and normalize.
+        double psum = 0.0D;
+        for (int kk = 0; kk < mm; kk++) {
+            weights[kk] = (zwts[kk] / zsum) * weights[kk];
+            psum        = psum + weights[kk];
+        }
+        for (int kk = 0; kk < mm; kk++) {
+            weights[kk] = weights[kk] / psum;
+        }
+
+        // Compute Qun, the area; Vn, the normalized value;
+        // w(), normalized weight; and qlt, qrt.
+        double vn = 0.0D;
+        for (int kk = 1; kk < mm; kk++) {
+            vn += 0.5D * (weights[kk] + weights[kk - 1])
+                  * (values[kk] - values[kk - 1]);
+        }
+        vn = vn / (1.0D - 2.0D / ((double) length + 1));
+        for (int kk = 0; kk < mm; kk++) {
+            weights[kk] = weights[kk] / vn;
+        }
+        double qlt = values[0]
+                     - 2.0D / (weights[0] * ((double) length + 1.0D));
+        double qrt = values[mm - 1]
+                     + 2.0D / (weights[mm - 1] * ((double) length + 1.0D));
+
+        newWeights[0]      = 0.0D;
+        newWeights[mm + 1] = 0.0D;
+        newValues[0]       = qlt;
+        newValues[mm + 1]  = qrt;
+        for (int ii = 1; ii < mm + 1; ii++) {
+            newWeights[ii] = weights[ii - 1];
+            newValues[ii]  = values[ii - 1];
+        }
+
+        // Compute the univariate probability
+        float prob = 0.0F;
+        if (pValue < newValues[0]) {
+            prob = 0.0F;
+        } else if (pValue > newValues[mm + 1]) {
+            prob = 1.0F;
+        } else {
+            psum = 0.0D;
+            for (int kk = 1; kk < mm + 2; kk++) {
+                if (Math.abs(pValue - newValues[kk - 1]) < floatDiffTol) {
+                    prob = (float) psum;
+                    break;
+                } else if (pValue >= newValues[kk]) {
+                    psum += 0.5D * (newWeights[kk] + newWeights[kk - 1])
+                            * (newValues[kk] - newValues[kk - 1]);
+                } else if (pValue > newValues[kk - 1]) {
+                    double ww = newWeights[kk - 1]
+                                + (newWeights[kk] - newWeights[kk - 1])
+                                  * (pValue - newValues[kk - 1])
+                                  / (newValues[kk] - newValues[kk - 1]);
+                    double fta = 0.5D * (ww + newWeights[kk - 1])
+                                 * (pValue - newValues[kk - 1]);
+                    prob = (float) psum + (float) fta;
+                    break;
+                }
+            }
+        }
+        return prob;
+    }
+
+    /**
+     * Find the min value in the range
+     *
+     * @param a values
+     * @param begin start index
+     * @param length number of values
+     *
+     * @return min
+     */
+    private static float min(float[] a, int begin, int length) {
+        float min = a[begin];
+        for (int i = begin + 1; i < begin + length; i++) {
+            if (a[i] < min) {
+                min = a[i];
+            }
+        }
+        return min;
+    }
+
+    /**
+     * Find the max value in the range
+     *
+     * @param a values
+     * @param begin start index
+     * @param length number of values
+     *
+     * @return max
+     */
+    private static float max(float[] a, int begin, int length) {
+        float max = a[begin];
+        for (int i = begin + 1; i < begin + length; i++) {
+            if (a[i] > max) {
+                max = a[i];
+            }
+        }
+        return max;
+    }
+
+    /**
+     * Find the index of the first value &gt;= v in the sorted values
+     *
+     * @param sorted sorted values
+     * @param length number of values
+     * @param v the value
+     *
+     * @return index
+     */
+    private static int lowerBound(float[] sorted, int length, float v) {
+        int lo = 0;
+        int hi = length;
+        while (lo < hi) {
+            int mid = (lo + hi) >>> 1;
+            if (sorted[mid] < v) {
+                lo = mid + 1;
+            } else {
+                hi = mid;
+            }
+        }
+        return lo;
+    }
+
+    /**
+     * Find the index of the first value &gt; v in the sorted values
+     *
+     * @param sorted sorted values
+     * @param length number of values
+     * @param v the value
+     *
+     * @return index
+     */
+    private static int upperBound(float[] sorted, int length, float v) {
+        int lo = 0;
+        int hi = length;
+        while (lo < hi) {
+            int mid = (lo + hi) >>> 1;
+            if (sorted[mid] <= v) {
+                lo = mid + 1;
+            } else {
+                hi = mid;
+            }
+        }
+        return lo;
+    }
+
+    /**
+     * Swap two values
+     *
+     * @param a values
+     * @param i first index
+     * @param j second index
+     */
+    private static void swap(float[] a, int i, int j) {
+        float tmp = a[i];
+        a[i] = a[j];
+        a[j] = tmp;
+    }
+
+
+    /**
+     * Work arrays so the per point statistics don't allocate
+     */
+    public static class Workspace {
+
+        /** scratch values */
+        final float[] scratch;
+
+        /** weights */
+        final double[] weights;
+
+        /** intrinsic weight frequencies */
+        final double[] zfreq;
+
+        /** intrinsic weights */
+        final double[] zwts;
+
+        /** weights with the end points */
+        final double[] newWeights;
+
+        /** values with the end points */
+        final double[] newValues;
+
+        /**
+         * Create the work arrays for the given number of members
+         *
+         * @param numMembers number of members
+         */
+        public Workspace(int numMembers) {
+            int n = Math.max(numMembers, 2);
+            scratch    = new float[n];
+            weights    = new double[n];
+            zfreq      = new double[n];
+            zwts       = new double[n];
+            newWeights = new double[n + 2];
+            newValues  = new double[n + 2];
+        }
+    }
+
+
+    /**
+     * Holds the inputs and outputs of one compute call
+     */
+    private static class Job {
+
+        /** function types */
+        static final int PERCENTILE = 0, MODE = 1, UPROB = 2;
+
+        /** the function type */
+        final int type;
+
+        /** input values */
+        final float[][] memberValues;
+
+        /** output values */
+        final float[][] result;
+
+        /** number of points */
+        final int numPoints;
+
+        /** number of members */
+        final int numMembers;
+
+        /** percent or probability threshold */
+        final float statThreshold;
+
+        /** expected lo bound */
+        final float exptdLoBound;
+
+        /** expected hi bound */
+        final float exptdUpBound;
+
+        /**
+         * ctor
+         *
+         * @param type function type
+         * @param memberValues input
+         * @param result output
+         * @param numPoints number of points
+         * @param numMembers number of members
+         * @param statThreshold percent or probability threshold
+         * @param exptdLoBound expected lo bound
+         * @param exptdUpBound expected hi bound
+         */
+        Job(int type, float[][] memberValues, float[][] result,
+            int numPoints, int numMembers, float statThreshold,
+            float exptdLoBound, float exptdUpBound) {
+            this.type          = type;
+            this.memberValues  = memberValues;
+            this.result        = result;
+            this.numPoints     = numPoints;
+            this.numMembers    = numMembers;
+            this.statThreshold = statThreshold;
+            this.exptdLoBound  = exptdLoBound;
+            this.exptdUpBound  = exptdUpBound;
+        }
+
+        /**
+         * Compute the points in the range
+         *
+         * @param start first point
+         * @param end one past the last point
+         */
+        void computeRange(int start, int end) {
+            Workspace ws      = new Workspace(numMembers);
+            float[]   scratch = ws.scratch;
+            for (int param = 0; param < memberValues.length; param++) {
+                float[] values = memberValues[param];
+                float[] out    = result[param];
+                for (int point = start; point < end; point++) {
+                    int begin = point * numMembers;
+                    if (type == PERCENTILE) {
+                        System.arraycopy(values, begin, scratch, 0,
+                                         numMembers);
+                        out[point] = percentileInPlace(scratch, 0,
+                                numMembers, statThreshold);
+                    } else if (type == MODE) {
+                        out[point] = mode(values, begin, numMembers,
+                                          scratch);
+                    } else {
+                        // only use the members within the expected bounds
+                        int count = 0;
+                        for (int k = 0; k < numMembers; k++) {
+                            float value = values[begin + k];
+                            if ((value >= exptdLoBound)
+                                    && (value <= exptdUpBound)) {
+                                scratch[count++] = value;
+                            }
+                        }
+                        out[point] = ((count == 0)
+                                      ? Float.NaN
+                                      : evaluateUProbability(scratch, count,
+                                      statThreshold, numMembers, ws));
+                    }
+                }
+            }
+        }
+    }
+
+
+    /**
+     * Splits the grid points across the fork/join pool
+     */
+    private static class StatsTask extends RecursiveAction {
+
+        /** the job */
+        private final Job job;
+
+        /** first point */
+        private final int start;
+
+        /** one past the last point */
+        private final int end;
+
+        /**
+         * ctor
+         *
+         * @param job the job
+         * @param start first point
+         * @param end one past the last point
+         */
+        StatsTask(Job job, int start, int end) {
+            this.job   = job;
+            this.start = start;
+            this.end   = end;
+        }
+
+        /**
+         * Compute the points or split the range in two
+         */
+        protected void compute() {
+            if (end - start <= MIN_TASK_POINTS) {
+                job.computeRange(start, end);
+                return;
+            }
+            int mid = (start + end) >>> 1;
+            invokeAll(new StatsTask(job, start, mid),
+                      new StatsTask(job, mid, end));
+        }
+    }
+}
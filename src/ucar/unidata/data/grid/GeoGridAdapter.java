@@ -247,7 +247,7 @@ public class GeoGridAdapter {
                 }
             }
         }
-        this.readLock = dataSource.readLock;
+        this.readLock = dataSource.getReadLock(ncFile);
         if (geoGrid == null) {
             throw new IllegalArgumentException(
                 "GeoGridAdapter: geogrid cannot be null");
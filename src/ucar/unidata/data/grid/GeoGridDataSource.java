@@ -30,6 +30,7 @@ import ucar.ma2.Range;
 
 import ucar.nc2.Attribute;
 import ucar.nc2.Group;
+import ucar.nc2.NetcdfFile;
 import ucar.nc2.NetcdfFileWriter;
 import ucar.nc2.NetcdfFileWriter.Version;
 import ucar.nc2.Variable;
@@ -55,6 +56,7 @@ import ucar.unidata.data.DerivedDataChoice;
 import ucar.unidata.data.DirectDataChoice;
 import ucar.unidata.data.GeoLocationInfo;
 import ucar.unidata.data.GeoSelection;
+import ucar.unidata.data.ReadLockManager;
 import ucar.unidata.geoloc.LatLonPointImpl;
 import ucar.unidata.geoloc.LatLonRect;
 import ucar.unidata.geoloc.ProjectionImpl;
@@ -170,6 +172,12 @@ public class GeoGridDataSource extends GridDataSource {
     /** the dataset */
     private GridDataset dataset;
 
+    /** Extra handles on the file that we spread the data reads over */
+    private List<GridDataset> readHandles;
+
+    /** Which read handle to use next */
+    private int nextReadHandle = 0;
+
     /** list of times for this dataset */
     private List myTimes = new ArrayList();
 
@@ -597,6 +605,7 @@ public class GeoGridDataSource extends GridDataSource {
      */
     protected void sourcesChanged() {
         dataset   = null;
+        closeReadHandles();
         gcsVsTime = new Hashtable();
         super.sourcesChanged();
     }
@@ -608,6 +617,7 @@ public class GeoGridDataSource extends GridDataSource {
     public void reloadData() {
         myTimes   = null;
         dataset   = null;
+        closeReadHandles();
         gcsVsTime = new Hashtable();
         resolvePath();
         dataChoices = null;
@@ -637,6 +647,7 @@ public class GeoGridDataSource extends GridDataSource {
                 dataset.close();
             }
         } catch (IOException ioe) {}
+        closeReadHandles();
         dataset   = null;
         gcsVsTime = null;
     }
@@ -1241,7 +1252,7 @@ public class GeoGridDataSource extends GridDataSource {
      *
      * @return dataset
      */
-    public GridDataset getDataset() {
+    public synchronized GridDataset getDataset() {
         if (dataset == null) {
             Trace.call1("GeoGridDataSource.getDataSet", " name = " + sources);
             dataset = doMakeDataSet();
@@ -1250,6 +1261,80 @@ public class GeoGridDataSource extends GridDataSource {
         return dataset;
     }
 
+    /**
+     * Get the dataset to read data through. For a single local NetCDF-3,
+     * NetCDF-4 or HDF5 file we open a few handles on the file and hand them
+     * out in turn so reads of different fields can go on at the same time.
+     * Everything else is read through the one dataset.
+     *
+     * @return the dataset to read from
+     */
+    protected synchronized GridDataset getReadDataset() {
+        GridDataset myDataset = getDataset();
+        if (myDataset == null) {
+            return null;
+        }
+        if (readHandles == null) {
+            readHandles = new ArrayList<GridDataset>();
+            readHandles.add(myDataset);
+            String file = getFilePath();
+            if ((sources != null) && (sources.size() == 1)
+                    && (file != null)) {
+                file = convertSourceFile(file);
+                if ( !ReadLockManager.canReadConcurrently(file)) {
+                    file = null;
+                }
+            } else {
+                file = null;
+            }
+            for (int i = 1;
+                    (file != null) && (i < ReadLockManager.getMaxHandles());
+                    i++) {
+                try {
+                    readHandles.add(GridDataset.open(file));
+                } catch (Exception exc) {
+                    log_.debug("Unable to open read handle: " + file);
+                    break;
+                }
+            }
+        }
+        GridDataset handle =
+            readHandles.get(nextReadHandle % readHandles.size());
+        nextReadHandle = (nextReadHandle + 1) % readHandles.size();
+        return handle;
+    }
+
+    /**
+     * Get the lock to synchronize reads through the given file with
+     *
+     * @param ncFile the file the reads go through
+     *
+     * @return the lock
+     */
+    protected Object getReadLock(NetcdfFile ncFile) {
+        if ((ncFile == null) || (dataset == null)
+                || (ncFile == dataset.getNetcdfDataset())) {
+            return readLock;
+        }
+        return ReadLockManager.getLock(ncFile);
+    }
+
+    /**
+     * Close the extra read handles
+     */
+    private synchronized void closeReadHandles() {
+        if (readHandles == null) {
+            return;
+        }
+        // the first one is the dataset
+        for (int i = 1; i < readHandles.size(); i++) {
+            try {
+                readHandles.get(i).close();
+            } catch (IOException ioe) {}
+        }
+        readHandles = null;
+    }
+
 
 
     /**
@@ -1408,6 +1493,17 @@ public class GeoGridDataSource extends GridDataSource {
     }
 
 
+    /**
+     * The grid reads are done lazily by the GeoGridFlatFields under the
+     * read lock so different fields can be set up concurrently.
+     *
+     * @return true
+     */
+    protected boolean canLoadConcurrently() {
+        return true;
+    }
+
+
     /**
      * Get the Data object specified by the particular selection criteria.
      *
@@ -1609,7 +1705,9 @@ public class GeoGridDataSource extends GridDataSource {
         }
 
 
-        GridDataset myDataset = getDataset();
+        GridDataset myDataset = (readingFullGrid
+                                 ? getReadDataset()
+                                 : getDataset());
         if (myDataset == null) {
             return null;
         }
@@ -1890,7 +1988,7 @@ public class GeoGridDataSource extends GridDataSource {
 
         GeoGridAdapter adapter = new GeoGridAdapter(this, geoGrid,
                                      dataChoice.getName(),
-                                     dataset.getNetcdfDataset(),
+                                     myDataset.getNetcdfDataset(),
                                      extraCacheKey);
 
         adapter.cacheFile = filename.toString();
@@ -232,7 +232,7 @@ public class GridCoverageAdapter {
                 }
             }
         }
-        this.readLock = dataSource.readLock;
+        this.readLock = dataSource.getReadLock(ncFile);
         if (geoGrid == null) {
             throw new IllegalArgumentException(
                     "GeoGridAdapter: geogrid cannot be null");
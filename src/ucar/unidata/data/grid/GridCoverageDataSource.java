@@ -32,6 +32,7 @@ import ucar.ma2.*;
 import ucar.ma2.Range;
 import ucar.nc2.Attribute;
 import ucar.nc2.Group;
+import ucar.nc2.NetcdfFile;
 import ucar.nc2.NetcdfFileWriter;
 import ucar.nc2.NetcdfFileWriter.Version;
 import ucar.nc2.Variable;
@@ -59,6 +60,7 @@ import ucar.unidata.data.DerivedDataChoice;
 import ucar.unidata.data.DirectDataChoice;
 import ucar.unidata.data.GeoLocationInfo;
 import ucar.unidata.data.GeoSelection;
+import ucar.unidata.data.ReadLockManager;
 import ucar.unidata.geoloc.LatLonPointImpl;
 import ucar.unidata.geoloc.LatLonRect;
 import ucar.unidata.geoloc.ProjectionImpl;
@@ -164,6 +166,10 @@ public class GridCoverageDataSource extends GridDataSource {
     protected final Object readLock = new Object();
     /** the dataset */
     private DtCoverageDataset dataset;
+    /** Extra handles on the file that we spread the data reads over */
+    private List<DtCoverageDataset> readHandles;
+    /** Which read handle to use next */
+    private int nextReadHandle = 0;
     /** list of times for this dataset */
     private List myTimes = new ArrayList();
     /** list of levels for this dataset */
@@ -651,6 +657,7 @@ public class GridCoverageDataSource extends GridDataSource {
      */
     protected void sourcesChanged() {
         dataset   = null;
+        closeReadHandles();
         gcsVsTime = new Hashtable();
         super.sourcesChanged();
     }
@@ -661,6 +668,7 @@ public class GridCoverageDataSource extends GridDataSource {
     public void reloadData() {
         myTimes   = null;
         dataset   = null;
+        closeReadHandles();
         gcsVsTime = new Hashtable();
         resolvePath();
         dataChoices = null;
@@ -687,6 +695,7 @@ public class GridCoverageDataSource extends GridDataSource {
                 dataset.close();
             }
         } catch (IOException ioe) {}
+        closeReadHandles();
         dataset   = null;
         gcsVsTime = null;
     }
@@ -1282,6 +1291,80 @@ public class GridCoverageDataSource extends GridDataSource {
         return dataset;
     }
 
+    /**
+     * Get the dataset to read data through. For a single local NetCDF-3,
+     * NetCDF-4 or HDF5 file we open a few handles on the file and hand them
+     * out in turn so reads of different fields can go on at the same time.
+     * Everything else is read through the one dataset.
+     *
+     * @return the dataset to read from
+     */
+    protected synchronized DtCoverageDataset getReadDataset() {
+        DtCoverageDataset myDataset = getDataset();
+        if (myDataset == null) {
+            return null;
+        }
+        if (readHandles == null) {
+            readHandles = new ArrayList<DtCoverageDataset>();
+            readHandles.add(myDataset);
+            String file = getFilePath();
+            if ((sources != null) && (sources.size() == 1)
+                    && (file != null)) {
+                file = convertSourceFile(file);
+                if ( !ReadLockManager.canReadConcurrently(file)) {
+                    file = null;
+                }
+            } else {
+                file = null;
+            }
+            for (int i = 1;
+                    (file != null) && (i < ReadLockManager.getMaxHandles());
+                    i++) {
+                try {
+                    readHandles.add(DtCoverageDataset.open(file));
+                } catch (Exception exc) {
+                    log_.debug("Unable to open read handle: " + file);
+                    break;
+                }
+            }
+        }
+        DtCoverageDataset handle =
+            readHandles.get(nextReadHandle % readHandles.size());
+        nextReadHandle = (nextReadHandle + 1) % readHandles.size();
+        return handle;
+    }
+
+    /**
+     * Get the lock to synchronize reads through the given file with
+     *
+     * @param ncFile the file the reads go through
+     *
+     * @return the lock
+     */
+    protected Object getReadLock(NetcdfFile ncFile) {
+        if ((ncFile == null) || (dataset == null)
+                || (ncFile == dataset.getNetcdfDataset())) {
+            return readLock;
+        }
+        return ReadLockManager.getLock(ncFile);
+    }
+
+    /**
+     * Close the extra read handles
+     */
+    private synchronized void closeReadHandles() {
+        if (readHandles == null) {
+            return;
+        }
+        // the first one is the dataset
+        for (int i = 1; i < readHandles.size(); i++) {
+            try {
+                readHandles.get(i).close();
+            } catch (IOException ioe) {}
+        }
+        readHandles = null;
+    }
+
     /**
      * Return the sample projection
      *
@@ -1602,7 +1685,9 @@ public class GridCoverageDataSource extends GridDataSource {
         }
 
 
-        DtCoverageDataset myDataset = getDataset();
+        DtCoverageDataset myDataset = (readingFullGrid
+                                       ? getReadDataset()
+                                       : getDataset());
         if (myDataset == null) {
             return null;
         }
@@ -1922,7 +2007,7 @@ public class GridCoverageDataSource extends GridDataSource {
 
         GridCoverageAdapter adapter = new GridCoverageAdapter(this, geoCoverage,
                 geiGridSubsetParams, dataChoice.getName(),
-                dataset.getNetcdfDataset(),
+                myDataset.getNetcdfDataset(),
                 extraCacheKey);
 
         adapter.cacheFile = filename.toString();
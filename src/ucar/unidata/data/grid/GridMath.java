@@ -40,6 +40,7 @@ import visad.util.DataUtility;
 import java.rmi.RemoteException;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
 
 
@@ -1572,11 +1573,13 @@ public class GridMath {
             }
 
 
-            final Set   timeDomain   = Util.getDomainSet(grid);
-            int         numMembers   = 0;
-            TupleType   rangeType    = null;
-            TupleType   newRangeType = null;
-            float[][][] valuesAll    = null;
+            final Set timeDomain   = Util.getDomainSet(grid);
+            int       numMembers   = 0;
+            TupleType rangeType    = null;
+            TupleType newRangeType = null;
+            //The member values for all points, reused between time steps.
+            //[param][point * numMembers + member]
+            float[][] memberValues = null;
 
             for (int timeStepIdx = 0; timeStepIdx < timeDomain.getLength();
                     timeStepIdx++) {
@@ -1586,8 +1589,8 @@ public class GridMath {
                 float[][] values    = null;
                 numMembers = ensDomain.getLength();
                 GriddedSet newDomain = null;
+                int        numPoints = 0;
 
-                float[][]  stdevs    = null;
                 for (int k = 0; k < numMembers; k++) {
                     FlatField innerField = (FlatField) sample.getSample(k,
                                                false);
@@ -1606,73 +1609,42 @@ public class GridMath {
                     float[][] ensStepValues = innerField.getFloats(false);
                     if (values == null) {
                         values    = Misc.cloneArray(ensStepValues);
-                        valuesAll =
-                            new float[values.length][values[0].length][numMembers];
+                        numPoints = values[0].length;
+                        if ((memberValues == null)
+                                || (memberValues.length != values.length)
+                                || (memberValues[0].length
+                                    != numPoints * numMembers)) {
+                            memberValues =
+                                new float[values.length][numPoints
+                                    * numMembers];
+                        } else {
+                            //Missing members and values are 0
+                            for (int i = 0; i < memberValues.length; i++) {
+                                Arrays.fill(memberValues[i], 0);
+                            }
+                        }
                     }
                     for (int i = 0; i < ensStepValues.length; i++) {
-                        for (int j = 0; j < ensStepValues[i].length; j++) {
-                            float value = ensStepValues[i][j];
+                        float[] paramValues = ensStepValues[i];
+                        float[] ensValues   = memberValues[i];
+                        for (int j = 0; j < paramValues.length; j++) {
+                            float value = paramValues[j];
                             if (value != value) {
                                 continue;
                             }
-                            valuesAll[i][j][k] = value;
+                            ensValues[j * numMembers + k] = value;
                         }
                     }
 
                 }
                 // do the math
-                if (function.equals(FUNC_PRCNTL) && (numMembers > 1)) {
-                    int percent = (int) statThreshold;
-                    for (int i = 0; i < values.length; i++) {
-                        for (int j = 0; j < values[i].length; j++) {
-                            values[i][j] =
-                                evaluatePercentile(valuesAll[i][j], 0,
-                                    numMembers, percent);
-                        }
-                    }
-                }
-
-                if (function.equals(FUNC_MODE) && (numMembers > 1)) {
-                    for (int i = 0; i < values.length; i++) {
-                        for (int j = 0; j < values[i].length; j++) {
-                            values[i][j] = evaluateMode(valuesAll[i][j]);
-                        }
-                    }
-                }
-
-                if (function.equals(FUNC_UPROB) && (numMembers > 1)) {
-                    for (int i = 0; i < values.length; i++) {
-                        for (int j = 0; j < values[i].length; j++) {
-                            // check if ens values are within bounds.
-                            int     numValidMembers = numMembers;
-
-                            float[] tmpValues       = new float[numMembers];
-
-                            for (int k = 0; k < numMembers; k++) {
-                                tmpValues[k] = valuesAll[i][j][k];
-                            }
-
-
-                            for (int k = 0; k < numMembers; k++) {
-                                if ((tmpValues[k] < exptdLoBound)
-                                        | (tmpValues[k] > exptdUpBound)) {
-                                    numValidMembers--;
-                                    for (int mm = k; mm < numValidMembers - 1;
-                                            mm++) {
-                                        tmpValues[mm] = tmpValues[mm + 1];
-                                    }
-                                    k--;
-                                }
-                            }
-
-                            float[] newValues = new float[numValidMembers];
-                            for (int k = 0; k < numValidMembers; k++) {
-                                newValues[k] = tmpValues[k];
-                            }
-                            values[i][j] = evaluateUProbability(newValues,
-                                    statThreshold, numMembers);
-                        }
-                    }
+                if ((numMembers > 1)
+                        && (function.equals(FUNC_PRCNTL)
+                            || function.equals(FUNC_MODE)
+                            || function.equals(FUNC_UPROB))) {
+                    values = EnsembleStatistics.compute(memberValues,
+                            numPoints, numMembers, function, statThreshold,
+                            exptdLoBound, exptdUpBound);
                 }
 
                 FunctionType newFT =
@@ -2648,24 +2620,9 @@ public class GridMath {
         if (length == 1) {
             return values[begin];  // always return single value for n = 1
         }
-        double  n      = length;
-        double  pos    = p * (n + 1) / 100;
-        double  fpos   = Math.floor(pos);
-        int     intPos = (int) fpos;
-        float   dif    = (float) (pos - fpos);
-        float[] sorted = new float[length];
-        System.arraycopy(values, begin, sorted, 0, length);
-        QuickSort.sort(sorted);
-
-        if (pos < 1) {
-            return sorted[0];
-        }
-        if (pos >= n) {
-            return sorted[length - 1];
-        }
-        float lower = sorted[intPos - 1];
-        float upper = sorted[intPos];
-        return lower + dif * (upper - lower);
+        float[] work = new float[length];
+        System.arraycopy(values, begin, work, 0, length);
+        return EnsembleStatistics.percentileInPlace(work, 0, length, p);
     }
 
     /**
@@ -2676,27 +2633,8 @@ public class GridMath {
      *
      */
     public static float evaluateMode(float[] data) {
-        int   t, w;
-        float md, oldmd;
-        int   count, oldcount;
-        int   size = data.length;
-
-        oldmd    = 0;
-        oldcount = 0;
-        for (t = 0; t < size; t++) {
-            md    = data[t];
-            count = 1;
-            for (w = t + 1; w < size; w++) {
-                if (md == data[w]) {
-                    count++;
-                }
-            }
-            if (count > oldcount) {
-                oldmd    = md;
-                oldcount = count;
-            }
-        }
-        return oldmd;
+        return EnsembleStatistics.mode(data, 0, data.length,
+                                       new float[data.length]);
     }
 
     /**
@@ -2717,168 +2655,14 @@ public class GridMath {
                                              final float pValue,
                                              final int length)
             throws VisADException {
-
-        // TODO: allow users the chance to set custom weights
-        double floatDiffTol = 0.000001D;  // tolerance for comparing if two floats are the same (used to replace G_DIFF calls from GEMPAK c code)
-        double[] weights = new double[values.length];  // holder for fake weights until ens. weights are passed into function
-        for (int ii = 0; ii < values.length; ii++) {
-            weights[ii] = 1.0d / (double) values.length;
-        }
-        /*
-         * Bubble sorting the grid values in emvalu with
-         * emvalue (1) lowest and emvalu (nummbr) highest.
-         */
-
-        int    iswflg = 1;
-        int    istop  = values.length - 1;
-        float  swpbuf;
-        double wtbuf;
-        while ((iswflg != 0) && (istop > 0)) {
-            iswflg = 0;
-            for (int kk = 0; kk < istop; kk++) {
-                if (values[kk] > values[kk + 1]) {
-                    iswflg          = 1;
-                    swpbuf          = values[kk];
-                    wtbuf           = weights[kk];
-                    values[kk]      = values[kk + 1];
-                    weights[kk]     = weights[kk + 1];
-                    values[kk + 1]  = swpbuf;
-                    weights[kk + 1] = wtbuf;
-                }
-            }
-            istop--;
-        }
-
-        /*
-         * Check for identical values and compute intrinsic weight
-         * frequency (zfreq).
-         */
-        int mm = values.length;
-        /*
-         * Initialize intrinsic weight frequency array.
-         */
-        double[] zfreq = new double[values.length];
-
-        for (int kk = 0; kk < mm; kk++) {
-            zfreq[kk] = 1.0D;
-        }
-        double tol = 0.001D * (values[mm - 1] - values[0]) / mm;
-        for (int kk = 0; kk < mm - 1; kk++) {
-            if (Math.abs(values[kk] - values[kk + 1]) <= tol) {
-                weights[kk] += weights[kk + 1];
-                zfreq[kk]   = zfreq[kk] + 1.0D;
-                mm--;
-                for (int jj = kk; jj < mm - 1; jj++) {
-                    values[jj]  = values[jj + 1];
-                    weights[jj] = weights[jj + 1];
-                }
-                kk--;
-            }
-        }
-        /*
-         * Fabricate order statistics if it has collapsed to a single value.
-         */
-        if (mm == 1) {
-            if (Math.abs(values[0] - 0.0D) < floatDiffTol) {
-                values[0] = -0.00001F;
-                values[1] = 0.00001F;
-            } else {
-                float delta = 0.00001F * Math.abs(values[0]);
-                values[1] = values[0] + delta;
-                values[0] -= delta;
-            }
-            weights[0] = 0.5D;
-            weights[1] = 0.5D;
-            mm         = 2;
-            zfreq[0]   = 1.0D;
-            zfreq[1]   = 1.0D;
-        }
-        /*
-         *Compute and sum intrinsic weights.
-         */
-        double[] zwts = new double[mm];
-        zwts[0] = zfreq[0] / (values[1] - values[0]);
-        double zsum = zwts[0];
-        for (int kk = 1; kk < mm - 1; kk++) {
-            zwts[kk] = (zfreq[kk] * 2.0F) / (values[kk + 1] - values[kk - 1]);
-            zsum     = zsum + zwts[kk];
-        }
-        zwts[mm - 1] = zfreq[mm - 1] / (values[mm - 1] - values[mm - 2]);
-        zsum         = zsum + zwts[mm - 1];
-        /*
-         * Scale external weights by normalized intrinsic weights and
-         * normalize.
-         */
-        double psum = 0.0D;
-        for (int kk = 0; kk < mm; kk++) {
-            weights[kk] = (zwts[kk] / zsum) * weights[kk];
-            psum        = psum + weights[kk];
-        }
-        for (int kk = 0; kk < mm; kk++) {
-            weights[kk] = weights[kk] / psum;
-        }
-        /*
-         * Compute Qun, the area; Vn, the normalized value;
-         * w(), normalized weight; and qlt, qrt.
-         */
-        double vn = 0.0D;
-        for (int kk = 1; kk < mm; kk++) {
-            vn += 0.5D * (weights[kk] + weights[kk - 1])
-                  * (values[kk] - values[kk - 1]);
-        }
-        vn = vn / (1.0D - 2.0D / ((double) length + 1));
-        for (int kk = 0; kk < mm; kk++) {
-            weights[kk] = weights[kk] / vn;
-        }
-        double qlt = values[0]
-                     - 2.0D / (weights[0] * ((double) length + 1.0D));
-        double qrt = values[mm - 1]
-                     + 2.0D / (weights[mm - 1] * ((double) length + 1.0D));
-
-        double[] newWeights = new double[mm + 2];
-        double[] newValues  = new double[mm + 2];
-
-        newWeights[0]      = 0.0D;
-        newWeights[mm + 1] = 0.0D;
-        newValues[0]       = qlt;
-        newValues[mm + 1]  = qrt;
-
-        for (int ii = 1; ii < mm + 1; ii++) {
-            newWeights[ii] = weights[ii - 1];
-            newValues[ii]  = values[ii - 1];
-        }
-        /*
-         * Start computing univariate probability output.
-         */
-        float prob = 0.0F;  // probability of value at grid point < pValue)
-
-        if (pValue < newValues[0]) {
-            prob = 0.0F;
-        } else if (pValue > newValues[mm + 1]) {
-            prob = 1.0F;
-        } else {
-            psum = 0.0D;
-            for (int kk = 1; kk < mm + 2; kk++) {
-                if (Math.abs(pValue - newValues[kk - 1]) < floatDiffTol) {
-                    prob = (float) psum;
-                    break;
-                } else if (pValue >= newValues[kk]) {
-                    psum += 0.5D * (newWeights[kk] + newWeights[kk - 1])
-                            * (newValues[kk] - newValues[kk - 1]);
-                } else if (pValue > newValues[kk - 1]) {
-                    double ww = newWeights[kk - 1]
-                                + (newWeights[kk] - newWeights[kk - 1])
-                                  * (pValue - newValues[kk - 1])
-                                  / (newValues[kk] - newValues[kk - 1]);
-                    double fta = 0.5D * (ww + newWeights[kk - 1])
-                                 * (pValue - newValues[kk - 1]);
-                    prob = (float) psum + (float) fta;
-                    break;
-                }
-            }
-        }
+        EnsembleStatistics.Workspace ws =
+            new EnsembleStatistics.Workspace(values.length);
+        float[] work = ws.scratch;
+        System.arraycopy(values, 0, work, 0, values.length);
+        float prob = EnsembleStatistics.evaluateUProbability(work,
+                         values.length, pValue, length, ws);
+        System.arraycopy(work, 0, values, 0, values.length);
         return prob;
-
     }
 
     public static FieldImpl applyFunctionOverGridsExt(FieldImpl field,  String function)  throws VisADException  {
@@ -23,6 +23,7 @@ package ucar.unidata.data.grid;
 
 import ucar.unidata.data.DataUtil;
 import ucar.unidata.geoloc.LatLonPointImpl;
+import ucar.unidata.util.ComputePool;
 
 import ucar.unidata.util.LogUtil;
 import ucar.visad.quantities.CommonUnits;
@@ -36,8 +37,9 @@ import visad.georef.LatLonPoint;
 import java.rmi.RemoteException;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
-import java.util.concurrent.*;
+import java.util.concurrent.Callable;
 
 
 /**
@@ -69,32 +71,11 @@ public class GridTrajectory {
             FieldImpl grid2, FieldImpl grid3, FieldImpl grid4)
             throws VisADException, RemoteException, Exception {
 
-        ExecutorService   executor = Executors.newFixedThreadPool(4);
-
-
-        Callable          pt       = new VarNClone(grid1);
-        Future<FieldImpl> future1  = executor.submit(pt);
-
-        Callable          pt1      = new VarNClone(grid2);
-        Future<FieldImpl> future2  = executor.submit(pt1);
-
-        Callable          pt2      = new VarNClone(grid3);
-        Future<FieldImpl> future3  = executor.submit(pt2);
-
-        Callable          pt3      = new VarNClone(grid4);
-        Future<FieldImpl> future4  = executor.submit(pt3);
-
-        FieldImpl         u        = future1.get();
-        FieldImpl         v        = future2.get();
-        FieldImpl         pw       = future3.get();
-        FieldImpl         s        = future4.get();
-
-
-        List              flist    = new ArrayList();
-        flist.add(u);
-        flist.add(v);
-        flist.add(pw);
-        flist.add(s);
+        List<FieldImpl> flist = new ArrayList<FieldImpl>();
+        flist.add(grid1);
+        flist.add(grid2);
+        flist.add(grid3);
+        flist.add(grid4);
         return flist;
 
     }
@@ -116,28 +97,10 @@ public class GridTrajectory {
             FieldImpl grid2, FieldImpl grid3)
             throws VisADException, RemoteException, Exception {
 
-        ExecutorService   executor = Executors.newFixedThreadPool(4);
-
-
-        Callable          pt       = new VarNClone(grid1);
-        Future<FieldImpl> future1  = executor.submit(pt);
-
-        Callable          pt1      = new VarNClone(grid2);
-        Future<FieldImpl> future2  = executor.submit(pt1);
-
-        Callable          pt2      = new VarNClone(grid3);
-        Future<FieldImpl> future3  = executor.submit(pt2);
-
-
-        FieldImpl         u        = future1.get();
-        FieldImpl         v        = future2.get();
-        FieldImpl         s        = future3.get();
-
-
-        List              flist    = new ArrayList();
-        flist.add(u);
-        flist.add(v);
-        flist.add(s);
+        List<FieldImpl> flist = new ArrayList<FieldImpl>();
+        flist.add(grid1);
+        flist.add(grid2);
+        flist.add(grid3);
         return flist;
 
     }
@@ -158,95 +121,80 @@ public class GridTrajectory {
             FieldImpl grid2)
             throws VisADException, RemoteException, Exception {
 
-        ExecutorService   executor = Executors.newFixedThreadPool(4);
-
-
-        Callable          pt       = new VarNClone(grid1);
-        Future<FieldImpl> future1  = executor.submit(pt);
-
-        Callable          pt1      = new VarNClone(grid2);
-        Future<FieldImpl> future2  = executor.submit(pt1);
-
-
-        FieldImpl         u        = future1.get();
-        FieldImpl         v        = future2.get();
-
-
-        List              flist    = new ArrayList();
-        flist.add(u);
-        flist.add(v);
-
+        List<FieldImpl> flist = new ArrayList<FieldImpl>();
+        flist.add(grid1);
+        flist.add(grid2);
         return flist;
 
     }
 
     /**
-     * Class description
+     * Read in the data of all of the time steps of the given grids
+     * in parallel so the trajectory integration does not have to
+     * fault in each time step serially. The grids themselves are not
+     * copied; the trajectory code only reads from them.
      *
+     * @param grids the grids. Null entries are skipped.
      *
-     * @version
-     * @author
+     * @throws Exception on badness
      */
-    static class Varbar implements Callable<Object> {
-
-        /** _more_ */
-        private FieldImpl v;
-
-
-        /**
-         * _more_
-         *
-         * @param v _more_
-         */
-        private Varbar(FieldImpl v) {
-            this.v = v;
-        }
-
-        /**
-         * _more_
-         *
-         * @return _more_
-         *
-         * @throws CloneNotSupportedException _more_
-         */
-        public FieldImpl call() throws CloneNotSupportedException {
-            return (FieldImpl) v.clone();
-
+    private static void readGrids(FieldImpl... grids) throws Exception {
+        List<Callable<Object>> tasks = new ArrayList<Callable<Object>>();
+        for (final FieldImpl grid : grids) {
+            if (grid == null) {
+                continue;
+            }
+            if ( !GridUtil.isTimeSequence(grid)) {
+                tasks.add(new GridReader(grid));
+                continue;
+            }
+            int numTimes = grid.getDomainSet().getLength();
+            for (int t = 0; t < numTimes; t++) {
+                tasks.add(new GridReader(grid.getSample(t, false)));
+            }
         }
+        ComputePool.invokeAll(tasks);
     }
 
     /**
-     * Class description
-     *
-     *
-     * @version
-     * @author
+     * Reads the range values of a single grid so they are loaded
+     * into memory.
      */
-    static class VarNClone implements Callable<Object> {
-
-        /** _more_ */
-        private FieldImpl v;
+    private static class GridReader implements Callable<Object> {
 
+        /** the grid */
+        private Data grid;
 
         /**
-         * _more_
+         * Create the reader
          *
-         * @param v _more_
+         * @param grid the grid
          */
-        private VarNClone(FieldImpl v) {
-            this.v = v;
+        private GridReader(Data grid) {
+            this.grid = grid;
         }
 
         /**
-         * _more_
+         * Read the values
          *
-         * @return _more_
+         * @return null
          *
-         * @throws CloneNotSupportedException _more_
+         * @throws Exception on badness
          */
-        public FieldImpl call() throws CloneNotSupportedException {
-            return (FieldImpl) v;
-
+        public Object call() throws Exception {
+            if (grid instanceof FlatField) {
+                ((FlatField) grid).getFloats(false);
+            } else if (grid instanceof FieldImpl) {
+                FieldImpl field = (FieldImpl) grid;
+                int       len   = field.getDomainSet().getLength();
+                for (int i = 0; i < len; i++) {
+                    Data sample = field.getSample(i, false);
+                    if (sample instanceof FlatField) {
+                        ((FlatField) sample).getFloats(false);
+                    }
+                }
+            }
+            return null;
         }
     }
 
@@ -280,24 +228,12 @@ public class GridTrajectory {
                 "Grids U, V W and S can not be 3D volume");
         }
 
-        long              start    = System.currentTimeMillis();
-        ExecutorService   executor = Executors.newFixedThreadPool(4);
-
+        long start = System.currentTimeMillis();
+        readGrids(uFI0, vFI0, sFI0);
 
-        Callable          pt       = new Varbar(uFI0);
-        Future<FieldImpl> future   = executor.submit(pt);
-
-
-        Callable          pt1      = new Varbar(vFI0);
-        Future<FieldImpl> future1  = executor.submit(pt1);
-
-
-        Callable          pt3      = new Varbar(sFI0);
-        Future<FieldImpl> future3  = executor.submit(pt3);
-
-        FieldImpl         uFI      = future.get();
-        FieldImpl         vFI      = future1.get();
-        FieldImpl         sFI      = future3.get();
+        FieldImpl uFI = uFI0;
+        FieldImpl vFI = vFI0;
+        FieldImpl sFI = sFI0;
 
         try {
             if (GridUtil.is3D(sFI0)) {
@@ -417,39 +353,17 @@ public class GridTrajectory {
             throws VisADException, RemoteException, Exception {
 
         //System.out.println("Time Start...\n");
-        long              start    = System.currentTimeMillis();
-        ExecutorService   executor = Executors.newFixedThreadPool(4);
-
+        long start = System.currentTimeMillis();
+        readGrids(uFI0, vFI0, pwFI0, sFI0);
 
-        Callable          pt       = new Varbar(uFI0);
-        Future<FieldImpl> future   = executor.submit(pt);
-
-
-        Callable          pt1      = new Varbar(vFI0);
-        Future<FieldImpl> future1  = executor.submit(pt1);
-
-
-        Callable          pt2      = new Varbar(pwFI0);
-        Future<FieldImpl> future2  = executor.submit(pt2);
-
-
-        Callable          pt3      = new Varbar(sFI0);
-        Future<FieldImpl> future3  = executor.submit(pt3);
-
-        FieldImpl         uFI      = future.get();
-        FieldImpl         vFI      = future1.get();
-        FieldImpl         pwFI     = future2.get();
-        FieldImpl         sFI      = future3.get();
+        FieldImpl uFI  = uFI0;
+        FieldImpl vFI  = vFI0;
+        FieldImpl pwFI = pwFI0;
+        FieldImpl sFI  = sFI0;
 
         //System.out.println("Time used to read = "
         //        + (System.currentTimeMillis() - start) / 1000.0);
         start = System.currentTimeMillis();
-        /*
-        FieldImpl         uFI       = (FieldImpl)uFI0.clone(); //future.get();
-        FieldImpl         vFI       = (FieldImpl)vFI0.clone(); //future1.get();
-        FieldImpl         pwFI      = (FieldImpl)pwFI0.clone(); //future2.get();
-        FieldImpl         sFI       = (FieldImpl)sFI0.clone(); //future3.get();
-         */
 
 
         final Set timeSet  = sFI.getDomainSet();
@@ -679,32 +593,12 @@ public class GridTrajectory {
             final boolean normalizeLon, final Real clevel, boolean backward)
             throws Exception {
 
-        ExecutorService   executor = Executors.newFixedThreadPool(8);
-
-        Callable          pt0      = new Varbar(uFI0);
-        Future<FieldImpl> future0  = executor.submit(pt0);
+        readGrids(uFI0, vFI0, wFI0, sFI0);
 
-
-        Callable          pt1      = new Varbar(vFI0);
-        Future<FieldImpl> future1  = executor.submit(pt1);
-
-        Callable          pt2;
-        Future<FieldImpl> future2 = null;
-        if (wFI0 != null) {
-            pt2     = new Varbar(wFI0);
-            future2 = executor.submit(pt2);
-        }
-
-        Callable          pt3     = new Varbar(sFI0);
-        Future<FieldImpl> future3 = executor.submit(pt3);
-
-        FieldImpl         uFI     = future0.get();
-        FieldImpl         vFI     = future1.get();
-        FieldImpl         wFI     = null;
-        if (wFI0 != null) {
-            wFI = future2.get();
-        }
-        FieldImpl sFI  = future3.get();
+        FieldImpl uFI  = uFI0;
+        FieldImpl vFI  = vFI0;
+        FieldImpl wFI  = wFI0;
+        FieldImpl sFI  = sFI0;
 
         FieldImpl uvFI = DerivedGridFactory.createTrueFlowVectors(uFI, vFI);
         uFI = DerivedGridFactory.getUComponent(uvFI);
@@ -727,44 +621,42 @@ public class GridTrajectory {
             sFI = GridUtil.make2DGridFromSlice(sFI, false);
         }
         LogUtil.message("Calculating grid trajectories...");
-        final List<TrajInfo> result   = new ArrayList<TrajInfo>();
-        List<Future>         pthreads = new ArrayList<Future>();
+        float[] lats = new float[numPoints];
+        float[] lons = new float[numPoints];
+        float[] alts = new float[numPoints];
         for (int i = 0; i < numPoints; i++) {
-            float lat = geoVals[latIndex][i];
-            float lon = geoVals[lonIndex][i];
+            lats[i] = geoVals[latIndex][i];
+            lons[i] = geoVals[lonIndex][i];
             if (normalizeLon) {
-                lon = (float) LatLonPointImpl.lonNormal(lon);
+                lons[i] = (float) LatLonPointImpl.lonNormal(lons[i]);
             }
-            float alt = haveAlt
-                        ? geoVals[2][i]
-                        : 0;
-            Callable pt = new pointsThredds(uFI, vFI, wFI, sFI, ttts, lat,
-                                            lon, alt, numTimes, backward);
-            Future<Object> future = executor.submit(pt);
-            pthreads.add(future);
+            alts[i] = haveAlt
+                      ? geoVals[2][i]
+                      : 0;
         }
-
-        for (Future<Object> o : pthreads) {
-            try {
-                result.add((TrajInfo) o.get());
-            } catch (InterruptedException e) {
-                e.printStackTrace();  //To change body of catch statement use File | Settings | File Templates.
-            } catch (ExecutionException e) {
-                e.printStackTrace();  //To change body of catch statement use File | Settings | File Templates.
-            }
+        // Split the seed points into a few chunks per thread so each
+        // thread reuses its wind work arrays across its points
+        int chunkSize = Math.max(1,
+                                 numPoints
+                                 / (ComputePool.getMaxThreads() * 4));
+        List<pointsThredds> tasks = new ArrayList<pointsThredds>();
+        for (int i = 0; i < numPoints; i += chunkSize) {
+            tasks.add(new pointsThredds(uFI, vFI, wFI, sFI, ttts, lats,
+                                        lons, alts, i,
+                                        Math.min(numPoints, i + chunkSize),
+                                        numTimes, backward));
+        }
+        final List<TrajInfo> result = new ArrayList<TrajInfo>(numPoints);
+        for (List<TrajInfo> chunk : ComputePool.invokeAll(tasks)) {
+            result.addAll(chunk);
         }
-
         return result;
     }
 
     /**
-     * Class description
-     *
-     *
-     * @version
-     * @author
+     * Calculates the tracks for a range of seed points
      */
-    static class pointsThredds implements Callable<TrajInfo> {
+    static class pointsThredds implements Callable<List<TrajInfo>> {
 
         /** _more_ */
         FieldImpl uFI;
@@ -781,29 +673,23 @@ public class GridTrajectory {
         /** _more_ */
         double[] ttts;
 
-        /** _more_ */
-        float lat;
-
-        /** _more_ */
-        float lon;
-
-        /** _more_ */
-        float alt;
+        /** seed latitudes */
+        float[] lats;
 
-        /** _more_ */
-        int numTimes;
+        /** seed longitudes */
+        float[] lons;
 
-        /** _more_ */
-        int latIndex;
+        /** seed altitudes */
+        float[] alts;
 
-        /** _more_ */
-        int lonIndex;
+        /** first seed point (inclusive) */
+        int from;
 
-        /** _more_ */
-        boolean haveAlt;
+        /** last seed point (exclusive) */
+        int to;
 
         /** _more_ */
-        boolean normalizeLon;
+        int numTimes;
 
         /** _more_ */
         boolean backward;
@@ -816,26 +702,30 @@ public class GridTrajectory {
          * @param wFI _more_
          * @param sFI _more_
          * @param ttts _more_
-         * @param lat _more_
-         * @param lon _more_
-         * @param alt _more_
+         * @param lats seed latitudes
+         * @param lons seed longitudes
+         * @param alts seed altitudes
+         * @param from first seed point (inclusive)
+         * @param to last seed point (exclusive)
          * @param numTimes _more_
          * @param backward _more_
          *
          */
         private pointsThredds(FieldImpl uFI, FieldImpl vFI, FieldImpl wFI,
-                              FieldImpl sFI, double[] ttts, float lat,
-                              float lon, float alt, int numTimes,
-                              boolean backward) {
+                              FieldImpl sFI, double[] ttts, float[] lats,
+                              float[] lons, float[] alts, int from, int to,
+                              int numTimes, boolean backward) {
 
             this.uFI      = uFI;
             this.vFI      = vFI;
             this.wFI      = wFI;
             this.sFI      = sFI;
             this.ttts     = ttts;
-            this.lat      = lat;
-            this.lon      = lon;
-            this.alt      = alt;
+            this.lats     = lats;
+            this.lons     = lons;
+            this.alts     = alts;
+            this.from     = from;
+            this.to       = to;
             this.numTimes = numTimes;
             this.backward = backward;
 
@@ -846,22 +736,42 @@ public class GridTrajectory {
          *
          * @return _more_
          */
-        public TrajInfo call() {
+        public List<TrajInfo> call() {
+            List<TrajInfo> result = new ArrayList<TrajInfo>(to - from);
+            float[][]      winds  = new float[3][numTimes];
+            for (int i = from; i < to; i++) {
+                result.add(calculate(lats[i], lons[i], alts[i], winds));
+            }
+            return result;
+        }
+
+        /**
+         * Calculate a single track
+         *
+         * @param lat seed latitude
+         * @param lon seed longitude
+         * @param alt seed altitude
+         * @param winds wind work arrays
+         *
+         * @return the track
+         */
+        private TrajInfo calculate(float lat, float lon, float alt,
+                                   float[][] winds) {
             if ( !backward) {
                 if (wFI != null) {
                     return calculateSingleTrackPoints(uFI, vFI, wFI, sFI,
-                            ttts, lat, lon, alt, numTimes);
+                            ttts, lat, lon, alt, numTimes, winds);
                 } else {
                     return calculateSingleTrackPoints(uFI, vFI, sFI, ttts,
-                            lat, lon, alt, numTimes);
+                            lat, lon, alt, numTimes, winds);
                 }
             } else {
                 if (wFI != null) {
                     return calculateSingleTrackPointsB(uFI, vFI, wFI, sFI,
-                            ttts, lat, lon, alt, numTimes);
+                            ttts, lat, lon, alt, numTimes, winds);
                 } else {
                     return calculateSingleTrackPointsB(uFI, vFI, sFI, ttts,
-                            lat, lon, alt, numTimes);
+                            lat, lon, alt, numTimes, winds);
                 }
             }
         }
@@ -887,6 +797,35 @@ public class GridTrajectory {
             final FieldImpl vFI, final FieldImpl sFI, final double[] ttts,
             final float lat0, final float lon0, final float alt0,
             final int numTimes) {
+        return calculateSingleTrackPoints(uFI, vFI, sFI, ttts, lat0, lon0,
+                                          alt0, numTimes,
+                                          new float[2][numTimes]);
+    }
+
+    /**
+     * _more_
+     *
+     * @param uFI _more_
+     * @param vFI _more_
+     * @param sFI _more_
+     * @param ttts _more_
+     * @param lat0 _more_
+     * @param lon0 _more_
+     * @param alt0 _more_
+     * @param numTimes _more_
+     *
+     *
+     * @param winds work arrays for the u, v (and w) values at each time.
+     *              These are reused between calls.
+     *
+     * @return _more_
+     *
+     */
+    public static TrajInfo calculateSingleTrackPoints(final FieldImpl uFI,
+            final FieldImpl vFI, final FieldImpl sFI, final double[] ttts,
+            final float lat0, final float lon0, final float alt0,
+            final int numTimes,
+            final float[][] winds) {
 
         final float radius   = 6371000.0f;
         final float f        = 180.0f / 3.1415926f;
@@ -895,8 +834,10 @@ public class GridTrajectory {
 
         try {
 
-            float[] u = new float[numTimes];
-            float[] v = new float[numTimes];
+            float[] u = winds[0];
+            float[] v = winds[1];
+            Arrays.fill(u, 0);
+            Arrays.fill(v, 0);
 
 
             for (int timeStepIdx = 0; timeStepIdx < numTimes; timeStepIdx++) {
@@ -1038,6 +979,33 @@ public class GridTrajectory {
             final FieldImpl vFI, final FieldImpl sFI, final double[] ttts,
             final float lat0, final float lon0, final float alt0,
             final int numTimes) {
+        return calculateSingleTrackPointsB(uFI, vFI, sFI, ttts, lat0, lon0,
+                                           alt0, numTimes,
+                                           new float[2][numTimes]);
+    }
+
+    /**
+     * _more_
+     *
+     * @param uFI _more_
+     * @param vFI _more_
+     * @param sFI _more_
+     * @param ttts _more_
+     * @param lat0 _more_
+     * @param lon0 _more_
+     * @param alt0 _more_
+     * @param numTimes _more_
+     *
+     * @param winds work arrays for the u, v (and w) values at each time.
+     *              These are reused between calls.
+     *
+     * @return _more_
+     */
+    public static TrajInfo calculateSingleTrackPointsB(final FieldImpl uFI,
+            final FieldImpl vFI, final FieldImpl sFI, final double[] ttts,
+            final float lat0, final float lon0, final float alt0,
+            final int numTimes,
+            final float[][] winds) {
 
         final float radius   = 6371000.0f;
         final float f        = 180.0f / 3.1415926f;
@@ -1046,8 +1014,10 @@ public class GridTrajectory {
 
         try {
 
-            float[] u = new float[numTimes];
-            float[] v = new float[numTimes];
+            float[] u = winds[0];
+            float[] v = winds[1];
+            Arrays.fill(u, 0);
+            Arrays.fill(v, 0);
 
 
             for (int timeStepIdx = numTimes - 1; timeStepIdx > -1;
@@ -1192,6 +1162,36 @@ public class GridTrajectory {
             final FieldImpl vFI, final FieldImpl wFI, final FieldImpl sFI,
             final double[] ttts, final float lat0, final float lon0,
             final float alt0, final int numTimes) {
+        return calculateSingleTrackPoints(uFI, vFI, wFI, sFI, ttts, lat0,
+                                          lon0, alt0, numTimes,
+                                          new float[3][numTimes]);
+    }
+
+    /**
+     * _more_
+     *
+     * @param uFI _more_
+     * @param vFI _more_
+     * @param wFI _more_
+     * @param sFI _more_
+     * @param ttts _more_
+     * @param lat0 _more_
+     * @param lon0 _more_
+     * @param alt0 _more_
+     * @param numTimes _more_
+     *
+     *
+     * @param winds work arrays for the u, v (and w) values at each time.
+     *              These are reused between calls.
+     *
+     * @return _more_
+     *
+     */
+    public static TrajInfo calculateSingleTrackPoints(final FieldImpl uFI,
+            final FieldImpl vFI, final FieldImpl wFI, final FieldImpl sFI,
+            final double[] ttts, final float lat0, final float lon0,
+            final float alt0, final int numTimes,
+            final float[][] winds) {
 
         final float radius   = 6371000.0f;
         final float f        = 180.0f / 3.1415926f;
@@ -1199,9 +1199,12 @@ public class GridTrajectory {
 
         try {
 
-            float[] u = new float[numTimes];
-            float[] v = new float[numTimes];
-            float[] w = new float[numTimes];
+            float[] u = winds[0];
+            float[] v = winds[1];
+            Arrays.fill(u, 0);
+            Arrays.fill(v, 0);
+            float[] w = winds[2];
+            Arrays.fill(w, 0);
 
             for (int timeStepIdx = 0; timeStepIdx < numTimes; timeStepIdx++) {
                 if (timeStepIdx == 0) {
@@ -1360,6 +1363,34 @@ public class GridTrajectory {
             final FieldImpl vFI, final FieldImpl wFI, final FieldImpl sFI,
             final double[] ttts, final float lat0, final float lon0,
             final float alt0, final int numTimes) {
+        return calculateSingleTrackPointsB(uFI, vFI, wFI, sFI, ttts, lat0,
+                                           lon0, alt0, numTimes,
+                                           new float[3][numTimes]);
+    }
+
+    /**
+     * _more_
+     *
+     * @param uFI _more_
+     * @param vFI _more_
+     * @param wFI _more_
+     * @param sFI _more_
+     * @param ttts _more_
+     * @param lat0 _more_
+     * @param lon0 _more_
+     * @param alt0 _more_
+     * @param numTimes _more_
+     *
+     * @param winds work arrays for the u, v (and w) values at each time.
+     *              These are reused between calls.
+     *
+     * @return _more_
+     */
+    public static TrajInfo calculateSingleTrackPointsB(final FieldImpl uFI,
+            final FieldImpl vFI, final FieldImpl wFI, final FieldImpl sFI,
+            final double[] ttts, final float lat0, final float lon0,
+            final float alt0, final int numTimes,
+            final float[][] winds) {
 
         final float radius   = 6371000.0f;
         final float f        = 180.0f / 3.1415926f;
@@ -1367,9 +1398,12 @@ public class GridTrajectory {
 
         try {
 
-            float[] u = new float[numTimes];
-            float[] v = new float[numTimes];
-            float[] w = new float[numTimes];
+            float[] u = winds[0];
+            float[] v = winds[1];
+            Arrays.fill(u, 0);
+            Arrays.fill(v, 0);
+            float[] w = winds[2];
+            Arrays.fill(w, 0);
 
             for (int timeStepIdx = numTimes - 1; timeStepIdx > -1;
                     timeStepIdx--) {
@@ -1604,27 +1638,12 @@ public class GridTrajectory {
             final FunctionType ft, final Unit varUnit, final int num)
             throws Exception {
 
-        ExecutorService       executor = Executors.newFixedThreadPool(8);
-        final List<FlatField> result   = new ArrayList<FlatField>();
-        List<Future>          pthreads = new ArrayList<Future>();
+        List<trackThredds> tasks = new ArrayList<trackThredds>();
         for (int i = 0; i < num; i++) {
-            Callable pt = new trackThredds(i, variableName, tj, timeSet, ft,
-                                           varUnit);
-            Future<Object> future = executor.submit(pt);
-            pthreads.add(future);
-        }
-
-        for (Future<Object> o : pthreads) {
-            try {
-                result.add((FlatField) o.get());
-            } catch (InterruptedException e) {
-                e.printStackTrace();  //To change body of catch statement use File | Settings | File Templates.
-            } catch (ExecutionException e) {
-                e.printStackTrace();  //To change body of catch statement use File | Settings | File Templates.
-            }
+            tasks.add(new trackThredds(i, variableName, tj, timeSet, ft,
+                                       varUnit));
         }
-
-        return result;
+        return ComputePool.invokeAll(tasks);
     }
 
     /**
@@ -1646,20 +1665,12 @@ public class GridTrajectory {
             final FunctionType ft, final Unit varUnit, final int num)
             throws Exception {
 
-        ExecutorService           executor = Executors.newFixedThreadPool(4);
-        Callable<List<FlatField>> task     = new Callable<List<FlatField>>() {
-            public List<FlatField> call() {
-                List<FlatField> result = new ArrayList<FlatField>();
-                for (int i = 0; i < num; i = i + 1) {
-                    result.add(i, createSingleTrack(variableName, tj,
-                            timeSet, ft, varUnit, i));
-                }
-                return result;
-            }
-        };
-        Future<List<FlatField>> future = executor.submit(task);
-        List<FlatField>         cList  = future.get();
-        return cList;
+        List<FlatField> result = new ArrayList<FlatField>();
+        for (int i = 0; i < num; i = i + 1) {
+            result.add(i, createSingleTrack(variableName, tj, timeSet, ft,
+                                            varUnit, i));
+        }
+        return result;
     }
 
     /**
@@ -0,0 +1,594 @@
+/*
+ * Copyright 1997-2020 Unidata Program Center/University Corporation for
+ * Atmospheric Research, P.O. Box 3000, Boulder, CO 80307,
+ * support@unidata.ucar.edu.
+ *
+ * This library is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation; either version 2.1 of the License, or (at
+ * your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU Lesser
+ * General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this library; if not, write to the Free Software Foundation,
+ * Inc., 59 Temple Place, Suite 330, Boston, MA 02111-1307 USA
+ */
+
+package ucar.unidata.data.grid;
+
+
+import ucar.unidata.util.ComputePool;
+
+import visad.VisADException;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+
+
+/**
+ * Lifts a parcel in every column of a 3D grid and finds its CAPE, CIN,
+ * lifting condensation level (LCL), level of free convection (LFC) and
+ * equilibrium level (EL). This works on the grid values directly, without
+ * making VisAD data for each column, and the columns are done in the
+ * {@link ComputePool}.
+ * <p>
+ * The physics are those of the sounding display: saturation vapor pressure
+ * as in {@link ucar.visad.quantities.SaturationVaporPressure}, the LCL as
+ * in {@link ucar.visad.quantities.SaturationPointTemperature} and
+ * {@link ucar.visad.quantities.SaturationPointPressure}, and the saturated
+ * part of the lift follows the pseudo-adiabat of
+ * {@link ucar.visad.quantities.PseudoAdiabaticLapseRate}, stepped as in
+ * {@link ucar.unidata.view.sounding.DefaultWetTemperatureCalculator}.
+ * Buoyancy is from the difference in virtual temperature of the parcel
+ * and the environment.
+ *
+ * @author IDV Development Team
+ */
+public class ParcelLifter {
+
+    /** Parcel from the lowest level of the column */
+    public static final int SURFACE = 0;
+
+    /** Parcel with the mean properties of the lowest 100 hPa */
+    public static final int MIXED_LAYER = 1;
+
+    /** Parcel with the highest theta-e in the lowest 300 hPa */
+    public static final int MOST_UNSTABLE = 2;
+
+    /** Index of CAPE (J/kg) in the result */
+    public static final int CAPE = 0;
+
+    /** Index of CIN (J/kg, not positive) in the result */
+    public static final int CIN = 1;
+
+    /** Index of the LCL pressure (Pa) in the result */
+    public static final int LCL = 2;
+
+    /** Index of the LFC pressure (Pa) in the result */
+    public static final int LFC = 3;
+
+    /** Index of the EL pressure (Pa) in the result */
+    public static final int EL = 4;
+
+    /** Number of values in the result */
+    public static final int NUM_PARAMS = 5;
+
+    /** Gas constant of dry air (J/kg/K) */
+    private static final double RD = 287.04;
+
+    /** Specific heat capacity of dry air at constant pressure (J/kg/K) */
+    private static final double CP = 1004.832;
+
+    /** Latent heat of evaporation (J/kg) */
+    private static final double LV = 2500775.64;
+
+    /** Ratio of the molecular weights of water and dry air */
+    private static final double EPSILON = 0.018016 / 0.028966;
+
+    /** Rd/Cp */
+    private static final double KAPPA = RD / CP;
+
+    /** Reference pressure of potential temperature (Pa) */
+    private static final double P0 = 100000;
+
+    /** Saturation vapor pressure at T1 (Pa) */
+    private static final double ESAT0 = 611.2;
+
+    /** Saturation vapor pressure temperature multiplier */
+    private static final double ESAT_A = 17.67;
+
+    /** Saturation vapor pressure temperature constant (K) */
+    private static final double ESAT_T1 = 273.16;
+
+    /** Saturation vapor pressure temperature constant (K) */
+    private static final double ESAT_T2 = 29.66;
+
+    /** Depth of the mixed layer (Pa) */
+    private static final double MIXED_LAYER_DEPTH = 10000;
+
+    /** Depth searched for the most unstable parcel (Pa) */
+    private static final double MOST_UNSTABLE_DEPTH = 30000;
+
+    /** Largest pressure step along the pseudo-adiabat (Pa) */
+    private static final double MAX_STEP = 1000;
+
+    /** Number of columns lifted in one task */
+    private static final int COLUMNS_PER_TASK = 2048;
+
+    /**
+     * Default ctor
+     */
+    private ParcelLifter() {}
+
+    /**
+     * Get the parcel type from its name: "surface" (or "sb"),
+     * "mixed" (or "ml") or "mostunstable" (or "mu"). Case and any
+     * blanks, '-' and '_' are ignored.
+     *
+     * @param name the name. null or empty for the surface parcel
+     *
+     * @return the parcel type
+     *
+     * @throws IllegalArgumentException unknown name
+     */
+    public static int getParcelType(String name) {
+        if (name == null) {
+            return SURFACE;
+        }
+        String key = name.toLowerCase().replaceAll("[\\s_\\-]", "");
+        if (key.equals("") || key.equals("sb") || key.startsWith("surface")) {
+            return SURFACE;
+        }
+        if (key.equals("ml") || key.startsWith("mixed")) {
+            return MIXED_LAYER;
+        }
+        if (key.equals("mu") || key.startsWith("mostunstable")) {
+            return MOST_UNSTABLE;
+        }
+        throw new IllegalArgumentException("Unknown parcel type: " + name);
+    }
+
+    /**
+     * Lift a parcel in each column of a grid. The arrays are indexed by
+     * <code>column + numColumns * level</code> (the order of the samples
+     * of a 3D grid). The levels may be in any order and missing values
+     * (NaN) are skipped.
+     *
+     * @param pressure pressure (Pa)
+     * @param temperature temperature (K)
+     * @param dewpoint dewpoint (K)
+     * @param numColumns number of columns
+     * @param parcelType {@link #SURFACE}, {@link #MIXED_LAYER} or
+     *                   {@link #MOST_UNSTABLE}
+     *
+     * @return the values for each column, indexed by {@link #CAPE},
+     *         {@link #CIN}, {@link #LCL}, {@link #LFC} and {@link #EL}.
+     *         Columns with less than two good levels are missing. Columns
+     *         with no free convection have a CAPE of zero and a missing
+     *         CIN, LFC and EL.
+     *
+     * @throws VisADException problem running the tasks
+     */
+    public static float[][] lift(final float[] pressure,
+                                 final float[] temperature,
+                                 final float[] dewpoint,
+                                 final int numColumns,
+                                 final int parcelType)
+            throws VisADException {
+        if ((pressure.length != temperature.length)
+                || (pressure.length != dewpoint.length)
+                || (pressure.length % numColumns != 0)) {
+            throw new VisADException("Grids are not the same size");
+        }
+        final float[][]        result = new float[NUM_PARAMS][numColumns];
+        List<Callable<Object>> tasks  = new ArrayList<Callable<Object>>();
+        for (int c = 0; c < numColumns; c += COLUMNS_PER_TASK) {
+            final int start = c;
+            final int end   = Math.min(c + COLUMNS_PER_TASK, numColumns);
+            tasks.add(new Callable<Object>() {
+                public Object call() {
+                    Column column = new Column(pressure.length / numColumns);
+                    for (int i = start; i < end; i++) {
+                        column.lift(pressure, temperature, dewpoint, i,
+                                    numColumns, parcelType, result);
+                    }
+                    return null;
+                }
+            });
+        }
+        try {
+            ComputePool.invokeAll(tasks);
+        } catch (VisADException | RuntimeException exc) {
+            throw exc;
+        } catch (Exception exc) {
+            throw new VisADException(exc.toString());
+        }
+        return result;
+    }
+
+    /**
+     * Make dewpoints from temperature and relative humidity
+     *
+     * @param temperature temperature (K)
+     * @param rh relative humidity (%)
+     *
+     * @return dewpoint (K)
+     */
+    public static float[] getDewpoint(float[] temperature, float[] rh) {
+        float[] dewpoint = new float[temperature.length];
+        for (int i = 0; i < dewpoint.length; i++) {
+            double e = rh[i] / 100.0 * saturationVaporPressure(temperature[i]);
+            dewpoint[i] = (e > 0)
+                          ? (float) saturationTemperature(e)
+                          : Float.NaN;
+        }
+        return dewpoint;
+    }
+
+    /**
+     * Saturation vapor pressure
+     *
+     * @param t temperature (K)
+     *
+     * @return saturation vapor pressure (Pa)
+     */
+    private static double saturationVaporPressure(double t) {
+        return ESAT0 * Math.exp(ESAT_A * (t - ESAT_T1) / (t - ESAT_T2));
+    }
+
+    /**
+     * The temperature at which the vapor pressure is saturated
+     *
+     * @param e vapor pressure (Pa)
+     *
+     * @return temperature (K)
+     */
+    private static double saturationTemperature(double e) {
+        double log = Math.log(e / ESAT0);
+        return (ESAT_A * ESAT_T1 - ESAT_T2 * log) / (ESAT_A - log);
+    }
+
+    /**
+     * Mixing ratio from vapor pressure
+     *
+     * @param p pressure (Pa)
+     * @param e vapor pressure (Pa)
+     *
+     * @return mixing ratio (kg/kg)
+     */
+    private static double mixingRatio(double p, double e) {
+        // keep it finite where e approaches p (very warm, high up)
+        return EPSILON * e / Math.max(p - e, 0.1 * p);
+    }
+
+    /**
+     * Virtual temperature
+     *
+     * @param t temperature (K)
+     * @param r mixing ratio (kg/kg)
+     *
+     * @return virtual temperature (K)
+     */
+    private static double virtualTemperature(double t, double r) {
+        return t * (1 + r / EPSILON) / (1 + r);
+    }
+
+    /**
+     * dT/dp along the pseudo-adiabat
+     *
+     * @param p pressure (Pa)
+     * @param t temperature (K)
+     *
+     * @return dT/dp (K/Pa)
+     */
+    private static double moistLapseRate(double p, double t) {
+        double rs = mixingRatio(p, saturationVaporPressure(t));
+        double lapseRate = (1 + LV * rs / (RD * t))
+                           / (1 + EPSILON * LV * LV * rs / (CP * RD * t * t))
+                           / CP;
+        // divided by the density
+        return lapseRate * RD * virtualTemperature(t, rs) / p;
+    }
+
+    /**
+     * The positive area under a piece of a buoyancy profile that is
+     * linear in x (log pressure)
+     *
+     * @param x0 x of the lower end (the larger x)
+     * @param b0 buoyancy at x0
+     * @param x1 x of the upper end
+     * @param b1 buoyancy at x1
+     * @param lo smallest x to include
+     * @param hi largest x to include
+     *
+     * @return the area of the positive part within [lo, hi]
+     */
+    private static double positiveArea(double x0, double b0, double x1,
+                                       double b1, double lo, double hi) {
+        double a = Math.min(x0, hi);
+        double c = Math.max(x1, lo);
+        if (a <= c) {
+            return 0;
+        }
+        double ba = b0 + (b1 - b0) * (x0 - a) / (x0 - x1);
+        double bc = b0 + (b1 - b0) * (x0 - c) / (x0 - x1);
+        if ((ba >= 0) && (bc >= 0)) {
+            return (ba + bc) / 2 * (a - c);
+        }
+        if ((ba <= 0) && (bc <= 0)) {
+            return 0;
+        }
+        double xz = a - (a - c) * ba / (ba - bc);
+        return (ba > 0)
+               ? ba / 2 * (a - xz)
+               : bc / 2 * (xz - c);
+    }
+
+    /**
+     * Scratch space for lifting one column at a time
+     */
+    private static class Column {
+
+        /** order of the levels, by decreasing pressure */
+        private int[] order;
+
+        /** pressure of the good levels, decreasing */
+        private double[] p;
+
+        /** temperature of the good levels */
+        private double[] t;
+
+        /** mixing ratio of the good levels */
+        private double[] r;
+
+        /** parcel minus environment virtual temperature */
+        private double[] buoyancy;
+
+        /** log of p */
+        private double[] x;
+
+        /**
+         * Make the scratch space
+         *
+         * @param numLevels number of levels in a column
+         */
+        Column(int numLevels) {
+            order    = new int[numLevels];
+            p        = new double[numLevels];
+            t        = new double[numLevels];
+            r        = new double[numLevels];
+            buoyancy = new double[numLevels];
+            x        = new double[numLevels];
+        }
+
+        /**
+         * Lift the parcel of one column
+         *
+         * @param pressure pressure (Pa) of all of the columns
+         * @param temperature temperature (K) of all of the columns
+         * @param dewpoint dewpoint (K) of all of the columns
+         * @param column the column
+         * @param numColumns number of columns
+         * @param parcelType parcel type
+         * @param result where the results go
+         */
+        void lift(float[] pressure, float[] temperature, float[] dewpoint,
+                  int column, int numColumns, int parcelType,
+                  float[][] result) {
+            for (int i = 0; i < NUM_PARAMS; i++) {
+                result[i][column] = Float.NaN;
+            }
+            int n = sortLevels(pressure, temperature, dewpoint, column,
+                               numColumns);
+            if (n < 2) {
+                return;
+            }
+
+            // pick the parcel
+            int    start = 0;
+            double pp    = p[0];
+            double tp    = t[0];
+            double rp    = r[0];
+            if (parcelType == MIXED_LAYER) {
+                double top   = p[0] - MIXED_LAYER_DEPTH;
+                double sumTh = 0;
+                double sumR  = 0;
+                double sumP  = 0;
+                for (int k = 0; (k < n - 1) && (p[k] > top); k++) {
+                    double pb  = Math.max(p[k + 1], top);
+                    double f   = (p[k] - pb) / (p[k] - p[k + 1]);
+                    double th0 = t[k] * Math.pow(P0 / p[k], KAPPA);
+                    double th1 = t[k + 1] * Math.pow(P0 / p[k + 1], KAPPA);
+                    double thb = th0 + f * (th1 - th0);
+                    double rb  = r[k] + f * (r[k + 1] - r[k]);
+                    sumTh += (th0 + thb) / 2 * (p[k] - pb);
+                    sumR  += (r[k] + rb) / 2 * (p[k] - pb);
+                    sumP  += p[k] - pb;
+                }
+                tp = sumTh / sumP * Math.pow(pp / P0, KAPPA);
+                rp = sumR / sumP;
+            } else if (parcelType == MOST_UNSTABLE) {
+                double top  = p[0] - MOST_UNSTABLE_DEPTH;
+                double best = Double.NEGATIVE_INFINITY;
+                for (int k = 0; (k < n) && (p[k] >= top); k++) {
+                    double thetaE = thetaE(p[k], t[k], r[k]);
+                    if (thetaE > best) {
+                        best  = thetaE;
+                        start = k;
+                    }
+                }
+                pp = p[start];
+                tp = t[start];
+                rp = r[start];
+            }
+            if ( !(rp > 0)) {
+                return;
+            }
+
+            // LCL
+            double tl = lclTemperature(pp, tp, rp);
+            double pl = pp * Math.pow(tl / tp, 3.5);
+            result[LCL][column] = (float) pl;
+
+            // buoyancy of the parcel at each level
+            double theta = tp * Math.pow(P0 / pp, KAPPA);
+            double pm    = pl;
+            double tm    = tl;
+            for (int k = start; k < n; k++) {
+                double tvp;
+                if (p[k] >= pl) {
+                    tvp = virtualTemperature(
+                        theta * Math.pow(p[k] / P0, KAPPA), rp);
+                } else {
+                    int    steps = (int) Math.ceil((pm - p[k]) / MAX_STEP);
+                    double dp    = (pm - p[k]) / steps;
+                    for (int s = 0; s < steps; s++) {
+                        double dt0 = moistLapseRate(pm, tm) * dp;
+                        double dt1 = moistLapseRate(pm - dp, tm - dt0) * dp;
+                        tm = tm - (dt0 + dt1) / 2;
+                        pm = pm - dp;
+                    }
+                    pm  = p[k];
+                    tvp = virtualTemperature(
+                        tm, mixingRatio(pm, saturationVaporPressure(tm)));
+                }
+                buoyancy[k] = tvp - virtualTemperature(t[k], r[k]);
+                x[k]        = Math.log(p[k]);
+            }
+
+            // LFC is the bottom of the lowest positively buoyant layer
+            // above the LCL and EL the top of the highest one
+            double xl  = Math.log(pl);
+            double lfc = Double.NaN;
+            double el  = Double.NaN;
+            for (int k = start; k < n - 1; k++) {
+                double b0 = buoyancy[k];
+                double b1 = buoyancy[k + 1];
+                double lo;
+                double hi;
+                if ((b0 > 0) && (b1 > 0)) {
+                    lo = x[k + 1];
+                    hi = x[k];
+                } else if (b0 > 0) {
+                    lo = x[k] - (x[k] - x[k + 1]) * b0 / (b0 - b1);
+                    hi = x[k];
+                } else if (b1 > 0) {
+                    lo = x[k + 1];
+                    hi = x[k] - (x[k] - x[k + 1]) * b0 / (b0 - b1);
+                } else {
+                    continue;
+                }
+                hi = Math.min(hi, xl);
+                if (hi <= lo) {
+                    continue;
+                }
+                if (Double.isNaN(lfc)) {
+                    lfc = hi;
+                }
+                el = lo;
+            }
+            if (Double.isNaN(lfc)) {
+                result[CAPE][column] = 0;
+                return;
+            }
+            double cape = 0;
+            double cin  = 0;
+            for (int k = start; k < n - 1; k++) {
+                cape += positiveArea(x[k], buoyancy[k], x[k + 1],
+                                     buoyancy[k + 1], el, lfc);
+                cin += positiveArea(x[k], -buoyancy[k], x[k + 1],
+                                    -buoyancy[k + 1], lfc, x[start]);
+            }
+            result[CAPE][column] = (float) (RD * cape);
+            result[CIN][column]  = (float) (-RD * cin);
+            result[LFC][column]  = (float) Math.exp(lfc);
+            result[EL][column]   = (float) Math.exp(el);
+        }
+
+        /**
+         * Put the good levels of the column in p, t and r by decreasing
+         * pressure
+         *
+         * @param pressure pressure (Pa) of all of the columns
+         * @param temperature temperature (K) of all of the columns
+         * @param dewpoint dewpoint (K) of all of the columns
+         * @param column the column
+         * @param numColumns number of columns
+         *
+         * @return the number of good levels
+         */
+        private int sortLevels(float[] pressure, float[] temperature,
+                               float[] dewpoint, int column,
+                               int numColumns) {
+            int n = 0;
+            for (int i = column; i < pressure.length; i += numColumns) {
+                float pi = pressure[i];
+                if ( !(pi > 0) || !(temperature[i] > 0)
+                        || !(dewpoint[i] > 0)) {
+                    continue;
+                }
+                // insertion sort, there are not many levels
+                int k = n;
+                while ((k > 0) && (pressure[order[k - 1]] < pi)) {
+                    order[k] = order[k - 1];
+                    k--;
+                }
+                if ((k > 0) && (pressure[order[k - 1]] == pi)) {
+                    // same level twice, keep the first
+                    System.arraycopy(order, k + 1, order, k, n - k);
+                    continue;
+                }
+                order[k] = i;
+                n++;
+            }
+            for (int k = 0; k < n; k++) {
+                int i = order[k];
+                p[k] = pressure[i];
+                t[k] = temperature[i];
+                r[k] = mixingRatio(p[k],
+                                   saturationVaporPressure(Math.min(dewpoint[i],
+                                       temperature[i])));
+            }
+            return n;
+        }
+    }
+
+    /**
+     * Temperature at the LCL
+     *
+     * @param p pressure (Pa)
+     * @param t temperature (K)
+     * @param r mixing ratio (kg/kg)
+     *
+     * @return LCL temperature (K)
+     */
+    private static double lclTemperature(double p, double t, double r) {
+        double e  = r * p / (EPSILON + r);
+        double tl = 2840 / (3.5 * Math.log(t) - Math.log(e / 1000) - 7.108)
+                    + 55;
+        return Math.min(tl, t);
+    }
+
+    /**
+     * Equivalent potential temperature
+     *
+     * @param p pressure (Pa)
+     * @param t temperature (K)
+     * @param r mixing ratio (kg/kg)
+     *
+     * @return theta-e (K)
+     */
+    private static double thetaE(double p, double t, double r) {
+        if ( !(r > 0)) {
+            return t * Math.pow(P0 / p, KAPPA);
+        }
+        return t * Math.pow(P0 / p, KAPPA)
+               * Math.exp(LV * r / (CP * lclTemperature(p, t, r)));
+    }
+
+}
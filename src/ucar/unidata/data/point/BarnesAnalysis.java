@@ -0,0 +1,461 @@
+/*
+ * Copyright 1997-2020 Unidata Program Center/University Corporation for
+ * Atmospheric Research, P.O. Box 3000, Boulder, CO 80307,
+ * support@unidata.ucar.edu.
+ *
+ * This library is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation; either version 2.1 of the License, or (at
+ * your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU Lesser
+ * General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this library; if not, write to the Free Software Foundation,
+ * Inc., 59 Temple Place, Suite 330, Boston, MA 02111-1307 USA
+ */
+
+package ucar.unidata.data.point;
+
+
+import au.gov.bom.aifs.osa.analysis.Barnes;
+
+import ucar.unidata.util.ComputePool;
+
+import visad.VisADException;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.Callable;
+
+
+/**
+ * The Barnes objective analysis of {@link Barnes#point2grid}, done so it
+ * scales to large grids and many obs. The obs are bucketed into cells a
+ * fraction of the radius of influence so each grid point only looks at the
+ * obs that can reach it, and the grid is split into tiles that are analyzed
+ * in the {@link ComputePool}. Unlike Barnes, which keeps its state in static
+ * fields, any number of analyses can run at once.
+ * <p>
+ * The obs near a tile are visited in their original order so the sums, and
+ * so the grid, are the same as Barnes would make.
+ *
+ * @author IDV Development Team
+ */
+public class BarnesAnalysis {
+
+    /** Obs whose weight is less than this are left out (as in Barnes) */
+    private static final float EPSILON = 1.0E-11f;
+
+    /** Number of grid points on a side of a tile */
+    private static final int TILE_SIZE = 32;
+
+    /** Number of cells across the radius of influence */
+    private static final int CELLS_PER_RADIUS = 4;
+
+    /** Number of obs interpolated in one task */
+    private static final int OBS_PER_TASK = 8192;
+
+    /** number of grid points in x */
+    private int numX;
+
+    /** number of grid points in y */
+    private int numY;
+
+    /** x of the obs, in grid units */
+    private float[] xs;
+
+    /** y of the obs, in grid units */
+    private float[] ys;
+
+    /** ob values */
+    private float[] values;
+
+    /** The grid, indexed [x][y] */
+    private float[][] grid;
+
+    /** The difference between each ob and the grid at the ob */
+    private float[] differences;
+
+    /**
+     * Create the analysis
+     *
+     * @param lon x of the grid points
+     * @param lat y of the grid points
+     * @param data3D obs. data3D[0] is the x, data3D[1] the y and data3D[2]
+     *               the value of each ob
+     */
+    private BarnesAnalysis(float[] lon, float[] lat, float[][] data3D) {
+        numX = lon.length;
+        numY = lat.length;
+        float minX = lon[0];
+        for (int i = 1; i < numX; i++) {
+            minX = Math.min(minX, lon[i]);
+        }
+        float minY = lat[0];
+        for (int j = 1; j < numY; j++) {
+            minY = Math.min(minY, lat[j]);
+        }
+        float spaceX  = Math.abs(lon[1] - lon[0]);
+        float spaceY  = Math.abs(lat[1] - lat[0]);
+        int   numData = data3D[0].length;
+        xs          = new float[numData];
+        ys          = new float[numData];
+        values      = new float[numData];
+        differences = new float[numData];
+        for (int k = 0; k < numData; k++) {
+            xs[k]     = (data3D[0][k] - minX) / spaceX;
+            ys[k]     = (data3D[1][k] - minY) / spaceY;
+            values[k] = data3D[2][k];
+        }
+    }
+
+    /**
+     * Grid the obs. This is {@link Barnes#point2grid(float[], float[],
+     * float[][], float, float, int)}
+     *
+     * @param lon the x (longitudes) of the grid
+     * @param lat the y (latitudes) of the grid
+     * @param data3D obs. data3D[0] is the x, data3D[1] the y and data3D[2]
+     *               the value of each ob
+     * @param scaleLength Gaussian scale length (in grid units)
+     * @param gain factor the scale length is reduced by after the first pass
+     * @param numPasses number of passes
+     *
+     * @return the grid, indexed [x][y]
+     *
+     * @throws VisADException problem running the analysis
+     */
+    public static float[][] point2grid(float[] lon, float[] lat,
+                                       float[][] data3D, float scaleLength,
+                                       float gain, int numPasses)
+            throws VisADException {
+        BarnesAnalysis analysis = new BarnesAnalysis(lon, lat, data3D);
+        analysis.grid = new float[analysis.numX][analysis.numY];
+        analysis.pass(scaleLength, true);
+        analysis.interpolate(false);
+        analysis.passes(scaleLength * gain, 2, numPasses);
+        return analysis.grid;
+    }
+
+    /**
+     * Grid the obs, starting from a first guess. This is {@link
+     * Barnes#point2grid(float[], float[], float[][], float[][], float,
+     * float, int)}
+     *
+     * @param lon the x (longitudes) of the grid
+     * @param lat the y (latitudes) of the grid
+     * @param data3D obs. data3D[0] is the x, data3D[1] the y and data3D[2]
+     *               the value of each ob
+     * @param firstGuess the first guess, indexed [x][y]. NaNs are replaced
+     *                   with the mean of the obs. Not changed
+     * @param scaleLength Gaussian scale length (in grid units)
+     * @param gain factor the scale length is reduced by after the first pass
+     * @param numPasses number of passes
+     *
+     * @return the grid, indexed [x][y]
+     *
+     * @throws VisADException problem running the analysis
+     */
+    public static float[][] point2grid(float[] lon, float[] lat,
+                                       float[][] data3D,
+                                       float[][] firstGuess,
+                                       float scaleLength, float gain,
+                                       int numPasses)
+            throws VisADException {
+        BarnesAnalysis analysis = new BarnesAnalysis(lon, lat, data3D);
+        float          sum      = 0.0f;
+        for (int k = 0; k < analysis.values.length; k++) {
+            sum += analysis.values[k];
+        }
+        float gridMean = sum / analysis.values.length;
+        analysis.grid = new float[firstGuess.length][];
+        for (int i = 0; i < firstGuess.length; i++) {
+            analysis.grid[i] = (float[]) firstGuess[i].clone();
+            for (int j = 0; j < analysis.grid[i].length; j++) {
+                if (Float.isNaN(analysis.grid[i][j])) {
+                    analysis.grid[i][j] = gridMean;
+                }
+            }
+        }
+        analysis.interpolate(false);
+        // the first guess stands in for the first pass, so do a correction
+        // pass at the full scale length before the reduced ones
+        analysis.passes(scaleLength, 2, 2);
+        analysis.passes(scaleLength * gain, 2, numPasses);
+        return analysis.grid;
+    }
+
+    /**
+     * Do the correction passes
+     *
+     * @param scaleLength scale length (grid units)
+     * @param firstPass number of the first pass
+     * @param lastPass number of the last pass
+     *
+     * @throws VisADException problem running the analysis
+     */
+    private void passes(float scaleLength, int firstPass, int lastPass)
+            throws VisADException {
+        for (int pass = firstPass; pass <= lastPass; pass++) {
+            pass(scaleLength, false);
+            // the last pass is not followed by a correction
+            if (pass < lastPass) {
+                interpolate(true);
+            }
+        }
+    }
+
+    /**
+     * Do one pass over the grid, a tile at a time
+     *
+     * @param scaleLength scale length (grid units)
+     * @param first true for the first pass, which sets the grid from the ob
+     *              values. Otherwise the grid is corrected by the
+     *              differences.
+     *
+     * @throws VisADException problem running the analysis
+     */
+    private void pass(float scaleLength, final boolean first)
+            throws VisADException {
+        final float scaleLength2 = scaleLength * scaleLength;
+        final float radius2      = -scaleLength2 * (float) Math.log(EPSILON);
+        final Cells cells = new Cells((float) Math.sqrt(radius2));
+        List<Callable<Object>> tasks   = new ArrayList<Callable<Object>>();
+        for (int x = 0; x < numX; x += TILE_SIZE) {
+            for (int y = 0; y < numY; y += TILE_SIZE) {
+                final int x0 = x;
+                final int y0 = y;
+                final int x1 = Math.min(x + TILE_SIZE, numX) - 1;
+                final int y1 = Math.min(y + TILE_SIZE, numY) - 1;
+                tasks.add(new Callable<Object>() {
+                    public Object call() {
+                        passTile(x0, y0, x1, y1, cells.near(x0, y0, x1, y1),
+                                 scaleLength2, radius2, first);
+                        return null;
+                    }
+                });
+            }
+        }
+        invokeAll(tasks);
+    }
+
+    /**
+     * Do one pass over a tile of the grid
+     *
+     * @param x0 first x of the tile
+     * @param y0 first y of the tile
+     * @param x1 last x of the tile
+     * @param y1 last y of the tile
+     * @param near the obs that might reach the tile, in order
+     * @param scaleLength2 scale length squared
+     * @param radius2 radius of influence squared
+     * @param first true for the first pass
+     */
+    private void passTile(int x0, int y0, int x1, int y1, int[] near,
+                          float scaleLength2, float radius2, boolean first) {
+        float[] weighted = first
+                           ? values
+                           : differences;
+        for (int i = x0; i <= x1; i++) {
+            for (int j = y0; j <= y1; j++) {
+                float sumWeights     = 0.0f;
+                float sumCorrections = 0.0f;
+                for (int n = 0; n < near.length; n++) {
+                    int   k  = near[n];
+                    float dx = xs[k] - (float) i;
+                    float dy = ys[k] - (float) j;
+                    float r2 = dx * dx + dy * dy;
+                    if ((r2 < radius2) && !Float.isNaN(weighted[k])) {
+                        float weight = (float) Math.exp(-r2 / scaleLength2);
+                        sumWeights     += weight;
+                        sumCorrections += weighted[k] * weight;
+                    }
+                }
+                if (sumWeights > EPSILON) {
+                    if (first) {
+                        grid[i][j] = sumCorrections / sumWeights;
+                    } else {
+                        grid[i][j] += sumCorrections / sumWeights;
+                    }
+                } else if (first) {
+                    // too far from any ob
+                    grid[i][j] = Float.NaN;
+                }
+            }
+        }
+    }
+
+    /**
+     * Find the difference between each ob and the grid interpolated to
+     * the ob
+     *
+     * @param keepIfMissing if true, keep the old difference where the
+     *                      grid is missing
+     *
+     * @throws VisADException problem running the analysis
+     */
+    private void interpolate(final boolean keepIfMissing)
+            throws VisADException {
+        List<Callable<Object>> tasks = new ArrayList<Callable<Object>>();
+        for (int k = 0; k < values.length; k += OBS_PER_TASK) {
+            final int start = k;
+            final int end   = Math.min(k + OBS_PER_TASK, values.length);
+            tasks.add(new Callable<Object>() {
+                public Object call() {
+                    for (int k = start; k < end; k++) {
+                        // scinex indexes from 1
+                        float interpolated = Barnes.scinex(xs[k] + 1,
+                                                 ys[k] + 1, grid);
+                        if ( !keepIfMissing || !Float.isNaN(interpolated)) {
+                            differences[k] = values[k] - interpolated;
+                        }
+                    }
+                    return null;
+                }
+            });
+        }
+        invokeAll(tasks);
+    }
+
+    /**
+     * Run the tasks in the compute pool
+     *
+     * @param tasks the tasks
+     *
+     * @throws VisADException problem running the tasks
+     */
+    private static void invokeAll(List<Callable<Object>> tasks)
+            throws VisADException {
+        try {
+            ComputePool.invokeAll(tasks);
+        } catch (VisADException | RuntimeException exc) {
+            throw exc;
+        } catch (Exception exc) {
+            throw new VisADException(exc.toString());
+        }
+    }
+
+
+    /**
+     * The obs bucketed into square cells. Obs are in a cell in their
+     * original order.
+     */
+    private class Cells {
+
+        /** radius of influence (grid units) */
+        private float radius;
+
+        /** cell size (grid units) */
+        private float cellSize;
+
+        /** number of cells in x */
+        private int numCellsX;
+
+        /** number of cells in y */
+        private int numCellsY;
+
+        /** Where the obs of each cell start in cellObs */
+        private int[] starts;
+
+        /** The obs, by cell */
+        private int[] cellObs;
+
+        /**
+         * Bucket the obs. Obs that can't reach the grid are left out
+         *
+         * @param radius radius of influence (grid units)
+         */
+        private Cells(float radius) {
+            this.radius = radius;
+            // small enough that the padding in near() doesn't add much
+            cellSize = Math.max(radius / CELLS_PER_RADIUS, 1.0f);
+            // the cells cover the grid out to the radius
+            numCellsX = (int) Math.ceil((numX - 1 + 2 * radius) / cellSize)
+                        + 1;
+            numCellsY = (int) Math.ceil((numY - 1 + 2 * radius) / cellSize)
+                        + 1;
+            int[] obCells = new int[xs.length];
+            starts = new int[numCellsX * numCellsY + 1];
+            for (int k = 0; k < xs.length; k++) {
+                obCells[k] = cell(k);
+                if (obCells[k] >= 0) {
+                    starts[obCells[k] + 1]++;
+                }
+            }
+            for (int c = 0; c < numCellsX * numCellsY; c++) {
+                starts[c + 1] += starts[c];
+            }
+            cellObs = new int[starts[starts.length - 1]];
+            int[] next = (int[]) starts.clone();
+            for (int k = 0; k < xs.length; k++) {
+                if (obCells[k] >= 0) {
+                    cellObs[next[obCells[k]]++] = k;
+                }
+            }
+        }
+
+        /**
+         * Get the cell an ob is in
+         *
+         * @param k the ob
+         *
+         * @return the cell or -1 if the ob is off the cells
+         */
+        private int cell(int k) {
+            if (Float.isNaN(xs[k]) || Float.isNaN(ys[k])) {
+                return -1;
+            }
+            double cx = Math.floor((xs[k] + radius) / cellSize);
+            double cy = Math.floor((ys[k] + radius) / cellSize);
+            if ((cx < 0) || (cx >= numCellsX) || (cy < 0)
+                    || (cy >= numCellsY)) {
+                return -1;
+            }
+            return (int) cy * numCellsX + (int) cx;
+        }
+
+        /**
+         * Find the obs that might be within the radius of a tile
+         *
+         * @param x0 first x of the tile
+         * @param y0 first y of the tile
+         * @param x1 last x of the tile
+         * @param y1 last y of the tile
+         *
+         * @return the obs, in their original order
+         */
+        private int[] near(int x0, int y0, int x1, int y1) {
+            // pad by a cell for round off
+            int minCX = Math.max(0, (int) Math.floor(x0 / cellSize) - 1);
+            int minCY = Math.max(0, (int) Math.floor(y0 / cellSize) - 1);
+            int maxCX = Math.min(numCellsX - 1,
+                                 (int) Math.floor((x1 + 2 * radius)
+                                     / cellSize) + 1);
+            int maxCY = Math.min(numCellsY - 1,
+                                 (int) Math.floor((y1 + 2 * radius)
+                                     / cellSize) + 1);
+            int cnt = 0;
+            for (int cy = minCY; cy <= maxCY; cy++) {
+                cnt += starts[cy * numCellsX + maxCX + 1]
+                       - starts[cy * numCellsX + minCX];
+            }
+            int[] near = new int[cnt];
+            cnt = 0;
+            for (int cy = minCY; cy <= maxCY; cy++) {
+                int start = starts[cy * numCellsX + minCX];
+                int end   = starts[cy * numCellsX + maxCX + 1];
+                System.arraycopy(cellObs, start, near, cnt, end - start);
+                cnt += end - start;
+            }
+            // visit them in the order Barnes does
+            Arrays.sort(near);
+            return near;
+        }
+    }
+
+}
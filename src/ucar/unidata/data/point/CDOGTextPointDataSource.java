@@ -221,6 +221,18 @@ public class CDOGTextPointDataSource extends TextPointDataSource {
         return null;
     }
 
+    /**
+     * We post-process the obs in makeObs so we can't use the streaming reader
+     *
+     * @param source source file or url
+     *
+     * @return false
+     */
+    protected boolean canStream(String source) {
+        return false;
+    }
+
+
     /**
      * Make obs from the text
      *
@@ -138,6 +138,18 @@ public class DiamondPointDataSource extends TextPointDataSource {
     }
 
 
+    /**
+     * We convert the contents so we can't use the streaming reader
+     *
+     * @param source source file or url
+     *
+     * @return false
+     */
+    protected boolean canStream(String source) {
+        return false;
+    }
+
+
     /**
      * Read the given source file and return the text contents of it.
      * If the source file is a xls file then convert to csv text
@@ -157,6 +157,18 @@ public class GNOMETextPointDataSource extends TextPointDataSource {
         return newSources;
     }
 
+    /**
+     * We convert the contents so we can't use the streaming reader
+     *
+     * @param source source file or url
+     *
+     * @return false
+     */
+    protected boolean canStream(String source) {
+        return false;
+    }
+
+
     /**
      * Get the contents.  Merge the info from the 3 files
      *
@@ -122,6 +122,7 @@ import java.util.Hashtable;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Vector;
+import java.util.concurrent.Callable;
 
 
 /**
@@ -306,6 +307,12 @@ public class PointObFactory {
     public static FieldImpl makeTimeSequenceOfPointObs(FieldImpl pointObs,
                                                        int lumpMinutes)
             throws VisADException, RemoteException {
+        if ((pointObs instanceof PointObStoreField)
+                && (((PointObStoreField) pointObs).getStore().getTimes().length
+                > 0)) {
+            return makeTimeSequenceOfPointObs((PointObStoreField) pointObs,
+                    lumpMinutes);
+        }
         int numObs = pointObs.getDomainSet().getLength();
         List obs = new ArrayList(numObs);
         Trace.call1("makeTimeSequence: get list of obs");
@@ -316,6 +323,88 @@ public class PointObFactory {
         return makeTimeSequenceOfPointObs(obs, lumpMinutes, -1);
     }
 
+    /**
+     * From a field of point observations held in a {@link PointObStore},
+     * reorder them with time as the outer dimension. This uses the time
+     * index of the store and the samples of the time steps are views of
+     * the store so no obs are made.
+     *
+     * @param pointObs    Field of point observations (index -> pointobs)
+     * @param lumpMinutes If greater then 0 is used to lump the times of the point obs
+     *                    together
+     * @return time sequence of obs (time -> (index -> pointobs))
+     * @throws RemoteException Java RMI error
+     * @throws VisADException  VisAD Error
+     */
+    private static FieldImpl makeTimeSequenceOfPointObs(
+            PointObStoreField pointObs, int lumpMinutes)
+            throws VisADException, RemoteException {
+        Trace.call1("makeTimeSequence-store");
+        PointObStore store = pointObs.getStore();
+        DateTime[] storeTimes = store.getTimes();
+        int[] timeIndices = store.getTimeIndices();
+        // The store times are sorted so the (lumped) time steps are too
+        int[] steps = new int[storeTimes.length];
+        List<DateTime> uniqueTimes = new ArrayList<DateTime>();
+        double lastSeconds = Double.NaN;
+        for (int i = 0; i < storeTimes.length; i++) {
+            DateTime dttm = storeTimes[i];
+            if (dttm.isMissing()) {
+                steps[i] = -1;
+                continue;
+            }
+            double seconds = dttm.getValue();
+            if (lumpMinutes > 0) {
+                seconds = seconds - seconds % (lumpMinutes * 60);
+            }
+            if (uniqueTimes.isEmpty() || (seconds != lastSeconds)) {
+                uniqueTimes.add((lumpMinutes > 0)
+                        ? new DateTime(seconds)
+                        : dttm);
+                lastSeconds = seconds;
+            }
+            steps[i] = uniqueTimes.size() - 1;
+        }
+
+        int numObs = pointObs.getLength();
+        int[] counts = new int[uniqueTimes.size()];
+        for (int i = 0; i < numObs; i++) {
+            int step = steps[timeIndices[pointObs.getStoreIndex(i)]];
+            if (step >= 0) {
+                counts[step]++;
+            }
+        }
+        int[][] stepIndices = new int[counts.length][];
+        for (int i = 0; i < counts.length; i++) {
+            stepIndices[i] = new int[counts[i]];
+            counts[i] = 0;
+        }
+        for (int i = 0; i < numObs; i++) {
+            int storeIndex = pointObs.getStoreIndex(i);
+            int step = steps[timeIndices[storeIndex]];
+            if (step >= 0) {
+                stepIndices[step][counts[step]++] = storeIndex;
+            }
+        }
+
+        DateTime[] times = (DateTime[]) uniqueTimes.toArray(
+                new DateTime[uniqueTimes.size()]);
+        SampledSet timeSet = (times.length > 1)
+                ? CalendarDateTime.makeTimeSet(times)
+                : (SampledSet) new SingletonSet(
+                new RealTuple(new Real[]{times[0]}));
+        FunctionType timeSequenceType = new FunctionType(RealType.Time,
+                pointObs.getType());
+        FieldImpl timeSequence = new FieldImpl(timeSequenceType, timeSet);
+        Data[] timeSamples = new Data[times.length];
+        for (int i = 0; i < times.length; i++) {
+            timeSamples[i] = new PointObStoreField(store, stepIndices[i]);
+        }
+        timeSequence.setSamples(timeSamples, false, false);
+        Trace.call2("makeTimeSequence-store", " #times:" + times.length);
+        return timeSequence;
+    }
+
     /**
      * From a field of point observations, reorder them with time
      * as the outer dimension. If componentIndex &gt; -1 then we extract that
@@ -797,55 +886,92 @@ public class PointObFactory {
                         .getComponent(0)).equals(RealType.Latitude) == true)
                         ? 0
                         : 1;
-        Vector v = new Vector();
-        float[][] values = new float[2][1];
-        //        Trace.call1("findIntersection-loop 1");
-        for (int i = 0; i < numObs; i++) {
-            PointOb ob = (PointOb) pointObs.getSample(i);
-            EarthLocation el = ob.getEarthLocation();
-            values[0][0] = (float) el.getLatitude().getValue(units[latIndex]);
-            values[1][0] =
-                    (float) el.getLongitude().getValue(units[1 - latIndex]);
-            float[][] grids = bounds.valueToGrid(values);
-            if ((grids[0][0] == grids[0][0])
-                    && (grids[1][0] == grids[1][0])) {  //not NaN
-                v.add(ob);  // is in the bounds
-            }
-        }
-        //        Trace.call2("findIntersection-loop 1");
-        //      Trace.call2("findIntersection");
-        //System.out.println("found " + v.size() + " obs in region");
-        if (v.size() == numObs) {
+        // the index of the obs is kept with them so use it
+        PointObIndex index = PointObIndex.getIndex(pointObs);
+        double[] latRange = getRange((latIndex == 0)
+                ? bounds.getX()
+                : bounds.getY(), units[latIndex]);
+        double[] lonRange = getRange((latIndex == 0)
+                ? bounds.getY()
+                : bounds.getX(), units[1 - latIndex]);
+        int[] inBounds = index.findInBounds(latRange[0], latRange[1],
+                lonRange[0], lonRange[1]);
+        if (inBounds.length == numObs) {
             retField = pointObs;  // all were in domain, just return input
-        } else if (!v.isEmpty()) {
-            retField = new FieldImpl(
-                    (FunctionType) pointObs.getType(),
-                    new Integer1DSet(((SetType) domainSet.getType()).getDomain(),
-                            v.size()));
-            retField.setSamples((PointOb[]) v.toArray(new PointOb[v.size()]),
-                    false, false);
+        } else if (inBounds.length == 0) {
+            retField = makeMissingObs(pointObs);
+        } else if (pointObs instanceof PointObStoreField) {
+            retField = ((PointObStoreField) pointObs).subset(inBounds);
         } else {
-            PointOb point = (PointOb) pointObs.getSample(0);
+            PointOb[] obs = new PointOb[inBounds.length];
+            for (int i = 0; i < inBounds.length; i++) {
+                obs[i] = (PointOb) pointObs.getSample(inBounds[i]);
+            }
             retField = new FieldImpl(
                     (FunctionType) pointObs.getType(),
                     new Integer1DSet(((SetType) domainSet.getType()).getDomain(),
-                            1));
-            retField.setSamples(
-                    new PointOb[]{
-                            new PointObTuple(
-                                    new EarthLocationLite(new Real(RealType.Latitude),
-                                            new Real(RealType.Longitude),
-                                            new Real(RealType.Altitude)), new DateTime(
-                                    Double.NaN),
-                                    (point.getData() instanceof RealTuple)
-                                            ? new RealTuple(
-                                            (RealTupleType) point.getData().getType())
-                                            : new Tuple(
-                                            (TupleType) point.getData().getType()))}, false);
+                            obs.length));
+            retField.setSamples(obs, false, false);
         }
         return retField;
     }
 
+    /**
+     * Get the range of values of one dimension of a set that
+     * {@link Set#valueToGrid(float[][])} puts on the grid. This is
+     * half a step past either end.
+     *
+     * @param set  the dimension
+     * @param unit unit of the set
+     * @return min and max value (degrees)
+     * @throws VisADException  VisAD Error
+     */
+    private static double[] getRange(Linear1DSet set, Unit unit)
+            throws VisADException {
+        double halfStep = (set.getLength() > 1)
+                ? Math.abs(set.getStep()) / 2
+                : 0;
+        double min = Math.min(set.getFirst(), set.getLast()) - halfStep;
+        double max = Math.max(set.getFirst(), set.getLast()) + halfStep;
+        if ((unit != null) && !unit.equals(CommonUnit.degree)) {
+            min = CommonUnit.degree.toThis(min, unit);
+            max = CommonUnit.degree.toThis(max, unit);
+        }
+        return new double[]{min, max};
+    }
+
+    /**
+     * Make a field with one missing ob of the type of the given obs.
+     * This is what is returned when none of the obs are in the bounds.
+     *
+     * @param pointObs Field of point observations
+     * @return Field of one missing ob
+     * @throws RemoteException Java RMI error
+     * @throws VisADException  VisAD Error
+     */
+    private static FieldImpl makeMissingObs(FieldImpl pointObs)
+            throws VisADException, RemoteException {
+        Set domainSet = pointObs.getDomainSet();
+        PointOb point = (PointOb) pointObs.getSample(0);
+        FieldImpl retField = new FieldImpl(
+                (FunctionType) pointObs.getType(),
+                new Integer1DSet(((SetType) domainSet.getType()).getDomain(),
+                        1));
+        retField.setSamples(
+                new PointOb[]{
+                        new PointObTuple(
+                                new EarthLocationLite(new Real(RealType.Latitude),
+                                        new Real(RealType.Longitude),
+                                        new Real(RealType.Altitude)), new DateTime(
+                                Double.NaN),
+                                (point.getData() instanceof RealTuple)
+                                        ? new RealTuple(
+                                        (RealTupleType) point.getData().getType())
+                                        : new Tuple(
+                                        (TupleType) point.getData().getType()))}, false);
+        return retField;
+    }
+
     /**
      * Take a field of data and turn it into a field of PointObs.  Right
      * now, this assumes a surface data from an ADDE server.
@@ -1315,6 +1441,32 @@ public class PointObFactory {
     public static List binTimes(List times, double binRoundTo,
                                 double binWidth)
             throws VisADException {
+        if (binWidth <= 0) {
+            return times;
+        }
+        double[] seconds = new double[times.size()];
+        for (int i = 0; i < times.size(); i++) {
+            DateTime dttm = (DateTime) times.get(i);
+            seconds[i] = dttm.getValue(CommonUnit.secondsSinceTheEpoch);
+        }
+        seconds = binTimes(seconds, binRoundTo, binWidth);
+        List newTimes = new ArrayList();
+        for (int i = 0; i < seconds.length; i++) {
+            newTimes.add(new DateTime(seconds[i]));
+        }
+        return newTimes;
+    }
+
+    /**
+     * Bin the times
+     *
+     * @param times      times (seconds since the epoch)
+     * @param binRoundTo round to factor (minutes)
+     * @param binWidth   bin size (minutes)
+     * @return Binned times. This is times if binWidth is not positive
+     */
+    public static double[] binTimes(double[] times, double binRoundTo,
+                                    double binWidth) {
         binRoundTo = binRoundTo * 60;
         binWidth = binWidth * 60;
         if (binWidth <= 0) {
@@ -1323,18 +1475,12 @@ public class PointObFactory {
         //        System.err.println ("binWidth:" + binWidth + " rt:" + binRoundTo);
 
         double minTime = Double.MAX_VALUE;
-        DateTime minDttm = null;
-        for (int i = 0; i < times.size(); i++) {
-            DateTime dttm = (DateTime) times.get(i);
-            double time = dttm.getValue(CommonUnit.secondsSinceTheEpoch);
-            if (time < minTime) {
-                minTime = time;
-                minDttm = dttm;
+        for (int i = 0; i < times.length; i++) {
+            if (times[i] < minTime) {
+                minTime = times[i];
             }
         }
-        //        System.err.println ("min time:" + minDttm);
 
-        List newTimes = new ArrayList();
         double baseTime;
         int roundToSeconds = (int) binRoundTo;
         //        System.err.println ("round to seconds:" + roundToSeconds);
@@ -1350,21 +1496,10 @@ public class PointObFactory {
             //            System.err.println ("3rd:" + new DateTime(baseTime));
         }
         //        System.err.println ("round to:" + binRoundTo +" bin width:" + binWidth +" base time:"  + new DateTime(baseTime));
-        Hashtable seen = new Hashtable();
-        int ucnt = 0;
-        for (int i = 0; i < times.size(); i++) {
-            DateTime dttm = (DateTime) times.get(i);
-            double time = dttm.getValue(CommonUnit.secondsSinceTheEpoch);
-            double rem = time - baseTime;
-            double newTime = baseTime + binWidth * (int) (rem / binWidth);
-            DateTime newDttm = new DateTime(newTime);
-            //            if (seen.get(newDttm) == null) {
-            //                ucnt++;
-            //                if(ucnt<10)
-            //                    System.err.println (dttm +" -- > " + newDttm);
-            //                seen.put(newDttm, newDttm);
-            //            }
-            newTimes.add(newDttm);
+        double[] newTimes = new double[times.length];
+        for (int i = 0; i < times.length; i++) {
+            double rem = times[i] - baseTime;
+            newTimes[i] = baseTime + binWidth * (int) (rem / binWidth);
         }
         return newTimes;
     }
@@ -1901,17 +2036,9 @@ public class PointObFactory {
         int listSize = (sample)
                 ? 1
                 : 100000;
-        Real lat = new Real(RealType.Latitude, 40);
-        Real lon = new Real(RealType.Longitude, -100);
-        Real alt = new Real(RealType.Altitude, 0);
-        DateTime dateTime = null;
-        EarthLocationLite elt;
-        TupleType finalTT = null;
-        PointObTuple pot = null;
-        List<Tuple> tuples = new ArrayList<Tuple>(listSize);
-        List<DateTime> times = new ArrayList<DateTime>(listSize);
-        List<EarthLocationLite> elts =
-                new ArrayList<EarthLocationLite>(listSize);
+        PointObStore.Builder builder =
+                new PointObStore.Builder(allTupleType, allUnits, numStrings,
+                        listSize);
 
         StructureMembers.Member member;
         Trace.call1("FeatureDatasetPoint: iterating on PointFeatures",
@@ -1924,7 +2051,6 @@ public class PointObFactory {
         // if we are only getting a sample there's no need to use the iterator
         if (sample) {
             obIdx++;
-            elt = new EarthLocationLite(lat, lon, alt);
             double[] realArray = new double[numReals];
             String[] stringArray = ((numStrings == 0)
                     ? null
@@ -1941,16 +2067,7 @@ public class PointObFactory {
                 }
             }
 
-            Tuple tuple = (allReals
-                    ? (Tuple) new DoubleTuple(
-                    (RealTupleType) allTupleType, realArray,
-                    allUnits)
-                    : new DoubleStringTuple(allTupleType, realArray,
-                    stringArray, allUnits));
-
-            tuples.add(tuple);
-            times.add(new DateTime(0));
-            elts.add(elt);
+            builder.add(40, -100, 0, 0, realArray, stringArray);
         } else {
             PointFeatureIterator dataIterator =
                     //collection.getPointFeatureIterator(-1);
@@ -1960,10 +2077,6 @@ public class PointObFactory {
                 iammissing = false;
                 obIdx++;
                 ucar.unidata.geoloc.EarthLocation el = po.getLocation();
-                elt = new EarthLocationLite(
-                        lat.cloneButValue(el.getLatitude()),
-                        lon.cloneButValue(el.getLongitude()),
-                        alt.cloneButValue(el.getAltitude()));
                 double[] realArray = new double[numReals];
                 String[] stringArray = ((numStrings == 0)
                         ? null
@@ -2021,16 +2134,10 @@ public class PointObFactory {
                     continue;
                 }
 
-                Tuple tuple = (allReals
-                        ? (Tuple) new DoubleTuple(
-                        (RealTupleType) allTupleType, realArray,
-                        allUnits)
-                        : new DoubleStringTuple(allTupleType,
-                        realArray, stringArray, allUnits));
-
-                tuples.add(tuple);
-                times.add(new DateTime(po.getNominalTimeAsCalendarDate().toDate()));
-                elts.add(elt);
+                builder.add(el.getLatitude(), el.getLongitude(),
+                        el.getAltitude(),
+                        po.getNominalTimeAsCalendarDate().getMillis()
+                                / 1000.0, realArray, stringArray);
 
                 if (obIdx % NUM == 0) {
                     if (!JobManager.getManager().canContinue(loadId)) {
@@ -2045,46 +2152,20 @@ public class PointObFactory {
                             + " missing out of " + obIdx);
             dataIterator.close();
         }
-        if (tuples.isEmpty()) {
+        if (builder.size() == 0) {
             return null;
         }
 
         //Bin times
         Trace.call1("FeatureDatasetPoint: binTimes");
-        times = binTimes(times, binRoundTo, binWidth);
+        builder.binTimes(binRoundTo, binWidth);
         Trace.call2("FeatureDatasetPoint: binTimes");
 
-
-        Trace.call1("FeatureDatasetPoint: making PointObTuples");
-        PointOb[] obs = new PointOb[tuples.size()];
-        int size = tuples.size();
-        for (int i = 0; i < size; i++) {
-
-            if (finalTT == null) {
-                pot = new PointObTuple(elts.get(i), (DateTime) times.get(i),
-                        tuples.get(i));
-                finalTT = Tuple.buildTupleType(pot.getComponents());
-            } else {
-                pot = new PointObTuple(elts.get(i), (DateTime) times.get(i),
-                        tuples.get(i), finalTT, false);
-
-            }
-            obs[i] = pot;
-        }
-        Trace.call2("FeatureDatasetPoint: making PointObTuples");
-
-
         LogUtil.message("Read " + obIdx + " observations");
         LogUtil.message("Processing point data");
 
-        Integer1DSet indexSet =
-                new Integer1DSet(RealType.getRealType("index"), obs.length);
-        FieldImpl retField =
-                new FieldImpl(
-                        new FunctionType(((SetType) indexSet.getType()).getDomain(),
-                                obs[0].getType()), indexSet);
-        retField.setSamples(obs, false, false);
-        return retField;
+        // the obs are made from the columns as they are needed
+        return new PointObStoreField(builder.build());
     }
 
     /**
@@ -2919,6 +3000,11 @@ public class PointObFactory {
         if (GridUtil.isTimeSequence(pointObs)) {
             Set timeSet = GridUtil.getTimeSet(pointObs);
             int errorCount = 0;
+            // the times are analyzed at once, each with its own parameters
+            List<Callable<FlatField>> tasks =
+                    new ArrayList<Callable<FlatField>>();
+            final Barnes.AnalysisParameters[] timeParams =
+                    new Barnes.AnalysisParameters[timeSet.getLength()];
             for (int i = 0; i < timeSet.getLength(); i++) {
                 if (haveGuess) {
                     if (guessIsTime) {
@@ -2937,10 +3023,34 @@ public class PointObFactory {
                         errorCount++;
                     }
                 }
-                FieldImpl oneTime =
-                        barnesOneTime((FieldImpl) pointObs.getSample(i), type,
-                                xSpacing, ySpacing, numPasses, gain,
-                                scaleLength, params, guessField);
+                if (params != null) {
+                    timeParams[i] = new Barnes.AnalysisParameters(
+                            params.getGridX(), params.getGridY(),
+                            params.getScaleLengthGU(),
+                            params.getRandomDataSpacing());
+                }
+                final FieldImpl oneTimeObs =
+                        (FieldImpl) pointObs.getSample(i);
+                final Barnes.AnalysisParameters oneTimeParams = timeParams[i];
+                final FlatField oneTimeGuess = guessField;
+                tasks.add(new Callable<FlatField>() {
+                    public FlatField call() throws Exception {
+                        return barnesOneTime(oneTimeObs, type, xSpacing,
+                                ySpacing, numPasses, gain, scaleLength,
+                                oneTimeParams, oneTimeGuess);
+                    }
+                });
+            }
+            List<FlatField> grids;
+            try {
+                grids = ComputePool.invokeAll(tasks);
+            } catch (VisADException | RemoteException | RuntimeException exc) {
+                throw exc;
+            } catch (Exception exc) {
+                throw new VisADException(exc.toString());
+            }
+            for (int i = 0; i < grids.size(); i++) {
+                FieldImpl oneTime = grids.get(i);
                 if ((retFI == null) && (oneTime != null)) {
                     FunctionType ft =
                             new FunctionType(
@@ -2950,6 +3060,14 @@ public class PointObFactory {
                 }
                 if (oneTime != null) {
                     retFI.setSample(i, oneTime, false);
+                    // pass back the values of the last time, as done when
+                    // the times were analyzed one after another
+                    if (params != null) {
+                        params.setGridXArray(timeParams[i].getGridXArray());
+                        params.setGridYArray(timeParams[i].getGridYArray());
+                        params.setScaleLengthGU(
+                                timeParams[i].getScaleLengthGU());
+                    }
                 }
             }
         } else {
@@ -3060,19 +3178,51 @@ public class PointObFactory {
         int cnt = 0;
         int numMissing = 0;
         Unit outputUnits = type.getDefaultUnit();
+        // obs in a store are read from its columns
+        PointObStoreField storeObs = null;
+        double[] storeVals = null;
+        Unit storeUnit = null;
+        if (pointObs instanceof PointObStoreField) {
+            storeObs = (PointObStoreField) pointObs;
+            int column = storeObs.getStore().findRealColumn(type);
+            if (column == PointOb.BAD_INDEX) {
+                storeObs = null;
+            } else {
+                storeVals = storeObs.getStore().getReals(column);
+                storeUnit = storeObs.getStore().getUnit(column);
+                if ((storeUnit != null) && storeUnit.equals(outputUnits)) {
+                    storeUnit = null;
+                }
+            }
+        }
         for (int i = 0; i < numObs; i++) {
-            PointOb po = (PointOb) pointObs.getSample(i);
-            Tuple obData = (Tuple) po.getData();
-            Real val = (Real) obData.getComponent(typeIndex);
-            //if (i == 0) System.out.println("val["+i+"] ="+ val.toValueString() + ">"+val.getUnit()+"<");
-            double obVal = val.getValue(type.getDefaultUnit());
+            double obVal;
+            float lat;
+            float lon;
+            if (storeObs != null) {
+                PointObStore store = storeObs.getStore();
+                int storeIndex = storeObs.getStoreIndex(i);
+                obVal = storeVals[storeIndex];
+                if ((storeUnit != null) && (outputUnits != null)) {
+                    obVal = outputUnits.toThis(obVal, storeUnit);
+                }
+                lat = store.getLatitudes()[storeIndex];
+                lon = store.getLongitudes()[storeIndex];
+            } else {
+                PointOb po = (PointOb) pointObs.getSample(i);
+                Tuple obData = (Tuple) po.getData();
+                Real val = (Real) obData.getComponent(typeIndex);
+                //if (i == 0) System.out.println("val["+i+"] ="+ val.toValueString() + ">"+val.getUnit()+"<");
+                obVal = val.getValue(type.getDefaultUnit());
+                EarthLocation el = po.getEarthLocation();
+                lat = (float) el.getLatitude().getValue(CommonUnit.degree);
+                lon = (float) el.getLongitude().getValue(CommonUnit.degree);
+            }
             if (Double.isNaN(obVal)) {
                 numMissing++;
                 continue;
             }
 
-            EarthLocation el = po.getEarthLocation();
-            float lat = (float) el.getLatitude().getValue(CommonUnit.degree);
             // sanity check
             if (Float.isNaN(lat) || (lat < -90) || (lat > 90)) {
                 numMissing++;
@@ -3084,7 +3234,6 @@ public class PointObFactory {
             if (lat > latMax) {
                 latMax = lat;
             }
-            float lon = (float) el.getLongitude().getValue(CommonUnit.degree);
             // sanity check
             if (Float.isNaN(lon) || (lon < -360) || (lon > 360)) {
                 numMissing++;
@@ -3217,12 +3366,11 @@ public class PointObFactory {
         if (firstGuess != null) {
             float[][] gridVals =
                     GridUtil.makeGrid2D(firstGuess).getvalues()[0];
-            griddedData = Barnes.point2grid(faGridX, faGridY, obVals,
-                    gridVals, scaleLength, gain,
-                    numPasses);
+            griddedData = BarnesAnalysis.point2grid(faGridX, faGridY,
+                    obVals, gridVals, scaleLength, gain, numPasses);
         } else {
-            griddedData = Barnes.point2grid(faGridX, faGridY, obVals,
-                    scaleLength, gain, numPasses);
+            griddedData = BarnesAnalysis.point2grid(faGridX, faGridY,
+                    obVals, scaleLength, gain, numPasses);
         }
 
 
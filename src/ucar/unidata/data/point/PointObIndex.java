@@ -0,0 +1,767 @@
+/*
+ * Copyright 1997-2020 Unidata Program Center/University Corporation for
+ * Atmospheric Research, P.O. Box 3000, Boulder, CO 80307,
+ * support@unidata.ucar.edu.
+ *
+ * This library is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation; either version 2.1 of the License, or (at
+ * your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU Lesser
+ * General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this library; if not, write to the Free Software Foundation,
+ * Inc., 59 Temple Place, Suite 330, Boston, MA 02111-1307 USA
+ */
+
+package ucar.unidata.data.point;
+
+
+import visad.CommonUnit;
+import visad.DateTime;
+import visad.FieldImpl;
+import visad.VisADException;
+
+import visad.georef.EarthLocation;
+
+import java.lang.ref.WeakReference;
+
+import java.rmi.RemoteException;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+
+
+/**
+ * A spatial and temporal index of a field of point observations
+ * (index -&gt; PointOb). The obs are bucketed on a lat/lon grid (about
+ * two obs to a cell) and sorted by time so bounding box, time range and
+ * nearest ob queries only look at the obs near the answer.
+ * <p>
+ * Use {@link #getIndex(FieldImpl)} to get the index of a field. The
+ * index is made once and kept with the field, so repeated queries (e.g.,
+ * probing or picking a station as the mouse moves) do not scan the obs.
+ *
+ * @author IDV Development Team
+ */
+public class PointObIndex {
+
+    /** How many indices of plain fields we keep around */
+    private static final int MAX_CACHED = 32;
+
+    /** The indices of fields that are not {@link PointObStoreField}s */
+    private static final List<CachedIndex> cache =
+        new ArrayList<CachedIndex>();
+
+    /** Average number of obs in a cell */
+    private static final int OBS_PER_CELL = 2;
+
+    /** latitude of each ob */
+    private float[] lats;
+
+    /** longitude of each ob, in [-180, 180) */
+    private float[] lons;
+
+    /** time (seconds since the epoch) of each ob */
+    private double[] times;
+
+    /** number of grid cells in longitude */
+    private int numLonCells;
+
+    /** number of grid cells in latitude */
+    private int numLatCells;
+
+    /** min latitude of the grid */
+    private double latMin;
+
+    /** min longitude of the grid */
+    private double lonMin;
+
+    /** latitude size of a cell */
+    private double cellLat;
+
+    /** longitude size of a cell */
+    private double cellLon;
+
+    /** start of each cell in cellObs. One more than the number of cells */
+    private int[] cellStarts;
+
+    /** The obs in each cell, cell by cell */
+    private int[] cellObs;
+
+    /** The obs in time order */
+    private int[] timeOrder;
+
+    /** The time of each ob in time order */
+    private double[] sortedTimes;
+
+    /**
+     * Make an index
+     *
+     * @param lats latitude (degrees) of each ob
+     * @param lons longitude (degrees) of each ob
+     * @param times time (seconds since the epoch) of each ob. May be null
+     */
+    public PointObIndex(float[] lats, float[] lons, double[] times) {
+        int numObs = lats.length;
+        this.lats  = lats;
+        this.lons  = new float[numObs];
+        for (int i = 0; i < numObs; i++) {
+            this.lons[i] = (float) normalizeLon(lons[i]);
+        }
+        if (times == null) {
+            times = new double[numObs];
+            Arrays.fill(times, Double.NaN);
+        }
+        this.times = times;
+        makeGrid();
+        makeTimeOrder();
+    }
+
+    /**
+     * Get the index of a field of point obs, making it if needed
+     *
+     * @param pointObs the obs (index -&gt; PointOb)
+     *
+     * @return the index
+     *
+     * @throws RemoteException Java RMI error
+     * @throws VisADException  VisAD Error
+     */
+    public static PointObIndex getIndex(FieldImpl pointObs)
+            throws VisADException, RemoteException {
+        if (pointObs instanceof PointObStoreField) {
+            return ((PointObStoreField) pointObs).getIndex();
+        }
+        synchronized (cache) {
+            for (Iterator<CachedIndex> iter = cache.iterator();
+                    iter.hasNext(); ) {
+                CachedIndex cached = iter.next();
+                FieldImpl   field  = cached.field.get();
+                if (field == null) {
+                    iter.remove();
+                } else if (field == pointObs) {
+                    // most recently used goes to the end
+                    iter.remove();
+                    cache.add(cached);
+                    return cached.index;
+                }
+            }
+        }
+        PointObIndex index = makeIndex(pointObs);
+        synchronized (cache) {
+            cache.add(new CachedIndex(pointObs, index));
+            while (cache.size() > MAX_CACHED) {
+                cache.remove(0);
+            }
+        }
+        return index;
+    }
+
+    /**
+     * Make the index of a field of point obs
+     *
+     * @param pointObs the obs (index -&gt; PointOb)
+     *
+     * @return the index
+     *
+     * @throws RemoteException Java RMI error
+     * @throws VisADException  VisAD Error
+     */
+    static PointObIndex makeIndex(FieldImpl pointObs)
+            throws VisADException, RemoteException {
+        int      numObs = pointObs.getDomainSet().getLength();
+        float[]  lats   = new float[numObs];
+        float[]  lons   = new float[numObs];
+        double[] times  = new double[numObs];
+        if (pointObs instanceof PointObStoreField) {
+            PointObStoreField storeObs    = (PointObStoreField) pointObs;
+            PointObStore      store       = storeObs.getStore();
+            DateTime[]        storeTimes  = store.getTimes();
+            int[]             timeIndices = store.getTimeIndices();
+            for (int i = 0; i < numObs; i++) {
+                int storeIndex = storeObs.getStoreIndex(i);
+                lats[i]  = store.getLatitudes()[storeIndex];
+                lons[i]  = store.getLongitudes()[storeIndex];
+                times[i] = storeTimes[timeIndices[storeIndex]].getValue();
+            }
+        } else {
+            for (int i = 0; i < numObs; i++) {
+                Object sample = pointObs.getSample(i);
+                if ( !(sample instanceof PointOb)) {
+                    lats[i]  = Float.NaN;
+                    lons[i]  = Float.NaN;
+                    times[i] = Double.NaN;
+                    continue;
+                }
+                PointOb       ob = (PointOb) sample;
+                EarthLocation el = ob.getEarthLocation();
+                lats[i] = (float) el.getLatitude().getValue(CommonUnit.degree);
+                lons[i] =
+                    (float) el.getLongitude().getValue(CommonUnit.degree);
+                times[i] = (ob.getDateTime() == null)
+                           ? Double.NaN
+                           : ob.getDateTime().getValue();
+            }
+        }
+        return new PointObIndex(lats, lons, times);
+    }
+
+    /**
+     * Get the number of obs
+     *
+     * @return number of obs
+     */
+    public int size() {
+        return lats.length;
+    }
+
+    /**
+     * Get the latitude of an ob
+     *
+     * @param ob index of the ob
+     *
+     * @return latitude (degrees)
+     */
+    public float getLatitude(int ob) {
+        return lats[ob];
+    }
+
+    /**
+     * Get the longitude of an ob
+     *
+     * @param ob index of the ob
+     *
+     * @return longitude (degrees) in [-180, 180)
+     */
+    public float getLongitude(int ob) {
+        return lons[ob];
+    }
+
+    /**
+     * Get the time of an ob
+     *
+     * @param ob index of the ob
+     *
+     * @return time (seconds since the epoch)
+     */
+    public double getTime(int ob) {
+        return times[ob];
+    }
+
+    /**
+     * Find the obs in a lat/lon box. The box may cross the date line
+     * (west &gt; east after normalizing).
+     *
+     * @param south south edge (degrees)
+     * @param north north edge (degrees)
+     * @param west west edge (degrees)
+     * @param east east edge (degrees)
+     *
+     * @return index of each ob in the box, in ascending order
+     */
+    public int[] findInBounds(double south, double north, double west,
+                              double east) {
+        IntBuffer found = new IntBuffer();
+        if (east - west >= 360) {
+            findInBounds(south, north, -180, 180, found);
+        } else {
+            west = normalizeLon(west);
+            east = normalizeLon(east);
+            if (west <= east) {
+                findInBounds(south, north, west, east, found);
+            } else {
+                findInBounds(south, north, west, 180, found);
+                findInBounds(south, north, -180, east, found);
+            }
+        }
+        int[] result = found.toArray();
+        Arrays.sort(result);
+        return result;
+    }
+
+    /**
+     * Find the obs in a box that does not cross the date line
+     *
+     * @param south south edge
+     * @param north north edge
+     * @param west west edge, in [-180, 180]
+     * @param east east edge, in [-180, 180]
+     * @param found where to put the obs that are found
+     */
+    private void findInBounds(double south, double north, double west,
+                              double east, IntBuffer found) {
+        if ((south > north) || (west > east) || (cellObs.length == 0)
+                || (north < latMin) || (south > latMin + numLatCells * cellLat)
+                || (east < lonMin)
+                || (west > lonMin + numLonCells * cellLon)) {
+            return;
+        }
+        int y0 = latCell(south);
+        int y1 = latCell(north);
+        int x0 = lonCell(west);
+        int x1 = lonCell(east);
+        for (int y = y0; y <= y1; y++) {
+            for (int x = x0; x <= x1; x++) {
+                int cell = y * numLonCells + x;
+                for (int i = cellStarts[cell]; i < cellStarts[cell + 1];
+                        i++) {
+                    int   ob  = cellObs[i];
+                    float lat = lats[ob];
+                    float lon = lons[ob];
+                    if ((lat >= south) && (lat <= north) && (lon >= west)
+                            && (lon <= east)) {
+                        found.add(ob);
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Find the obs in a time range
+     *
+     * @param start start time (seconds since the epoch), inclusive
+     * @param end end time (seconds since the epoch), inclusive
+     *
+     * @return index of each ob in the range, in ascending order
+     */
+    public int[] findInTimeRange(double start, double end) {
+        int   first  = search(sortedTimes, start, false);
+        int   last   = search(sortedTimes, end, true);
+        int[] result = new int[Math.max(0, last - first)];
+        System.arraycopy(timeOrder, first, result, 0, result.length);
+        Arrays.sort(result);
+        return result;
+    }
+
+    /**
+     * Find the ob closest to a point
+     *
+     * @param lat latitude (degrees)
+     * @param lon longitude (degrees)
+     *
+     * @return index of the closest ob or -1 if no obs have a location
+     */
+    public int findNearest(double lat, double lon) {
+        int[] nearest = findNearest(lat, lon, 1);
+        return (nearest.length == 0)
+               ? -1
+               : nearest[0];
+    }
+
+    /**
+     * Find the k obs closest (great circle distance) to a point
+     *
+     * @param lat latitude (degrees)
+     * @param lon longitude (degrees)
+     * @param k how many to find
+     *
+     * @return index of the closest obs, closest first. Fewer than k if
+     *         there are not that many obs with a location
+     */
+    public int[] findNearest(double lat, double lon, int k) {
+        k = Math.min(k, cellObs.length);
+        if ((k <= 0) || Double.isNaN(lat) || Double.isNaN(lon)) {
+            return new int[0];
+        }
+        lon = normalizeLon(lon);
+        int[]    best     = new int[k];
+        double[] bestDist = new double[k];
+        int      numBest  = 0;
+        int      cx       = lonCell(lon);
+        int      cy       = latCell(lat);
+        int      maxRing  = Math.max(numLonCells, numLatCells);
+        // look at rings of cells around the point until no unseen cell
+        // can have an ob closer than the k'th closest so far
+        for (int r = 0; r <= maxRing; r++) {
+            for (int y = cy - r; y <= cy + r; y++) {
+                if ((y < 0) || (y >= numLatCells)) {
+                    continue;
+                }
+                int step = ((y == cy - r) || (y == cy + r))
+                           ? 1
+                           : 2 * r;
+                for (int x = cx - r; x <= cx + r; x += step) {
+                    if ((x < 0) || (x >= numLonCells)) {
+                        continue;
+                    }
+                    int cell = y * numLonCells + x;
+                    for (int i = cellStarts[cell]; i < cellStarts[cell + 1];
+                            i++) {
+                        int    ob   = cellObs[i];
+                        double dist = distance(lats[ob], lons[ob], lat, lon);
+                        if ((numBest == k) && (dist >= bestDist[k - 1])) {
+                            continue;
+                        }
+                        int pos = (numBest < k)
+                                  ? numBest++
+                                  : k - 1;
+                        while ((pos > 0) && (bestDist[pos - 1] > dist)) {
+                            best[pos]     = best[pos - 1];
+                            bestDist[pos] = bestDist[pos - 1];
+                            pos--;
+                        }
+                        best[pos]     = ob;
+                        bestDist[pos] = dist;
+                    }
+                }
+            }
+            if ((numBest == k)
+                    && (getLowerBound(lat, lon, cx - r, cx + r, cy - r, cy + r)
+                        >= bestDist[k - 1])) {
+                break;
+            }
+        }
+        return Arrays.copyOf(best, numBest);
+    }
+
+    /**
+     * Get a lower bound on the distance from a point to the obs that
+     * are not in the given block of cells
+     *
+     * @param lat latitude of the point
+     * @param lon longitude of the point
+     * @param x0 first lon cell of the block
+     * @param x1 last lon cell of the block
+     * @param y0 first lat cell of the block
+     * @param y1 last lat cell of the block
+     *
+     * @return the bound (radians). Infinite if the block covers the grid
+     */
+    private double getLowerBound(double lat, double lon, int x0, int x1,
+                                 int y0, int y1) {
+        double bound = Double.POSITIVE_INFINITY;
+        // any point off the block in latitude is at least the
+        // latitude difference away
+        if (y0 > 0) {
+            double edge = latMin + y0 * cellLat;
+            bound = Math.min(bound, Math.toRadians(Math.max(0, lat - edge)));
+        }
+        if (y1 < numLatCells - 1) {
+            double edge = latMin + (y1 + 1) * cellLat;
+            bound = Math.min(bound, Math.toRadians(Math.max(0, edge - lat)));
+        }
+        // any point off the block in longitude is at least as far as the
+        // nearest meridian of the unseen cells
+        double lonGap = Double.POSITIVE_INFINITY;
+        if (x0 > 0) {
+            lonGap = Math.min(lonGap,
+                              getLonGap(lon, lonMin, lonMin + x0 * cellLon));
+        }
+        if (x1 < numLonCells - 1) {
+            lonGap = Math.min(lonGap,
+                              getLonGap(lon, lonMin + (x1 + 1) * cellLon,
+                                        lonMin + numLonCells * cellLon));
+        }
+        if (lonGap < Double.POSITIVE_INFINITY) {
+            double sinGap = Math.sin(Math.toRadians(Math.min(lonGap, 90)));
+            bound = Math.min(bound,
+                             Math.asin(Math.cos(Math.toRadians(lat))
+                                       * sinGap));
+        }
+        return bound;
+    }
+
+    /**
+     * Get the longitude difference, going either way around, between a
+     * longitude and the nearest longitude in a range
+     *
+     * @param lon the longitude
+     * @param west west end of the range
+     * @param east east end of the range
+     *
+     * @return the difference (degrees)
+     */
+    private static double getLonGap(double lon, double west, double east) {
+        if ((lon >= west) && (lon <= east)) {
+            return 0;
+        }
+        return Math.min(getLonDiff(lon, west), getLonDiff(lon, east));
+    }
+
+    /**
+     * Get the difference, going the short way around, between two
+     * longitudes
+     *
+     * @param lon1 first longitude
+     * @param lon2 second longitude
+     *
+     * @return the difference (degrees), in [0, 180]
+     */
+    private static double getLonDiff(double lon1, double lon2) {
+        double diff = Math.abs(lon1 - lon2) % 360;
+        return Math.min(diff, 360 - diff);
+    }
+
+    /**
+     * Get the great circle distance from an ob to a point
+     *
+     * @param ob index of the ob
+     * @param lat latitude (degrees)
+     * @param lon longitude (degrees)
+     *
+     * @return distance (radians). NaN if the ob has no location
+     */
+    public double getDistance(int ob, double lat, double lon) {
+        return distance(lats[ob], lons[ob], lat, lon);
+    }
+
+    /**
+     * Great circle distance between two points
+     *
+     * @param lat1 latitude of the first point (degrees)
+     * @param lon1 longitude of the first point (degrees)
+     * @param lat2 latitude of the second point (degrees)
+     * @param lon2 longitude of the second point (degrees)
+     *
+     * @return distance (radians)
+     */
+    private static double distance(double lat1, double lon1, double lat2,
+                                   double lon2) {
+        double phi1    = Math.toRadians(lat1);
+        double phi2    = Math.toRadians(lat2);
+        double sinDLat = Math.sin((phi2 - phi1) / 2);
+        double sinDLon = Math.sin(Math.toRadians(lon2 - lon1) / 2);
+        double a = sinDLat * sinDLat
+                   + Math.cos(phi1) * Math.cos(phi2) * sinDLon * sinDLon;
+        return 2 * Math.asin(Math.min(1, Math.sqrt(a)));
+    }
+
+    /**
+     * Put a longitude in [-180, 180)
+     *
+     * @param lon longitude (degrees)
+     *
+     * @return the normalized longitude
+     */
+    private static double normalizeLon(double lon) {
+        if ((lon >= -180) && (lon < 180)) {
+            return lon;
+        }
+        lon = (lon + 180) % 360;
+        if (lon < 0) {
+            lon += 360;
+        }
+        return lon - 180;
+    }
+
+    /**
+     * Get the lat cell of a latitude
+     *
+     * @param lat the latitude
+     *
+     * @return the cell, clamped to the grid
+     */
+    private int latCell(double lat) {
+        int cell = (int) Math.floor((lat - latMin) / cellLat);
+        return Math.max(0, Math.min(numLatCells - 1, cell));
+    }
+
+    /**
+     * Get the lon cell of a longitude
+     *
+     * @param lon the longitude, in [-180, 180]
+     *
+     * @return the cell, clamped to the grid
+     */
+    private int lonCell(double lon) {
+        int cell = (int) Math.floor((lon - lonMin) / cellLon);
+        return Math.max(0, Math.min(numLonCells - 1, cell));
+    }
+
+    /**
+     * Make the lat/lon grid
+     */
+    private void makeGrid() {
+        int    numObs   = size();
+        int    numValid = 0;
+        double latMax   = Double.NEGATIVE_INFINITY;
+        double lonMax   = Double.NEGATIVE_INFINITY;
+        latMin = Double.POSITIVE_INFINITY;
+        lonMin = Double.POSITIVE_INFINITY;
+        for (int i = 0; i < numObs; i++) {
+            if (Float.isNaN(lats[i]) || Float.isNaN(lons[i])) {
+                continue;
+            }
+            latMin = Math.min(latMin, lats[i]);
+            latMax = Math.max(latMax, lats[i]);
+            lonMin = Math.min(lonMin, lons[i]);
+            lonMax = Math.max(lonMax, lons[i]);
+            numValid++;
+        }
+        if (numValid == 0) {
+            latMin = latMax = lonMin = lonMax = 0;
+        }
+        // roughly square cells with a couple of obs in each
+        int    numCells = Math.max(1, numValid / OBS_PER_CELL);
+        double latRange = latMax - latMin;
+        double lonRange = lonMax - lonMin;
+        numLatCells = 1;
+        numLonCells = 1;
+        if ((latRange > 0) && (lonRange > 0)) {
+            double size = Math.sqrt(latRange * lonRange / numCells);
+            numLatCells = (int) Math.min(numCells,
+                                         Math.ceil(latRange / size));
+            numLonCells = (int) Math.min(numCells,
+                                         Math.ceil(lonRange / size));
+        } else if (latRange > 0) {
+            numLatCells = numCells;
+        } else if (lonRange > 0) {
+            numLonCells = numCells;
+        }
+        numLatCells = Math.max(1, numLatCells);
+        numLonCells = Math.max(1, numLonCells);
+        cellLat     = (latRange > 0)
+                      ? latRange / numLatCells
+                      : 1;
+        cellLon     = (lonRange > 0)
+                      ? lonRange / numLonCells
+                      : 1;
+
+        cellStarts = new int[numLatCells * numLonCells + 1];
+        int[] obCells = new int[numObs];
+        for (int i = 0; i < numObs; i++) {
+            if (Float.isNaN(lats[i]) || Float.isNaN(lons[i])) {
+                obCells[i] = -1;
+                continue;
+            }
+            obCells[i] = latCell(lats[i]) * numLonCells + lonCell(lons[i]);
+            cellStarts[obCells[i] + 1]++;
+        }
+        for (int i = 0; i < cellStarts.length - 1; i++) {
+            cellStarts[i + 1] += cellStarts[i];
+        }
+        cellObs = new int[numValid];
+        int[] next = Arrays.copyOf(cellStarts, cellStarts.length - 1);
+        for (int i = 0; i < numObs; i++) {
+            if (obCells[i] >= 0) {
+                cellObs[next[obCells[i]]++] = i;
+            }
+        }
+    }
+
+    /**
+     * Sort the obs by time. There are usually few distinct times so
+     * this is a counting sort on the distinct times.
+     */
+    private void makeTimeOrder() {
+        int      numObs   = size();
+        double[] distinct = (double[]) times.clone();
+        Arrays.sort(distinct);
+        int numTimes = 0;
+        for (int i = 0; i < numObs; i++) {
+            if ((numTimes == 0)
+                    || (Double.compare(distinct[i], distinct[numTimes - 1])
+                        != 0)) {
+                distinct[numTimes++] = distinct[i];
+            }
+        }
+        int[] timeIndices = new int[numObs];
+        int[] starts      = new int[numTimes + 1];
+        for (int i = 0; i < numObs; i++) {
+            timeIndices[i] = Arrays.binarySearch(distinct, 0, numTimes,
+                    times[i]);
+            starts[timeIndices[i] + 1]++;
+        }
+        for (int i = 0; i < numTimes; i++) {
+            starts[i + 1] += starts[i];
+        }
+        timeOrder   = new int[numObs];
+        sortedTimes = new double[numObs];
+        for (int i = 0; i < numObs; i++) {
+            int pos = starts[timeIndices[i]]++;
+            timeOrder[pos]   = i;
+            sortedTimes[pos] = times[i];
+        }
+    }
+
+    /**
+     * Find where a value goes in a sorted array. NaNs sort last.
+     *
+     * @param sorted the sorted values
+     * @param value the value
+     * @param after if true find the first value greater than the value,
+     *              else the first value not less than it
+     *
+     * @return the position
+     */
+    private static int search(double[] sorted, double value, boolean after) {
+        int low  = 0;
+        int high = sorted.length;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            int cmp = Double.compare(sorted[mid], value);
+            if ((cmp < 0) || (after && (cmp == 0))) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+
+    /**
+     * A growable list of ints
+     */
+    private static class IntBuffer {
+
+        /** The values */
+        private int[] values = new int[16];
+
+        /** number of values */
+        private int size;
+
+        /**
+         * Add a value
+         *
+         * @param value the value
+         */
+        private void add(int value) {
+            if (size == values.length) {
+                values = Arrays.copyOf(values, size * 2);
+            }
+            values[size++] = value;
+        }
+
+        /**
+         * Get the values
+         *
+         * @return the values
+         */
+        private int[] toArray() {
+            return Arrays.copyOf(values, size);
+        }
+    }
+
+    /**
+     * Holds the index of a field without holding on to the field
+     */
+    private static class CachedIndex {
+
+        /** The field */
+        private WeakReference<FieldImpl> field;
+
+        /** Its index */
+        private PointObIndex index;
+
+        /**
+         * Create one
+         *
+         * @param field the field
+         * @param index its index
+         */
+        private CachedIndex(FieldImpl field, PointObIndex index) {
+            this.field = new WeakReference<FieldImpl>(field);
+            this.index = index;
+        }
+    }
+
+}
@@ -0,0 +1,517 @@
+/*
+ * Copyright 1997-2020 Unidata Program Center/University Corporation for
+ * Atmospheric Research, P.O. Box 3000, Boulder, CO 80307,
+ * support@unidata.ucar.edu.
+ *
+ * This library is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation; either version 2.1 of the License, or (at
+ * your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU Lesser
+ * General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this library; if not, write to the Free Software Foundation,
+ * Inc., 59 Temple Place, Suite 330, Boston, MA 02111-1307 USA
+ */
+
+package ucar.unidata.data.point;
+
+
+import visad.Data;
+import visad.DateTime;
+import visad.DoubleStringTuple;
+import visad.DoubleTuple;
+import visad.Real;
+import visad.RealTupleType;
+import visad.RealType;
+import visad.Tuple;
+import visad.TupleType;
+import visad.Unit;
+import visad.VisADException;
+
+import visad.georef.EarthLocationLite;
+
+import java.io.Serializable;
+
+import java.rmi.RemoteException;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+
+/**
+ * Holds a set of point observations as columns of primitive arrays: the
+ * lat/lon/alt of each ob, an index into the distinct (sorted) times, a
+ * double column for each numeric parameter and a dictionary encoded
+ * column for each string parameter. This takes a fraction of the memory
+ * of a {@link PointObTuple} (with its location, time and data tuple) for
+ * each ob. The {@link PointOb}s are made as they are asked for, see
+ * {@link PointObStoreField}.
+ * <p>
+ * The data of an ob is a tuple of the numeric parameters followed by the
+ * string parameters, as made by {@link DoubleStringTuple}, or of just the
+ * numeric parameters (as a {@link DoubleTuple}) when there are no string
+ * ones. Stores are made with a {@link Builder} and are not changed after.
+ *
+ * @author IDV Development Team
+ */
+public class PointObStore implements Serializable {
+
+    /** number of obs */
+    private int size;
+
+    /** latitude of each ob */
+    private float[] lats;
+
+    /** longitude of each ob */
+    private float[] lons;
+
+    /** altitude of each ob */
+    private float[] alts;
+
+    /** The distinct times, sorted */
+    private DateTime[] times;
+
+    /** index into the times for each ob */
+    private int[] timeIndices;
+
+    /** The type of the data of each ob */
+    private TupleType dataType;
+
+    /** units of the numeric parameters */
+    private Unit[] units;
+
+    /**
+     * The numeric parameters. One column for each. These are doubles
+     * since the values (e.g., times or ids) can need more precision
+     * than a float has.
+     */
+    private double[][] reals;
+
+    /** The string parameters. Index into the dictionary for each ob */
+    private int[][] stringCodes;
+
+    /** The distinct values of each string parameter */
+    private String[][] stringValues;
+
+    /** template for the latitudes */
+    private Real latTemplate = new Real(RealType.Latitude, 0);
+
+    /** template for the longitudes */
+    private Real lonTemplate = new Real(RealType.Longitude, 0);
+
+    /** template for the altitudes */
+    private Real altTemplate = new Real(RealType.Altitude, 0);
+
+    /** The type of the obs. Made from the first one */
+    private TupleType obType;
+
+    /**
+     * Create a store. Use a {@link Builder}
+     */
+    private PointObStore() {}
+
+    /**
+     * Get the number of obs
+     *
+     * @return number of obs
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Get the latitudes. Do not modify these.
+     *
+     * @return latitude (degrees) of each ob
+     */
+    public float[] getLatitudes() {
+        return lats;
+    }
+
+    /**
+     * Get the longitudes. Do not modify these.
+     *
+     * @return longitude (degrees) of each ob
+     */
+    public float[] getLongitudes() {
+        return lons;
+    }
+
+    /**
+     * Get the altitudes. Do not modify these.
+     *
+     * @return altitude (meters) of each ob
+     */
+    public float[] getAltitudes() {
+        return alts;
+    }
+
+    /**
+     * Get the distinct times of the obs
+     *
+     * @return the times, sorted
+     */
+    public DateTime[] getTimes() {
+        return times;
+    }
+
+    /**
+     * Get the index into {@link #getTimes()} of each ob. Do not modify these.
+     *
+     * @return time index of each ob
+     */
+    public int[] getTimeIndices() {
+        return timeIndices;
+    }
+
+    /**
+     * Get the time of an ob
+     *
+     * @param ob index of the ob
+     *
+     * @return the time
+     */
+    public DateTime getDateTime(int ob) {
+        return times[timeIndices[ob]];
+    }
+
+    /**
+     * Get the type of the data of each ob
+     *
+     * @return the type
+     */
+    public TupleType getDataType() {
+        return dataType;
+    }
+
+    /**
+     * Get the number of numeric parameters
+     *
+     * @return number of numeric parameters
+     */
+    public int getNumReals() {
+        return reals.length;
+    }
+
+    /**
+     * Get the number of string parameters
+     *
+     * @return number of string parameters
+     */
+    public int getNumStrings() {
+        return stringCodes.length;
+    }
+
+    /**
+     * Find the column of a numeric parameter
+     *
+     * @param type the parameter
+     *
+     * @return the column or {@link PointOb#BAD_INDEX} if it is not a
+     *         numeric parameter of these obs
+     */
+    public int findRealColumn(RealType type) {
+        int index = dataType.getIndex(type);
+        return ((index >= 0) && (index < reals.length))
+               ? index
+               : PointOb.BAD_INDEX;
+    }
+
+    /**
+     * Get the values of a numeric parameter. Do not modify these.
+     *
+     * @param column the column
+     *
+     * @return the value for each ob, in the unit of the column
+     */
+    public double[] getReals(int column) {
+        return reals[column];
+    }
+
+    /**
+     * Get the unit of a numeric parameter
+     *
+     * @param column the column
+     *
+     * @return the unit. May be null
+     */
+    public Unit getUnit(int column) {
+        return units[column];
+    }
+
+    /**
+     * Get the value of a string parameter
+     *
+     * @param column the column
+     * @param ob index of the ob
+     *
+     * @return the value
+     */
+    public String getString(int column, int ob) {
+        return stringValues[column][stringCodes[column][ob]];
+    }
+
+    /**
+     * Make the data tuple of an ob
+     *
+     * @param ob index of the ob
+     *
+     * @return the data
+     *
+     * @throws RemoteException Java RMI error
+     * @throws VisADException  VisAD Error
+     */
+    public Data makeData(int ob) throws VisADException, RemoteException {
+        double[] realArray = new double[reals.length];
+        for (int i = 0; i < realArray.length; i++) {
+            realArray[i] = reals[i][ob];
+        }
+        if (stringCodes.length == 0) {
+            return new DoubleTuple((RealTupleType) dataType, realArray,
+                                   units);
+        }
+        String[] stringArray = new String[stringCodes.length];
+        for (int i = 0; i < stringArray.length; i++) {
+            stringArray[i] = getString(i, ob);
+        }
+        return new DoubleStringTuple(dataType, realArray, stringArray,
+                                     units);
+    }
+
+    /**
+     * Make an ob
+     *
+     * @param ob index of the ob
+     *
+     * @return the ob
+     *
+     * @throws RemoteException Java RMI error
+     * @throws VisADException  VisAD Error
+     */
+    public PointOb makePointOb(int ob) throws VisADException, RemoteException {
+        EarthLocationLite el =
+            new EarthLocationLite(latTemplate.cloneButValue(lats[ob]),
+                                  lonTemplate.cloneButValue(lons[ob]),
+                                  altTemplate.cloneButValue(alts[ob]));
+        Data         data     = makeData(ob);
+        DateTime     dateTime = getDateTime(ob);
+        PointObTuple pot;
+        synchronized (this) {
+            if (obType == null) {
+                pot    = new PointObTuple(el, dateTime, data);
+                obType = Tuple.buildTupleType(pot.getComponents());
+                return pot;
+            }
+        }
+        return new PointObTuple(el, dateTime, data, obType, false);
+    }
+
+    /**
+     * Get the type of the obs
+     *
+     * @return the type
+     *
+     * @throws RemoteException Java RMI error
+     * @throws VisADException  VisAD Error
+     */
+    public TupleType getObType() throws VisADException, RemoteException {
+        synchronized (this) {
+            if (obType != null) {
+                return obType;
+            }
+        }
+        return (TupleType) makePointOb(0).getType();
+    }
+
+
+    /**
+     * Builds a {@link PointObStore} an ob at a time.
+     */
+    public static class Builder {
+
+        /** The store we are building */
+        private PointObStore store = new PointObStore();
+
+        /** time (seconds since the epoch) of each ob */
+        private double[] seconds;
+
+        /** map of value to code for each string parameter */
+        private List<Map<String, Integer>> codes =
+            new ArrayList<Map<String, Integer>>();
+
+        /** The distinct values of each string parameter */
+        private List<List<String>> values = new ArrayList<List<String>>();
+
+        /**
+         * Create a builder
+         *
+         * @param dataType  type of the data of each ob. A RealTupleType
+         *                  if there are no string parameters
+         * @param units  units of the numeric parameters
+         * @param numStrings  number of string parameters
+         * @param capacity  how many obs to make room for at first
+         */
+        public Builder(TupleType dataType, Unit[] units, int numStrings,
+                       int capacity) {
+            capacity          = Math.max(capacity, 1);
+            store.dataType    = dataType;
+            store.units       = units;
+            store.lats        = new float[capacity];
+            store.lons        = new float[capacity];
+            store.alts        = new float[capacity];
+            seconds           = new double[capacity];
+            store.reals       = new double[units.length][capacity];
+            store.stringCodes = new int[numStrings][capacity];
+            for (int i = 0; i < numStrings; i++) {
+                codes.add(new HashMap<String, Integer>());
+                values.add(new ArrayList<String>());
+            }
+        }
+
+        /**
+         * Get the number of obs added so far
+         *
+         * @return number of obs
+         */
+        public int size() {
+            return store.size;
+        }
+
+        /**
+         * Add an ob
+         *
+         * @param lat  latitude (degrees)
+         * @param lon  longitude (degrees)
+         * @param alt  altitude (meters)
+         * @param time  time (seconds since the epoch)
+         * @param realArray  value of each numeric parameter
+         * @param stringArray  value of each string parameter. May be null
+         *                     if there are none
+         */
+        public void add(double lat, double lon, double alt, double time,
+                        double[] realArray, String[] stringArray) {
+            int ob = store.size;
+            if (ob == seconds.length) {
+                grow();
+            }
+            store.lats[ob] = (float) lat;
+            store.lons[ob] = (float) lon;
+            store.alts[ob] = (float) alt;
+            seconds[ob]    = time;
+            for (int i = 0; i < store.reals.length; i++) {
+                store.reals[i][ob] = realArray[i];
+            }
+            for (int i = 0; i < store.stringCodes.length; i++) {
+                String               value      = stringArray[i];
+                Map<String, Integer> valueCodes = codes.get(i);
+                Integer              code       = valueCodes.get(value);
+                if (code == null) {
+                    code = Integer.valueOf(valueCodes.size());
+                    valueCodes.put(value, code);
+                    values.get(i).add(value);
+                }
+                store.stringCodes[i][ob] = code.intValue();
+            }
+            store.size++;
+        }
+
+        /**
+         * Make room for more obs
+         */
+        private void grow() {
+            int capacity = seconds.length * 2;
+            store.lats = Arrays.copyOf(store.lats, capacity);
+            store.lons = Arrays.copyOf(store.lons, capacity);
+            store.alts = Arrays.copyOf(store.alts, capacity);
+            seconds    = Arrays.copyOf(seconds, capacity);
+            for (int i = 0; i < store.reals.length; i++) {
+                store.reals[i] = Arrays.copyOf(store.reals[i], capacity);
+            }
+            for (int i = 0; i < store.stringCodes.length; i++) {
+                store.stringCodes[i] = Arrays.copyOf(store.stringCodes[i],
+                        capacity);
+            }
+        }
+
+        /**
+         * Bin the times of the obs added so far
+         *
+         * @param binRoundTo  round to factor (minutes)
+         * @param binWidth  bin size (minutes)
+         *
+         * @see PointObFactory#binTimes(double[], double, double)
+         */
+        public void binTimes(double binRoundTo, double binWidth) {
+            double[] binned = PointObFactory.binTimes(
+                                  Arrays.copyOf(seconds, store.size),
+                                  binRoundTo, binWidth);
+            System.arraycopy(binned, 0, seconds, 0, store.size);
+        }
+
+        /**
+         * Make the store. The builder can not be used after this.
+         *
+         * @return the store
+         */
+        public PointObStore build() {
+            int size = store.size;
+            if (size < seconds.length) {
+                store.lats = Arrays.copyOf(store.lats, size);
+                store.lons = Arrays.copyOf(store.lons, size);
+                store.alts = Arrays.copyOf(store.alts, size);
+                for (int i = 0; i < store.reals.length; i++) {
+                    store.reals[i] = Arrays.copyOf(store.reals[i], size);
+                }
+                for (int i = 0; i < store.stringCodes.length; i++) {
+                    store.stringCodes[i] =
+                        Arrays.copyOf(store.stringCodes[i], size);
+                }
+            }
+            store.stringValues = new String[values.size()][];
+            for (int i = 0; i < values.size(); i++) {
+                store.stringValues[i] =
+                    values.get(i).toArray(new String[values.get(i).size()]);
+            }
+
+            // the time index
+            double[] distinct = Arrays.copyOf(seconds, size);
+            Arrays.sort(distinct);
+            int numTimes = 0;
+            for (int i = 0; i < size; i++) {
+                if ((numTimes == 0)
+                        || (Double.compare(distinct[i], distinct[numTimes - 1])
+                            != 0)) {
+                    distinct[numTimes++] = distinct[i];
+                }
+            }
+            store.times = new DateTime[numTimes];
+            try {
+                for (int i = 0; i < numTimes; i++) {
+                    store.times[i] = new DateTime(distinct[i]);
+                }
+            } catch (VisADException exc) {
+                throw new IllegalStateException(exc.toString());
+            }
+            store.timeIndices = new int[size];
+            for (int i = 0; i < size; i++) {
+                store.timeIndices[i] = Arrays.binarySearch(distinct, 0,
+                        numTimes, seconds[i]);
+            }
+            PointObStore result = store;
+            store   = null;
+            seconds = null;
+            codes   = null;
+            values  = null;
+            return result;
+        }
+    }
+
+}
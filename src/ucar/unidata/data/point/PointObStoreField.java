@@ -0,0 +1,203 @@
+/*
+ * Copyright 1997-2020 Unidata Program Center/University Corporation for
+ * Atmospheric Research, P.O. Box 3000, Boulder, CO 80307,
+ * support@unidata.ucar.edu.
+ *
+ * This library is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation; either version 2.1 of the License, or (at
+ * your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU Lesser
+ * General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this library; if not, write to the Free Software Foundation,
+ * Inc., 59 Temple Place, Suite 330, Boston, MA 02111-1307 USA
+ */
+
+package ucar.unidata.data.point;
+
+
+import visad.Data;
+import visad.FieldImpl;
+import visad.FunctionType;
+import visad.Integer1DSet;
+import visad.RealType;
+import visad.VisADException;
+
+import java.rmi.RemoteException;
+
+
+/**
+ * A field of point observations, (index -&gt; PointOb), backed by a
+ * {@link PointObStore}. The {@link PointOb}s are made from the columns
+ * of the store when they are asked for and are not held on to. The field
+ * can be a view of some of the obs of the store (e.g., the obs at one time
+ * or in a region) so subsets share the columns. The obs can not be
+ * changed.
+ *
+ * @author IDV Development Team
+ */
+public class PointObStoreField extends FieldImpl {
+
+    /** The obs */
+    private PointObStore store;
+
+    /** Index into the store of each of our obs. null for all of them */
+    private int[] indices;
+
+    /** The spatial and temporal index of our obs. Made when needed */
+    private transient PointObIndex index;
+
+    /**
+     * Create a field of all of the obs in the store
+     *
+     * @param store the obs. Must have at least one ob
+     *
+     * @throws RemoteException Java RMI error
+     * @throws VisADException  VisAD Error
+     */
+    public PointObStoreField(PointObStore store)
+            throws VisADException, RemoteException {
+        this(store, null);
+    }
+
+    /**
+     * Create a field of some of the obs in the store
+     *
+     * @param store the obs
+     * @param indices index into the store of each ob. null for all of them.
+     *                Must not be empty
+     *
+     * @throws RemoteException Java RMI error
+     * @throws VisADException  VisAD Error
+     */
+    public PointObStoreField(PointObStore store, int[] indices)
+            throws VisADException, RemoteException {
+        super(new FunctionType(RealType.getRealType("index"),
+                               store.getObType()), new Integer1DSet(
+                                   RealType.getRealType("index"),
+                                   (indices == null)
+                                   ? store.size()
+                                   : indices.length));
+        this.store   = store;
+        this.indices = indices;
+    }
+
+    /**
+     * Get the store the obs are in
+     *
+     * @return the store
+     */
+    public PointObStore getStore() {
+        return store;
+    }
+
+    /**
+     * Get the index into the store of an ob
+     *
+     * @param index index of the ob in this field
+     *
+     * @return index in the store
+     */
+    public int getStoreIndex(int index) {
+        return (indices == null)
+               ? index
+               : indices[index];
+    }
+
+    /**
+     * Get the indices into the store of our obs
+     *
+     * @return index in the store of each ob
+     */
+    public int[] getStoreIndices() {
+        if (indices != null) {
+            return (int[]) indices.clone();
+        }
+        int[] all = new int[store.size()];
+        for (int i = 0; i < all.length; i++) {
+            all[i] = i;
+        }
+        return all;
+    }
+
+    /**
+     * Get the spatial and temporal index of our obs, making it if needed
+     *
+     * @return the index
+     *
+     * @throws RemoteException Java RMI error
+     * @throws VisADException  VisAD Error
+     */
+    public synchronized PointObIndex getIndex()
+            throws VisADException, RemoteException {
+        if (index == null) {
+            index = PointObIndex.makeIndex(this);
+        }
+        return index;
+    }
+
+    /**
+     * Make a field of some of our obs
+     *
+     * @param subset index (in this field) of each ob to keep. Must not
+     *               be empty
+     *
+     * @return the field
+     *
+     * @throws RemoteException Java RMI error
+     * @throws VisADException  VisAD Error
+     */
+    public PointObStoreField subset(int[] subset)
+            throws VisADException, RemoteException {
+        int[] storeIndices = new int[subset.length];
+        for (int i = 0; i < subset.length; i++) {
+            storeIndices[i] = getStoreIndex(subset[i]);
+        }
+        return new PointObStoreField(store, storeIndices);
+    }
+
+    /**
+     * Get the ob at the given index
+     *
+     * @param index index of the ob
+     *
+     * @return the ob
+     *
+     * @throws RemoteException Java RMI error
+     * @throws VisADException  VisAD Error
+     */
+    public Data getSample(int index) throws VisADException, RemoteException {
+        return getSample(index, false);
+    }
+
+    /**
+     * Get the ob at the given index
+     *
+     * @param index index of the ob
+     * @param metadataOnly ignored
+     *
+     * @return the ob
+     *
+     * @throws RemoteException Java RMI error
+     * @throws VisADException  VisAD Error
+     */
+    public Data getSample(int index, boolean metadataOnly)
+            throws VisADException, RemoteException {
+        return store.makePointOb(getStoreIndex(index));
+    }
+
+    /**
+     * Is this missing
+     *
+     * @return false, there is always at least one ob
+     */
+    public boolean isMissing() {
+        return false;
+    }
+
+}
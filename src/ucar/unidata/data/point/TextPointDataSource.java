@@ -96,6 +96,9 @@ public class TextPointDataSource extends PointDataSource {
     /** property id for the whole header blob, map and params */
     public static final String PROP_HEADER_BLOB = "data.textpoint.blob";
 
+    /** property id for turning off the streaming reader */
+    public static final String PROP_STREAMING = "data.textpoint.streaming";
+
     /** Where to write out the saved meta data listing */
     public static final String PREF_METADATAMAP =
         "pref.textpointdatasource.metadatamap.xml";
@@ -128,7 +131,7 @@ public class TextPointDataSource extends PointDataSource {
         LogUtil.getLogInstance(TextPointDataSource.class.getName());
 
     /** variables for time */
-    private String[] timeVars = {
+    private static String[] timeVars = {
         "time_nominal", "time_Nominal", "timeNominal", "timeObs", "obtime",
         "reportTime", "time", "nominal_time", "Time", "observation_time",
         "Observation_Time", "datetime", "dttm"
@@ -416,6 +419,46 @@ public class TextPointDataSource extends PointDataSource {
         return super.getSource(dataChoice);
     }
 
+    /**
+     * Set the map, params and skip info from the properties if we don't
+     * have them yet
+     *
+     * @param delimiter The delimiter
+     *
+     * @throws Exception On badness
+     */
+    private void initHeader(String delimiter) throws Exception {
+        if ((params == null) || (params.length() == 0)) {
+            params = getProperty(PROP_HEADER_PARAMS, (String) null);
+        }
+        if ((map == null) || (map.length() == 0)) {
+            map = getProperty(PROP_HEADER_MAP, (String) null);
+        }
+        if (skipRows == 0) {
+            skipRows = getProperty(PROP_HEADER_SKIP, skipRows);
+        }
+
+        if (skipPattern == null) {
+            skipPattern = getProperty(PROP_HEADER_SKIPPATTERN,
+                                      (String) null);
+            if ((skipPattern != null) && (skipPattern.length() == 0)) {
+                skipPattern = null;
+            }
+        }
+
+
+        String blob = getProperty(PROP_HEADER_BLOB, (String) null);
+        if ((blob != null) && (metaDataFields.size() == 0)) {
+            Object object = getDataContext().getIdv().decodeObject(blob);
+            if (object instanceof List) {
+                object = new Metadata(-1, delimiter, null, (List) object);
+            }
+            Metadata metadata = (Metadata) object;
+            metaDataFields = metadata.getItems();
+            applySavedMetaData(metadata);
+        }
+    }
+
     /**
      * get the input stream for the given file or url
      *
@@ -480,16 +523,71 @@ public class TextPointDataSource extends PointDataSource {
         }
 
         //        System.out.println("URL:"+source);
-        String contents = getContents(source, sampleIt);
-        //      System.out.println(contents);
         String delim = (delimiter != null)
                        ? delimiter
                        : getDelimiter(source);
+        if ( !sampleIt && (trackParam == null) && (streamProcessor == null)
+                && getProperty(PROP_STREAMING, true) && canStream(source)) {
+            initHeader(delim);
+            TextPointReader reader = new TextPointReader(delim, map, params,
+                                         skipRows, dataProperties);
+            reader.setBounds(bbox);
+            Object gridParam = dataChoice.getProperty(PROP_GRID_PARAM);
+            if (gridParam instanceof RealType) {
+                //Only read the parameter we are gridding
+                reader.setColumns(
+                    Misc.newList(((RealType) gridParam).getName()));
+            }
+            boolean     ok = false;
+            InputStream is = null;
+            try {
+                if (skipPattern == null) {
+                    is = IOUtil.getInputStream(source, getClass());
+                    ok = (is != null) && reader.read(is);
+                }
+            } catch (Exception exc) {
+                //Let the TextAdapter deal with it
+                ok = false;
+            } finally {
+                if (is != null) {
+                    is.close();
+                }
+            }
+            if (ok) {
+                List tlist = ((subset != null)
+                              ? subset.getTimeDriverTimes()
+                              : null);
+                FieldImpl obs = makePointObs(reader, tlist,
+                                             gridParam == null);
+                if ((fieldsDescription == null) && (obs != null)
+                        && (gridParam == null)) {
+                    makeFieldDescription(obs);
+                }
+                metaDataOk = true;
+                return obs;
+            }
+        }
+        String contents = getContents(source, sampleIt);
+        //      System.out.println(contents);
         return makeObs(contents, delim, subset, bbox, trackParam, sampleIt,
                        showAttributeGuiIfNeeded);
     }
 
 
+    /**
+     * Can we read the given source with the {@link TextPointReader}.
+     * Derived classes that convert the contents in
+     * {@link #getContents(String, boolean)} should return false.
+     *
+     * @param source source file or url
+     *
+     * @return true if the source is delimited text
+     */
+    protected boolean canStream(String source) {
+        return !source.endsWith(".xls");
+    }
+
+
 
     /**
      * Get the delimiter to use for the given file. If its xls then use ','
@@ -584,40 +682,7 @@ public class TextPointDataSource extends PointDataSource {
         if (obs == null) {
             TextAdapter ta = null;
             try {
-                String extra = getProperty(PROP_HEADER_EXTRA, (String) null);
-                if ((params == null) || (params.length() == 0)) {
-                    params = getProperty(PROP_HEADER_PARAMS, (String) null);
-                }
-                if ((map == null) || (map.length() == 0)) {
-                    map = getProperty(PROP_HEADER_MAP, (String) null);
-                }
-                if (skipRows == 0) {
-                    skipRows = getProperty(PROP_HEADER_SKIP, skipRows);
-                }
-
-                if (skipPattern == null) {
-                    skipPattern = getProperty(PROP_HEADER_SKIPPATTERN,
-                            (String) null);
-                    if ((skipPattern != null)
-                            && (skipPattern.length() == 0)) {
-                        skipPattern = null;
-                    }
-                }
-
-
-                String blob = getProperty(PROP_HEADER_BLOB, (String) null);
-                if ((blob != null) && (metaDataFields.size() == 0)) {
-                    Object object =
-                        getDataContext().getIdv().decodeObject(blob);
-                    if (object instanceof List) {
-                        object = new Metadata(-1, delimiter, null,
-                                (List) object);
-                    }
-                    Metadata metadata = (Metadata) object;
-                    metaDataFields = metadata.getItems();
-                    applySavedMetaData(metadata);
-                }
-
+                initHeader(delimiter);
                 InputStream inputStream = getInputStream(contents);
                 long        t1          = System.currentTimeMillis();
                 ta = new TextAdapter(inputStream, delimiter, map, params,
@@ -1744,13 +1809,7 @@ public class TextPointDataSource extends PointDataSource {
             //The default time to use is now
             Real dfltTime = new DateTime(new java.util.Date());
             // check for time 
-            int timeIndex = -1;
-            for (int i = 0; i < timeVars.length; i++) {
-                timeIndex = type.getIndex(timeVars[i]);
-                if (timeIndex > -1) {
-                    break;
-                }
-            }
+            int timeIndex = findTimeIndex(type);
 
             if (timeIndex == -1) {
                 //jeffmc, time change                throw new IllegalArgumentException("can't find DateTime components");
@@ -2122,13 +2181,7 @@ public class TextPointDataSource extends PointDataSource {
             //The default time to use is now
             Real dfltTime = new DateTime(new java.util.Date());
             // check for time 
-            int timeIndex = -1;
-            for (int i = 0; i < timeVars.length; i++) {
-                timeIndex = type.getIndex(timeVars[i]);
-                if (timeIndex > -1) {
-                    break;
-                }
-            }
+            int timeIndex = findTimeIndex(type);
 
             if (timeIndex == -1) {
                 //jeffmc, time change                throw new IllegalArgumentException("can't find DateTime components");
@@ -2138,7 +2191,6 @@ public class TextPointDataSource extends PointDataSource {
             Real      dfltReal         = getDefaultValue();
 
 
-            TupleType finalTT          = null;
             TupleType dataTupleType    = null;
             Unit[]    dataUnits        = null;
 
@@ -2193,7 +2245,6 @@ public class TextPointDataSource extends PointDataSource {
             }
 
             int            numObs       = pointData.size();
-            PointOb[]      obs          = new PointObTuple[numObs];
             List           times        = new ArrayList();
             List           locations    = new ArrayList();
             List           tuples       = new ArrayList();
@@ -2427,86 +2478,244 @@ public class TextPointDataSource extends PointDataSource {
 
 
 
-            times = PointObFactory.binTimes(times, getBinRoundTo(),
-                                            getBinWidth());
+            retField = makePointObField(times, locations, tuples, dTimes);
+        } catch (RemoteException re) {
+            throw new VisADException("got RemoteException " + re);
+        }
+        //System.out.println("Making point obs took " + (System.currentTimeMillis() - millis));
+        return retField;
+    }
 
 
-            if(dTimes != null){
-                int jj = 0;
-                PointOb[]      obs0          = new PointObTuple[numObs];
-                List<DateTime> matches = null;
-                try {
-                    matches = DataUtil.selectTimesFromList(times, dTimes);
-                } catch (Exception e){}
 
-                if(matches == null || matches.size() == 0) {
-                    throw new IllegalStateException(
-                            "Could not match the driver times");
-                }
+    /**
+     * Make the field of point obs from the times, locations and data
+     * tuples. The times are binned and, if given, matched against the
+     * driver times.
+     *
+     * @param times  list of DateTimes
+     * @param locations  list of EarthLocations
+     * @param tuples  list of data tuples
+     * @param dTimes  driver times. May be null
+     *
+     * @return the field of point obs
+     *
+     * @throws RemoteException  Java RMI problem
+     * @throws VisADException  problem making VisAD Data
+     */
+    private FieldImpl makePointObField(List times, List locations,
+                                       List tuples, List<DateTime> dTimes)
+            throws VisADException, RemoteException {
+        int       numObs   = times.size();
+        PointOb[] obs      = new PointObTuple[numObs];
+        TupleType finalTT  = null;
+        FieldImpl retField = null;
+        times = PointObFactory.binTimes(times, getBinRoundTo(),
+                                        getBinWidth());
 
-                for (int i = 0; i < numObs; i++) {
-                    DateTime sDate = (DateTime)times.get(i);
+        if(dTimes != null){
+            int jj = 0;
+            PointOb[]      obs0          = new PointObTuple[numObs];
+            List<DateTime> matches = null;
+            try {
+                matches = DataUtil.selectTimesFromList(times, dTimes);
+            } catch (Exception e){}
 
-                    if (matches.contains(sDate)) {
-                        Data rest = (Data) tuples.get(i);
-                        EarthLocationLite location =
-                                (EarthLocationLite) locations.get(i);
-                        if (finalTT == null) {
-                            PointObTuple pot = new PointObTuple(location, sDate,
-                                    rest);
-                            obs0[jj] = pot;
-                            finalTT = Tuple.buildTupleType(pot.getComponents());
-                        } else {
-                            obs0[jj] = new PointObTuple(location, sDate, rest,
-                                    finalTT, false);
-                        }
-                        jj++;
-                    }
-                }
-                PointOb[]      obs1          = new PointObTuple[jj];
-                System.arraycopy(obs0, 0, obs1, 0, jj);
-                Integer1DSet indexSet =
-                        new Integer1DSet(RealType.getRealType("index"), jj);
-                retField = new FieldImpl(
-                        new FunctionType(
-                                ((SetType) indexSet.getType()).getDomain(),
-                                obs1[0].getType()), indexSet);
-                retField.setSamples(obs1, false, false);
+            if(matches == null || matches.size() == 0) {
+                throw new IllegalStateException(
+                        "Could not match the driver times");
+            }
 
-            } else {
-                for (int i = 0; i < numObs; i++) {
-                    DateTime dateTime = (DateTime) times.get(i);
+            for (int i = 0; i < numObs; i++) {
+                DateTime sDate = (DateTime)times.get(i);
+
+                if (matches.contains(sDate)) {
                     Data rest = (Data) tuples.get(i);
                     EarthLocationLite location =
                             (EarthLocationLite) locations.get(i);
                     if (finalTT == null) {
-                        PointObTuple pot = new PointObTuple(location, dateTime,
+                        PointObTuple pot = new PointObTuple(location, sDate,
                                 rest);
-                        obs[i] = pot;
+                        obs0[jj] = pot;
                         finalTT = Tuple.buildTupleType(pot.getComponents());
                     } else {
-                        obs[i] = new PointObTuple(location, dateTime, rest,
+                        obs0[jj] = new PointObTuple(location, sDate, rest,
                                 finalTT, false);
-
                     }
+                    jj++;
                 }
-                Integer1DSet indexSet =
-                        new Integer1DSet(RealType.getRealType("index"), obs.length);
-                retField = new FieldImpl(
-                        new FunctionType(
-                                ((SetType) indexSet.getType()).getDomain(),
-                                obs[0].getType()), indexSet);
-                retField.setSamples(obs, false, false);
             }
+            PointOb[]      obs1          = new PointObTuple[jj];
+            System.arraycopy(obs0, 0, obs1, 0, jj);
+            Integer1DSet indexSet =
+                    new Integer1DSet(RealType.getRealType("index"), jj);
+            retField = new FieldImpl(
+                    new FunctionType(
+                            ((SetType) indexSet.getType()).getDomain(),
+                            obs1[0].getType()), indexSet);
+            retField.setSamples(obs1, false, false);
 
-        } catch (RemoteException re) {
-            throw new VisADException("got RemoteException " + re);
+        } else {
+            for (int i = 0; i < numObs; i++) {
+                DateTime dateTime = (DateTime) times.get(i);
+                Data rest = (Data) tuples.get(i);
+                EarthLocationLite location =
+                        (EarthLocationLite) locations.get(i);
+                if (finalTT == null) {
+                    PointObTuple pot = new PointObTuple(location, dateTime,
+                            rest);
+                    obs[i] = pot;
+                    finalTT = Tuple.buildTupleType(pot.getComponents());
+                } else {
+                    obs[i] = new PointObTuple(location, dateTime, rest,
+                            finalTT, false);
+
+                }
+            }
+            Integer1DSet indexSet =
+                    new Integer1DSet(RealType.getRealType("index"), obs.length);
+            retField = new FieldImpl(
+                    new FunctionType(
+                            ((SetType) indexSet.getType()).getDomain(),
+                            obs[0].getType()), indexSet);
+            retField.setSamples(obs, false, false);
         }
-        //System.out.println("Making point obs took " + (System.currentTimeMillis() - millis));
         return retField;
     }
 
 
+    /**
+     * Make point obs from the columns read by a {@link TextPointReader}
+     *
+     * @param reader  the reader
+     * @param dTimes  driver times. May be null
+     * @param setVarNames  true to set the varNames from the columns
+     *
+     * @return a field of point obs or null if there are none
+     *
+     * @throws Exception  problem making VisAD Data
+     */
+    private FieldImpl makePointObs(TextPointReader reader,
+                                   List<DateTime> dTimes,
+                                   boolean setVarNames)
+            throws Exception {
+        int numObs = reader.getCount();
+        if (numObs == 0) {
+            return null;
+        }
+        Data[]       input       = reader.getPrototype();
+        int[]        realIndices = reader.getRealIndices();
+        int[]        textIndices = reader.getTextIndices();
+        double[]     lats        = reader.getLatitudes();
+        double[]     lons        = reader.getLongitudes();
+        double[]     alts        = reader.getAltitudes();
+        double[]     secs        = reader.getTimes();
+        double[][]   reals       = reader.getReals();
+        String[][]   texts       = reader.getTexts();
+        List<String> names       = new ArrayList<String>();
+        if (alts != null) {
+            names.add("Altitude");
+        }
+
+        //Same layout as makePointObs(List,...)
+        boolean useDefault   = (realIndices.length == 0)
+                               && (textIndices.length == 0);
+        List    numericTypes = new ArrayList();
+        List    numericUnits = new ArrayList();
+        List    stringTypes  = new ArrayList();
+        if (useDefault) {
+            Real dfltReal = getDefaultValue();
+            names.add(((RealType) dfltReal.getType()).getName());
+            numericTypes.add(dfltReal.getType());
+            numericUnits.add(dfltReal.getUnit());
+        } else {
+            for (int i = 0; i < realIndices.length; i++) {
+                Real real = (Real) input[realIndices[i]];
+                names.add(((RealType) real.getType()).getName());
+                numericTypes.add(real.getType());
+                numericUnits.add(real.getUnit());
+            }
+            for (int i = 0; i < textIndices.length; i++) {
+                stringTypes.add(input[textIndices[i]].getType());
+            }
+        }
+        if (setVarNames) {
+            varNames = names;
+        }
+        boolean allReals = stringTypes.isEmpty();
+        TupleType allTupleType = allReals
+                                 ? new RealTupleType(
+                                     (RealType[]) numericTypes.toArray(
+                                         new RealType[numericTypes.size()]))
+                                 : DoubleStringTuple.makeTupleType(
+                                     numericTypes, stringTypes);
+        Unit[] allUnits = (Unit[]) numericUnits.toArray(
+                              new Unit[numericUnits.size()]);
+
+        Real     dfltAlt   = new Real(RealType.Altitude, 1);
+        DateTime dfltTime  = new DateTime(new java.util.Date());
+        List     times     = new ArrayList(numObs);
+        List     locations = new ArrayList(numObs);
+        List     tuples    = new ArrayList(numObs);
+        Data[]   prototype = null;
+        for (int i = 0; i < numObs; i++) {
+            double[] realArray = new double[numericTypes.size()];
+            if (useDefault) {
+                realArray[0] = (alts != null)
+                               ? alts[i]
+                               : dfltAlt.getValue(CommonUnit.meter);
+            } else {
+                for (int j = 0; j < realIndices.length; j++) {
+                    realArray[j] = reals[j][i];
+                }
+            }
+            Tuple tuple;
+            if (allReals) {
+                tuple = new DoubleTuple((RealTupleType) allTupleType,
+                                        prototype, realArray, allUnits);
+            } else {
+                String[] stringArray = new String[textIndices.length];
+                for (int j = 0; j < textIndices.length; j++) {
+                    stringArray[j] = texts[j][i];
+                }
+                tuple = new DoubleStringTuple(allTupleType, prototype,
+                        realArray, stringArray, allUnits);
+            }
+            if (prototype == null) {
+                prototype = tuple.getComponents();
+            }
+            tuples.add(tuple);
+            locations.add(new EarthLocationLite(new Real(RealType.Latitude,
+                    lats[i]), new Real(RealType.Longitude, lons[i]),
+                              (alts != null)
+                              ? new Real(RealType.Altitude, alts[i])
+                              : dfltAlt));
+            times.add((secs != null)
+                      ? new DateTime(secs[i])
+                      : dfltTime);
+        }
+        return makePointObField(times, locations, tuples, dTimes);
+    }
+
+
+    /**
+     * Find the time index
+     *
+     * @param type  the type to search
+     *
+     * @return  the index in the tuple or -1
+     */
+    public static int findTimeIndex(TupleType type) {
+        int timeIndex = -1;
+        for (int i = 0; i < timeVars.length; i++) {
+            timeIndex = type.getIndex(timeVars[i]);
+            if (timeIndex > -1) {
+                break;
+            }
+        }
+        return timeIndex;
+    }
+
 
     /**
      * Find the lat/lon/alt indicides
@@ -0,0 +1,1135 @@
+/*
+ * Copyright 1997-2020 Unidata Program Center/University Corporation for
+ * Atmospheric Research, P.O. Box 3000, Boulder, CO 80307,
+ * support@unidata.ucar.edu.
+ *
+ * This library is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation; either version 2.1 of the License, or (at
+ * your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU Lesser
+ * General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this library; if not, write to the Free Software Foundation,
+ * Inc., 59 Temple Place, Suite 330, Boston, MA 02111-1307 USA
+ */
+
+package ucar.unidata.data.point;
+
+
+import ucar.unidata.geoloc.LatLonRect;
+
+import visad.CommonUnit;
+import visad.Data;
+import visad.Real;
+import visad.RealType;
+import visad.Text;
+import visad.Tuple;
+import visad.TupleType;
+import visad.Unit;
+
+import visad.data.text.TextAdapter;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+
+import java.text.ParsePosition;
+import java.text.SimpleDateFormat;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Date;
+import java.util.HashSet;
+import java.util.Hashtable;
+import java.util.List;
+import java.util.TimeZone;
+
+
+/**
+ * Reads the rows of a delimited text point file straight into primitive
+ * column arrays. The bytes of each line are tokenized in place and only the
+ * columns that are asked for are converted so we don't create a
+ * String or a Real for every cell. Rows outside of the bounding box are
+ * dropped as they are read.
+ * <p>
+ * The header is handed to a {@link TextAdapter} along with the first row so
+ * we get exactly the types and units the TextAdapter would have made. We
+ * then parse that row ourselves and check that we agree. If the header uses
+ * anything we don't handle (or we don't agree) {@link #read(InputStream)}
+ * returns false and the caller should go through the TextAdapter.
+ *
+ * @author IDV Development Team
+ */
+public class TextPointReader {
+
+    /** Size of the input buffer */
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    /** Initial number of rows we allocate for */
+    private static final int INITIAL_ROWS = 1024;
+
+    /** The param attributes we know how to handle */
+    private static final java.util.Set<String> KNOWN_ATTRS =
+        new HashSet<String>(Arrays.asList(new String[] {
+        "unit", "units", "missing", "fmt", "scale", "offset"
+    }));
+
+    /** The delimiter string */
+    private String delimiter;
+
+    /** The map. May be null if it is in the file */
+    private String map;
+
+    /** The params. May be null if they are in the file */
+    private String params;
+
+    /** Number of lines to skip at the start */
+    private int skipRows;
+
+    /** Properties for the TextAdapter */
+    private Hashtable dataProperties;
+
+    /** Names of the non-required columns to keep. null for all */
+    private java.util.Set<String> columns;
+
+    /** Bounding box to filter on. May be null */
+    private LatLonRect bbox;
+
+    /** The input */
+    private InputStream in;
+
+    /** Input buffer */
+    private byte[] buffer = new byte[BUFFER_SIZE];
+
+    /** Position in the buffer */
+    private int bufferPos = 0;
+
+    /** Number of bytes in the buffer */
+    private int bufferLen = 0;
+
+    /** The current line */
+    private byte[] line = new byte[1024];
+
+    /** Length of the current line */
+    private int lineLen = 0;
+
+    /** Token start offsets in the current line */
+    private int[] tokenStart = new int[64];
+
+    /** Token end offsets in the current line */
+    private int[] tokenEnd = new int[64];
+
+    /** Number of tokens in the current line */
+    private int numTokens = 0;
+
+    /** The first row as made by the TextAdapter */
+    private Data[] prototype;
+
+    /** The column spec for each component of the prototype */
+    private Column[] specs;
+
+    /** index of the latitude component */
+    private int latIndex = -1;
+
+    /** index of the longitude component */
+    private int lonIndex = -1;
+
+    /** index of the altitude component */
+    private int altIndex = -1;
+
+    /** index of the time component */
+    private int timeIndex = -1;
+
+    /** Unit of the latitude values */
+    private Unit latUnit;
+
+    /** Unit of the longitude values */
+    private Unit lonUnit;
+
+    /** Unit of the altitude values */
+    private Unit altUnit;
+
+    /** Unit of the time values. null if they are seconds */
+    private Unit timeUnit;
+
+    /** The non-required numeric components we keep */
+    private int[] realIndices;
+
+    /** The non-required text components we keep */
+    private int[] textIndices;
+
+    /** number of rows read */
+    private int count = 0;
+
+    /** latitudes (degrees) */
+    private double[] lats;
+
+    /** longitudes (degrees) */
+    private double[] lons;
+
+    /** altitudes (meters). null if there is no altitude */
+    private double[] alts;
+
+    /** times (seconds since the epoch). null if there is no time */
+    private double[] times;
+
+    /** The numeric values, in the units of the prototype */
+    private double[][] reals;
+
+    /** The text values */
+    private String[][] texts;
+
+    /**
+     * Create the reader
+     *
+     * @param delimiter The delimiter
+     * @param map The map. If null it is read from the file
+     * @param params The params. If null they are read from the file
+     * @param skipRows Number of lines to skip at the start
+     * @param dataProperties Properties for the TextAdapter. May be null
+     */
+    public TextPointReader(String delimiter, String map, String params,
+                           int skipRows, Hashtable dataProperties) {
+        this.delimiter      = delimiter;
+        this.map            = (((map != null) && (map.length() > 0))
+                               ? map
+                               : null);
+        this.params         = (((params != null) && (params.length() > 0))
+                               ? params
+                               : null);
+        this.skipRows       = skipRows;
+        this.dataProperties = dataProperties;
+    }
+
+    /**
+     * Only read the given non-required columns. Latitude, longitude,
+     * altitude and time are always read.
+     *
+     * @param names the column names. null to read all of them
+     */
+    public void setColumns(Collection<String> names) {
+        columns = ((names == null)
+                   ? null
+                   : new HashSet<String>(names));
+    }
+
+    /**
+     * Only keep the rows that fall in the given box
+     *
+     * @param bbox the box. May be null
+     */
+    public void setBounds(LatLonRect bbox) {
+        this.bbox = bbox;
+    }
+
+    /**
+     * Read the rows.
+     *
+     * @param is the input. This is not closed.
+     *
+     * @return false if we cannot handle this file and the caller needs
+     *         to use the TextAdapter. The input has been consumed.
+     *
+     * @throws Exception On badness
+     */
+    public boolean read(InputStream is) throws Exception {
+        if ((delimiter == null) || (delimiter.length() != 1)
+                || ((dataProperties != null) && !dataProperties.isEmpty())) {
+            return false;
+        }
+        in = is;
+        for (int i = 0; i < skipRows; i++) {
+            if ( !readLine()) {
+                return false;
+            }
+        }
+
+        String                mapSpec   = map;
+        String                paramSpec = params;
+        ByteArrayOutputStream sample    = new ByteArrayOutputStream();
+        boolean               haveRow   = false;
+        while (readLine()) {
+            if (isComment()) {
+                continue;
+            }
+            if (mapSpec == null) {
+                mapSpec = new String(line, 0, lineLen, "UTF-8");
+            } else if (paramSpec == null) {
+                paramSpec = new String(line, 0, lineLen, "UTF-8");
+            } else {
+                haveRow = true;
+            }
+            sample.write(line, 0, lineLen);
+            sample.write('\n');
+            if (haveRow) {
+                break;
+            }
+        }
+        if ( !haveRow) {
+            return false;
+        }
+
+        final List<Data[]> first = new ArrayList<Data[]>();
+        TextAdapter ta =
+            new TextAdapter(new ByteArrayInputStream(sample.toByteArray()),
+                            delimiter, map, params, dataProperties, true,
+                            null, new TextAdapter.StreamProcessor() {
+            public void processValues(Data[] values) {
+                if (first.isEmpty()) {
+                    first.add(values);
+                }
+            }
+        });
+        ta.getData();
+        if (first.isEmpty()) {
+            return false;
+        }
+        prototype = first.get(0);
+        if ( !initColumns(mapSpec, paramSpec) || !checkRow()) {
+            return false;
+        }
+
+        int rows = INITIAL_ROWS;
+        lats  = new double[rows];
+        lons  = new double[rows];
+        alts  = ((altIndex >= 0)
+                 ? new double[rows]
+                 : null);
+        times = ((timeIndex >= 0)
+                 ? new double[rows]
+                 : null);
+        reals = new double[realIndices.length][rows];
+        texts = new String[textIndices.length][rows];
+        addRow();
+        while (readLine()) {
+            if (isComment()) {
+                continue;
+            }
+            tokenize();
+            addRow();
+        }
+        trim(count);
+        return true;
+    }
+
+    /**
+     * Get the prototype row made by the TextAdapter
+     *
+     * @return the first row
+     */
+    public Data[] getPrototype() {
+        return prototype;
+    }
+
+    /**
+     * Get the index of the latitude component in the prototype
+     *
+     * @return latitude index
+     */
+    public int getLatIndex() {
+        return latIndex;
+    }
+
+    /**
+     * Get the index of the longitude component in the prototype
+     *
+     * @return longitude index
+     */
+    public int getLonIndex() {
+        return lonIndex;
+    }
+
+    /**
+     * Get the index of the altitude component in the prototype
+     *
+     * @return altitude index or -1
+     */
+    public int getAltIndex() {
+        return altIndex;
+    }
+
+    /**
+     * Get the index of the time component in the prototype
+     *
+     * @return time index or -1
+     */
+    public int getTimeIndex() {
+        return timeIndex;
+    }
+
+    /**
+     * Get the prototype indices of the numeric values we kept
+     *
+     * @return indices of the values in {@link #getReals()}
+     */
+    public int[] getRealIndices() {
+        return realIndices;
+    }
+
+    /**
+     * Get the prototype indices of the text values we kept
+     *
+     * @return indices of the values in {@link #getTexts()}
+     */
+    public int[] getTextIndices() {
+        return textIndices;
+    }
+
+    /**
+     * Get the number of rows read
+     *
+     * @return the row count
+     */
+    public int getCount() {
+        return count;
+    }
+
+    /**
+     * Get the latitudes
+     *
+     * @return the latitudes in degrees
+     */
+    public double[] getLatitudes() {
+        return lats;
+    }
+
+    /**
+     * Get the longitudes
+     *
+     * @return the longitudes in degrees
+     */
+    public double[] getLongitudes() {
+        return lons;
+    }
+
+    /**
+     * Get the altitudes
+     *
+     * @return the altitudes in meters or null if there are none
+     */
+    public double[] getAltitudes() {
+        return alts;
+    }
+
+    /**
+     * Get the times
+     *
+     * @return seconds since the epoch or null if there is no time
+     */
+    public double[] getTimes() {
+        return times;
+    }
+
+    /**
+     * Get the numeric values. These are in the units of the prototype.
+     *
+     * @return values[column][row]
+     */
+    public double[][] getReals() {
+        return reals;
+    }
+
+    /**
+     * Get the text values
+     *
+     * @return values[column][row]
+     */
+    public String[][] getTexts() {
+        return texts;
+    }
+
+    /**
+     * Figure out which column each component of the prototype comes from
+     *
+     * @param mapSpec the map
+     * @param paramSpec the params
+     *
+     * @return false if there is something we can't handle
+     *
+     * @throws Exception On badness
+     */
+    private boolean initColumns(String mapSpec, String paramSpec)
+            throws Exception {
+        int arrow = mapSpec.indexOf("->");
+        if ((arrow < 0)
+                || !mapSpec.substring(0, arrow).trim().equals("(index)")) {
+            return false;
+        }
+        String range = mapSpec.substring(arrow + 2).trim();
+        if (range.startsWith("(") && range.endsWith(")")) {
+            range = range.substring(1, range.length() - 1);
+        }
+        String[] names = range.split(",");
+        if (names.length != prototype.length) {
+            return false;
+        }
+
+        List<Column> columnList = new ArrayList<Column>();
+        for (String param : splitParams(paramSpec)) {
+            Column column = parseParam(param);
+            if (column == null) {
+                return false;
+            }
+            column.index = columnList.size();
+            columnList.add(column);
+        }
+
+        TupleType type = Tuple.buildTupleType(prototype);
+        specs = new Column[prototype.length];
+        for (int i = 0; i < names.length; i++) {
+            String name = cleanName(names[i]);
+            for (Column column : columnList) {
+                if ( !column.name.equals(name)) {
+                    continue;
+                }
+                if (specs[i] != null) {
+                    //Multiple columns make up this one (e.g., date and time)
+                    return false;
+                }
+                specs[i] = column;
+            }
+            if (specs[i] == null) {
+                return false;
+            }
+            if ((specs[i].format != null)
+                    && !(prototype[i] instanceof Real)) {
+                return false;
+            }
+        }
+
+        int[] latLonAlt = TextPointDataSource.findLatLonAltIndices(type);
+        latIndex  = latLonAlt[0];
+        lonIndex  = latLonAlt[1];
+        altIndex  = latLonAlt[2];
+        timeIndex = TextPointDataSource.findTimeIndex(type);
+        if ((latIndex < 0) || (lonIndex < 0)
+                || !(prototype[latIndex] instanceof Real)
+                || !(prototype[lonIndex] instanceof Real)
+                || ((altIndex >= 0) && !(prototype[altIndex] instanceof Real))
+                || ((timeIndex >= 0)
+                    && !(prototype[timeIndex] instanceof Real))) {
+            return false;
+        }
+        latUnit = ((Real) prototype[latIndex]).getUnit();
+        lonUnit = ((Real) prototype[lonIndex]).getUnit();
+        if (altIndex >= 0) {
+            altUnit = ((Real) prototype[altIndex]).getUnit();
+        }
+        if ((timeIndex >= 0) && (specs[timeIndex].format == null)) {
+            timeUnit = ((Real) prototype[timeIndex]).getUnit();
+        }
+
+        List<Integer> realList = new ArrayList<Integer>();
+        List<Integer> textList = new ArrayList<Integer>();
+        for (int i = 0; i < prototype.length; i++) {
+            if ((i == latIndex) || (i == lonIndex) || (i == altIndex)
+                    || (i == timeIndex)) {
+                continue;
+            }
+            boolean isReal = prototype[i] instanceof Real;
+            if ( !isReal && !(prototype[i] instanceof Text)) {
+                return false;
+            }
+            if ((columns != null)
+                    && !columns.contains(cleanName(names[i]))) {
+                continue;
+            }
+            if (isReal) {
+                realList.add(i);
+            } else {
+                textList.add(i);
+            }
+        }
+        realIndices = toArray(realList);
+        textIndices = toArray(textList);
+        return true;
+    }
+
+    /**
+     * Parse the current line and check that we get the same values as
+     * the TextAdapter did
+     *
+     * @return true if they match
+     *
+     * @throws Exception On badness
+     */
+    private boolean checkRow() throws Exception {
+        tokenize();
+        for (int i = 0; i < prototype.length; i++) {
+            if (prototype[i] instanceof Text) {
+                if ( !((Text) prototype[i]).getValue().equals(
+                        getText(specs[i]))) {
+                    return false;
+                }
+                continue;
+            }
+            Real   real     = (Real) prototype[i];
+            double expected = real.getValue();
+            double value    = getValue(specs[i]);
+            if ((specs[i].format != null) && (real.getUnit() != null)) {
+                expected = real.getValue(CommonUnit.secondsSinceTheEpoch);
+            }
+            if (Double.isNaN(expected) != Double.isNaN(value)) {
+                return false;
+            }
+            if ( !Double.isNaN(expected)
+                    && (Math.abs(expected - value)
+                        > 1.0e-6 * Math.max(1, Math.abs(expected)))) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Add the current line to the columns if it is in the bounding box
+     *
+     * @throws Exception On badness
+     */
+    private void addRow() throws Exception {
+        double lat = toUnit(getValue(specs[latIndex]), latUnit,
+                            RealType.Latitude.getDefaultUnit());
+        double lon = toUnit(getValue(specs[lonIndex]), lonUnit,
+                            RealType.Longitude.getDefaultUnit());
+        if ((bbox != null) && !bbox.contains(lat, lon)) {
+            return;
+        }
+        if (count == lats.length) {
+            trim(count + count / 2);
+        }
+        lats[count] = lat;
+        lons[count] = lon;
+        if (alts != null) {
+            alts[count] = toUnit(getValue(specs[altIndex]), altUnit,
+                                 RealType.Altitude.getDefaultUnit());
+        }
+        if (times != null) {
+            times[count] = toUnit(getValue(specs[timeIndex]), timeUnit,
+                                  CommonUnit.secondsSinceTheEpoch);
+        }
+        for (int i = 0; i < realIndices.length; i++) {
+            reals[i][count] = getValue(specs[realIndices[i]]);
+        }
+        for (int i = 0; i < textIndices.length; i++) {
+            texts[i][count] = getText(specs[textIndices[i]]);
+        }
+        count++;
+    }
+
+    /**
+     * Resize the column arrays
+     *
+     * @param size new size
+     */
+    private void trim(int size) {
+        lats = Arrays.copyOf(lats, size);
+        lons = Arrays.copyOf(lons, size);
+        if (alts != null) {
+            alts = Arrays.copyOf(alts, size);
+        }
+        if (times != null) {
+            times = Arrays.copyOf(times, size);
+        }
+        for (int i = 0; i < reals.length; i++) {
+            reals[i] = Arrays.copyOf(reals[i], size);
+        }
+        for (int i = 0; i < texts.length; i++) {
+            texts[i] = Arrays.copyOf(texts[i], size);
+        }
+    }
+
+    /**
+     * Convert the value
+     *
+     * @param value the value
+     * @param from its unit. May be null
+     * @param to the unit we want
+     *
+     * @return the converted value
+     *
+     * @throws Exception On badness
+     */
+    private static double toUnit(double value, Unit from, Unit to)
+            throws Exception {
+        if ((from == null) || from.equals(to)) {
+            return value;
+        }
+        return from.toThat(value, to);
+    }
+
+    /**
+     * Get the numeric value of the column in the current line
+     *
+     * @param column the column
+     *
+     * @return the value. NaN if missing.
+     */
+    private double getValue(Column column) {
+        if (column.index >= numTokens) {
+            return Double.NaN;
+        }
+        int start = tokenStart[column.index];
+        int end   = tokenEnd[column.index];
+        if (column.format != null) {
+            return column.parseTime(line, start, end);
+        }
+        double value = parseDouble(line, start, end);
+        if (value == column.missing) {
+            return Double.NaN;
+        }
+        return value * column.scale + column.offset;
+    }
+
+    /**
+     * Get the text value of the column in the current line
+     *
+     * @param column the column
+     *
+     * @return the text
+     *
+     * @throws IOException On badness
+     */
+    private String getText(Column column) throws IOException {
+        if (column.index >= numTokens) {
+            return "";
+        }
+        return new String(line, tokenStart[column.index],
+                          tokenEnd[column.index] - tokenStart[column.index],
+                          "UTF-8");
+    }
+
+    /**
+     * Parse a number. The common cases are done here and anything else
+     * goes to Double.parseDouble.
+     *
+     * @param bytes the bytes
+     * @param start start offset
+     * @param end end offset
+     *
+     * @return the value or NaN if it is not a number
+     */
+    static double parseDouble(byte[] bytes, int start, int end) {
+        int     i        = start;
+        boolean negative = false;
+        if ((i < end) && ((bytes[i] == '-') || (bytes[i] == '+'))) {
+            negative = bytes[i] == '-';
+            i++;
+        }
+        long    mantissa = 0;
+        int     numeric  = 0;
+        int     digits   = 0;
+        int     scale    = 0;
+        boolean seenDot  = false;
+        boolean ok       = true;
+        for (; i < end; i++) {
+            byte b = bytes[i];
+            if ((b >= '0') && (b <= '9')) {
+                if ((mantissa != 0) || (b != '0')) {
+                    digits++;
+                }
+                mantissa = mantissa * 10 + (b - '0');
+                numeric++;
+                if (seenDot) {
+                    scale++;
+                }
+            } else if ((b == '.') && !seenDot) {
+                seenDot = true;
+            } else {
+                ok = false;
+                break;
+            }
+        }
+        //Only use the fast path when the result is exactly rounded
+        if (ok && (numeric > 0) && (digits <= 15)
+                && (scale < POWERS_OF_TEN.length)) {
+            double value = mantissa / POWERS_OF_TEN[scale];
+            return negative
+                   ? -value
+                   : value;
+        }
+        try {
+            return Double.parseDouble(new String(bytes, start, end - start,
+                    "ISO-8859-1"));
+        } catch (Exception exc) {
+            return Double.NaN;
+        }
+    }
+
+    /** Powers of ten that are exact as doubles */
+    private static final double[] POWERS_OF_TEN = {
+        1e0, 1e1, 1e2, 1e3, 1e4, 1e5, 1e6, 1e7, 1e8, 1e9, 1e10, 1e11, 1e12,
+        1e13, 1e14, 1e15, 1e16, 1e17, 1e18, 1e19, 1e20, 1e21, 1e22
+    };
+
+    /**
+     * Split the current line into tokens. Leading and trailing blanks and
+     * surrounding quotes are removed. A blank delimiter matches any run
+     * of blanks and tabs.
+     */
+    private void tokenize() {
+        byte    delim = (byte) delimiter.charAt(0);
+        boolean blank = (delim == ' ');
+        numTokens = 0;
+        int i = 0;
+        if (blank) {
+            while ((i < lineLen) && isBlank(line[i])) {
+                i++;
+            }
+        }
+        while (i <= lineLen) {
+            while ((i < lineLen) && isBlank(line[i]) && !blank) {
+                i++;
+            }
+            int start = i;
+            if ((i < lineLen) && (line[i] == '"')) {
+                //Quoted token
+                int close = i + 1;
+                while ((close < lineLen) && (line[close] != '"')) {
+                    close++;
+                }
+                start = i + 1;
+                i     = close;
+                addToken(start, i);
+                while ((i < lineLen) && (line[i] != delim)
+                        && !(blank && isBlank(line[i]))) {
+                    i++;
+                }
+            } else {
+                while ((i < lineLen) && (line[i] != delim)
+                        && !(blank && isBlank(line[i]))) {
+                    i++;
+                }
+                addToken(start, i);
+            }
+            if (i >= lineLen) {
+                break;
+            }
+            i++;
+            if (blank) {
+                while ((i < lineLen) && isBlank(line[i])) {
+                    i++;
+                }
+                if (i >= lineLen) {
+                    break;
+                }
+            }
+        }
+    }
+
+    /**
+     * Add a token, trimming any blanks
+     *
+     * @param start start offset
+     * @param end end offset
+     */
+    private void addToken(int start, int end) {
+        while ((start < end) && isBlank(line[start])) {
+            start++;
+        }
+        while ((end > start) && isBlank(line[end - 1])) {
+            end--;
+        }
+        if (numTokens == tokenStart.length) {
+            tokenStart = Arrays.copyOf(tokenStart, numTokens * 2);
+            tokenEnd   = Arrays.copyOf(tokenEnd, numTokens * 2);
+        }
+        tokenStart[numTokens] = start;
+        tokenEnd[numTokens]   = end;
+        numTokens++;
+    }
+
+    /**
+     * Is the byte a blank or tab
+     *
+     * @param b the byte
+     *
+     * @return true if blank
+     */
+    private static boolean isBlank(byte b) {
+        return (b == ' ') || (b == '\t');
+    }
+
+    /**
+     * Is the current line empty or a comment
+     *
+     * @return true if we should skip it
+     */
+    private boolean isComment() {
+        for (int i = 0; i < lineLen; i++) {
+            if ( !isBlank(line[i])) {
+                return line[i] == '#';
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Read the next line into the line buffer. Handles \n, \r and \r\n.
+     *
+     * @return false if at the end of the input
+     *
+     * @throws IOException On badness
+     */
+    private boolean readLine() throws IOException {
+        lineLen = 0;
+        boolean sawAny = false;
+        while (true) {
+            if (bufferPos >= bufferLen) {
+                bufferLen = in.read(buffer, 0, buffer.length);
+                bufferPos = 0;
+                if (bufferLen <= 0) {
+                    bufferLen = 0;
+                    return sawAny;
+                }
+            }
+            byte b = buffer[bufferPos++];
+            sawAny = true;
+            if (b == '\n') {
+                return true;
+            }
+            if (b == '\r') {
+                if (bufferPos >= bufferLen) {
+                    bufferLen = in.read(buffer, 0, buffer.length);
+                    bufferPos = 0;
+                    if (bufferLen <= 0) {
+                        bufferLen = 0;
+                        return true;
+                    }
+                }
+                if (buffer[bufferPos] == '\n') {
+                    bufferPos++;
+                }
+                return true;
+            }
+            if (lineLen == line.length) {
+                line = Arrays.copyOf(line, lineLen * 2);
+            }
+            line[lineLen++] = b;
+        }
+    }
+
+    /**
+     * Split the params on the commas that are not inside of brackets or
+     * quotes
+     *
+     * @param paramSpec the params
+     *
+     * @return the individual params
+     */
+    private static List<String> splitParams(String paramSpec) {
+        List<String> result  = new ArrayList<String>();
+        int          depth   = 0;
+        boolean      inQuote = false;
+        int          start   = 0;
+        for (int i = 0; i < paramSpec.length(); i++) {
+            char c = paramSpec.charAt(i);
+            if (c == '"') {
+                inQuote = !inQuote;
+            } else if ( !inQuote && (c == '[')) {
+                depth++;
+            } else if ( !inQuote && (c == ']')) {
+                depth--;
+            } else if ( !inQuote && (depth == 0) && (c == ',')) {
+                result.add(paramSpec.substring(start, i).trim());
+                start = i + 1;
+            }
+        }
+        result.add(paramSpec.substring(start).trim());
+        return result;
+    }
+
+    /**
+     * Parse one param, e.g., <code>T[unit="C" missing="-999"]</code>
+     *
+     * @param param the param
+     *
+     * @return the column or null if there is something we can't handle
+     */
+    private static Column parseParam(String param) {
+        Column column  = new Column();
+        int    bracket = param.indexOf('[');
+        column.name = cleanName((bracket < 0)
+                                ? param
+                                : param.substring(0, bracket));
+        if (bracket < 0) {
+            return column;
+        }
+        int close = param.lastIndexOf(']');
+        if (close < bracket) {
+            return null;
+        }
+        String attrs = param.substring(bracket + 1, close).trim();
+        int    i     = 0;
+        while (i < attrs.length()) {
+            int eq = attrs.indexOf('=', i);
+            if (eq < 0) {
+                return null;
+            }
+            String name = attrs.substring(i, eq).trim().toLowerCase();
+            int    valueStart = eq + 1;
+            while ((valueStart < attrs.length())
+                    && (attrs.charAt(valueStart) == ' ')) {
+                valueStart++;
+            }
+            String value;
+            if ((valueStart < attrs.length())
+                    && (attrs.charAt(valueStart) == '"')) {
+                int endQuote = attrs.indexOf('"', valueStart + 1);
+                if (endQuote < 0) {
+                    return null;
+                }
+                value = attrs.substring(valueStart + 1, endQuote);
+                i     = endQuote + 1;
+            } else {
+                int end = valueStart;
+                while ((end < attrs.length()) && (attrs.charAt(end) != ' ')) {
+                    end++;
+                }
+                value = attrs.substring(valueStart, end);
+                i     = end;
+            }
+            while ((i < attrs.length())
+                    && ((attrs.charAt(i) == ' ')
+                        || (attrs.charAt(i) == ','))) {
+                i++;
+            }
+            if ( !KNOWN_ATTRS.contains(name)) {
+                return null;
+            }
+            try {
+                if (name.equals("missing")) {
+                    column.missing = Double.parseDouble(value.trim());
+                } else if (name.equals("scale")) {
+                    column.scale = Double.parseDouble(value.trim());
+                } else if (name.equals("offset")) {
+                    column.offset = Double.parseDouble(value.trim());
+                } else if (name.equals("fmt")) {
+                    column.setFormat(value);
+                }
+            } catch (Exception exc) {
+                return null;
+            }
+        }
+        return column;
+    }
+
+    /**
+     * Strip the (Text) suffix and blanks from a name
+     *
+     * @param name the name
+     *
+     * @return the clean name
+     */
+    private static String cleanName(String name) {
+        name = name.trim();
+        if (name.endsWith("(Text)")) {
+            name = name.substring(0, name.length() - 6).trim();
+        }
+        return name;
+    }
+
+    /**
+     * Convert the list to an array
+     *
+     * @param list the list
+     *
+     * @return the array
+     */
+    private static int[] toArray(List<Integer> list) {
+        int[] result = new int[list.size()];
+        for (int i = 0; i < result.length; i++) {
+            result[i] = list.get(i).intValue();
+        }
+        return result;
+    }
+
+
+    /**
+     * Holds how to read one column
+     */
+    private static class Column {
+
+        /** The name */
+        String name;
+
+        /** The token index in the line */
+        int index;
+
+        /** The missing value */
+        double missing = Double.NaN;
+
+        /** The scale */
+        double scale = 1;
+
+        /** The offset */
+        double offset = 0;
+
+        /** The date format. null if not a formatted date */
+        SimpleDateFormat format;
+
+        /** The last date string we parsed */
+        byte[] lastDate;
+
+        /** Length of the last date string */
+        int lastDateLength = -1;
+
+        /** The last date value */
+        double lastTime;
+
+        /**
+         * Set the date format
+         *
+         * @param fmt the format
+         */
+        void setFormat(String fmt) {
+            format = new SimpleDateFormat(fmt);
+            format.setTimeZone(TimeZone.getTimeZone("GMT"));
+            lastDate = new byte[32];
+        }
+
+        /**
+         * Parse the date. Rows are often in time order so we keep
+         * the last one around.
+         *
+         * @param bytes the line
+         * @param start start offset
+         * @param end end offset
+         *
+         * @return seconds since the epoch or NaN
+         */
+        double parseTime(byte[] bytes, int start, int end) {
+            int length = end - start;
+            if ((length == lastDateLength)) {
+                boolean same = true;
+                for (int i = 0; i < length; i++) {
+                    if (lastDate[i] != bytes[start + i]) {
+                        same = false;
+                        break;
+                    }
+                }
+                if (same) {
+                    return lastTime;
+                }
+            }
+            String s = new String(bytes, start, length);
+            Date   date = format.parse(s, new ParsePosition(0));
+            lastTime = ((date == null)
+                        ? Double.NaN
+                        : date.getTime() / 1000.0);
+            if (lastDate.length < length) {
+                lastDate = new byte[length];
+            }
+            System.arraycopy(bytes, start, lastDate, 0, length);
+            lastDateLength = length;
+            return lastTime;
+        }
+    }
+
+}
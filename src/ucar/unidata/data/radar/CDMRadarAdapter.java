@@ -69,6 +69,7 @@ import java.io.IOException;
 import java.rmi.RemoteException;
 
 import java.util.*;
+import java.util.concurrent.Callable;
 
 
 /**
@@ -959,56 +960,31 @@ public class CDMRadarAdapter implements RadarAdapter {
 
         /* using sw0 information to construct the CAPPI*/
 
-        int                      numSweep   = cut.length;
+        final int                numSweep   = cut.length;
         int                      swIdx      = numSweep - 1;
         RadialDatasetSweep.Sweep sw0        = sweepVar.getSweep(swIdx);
-        int                      numRay     = 360;
-        int                      numBin     = getGateNumber(sweepVar);
+        final int                numRay     = 360;
+        final int                numBin     = getGateNumber(sweepVar);
         int                      numberOfRay = getRayNumber(sweepVar);
         float                    beamWidth  = sw0.getBeamWidth();
-        float                    gateSize   = sw0.getGateSize();
+        final float              gateSize   = sw0.getGateSize();
         float                    range_step = sw0.getGateSize();
-        float range_to_first_gate           = sw0.getRangeToFirstGate();
+        final float range_to_first_gate     = sw0.getRangeToFirstGate();
 
-        // now get the hash map for each sweep contain azi as index and ray information.
-        Trace.call1("   sweep list");
-        if (RSL_sweep_list == null) {
-            RSL_sweep_list = new CDMRadarSweepDB[numSweep];
-
-            float[][] myAziArray  = new float[numSweep][];
-            int[][]   aziArrayIdx = new int[numSweep][];
-            for (int b = 0; b < numSweep; b++) {
-                int sb = Integer.parseInt(cut[b].toString());
-                RadialDatasetSweep.Sweep s1    = sweepVar.getSweep(sb);
-                float[]                  tmpAz;
-                if (format != null && format.toString().contains("AR2V"))
-                    tmpAz =  getAzimuth(s1);
-                else
-                    tmpAz =  s1.getAzimuth();
-
-                myAziArray[b]  = tmpAz.clone();
-                aziArrayIdx[b] = QuickSort.sort(myAziArray[b]);
-                if (s1.getRadialNumber() < numberOfRay)
-                    numberOfRay = s1.getRadialNumber();
-            }
-            for (int b = 0; b < numSweep; b++) {
-                //   RadialDatasetSweep.Sweep s1 = sweepVar.getSweep(b);
-                RSL_sweep_list[b] = constructSweepHashTable(myAziArray[b],
-                        aziArrayIdx[b], beamWidth);
+        for (int b = 0; b < numSweep; b++) {
+            int sb = Integer.parseInt(cut[b].toString());
+            RadialDatasetSweep.Sweep s1 = sweepVar.getSweep(sb);
+            if (s1.getRadialNumber() < numberOfRay) {
+                numberOfRay = s1.getRadialNumber();
             }
         }
-        Trace.call2("   sweep list");
-
-        // setting cappi azi value for each ray.
-        float[] az = new float[numRay];
-        for (int i = 0; i < numRay; i++) {
-            az[i] = i;
-        }
 
-        int rayNum = getRayNumber(sweepVar);
+        // map each degree of azimuth to a ray in each sweep
+        Trace.call1("   sweep list");
         if (rayIndex == null) {
-            rayIndex = getRayIndex(sweepVar, az, numRay);
+            rayIndex = getRayIndex(sweepVar);
         }
+        Trace.call2("   sweep list");
 
         if (rayData == null) {
             rayData = getRayData(sweepVar, numberOfRay, numBin);
@@ -1017,97 +993,99 @@ public class CDMRadarAdapter implements RadarAdapter {
             }
         }
 
-        /* Calculate elevation angle verse range array */
-        float[][] slantrElev = new float[numBin][2];
-        float     ht         = (float) level.getValue() / 1000.0f;
-        for (int a = 0; a < numBin; a++) {
-            float grange = (range_to_first_gate + (a * range_step)) / 1000.f;
-            slantrElev[a] = getSlantrAndElev(grange, ht);
-        }
-
-        float[]   cappiAz    = new float[numRay];
-        float[][] cappiValue = new float[numBin][numRay];
-
-
-        double[]  ranges     = new double[numBin];
-
-        // get the closest sweep index for each bin
-        int[] sweepI = new int[numBin];
-        for (int b = 0; b < numBin; b++) {
-            sweepI[b] = getClosestSweepIndex(slantrElev[b][1],
-                                             beamWidth / 2.f);
-        }
-
-
-        // ranges for cappi
-        ranges[0] = (range_to_first_gate + range_step / 2);
-        for (int i = 1; i < numBin; i++) {
-            ranges[i] = ranges[i - 1] + range_step;
+        // the bin geometry only depends on the scan pattern so it is
+        // shared with other volumes
+        CDMRadarSweepGeometry geometry = getSweepGeometry(sweepVar,
+                                             beamWidth, numRay, numBin,
+                                             range_to_first_gate,
+                                             range_step);
+        float ht = (float) level.getValue() / 1000.0f;
+        CDMRadarSweepGeometry.CappiLevel cappiLevel =
+            geometry.getCappiLevel(ht);
+        if (cappiLevel == null) {
+            /* Calculate elevation angle verse range array */
+            float[] slantRanges = new float[numBin];
+            int[]   sweepI      = new int[numBin];
+            for (int a = 0; a < numBin; a++) {
+                float grange = (range_to_first_gate + (a * range_step))
+                               / 1000.f;
+                float[] slantrElev = getSlantrAndElev(grange, ht);
+                slantRanges[a] = slantrElev[0];
+                // get the closest sweep index for each bin
+                sweepI[a] = geometry.getClosestSweep(slantrElev[1],
+                        beamWidth / 2.f);
+            }
+            cappiLevel = new CDMRadarSweepGeometry.CappiLevel(slantRanges,
+                    sweepI);
+            geometry.putCappiLevel(ht, cappiLevel);
         }
 
         Trace.call1("   get cappi value");
 
-
-        //   if (cutmap == null) {
-        cutmap = new HashMap();
-        for (int b = 0; b < numSweep; b++) {
-            int sb = Integer.parseInt(cut[b].toString());
-            cutmap.put(sb, b);
-        }
-        //   }
-        // get the cappi value for each ray and bin
-        for (int a = 0; a < numRay; a++) {
-            float azi = az[a];  //sw0.getAzimuth(a);
-            cappiAz[a] = azi;
-
-            for (int b = 0; b < numBin; b++) {
-                int swIndex = sweepI[b];
-                if ((swIndex == 999) || !cutmap.containsKey(swIndex)) {
-                    cappiValue[b][a] = Float.NaN;
-                } else {
-                    int cutIdx =
-                        Integer.parseInt(cutmap.get(swIndex).toString());
-                    int rayIndx = rayIndex[cutIdx][a];
-                    if ((rayIndx == 999) || (rayIndx >= numberOfRay)) {
-                        cappiValue[b][a] = Float.NaN;
-                    } else {
-                        float[] rdata = rayData[cutIdx][rayIndx];
-                        cappiValue[b][a] = getValueFromRay(rdata,
-                                slantrElev[b][0], gateSize,
-                                range_to_first_gate);
+        final float[]     slantRanges = cappiLevel.getSlantRanges();
+        final int[]       sweepI      = cappiLevel.getSweeps();
+        final int[][]     rIndex      = rayIndex;
+        final float[][][] rData       = rayData;
+        final int         maxRay      = numberOfRay;
+        final float[][]   signalVals  = new float[1][numBin * numRay];
+
+        // get the cappi value for each ray and bin, a sector of rays at a time
+        fillSectors(numRay, new SectorFiller() {
+            public void fill(int firstRay, int lastRay) {
+                float[] values = signalVals[0];
+                for (int a = firstRay; a < lastRay; a++) {
+                    int k = a * numBin;
+                    for (int b = 0; b < numBin; b++, k++) {
+                        int cutIdx = sweepI[b];
+                        if (cutIdx >= numSweep) {
+                            values[k] = Float.NaN;
+                            continue;
+                        }
+                        int rayIndx = rIndex[cutIdx][a];
+                        if (rayIndx >= maxRay) {
+                            values[k] = Float.NaN;
+                        } else {
+                            values[k] = getValueFromRay(rData[cutIdx][rayIndx],
+                                    slantRanges[b], gateSize,
+                                    range_to_first_gate);
+                        }
                     }
                 }
-
             }
-        }
+        });
         Trace.call2("   get cappi value");
 
-        // int[]     sortedAzs  = QuickSort.sort(cappiAz);
-
-        float[][] domainVals = new float[2][numBin * numRay];
-        float[][] signalVals = new float[1][numBin * numRay];
-        int       k          = 0;
-
-        for (int azi = 0; azi < numRay; azi++) {
-            for (int ri = 0; ri < numBin; ri++) {
-                domainVals[0][k] = (float) ranges[ri];
-                domainVals[1][k] = cappiAz[azi];
-                signalVals[0][k] = cappiValue[ri][azi];
-                k++;
+        Trace.call1("   make field");
+        GriddedSet set = geometry.getCappiDomain();
+        if (set == null) {
+            double[] ranges = new double[numBin];
+            // ranges for cappi
+            ranges[0] = (range_to_first_gate + range_step / 2);
+            for (int i = 1; i < numBin; i++) {
+                ranges[i] = ranges[i - 1] + range_step;
             }
-        }
 
+            float[][] domainVals = new float[2][numBin * numRay];
+            int       k          = 0;
+            for (int azi = 0; azi < numRay; azi++) {
+                for (int ri = 0; ri < numBin; ri++) {
+                    domainVals[0][k] = (float) ranges[ri];
+                    domainVals[1][k] = azi;
+                    k++;
+                }
+            }
 
-        Trace.call1("   make field");
-        radarDomain2d = makeDomainType2D();
+            RealTupleType tt = makeDomainType2D();
+            set = new Gridded2DSet(tt, domainVals, numBin, numRay,
+                                   tt.getCoordinateSystem(),
+                                   new Unit[] { CommonUnit.meter.scale(1),
+                    CommonUnit.degree }, null, false, true);
+            geometry.setCappiDomain(set);
+        }
+        radarDomain2d = ((SetType) set.getType()).getDomain();
 
         RealTupleType tt = radarDomain2d;
-        GriddedSet set = new Gridded2DSet(tt, domainVals, numBin, numRay,
-                                          tt.getCoordinateSystem(),
-                                          new Unit[] {
-                                              CommonUnit.meter.scale(1),
-                CommonUnit.degree }, null, false, true);
-        Unit u = getUnit(sweepVar);
+        Unit          u  = getUnit(sweepVar);
         FunctionType sweepType = new FunctionType(tt,
                                      getMomentType(varName, u));
         FlatField ff = new FlatField(sweepType, set, (CoordinateSystem) null,
@@ -1197,17 +1175,17 @@ public class CDMRadarAdapter implements RadarAdapter {
      * setting the index for each ray and bin of cappi
      *
      * @param sweepVar sweep variable
-     * @param az cappi azimuth array
-     * @param numRay number of radial
      *
-     * @return index
+     * @return index of the ray for each degree of azimuth in each sweep
+     *
+     * @throws IOException problem reading the azimuths
      */
-    int[][] getRayIndex(RadialDatasetSweep.RadialVariable sweepVar,
-                        float[] az, int numRay) {
+    int[][] getRayIndex(RadialDatasetSweep.RadialVariable sweepVar)
+            throws IOException {
 
         Object[] cut      = getCutIdx(sweepVar);
         int      numSweep = cut.length;
-        int[][]  rIndex   = new int[numSweep][360];
+        int[][]  rIndex   = new int[numSweep][];
         meanEle = new float[numSweep];
 
         //  calc the true value of index
@@ -1215,20 +1193,109 @@ public class CDMRadarAdapter implements RadarAdapter {
             int swIndex = Integer.parseInt(cut[sIndex].toString());
             RadialDatasetSweep.Sweep s1 = sweepVar.getSweep(swIndex);
             meanEle[sIndex] = s1.getMeanElevation();
-            CDMRadarSweepDB sweepTable = RSL_sweep_list[sIndex];
-            float beamWidth = s1.getBeamWidth();
-            //
+            rIndex[sIndex] =
+                CDMRadarSweepGeometry.makeRayIndex(getSweepAzimuths(s1),
+                    s1.getBeamWidth());
+        }
 
-            for (int i = 0; i < 360; i++) {
-                float azi = az[i];
-                CDMRadarSweepDB.Ray r = hashBin(sweepTable, azi, az.length, beamWidth);
-                int   ii  = r.rayIndex;
-                rIndex[sIndex][i] = ii;
-            }
+        return rIndex;
+    }
+
+    /**
+     * Get the azimuths of a sweep. For level II data this is every
+     * other azimuth of a super resolution sweep.
+     *
+     * @param s1 the sweep
+     *
+     * @return the azimuths
+     *
+     * @throws IOException problem reading the azimuths
+     */
+    private float[] getSweepAzimuths(RadialDatasetSweep.Sweep s1)
+            throws IOException {
+        if ((format != null) && format.toString().contains("AR2V")) {
+            return getAzimuth(s1);
+        }
+        return s1.getAzimuth();
+    }
 
+    /**
+     * Get the shared geometry for the sweeps of a variable
+     *
+     * @param sweepVar sweep variable
+     * @param beamWidth beam width
+     * @param numRay number of rays
+     * @param numBin number of gates
+     * @param rangeToFirstGate range to the first gate (m)
+     * @param gateSize gate size (m)
+     *
+     * @return the geometry
+     */
+    private CDMRadarSweepGeometry getSweepGeometry(
+            RadialDatasetSweep.RadialVariable sweepVar, float beamWidth,
+            int numRay, int numBin, float rangeToFirstGate,
+            float gateSize) {
+        Object[] cut        = getCutIdx(sweepVar);
+        float[]  elevations = new float[cut.length];
+        for (int b = 0; b < cut.length; b++) {
+            int sb = Integer.parseInt(cut[b].toString());
+            elevations[b] = sweepVar.getSweep(sb).getMeanElevation();
         }
+        return CDMRadarSweepGeometry.getGeometry(stationID + " "
+                + radarLocation, vcp, elevations, beamWidth, numRay,
+                                 numBin, rangeToFirstGate, gateSize);
+    }
 
-        return rIndex;
+    /**
+     * Fills in the values for a range of the 0-359 degree rays
+     */
+    private interface SectorFiller {
+
+        /**
+         * Fill in the values for the rays
+         *
+         * @param firstRay first ray
+         * @param lastRay one past the last ray
+         *
+         * @throws Exception problem filling in the values
+         */
+        public void fill(int firstRay, int lastRay) throws Exception;
+    }
+
+    /**
+     * Split the rays into azimuth sectors and fill each of them in
+     * the {@link ComputePool}
+     *
+     * @param numRay number of rays
+     * @param filler fills in a sector. This is called from several
+     *               threads at once
+     *
+     * @throws VisADException problem filling in the values
+     * @throws IOException problem reading data
+     */
+    private static void fillSectors(int numRay, final SectorFiller filler)
+            throws VisADException, IOException {
+        int sectors = Math.max(1,
+                               Math.min(numRay,
+                                        ComputePool.getMaxThreads()));
+        List<Callable<Object>> tasks = new ArrayList<Callable<Object>>();
+        for (int i = 0; i < sectors; i++) {
+            final int firstRay = i * numRay / sectors;
+            final int lastRay  = (i + 1) * numRay / sectors;
+            tasks.add(new Callable<Object>() {
+                public Object call() throws Exception {
+                    filler.fill(firstRay, lastRay);
+                    return null;
+                }
+            });
+        }
+        try {
+            ComputePool.invokeAll(tasks);
+        } catch (VisADException | IOException | RuntimeException exc) {
+            throw exc;
+        } catch (Exception exc) {
+            throw new VisADException(exc.toString());
+        }
     }
 
 
@@ -1659,7 +1726,6 @@ public class CDMRadarAdapter implements RadarAdapter {
 
         /* range_bin1 is range to center of first bin */
         bin_index = (int) (((rm - rangeToFirstGate) / gate_size) + 0.5);
-        float[] data = new float[nbins];
         /* Bin indexes go from 0 to nbins - 1 */
         if ((bin_index >= nbins) || (bin_index < 0)) {
             return Float.NaN;
@@ -2718,44 +2784,11 @@ public class CDMRadarAdapter implements RadarAdapter {
         double[][] ranges      = new double[numberOfSweeps][bincounter];
         int        tiltcounter = 0;
 
-        if (RSL_sweep_list == null) {
-            RSL_sweep_list = new CDMRadarSweepDB[numberOfSweeps];
-            float[][] myAziArray  = new float[numberOfSweeps][];
-            int[][]   aziArrayIdx = new int[numberOfSweeps][];
-
-            for (int b = 0; b < numberOfSweeps; b++) {
-                int sb = Integer.parseInt(cut[b].toString());
-                RadialDatasetSweep.Sweep s1   = sweepVar.getSweep(sb);
-                float[]                  tmpA;
-                if(format!=null && format.toString().contains("AR2V")){
-                    tmpA = getAzimuth(s1); // level 2 data
-                } else {
-                    tmpA = s1.getAzimuth();
-                }
-
-                myAziArray[b]  = tmpA.clone();
-                aziArrayIdx[b] = QuickSort.sort(myAziArray[b]);
-
-            }
-            // now get the hash map for each sweep contain azi as index and ray information.
-            for (int b = 0; b < numberOfSweeps; b++) {
-                //   RadialDatasetSweep.Sweep s1 = sweepVar.getSweep(b);
-                RSL_sweep_list[b] = constructSweepHashTable(myAziArray[b],
-                        aziArrayIdx[b], 0.95f);
-            }
-        }
-
-
         Trace.call1("   getRHI.getdata");
 
-        float[] az = new float[numberOfRay];
-        for (int i = 0; i < numberOfRay; i++) {
-            az[i] = i;
-        }
-
-        // from RSL_sweep_list table to index 0 -- 359
+        // map each degree of azimuth to a ray in each sweep
         if (rayIndex == null) {
-            rayIndex = getRayIndex(sweepVar, az, numberOfRay);
+            rayIndex = getRayIndex(sweepVar);
         }
 
         // use rayIndex to construct data
@@ -3908,89 +3941,31 @@ public class CDMRadarAdapter implements RadarAdapter {
             // gates = 500;
         }
 
-        float[][] myAziArray  = new float[numberOfSweeps][];
-        int[][]   aziArrayIdx = new int[numberOfSweeps][];
-        float[]   meanEle     = new float[numberOfSweeps];
+        final float[] meanEle  = new float[numberOfSweeps];
+        final int[][] rayIndex = new int[numberOfSweeps][];
+        final int[]   rNum     = new int[numberOfSweeps];
+        final int[]   cutSweep = new int[numberOfSweeps];
         for (int b = 0; b < numberOfSweeps; b++) {
             int sb = Integer.parseInt(cut[b].toString());
             RadialDatasetSweep.Sweep s1 = sweepVar.getSweep(sb);
-            float[] tmpAzi;
-            if(format!=null && format.toString().contains("AR2V")){
-                tmpAzi = getAzimuth(s1);
-            } else {
-                tmpAzi = s1.getAzimuth();
-            }
-            myAziArray[b] = tmpAzi.clone();
-            aziArrayIdx[b] = QuickSort.sort(myAziArray[b]);
-            meanEle[b] = s1.getMeanElevation();
+            // map each degree of azimuth to a ray in the sweep
+            rayIndex[b] =
+                CDMRadarSweepGeometry.makeRayIndex(getSweepAzimuths(s1),
+                    s1.getBeamWidth());
+            meanEle[b]  = s1.getMeanElevation();
+            rNum[b]     = s1.getRadialNumber();
+            cutSweep[b] = sb;
         }
 
-        if (RSL_sweep_list == null) {
-            RSL_sweep_list = new CDMRadarSweepDB[numberOfSweeps];
-            // now get the hash map for each sweep contain azi as index and ray information.
-            for (int b = 0; b < numberOfSweeps; b++) {
-                //   RadialDatasetSweep.Sweep s1 = sweepVar.getSweep(b);
-                RSL_sweep_list[b] = constructSweepHashTable(myAziArray[b],
-                        aziArrayIdx[b], beamWidth);
-            }
-        }
-
-        double[][] ranges = new double[numberOfSweeps][gates];
         double range_step = sweepVar.getSweep(numberOfSweeps
                                 - 1).getGateSize();
         double range_to_first_gate = sweepVar.getSweep(numberOfSweeps
                                          - 1).getRangeToFirstGate();
 
-
-
-        for (int sweepIdx = 0; sweepIdx < numberOfSweeps; sweepIdx++) {
-            double[] _ranges = ranges[sweepIdx];
-            _ranges[0] = (range_to_first_gate + range_step / 2);
-            for (int gateIdx = 1; gateIdx < gates; gateIdx++) {
-                _ranges[gateIdx] = (_ranges[gateIdx - 1] + range_step);
-            }
-        }
-
-
-        Trace.call1("making arrays",
-                    " size=" + (gates * numberOfRay * numberOfSweeps));
-
-
-
-
-        float[][] domainVals =
-            new float[3][gates * rayNumber * numberOfSweeps];
-        float[][] signalVals =
-            new float[1][gates * rayNumber * numberOfSweeps];
-        Trace.call2("making arrays");
-
-
-        float[] domainVals0 = domainVals[0];
-        float[] domainVals1 = domainVals[1];
-        float[] domainVals2 = domainVals[2];
-
-        int[][] rayIndex    = new int[numberOfSweeps][numberOfRay];
-        int[]   rNum        = new int[numberOfSweeps];
-
-        for (int sweepIdx = 0; sweepIdx < numberOfSweeps; sweepIdx++) {
-            int sb = Integer.parseInt(cut[sweepIdx].toString());
-            RadialDatasetSweep.Sweep sweep = sweepVar.getSweep(sb);
-            float                    f     = sweep.getBeamWidth() / 2;
-            rNum[sweepIdx] = sweep.getRadialNumber();
-            CDMRadarSweepDB sweepTable = RSL_sweep_list[sweepIdx];;
-
-            for (int rayIdx = 0; rayIdx < rayNumber; rayIdx++) {
-                float rhiAz = rayIdx;
-                CDMRadarSweepDB.Ray r = hashBin(sweepTable, rhiAz, rayNumber, sweep.getBeamWidth());
-                rayIndex[sweepIdx][rayIdx] = r.rayIndex;
-            }
-
-        }
-
         //        Trace.call2("volume preamble");
 
         //        Trace.call1("data read");
-        float[] allData;
+        final float[] allData;
         try {
             allData = sweepVar.readAllData();
         } catch (Exception np) {
@@ -3999,73 +3974,94 @@ public class CDMRadarAdapter implements RadarAdapter {
             return null;
         }
 
-        float[][][] data2 = new float[numberOfSweeps][rayNumber][gates];
-
-        for (int sweepIdx = 0; sweepIdx < numberOfSweeps; sweepIdx++) {
-            float[][] _data2  = data2[sweepIdx];
-            int       sb      = Integer.parseInt(cut[sweepIdx].toString());
-            int       rnumber = rNum[sweepIdx];
+        Trace.call1("making arrays",
+                    " size=" + (gates * numberOfRay * numberOfSweeps));
+        final float[][] signalVals =
+            new float[1][gates * rayNumber * numberOfSweeps];
+        Trace.call2("making arrays");
 
-            for (int rayIdx = 0; rayIdx < rayNumber; rayIdx++) {
-                int     si      = rayIndex[sweepIdx][rayIdx];
-                float[] __data2 = _data2[rayIdx];
-                if (si < rnumber && si < numberOfRay) {
-                    for (int gateIdx = 0; gateIdx < gates; gateIdx++) {
-                        __data2[gateIdx] =
-                            allData[gates * numberOfRay * sb + gates * si + gateIdx];
+        final int numSweeps = numberOfSweeps;
+        final int numGates  = gates;
+        final int numRays   = numberOfRay;
+
+        // copy the rays in, a sector of azimuths at a time
+        fillSectors(rayNumber, new SectorFiller() {
+            public void fill(int firstRay, int lastRay) {
+                float[] values = signalVals[0];
+                for (int sweepIdx = 0; sweepIdx < numSweeps; sweepIdx++) {
+                    int sb      = cutSweep[sweepIdx];
+                    int rnumber = rNum[sweepIdx];
+                    for (int rayIdx = firstRay; rayIdx < lastRay; rayIdx++) {
+                        int si = rayIndex[sweepIdx][rayIdx];
+                        int k  = (sweepIdx * rayNumber + rayIdx) * numGates;
+                        if ((si < rnumber) && (si < numRays)) {
+                            System.arraycopy(allData,
+                                             numGates * numRays * sb
+                                             + numGates * si, values, k,
+                                                 numGates);
+                        } else {
+                            Arrays.fill(values, k, k + numGates, Float.NaN);
+                        }
                     }
-                } else {
-                    _data2[rayIdx] = getFloatNaN(gates);
                 }
             }
+        });
 
-        }
-
+        //        Trace.call2("data read");
 
-        int k = 0;
 
-        for (int sweepIdx = 0; sweepIdx < numberOfSweeps; sweepIdx++) {
-            //  float[]                  _azimuth2    = azimuth2[sweepIdx];
-            float     _elevation2 = meanEle[sweepIdx];
-            double[]  _ranges     = ranges[sweepIdx];
-            float[][] _data2      = data2[sweepIdx];
+        //      Trace.msg("size:" + gates + " " + numberOfRay +" " + numberOfSweeps);
 
-            for (int rayIdx = 0; rayIdx < rayNumber; rayIdx++) {
-                float   __azimuth = rayIdx;  //_azimuth2[rayIdx];
-                float[] __data2   = _data2[rayIdx];
+        // the domain only depends on the scan pattern so it is shared
+        // with other volumes
+        CDMRadarSweepGeometry geometry = getSweepGeometry(sweepVar,
+                                             beamWidth, rayNumber, gates,
+                                             (float) range_to_first_gate,
+                                             (float) range_step);
+        GriddedSet set = geometry.getVolumeDomain();
+        if (set == null) {
+            //        Trace.call1("making gridded3d set");
+            double[] ranges = new double[gates];
+            ranges[0] = (range_to_first_gate + range_step / 2);
+            for (int gateIdx = 1; gateIdx < gates; gateIdx++) {
+                ranges[gateIdx] = (ranges[gateIdx - 1] + range_step);
+            }
 
-                for (int gateIdx = 0; gateIdx < gates; gateIdx++) {
-                    domainVals2[k]   = _elevation2;
-                    domainVals1[k]   = __azimuth;
-                    domainVals0[k]   = (float) _ranges[gateIdx];
-                    signalVals[0][k] = __data2[gateIdx];
-                    k++;
+            float[][] domainVals =
+                new float[3][gates * rayNumber * numberOfSweeps];
+            float[] domainVals0 = domainVals[0];
+            float[] domainVals1 = domainVals[1];
+            float[] domainVals2 = domainVals[2];
+            int     k           = 0;
+            for (int sweepIdx = 0; sweepIdx < numberOfSweeps; sweepIdx++) {
+                float _elevation2 = meanEle[sweepIdx];
+                for (int rayIdx = 0; rayIdx < rayNumber; rayIdx++) {
+                    for (int gateIdx = 0; gateIdx < gates; gateIdx++) {
+                        domainVals2[k] = _elevation2;
+                        domainVals1[k] = rayIdx;
+                        domainVals0[k] = (float) ranges[gateIdx];
+                        k++;
+                    }
                 }
             }
-        }
 
+            // radarDomain3d  = makeDomainType3D((float)range_step, (float)range_to_first_gate);
+            RealTupleType tt = makeDomainType3D();
+            Unit[] domUnits3d = new Unit[] { CommonUnit.meter,
+                                             CommonUnit.degree,
+                                             CommonUnit.degree };
+            set = new Gridded3DSet(tt, domainVals, gates, rayNumber,
+                                   numberOfSweeps, null, domUnits3d, null,
+                                   false, false);
+            geometry.setVolumeDomain(set);
+            //        Trace.call2("making gridded3d set");
+        }
+        radarDomain3d = ((SetType) set.getType()).getDomain();
 
-        //        Trace.call2("data read");
-
-
-        //      Trace.msg("size:" + gates + " " + numberOfRay +" " + numberOfSweeps);
-
-        // sorting all data as azimuths should start from small to large
-        //        Trace.call1("making gridded3d set");
         Unit u = getUnit(sweepVar);
         //System.out.println("unit = " + u);
 
-        // radarDomain3d  = makeDomainType3D((float)range_step, (float)range_to_first_gate);
-
-        radarDomain3d = makeDomainType3D();
-
-
         RealTupleType tt = radarDomain3d;
-        Unit[] domUnits3d = new Unit[] { CommonUnit.meter, CommonUnit.degree,
-                                         CommonUnit.degree };
-        GriddedSet set = new Gridded3DSet(tt, domainVals, gates, rayNumber,
-                                          numberOfSweeps, null, domUnits3d,
-                                          null, false, false);
         FunctionType sweepType = new FunctionType(tt,
                                      getMomentType(varName, u));
 
@@ -4076,8 +4072,6 @@ public class CDMRadarAdapter implements RadarAdapter {
         initCachedFlatField((CachedFlatField) retField);
         // retField.setSamples(signalVals, false);
 
-        //        Trace.call2("making gridded3d set");
-
         putCache(cacheKey, retField);
         return retField;
     }
@@ -0,0 +1,357 @@
+/*
+ * Copyright 1997-2020 Unidata Program Center/University Corporation for
+ * Atmospheric Research, P.O. Box 3000, Boulder, CO 80307,
+ * support@unidata.ucar.edu.
+ *
+ * This library is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation; either version 2.1 of the License, or (at
+ * your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU Lesser
+ * General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this library; if not, write to the Free Software Foundation,
+ * Inc., 59 Temple Place, Suite 330, Boston, MA 02111-1307 USA
+ */
+
+package ucar.unidata.data.radar;
+
+
+import visad.GriddedSet;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+
+/**
+ * Holds the parts of a radar volume's geometry that only depend on the
+ * station and the scan pattern (sweep elevations, beam width and gate
+ * spacing): the CAPPI bin to sweep mapping for each level and the
+ * range/azimuth domain sets. Volumes with the same geometry (e.g., a loop
+ * of volumes from one station in one VCP) share one of these.
+ *
+ * @author IDV Development Team
+ */
+public class CDMRadarSweepGeometry {
+
+    /** Marks a missing ray or sweep */
+    public static final int MISSING = 999;
+
+    /** How many geometries we keep around */
+    private static final int MAX_GEOMETRIES = 16;
+
+    /** The shared geometries */
+    private static final Map<String, CDMRadarSweepGeometry> geometries =
+        new LinkedHashMap<String, CDMRadarSweepGeometry>(16, 0.75f, true) {
+        protected boolean removeEldestEntry(
+                Map.Entry<String, CDMRadarSweepGeometry> eldest) {
+            return size() > MAX_GEOMETRIES;
+        }
+    };
+
+    /** The key */
+    private String key;
+
+    /** elevation of each sweep, rounded to a tenth of a degree */
+    private float[] elevations;
+
+    /** CAPPI levels (km above the station) to level geometry */
+    private Map<Float, CappiLevel> cappiLevels = new HashMap<Float,
+                                                     CappiLevel>();
+
+    /** The 2D (range, azimuth) domain of a CAPPI */
+    private GriddedSet cappiDomain;
+
+    /** The 3D (range, azimuth, elevation) domain of a volume */
+    private GriddedSet volumeDomain;
+
+    /**
+     * Create a geometry
+     *
+     * @param key the key
+     * @param elevations elevation of each sweep
+     */
+    private CDMRadarSweepGeometry(String key, float[] elevations) {
+        this.key        = key;
+        this.elevations = elevations;
+    }
+
+    /**
+     * Find or create the geometry for the given station and scan pattern.
+     * The mean elevations of a sweep drift a little from volume to
+     * volume so they are rounded to a tenth of a degree, which keeps the
+     * sweeps of a VCP apart but lets the volumes of a loop share the
+     * geometry.
+     *
+     * @param station  station id or location
+     * @param vcp  volume coverage pattern. May be null
+     * @param elevations  mean elevation of each sweep
+     * @param beamWidth  beam width (degrees)
+     * @param numRays  number of rays
+     * @param numBins  number of gates
+     * @param rangeToFirstGate  range to the first gate (m)
+     * @param gateSize  gate size (m)
+     *
+     * @return the geometry
+     */
+    public static CDMRadarSweepGeometry getGeometry(String station,
+            String vcp, float[] elevations, float beamWidth, int numRays,
+            int numBins, float rangeToFirstGate, float gateSize) {
+        float[] angles = new float[elevations.length];
+        for (int i = 0; i < elevations.length; i++) {
+            angles[i] = roundAngle(elevations[i]);
+        }
+        StringBuilder sb = new StringBuilder();
+        sb.append(station).append(';').append(vcp).append(';');
+        sb.append(beamWidth).append(';').append(numRays).append(';');
+        sb.append(numBins).append(';');
+        sb.append(rangeToFirstGate).append(';').append(gateSize);
+        for (float angle : angles) {
+            sb.append(';').append(angle);
+        }
+        String key = sb.toString();
+        synchronized (geometries) {
+            CDMRadarSweepGeometry geometry = geometries.get(key);
+            if (geometry == null) {
+                geometry = new CDMRadarSweepGeometry(key, angles);
+                geometries.put(key, geometry);
+            }
+            return geometry;
+        }
+    }
+
+    /**
+     * Round an elevation angle to a tenth of a degree
+     *
+     * @param angle  elevation angle
+     *
+     * @return the rounded angle
+     */
+    private static float roundAngle(float angle) {
+        if (Float.isNaN(angle)) {
+            return angle;
+        }
+        return Math.round(angle * 10) / 10.0f;
+    }
+
+    /**
+     * Clear out the shared geometries
+     */
+    public static void clearCache() {
+        synchronized (geometries) {
+            geometries.clear();
+        }
+    }
+
+    /**
+     * Get the elevation of each sweep, rounded to a tenth of a degree
+     *
+     * @return elevations
+     */
+    public float[] getElevations() {
+        return elevations;
+    }
+
+    /**
+     * Find the sweep closest to the given elevation angle
+     *
+     * @param angle  elevation angle
+     * @param limit  how far off the closest sweep can be (degrees)
+     *
+     * @return index of the sweep or {@link #MISSING} if none are
+     *         within the limit
+     */
+    public int getClosestSweep(float angle, float limit) {
+        float delta   = 91;
+        int   closest = 0;
+        for (int i = 0; i < elevations.length; i++) {
+            float check = Math.abs(elevations[i] - angle);
+            if (check <= delta) {
+                delta   = check;
+                closest = i;
+            }
+        }
+        if ((elevations.length == 0)
+                || (Math.abs(elevations[closest] - angle) > limit)) {
+            return MISSING;
+        }
+        return closest;
+    }
+
+    /**
+     * Get the CAPPI geometry for a level
+     *
+     * @param level level (km above the station)
+     *
+     * @return the geometry or null if it has not been made yet
+     */
+    public synchronized CappiLevel getCappiLevel(float level) {
+        return cappiLevels.get(level);
+    }
+
+    /**
+     * Save the CAPPI geometry for a level
+     *
+     * @param level level (km above the station)
+     * @param cappiLevel the geometry
+     */
+    public synchronized void putCappiLevel(float level,
+                                           CappiLevel cappiLevel) {
+        cappiLevels.put(level, cappiLevel);
+    }
+
+    /**
+     * Get the CAPPI domain
+     *
+     * @return the domain or null if it has not been made yet
+     */
+    public synchronized GriddedSet getCappiDomain() {
+        return cappiDomain;
+    }
+
+    /**
+     * Set the CAPPI domain
+     *
+     * @param set the domain
+     */
+    public synchronized void setCappiDomain(GriddedSet set) {
+        cappiDomain = set;
+    }
+
+    /**
+     * Get the volume domain
+     *
+     * @return the domain or null if it has not been made yet
+     */
+    public synchronized GriddedSet getVolumeDomain() {
+        return volumeDomain;
+    }
+
+    /**
+     * Set the volume domain
+     *
+     * @param set the domain
+     */
+    public synchronized void setVolumeDomain(GriddedSet set) {
+        volumeDomain = set;
+    }
+
+    /**
+     * Map each whole degree of azimuth (0-359) to the ray of a sweep
+     * that covers it. This gives the same rays as building a
+     * {@link CDMRadarSweepDB} from the sorted azimuths and looking up
+     * each degree with a hash bin search, without the sort or the map.
+     *
+     * @param azimuths  azimuth of each ray
+     * @param beamWidth  beam width (degrees). 0 to use 360/number of rays
+     *
+     * @return ray index for each degree. {@link #MISSING} if there are
+     *         no rays
+     */
+    public static int[] makeRayIndex(float[] azimuths, float beamWidth) {
+        int     numRays = azimuths.length;
+        int[]   bins    = new int[360];
+        float[] binAzi  = new float[360];
+        Arrays.fill(bins, -1);
+        float res = (beamWidth != 0)
+                    ? beamWidth
+                    : 360.0f / numRays;
+        boolean any = false;
+        for (int i = 0; i < numRays; i++) {
+            float azi = azimuths[i];
+            if (Float.isNaN(azi)) {
+                continue;
+            }
+            int bin = Math.round(azi + res / 2.0f);
+            if (bin >= numRays) {
+                bin -= numRays;
+            }
+            if ((bin < 0) || (bin >= 360)) {
+                continue;
+            }
+            // the sweep table is built from the sorted azimuths so the
+            // largest azimuth in a bin wins
+            if ((bins[bin] < 0) || (azi >= binAzi[bin])) {
+                bins[bin]   = i;
+                binAzi[bin] = azi;
+                any         = true;
+            }
+        }
+        int[] rayIndex = new int[360];
+        if ( !any) {
+            Arrays.fill(rayIndex, MISSING);
+            return rayIndex;
+        }
+        for (int i = 0; i < 360; i++) {
+            int bin = (int) (i + res / 2.0);
+            if (bin >= 360) {
+                bin -= 360;
+            }
+            while (bins[bin] < 0) {
+                bin++;
+                if (bin >= 360) {
+                    bin = 0;
+                }
+            }
+            rayIndex[i] = bins[bin];
+        }
+        return rayIndex;
+    }
+
+    /**
+     * to string
+     *
+     * @return the key
+     */
+    public String toString() {
+        return key;
+    }
+
+    /**
+     * The geometry of one CAPPI level
+     */
+    public static class CappiLevel {
+
+        /** slant range (km) along the beam for each bin */
+        private float[] slantRanges;
+
+        /** sweep (index into the cuts) for each bin. MISSING if none */
+        private int[] sweeps;
+
+        /**
+         * Create a level
+         *
+         * @param slantRanges slant range (km) along the beam for each bin
+         * @param sweeps sweep for each bin
+         */
+        public CappiLevel(float[] slantRanges, int[] sweeps) {
+            this.slantRanges = slantRanges;
+            this.sweeps      = sweeps;
+        }
+
+        /**
+         * Get the slant ranges
+         *
+         * @return slant range (km) for each bin
+         */
+        public float[] getSlantRanges() {
+            return slantRanges;
+        }
+
+        /**
+         * Get the sweeps
+         *
+         * @return sweep for each bin
+         */
+        public int[] getSweeps() {
+            return sweeps;
+        }
+    }
+
+}
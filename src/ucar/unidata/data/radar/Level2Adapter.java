@@ -421,63 +421,25 @@ public class Level2Adapter implements RadarAdapter {
                 local_cut = local_cut + 3;
             }
         }
-        Level2Record record        = new Level2Record();
-        int          record_number = data.getCutStart(local_cut);
-        record.readHeader(data.getDataInput(), record_number);
-        int bins = record.getBinNum(moment);
-        if (bins == 0) {
+        Level2Sweep sweep = data.getSweep(local_cut, moment);
+        if ((sweep == null) || (sweep.getNumBins() == 0)) {
             return null;
         }
-        int num_radials = record.readCut(data.getDataInput(), record_number);
-        double[] range  = new double[bins];
-        double   range_step;
-        double   range_to_first_gate;
-        if (moment == REFLECTIVITY) {
-            range_step          = record.surv_size / 1000.;
-            range_to_first_gate = (double) (record.first_bin / 1000.0);
-        } else {
-            range_step          = record.dopl_size / 1000.;
-            range_to_first_gate = (double) (record.doppler_range / 1000.0);
-        }
+        int      bins                = sweep.getNumBins();
+        int      num_radials         = sweep.getNumRadials();
+        double[] range               = new double[bins];
+        double   range_step          = sweep.getBinSize() / 1000.;
+        double   range_to_first_gate = sweep.getRangeToFirstGate() / 1000.0;
         range[0] = (double) (range_to_first_gate + range_step / 2);
         for (int i = 1; i < bins; i++) {
             range[i] = (double) (range[i - 1] + range_step);
         }
-        float   azimuth;
         float[] azimuths      = new float[num_radials];
-        float[] values        = new float[num_radials * bins];
-        int     vc            = 0,
-                azimuth_num   = 0;
-        int     value_counter = 0;
+        float[] values        = sweep.getValues();
+        int     azimuth_num   = num_radials;
+        int     value_counter = num_radials * bins;
         for (int azi = 0; azi < num_radials; azi++) {
-            azimuth = data.getAzimuth(record_number);
-            while (azimuth < 0.0) {
-                record_number++;
-                azimuth = data.getAzimuth(record_number);
-            }
-            azimuths[azimuth_num++] = azimuth;
-            for (int j = 0; j < bins; j++) {
-                vc         = value_counter;
-                values[vc] = record.getBinValue(moment, azi, j);
-
-
-                /*  TEST ONLY, PART 1 of 2 parts
-                //  demo of how straight the beams' plots are;
-                //  i.e. how correct in azimuth angles on plot.
-                //  Combine a plot of this data with the radar range rings and radial grid.
-                //  Note that the ranges as plotted are not uniform either.
-                float azt = (int)(azimuth + 0.5);
-                // set all azimuths to integers
-                azimuths[azimuth_num-1] = azt;
-                // set flag color or value on selected beams , to stand out
-                if ((int)(azimuth + 0.5)%30 == 0) {
-                    values[vc]=100.0f;
-                }  // END TEST */
-
-
-                value_counter++;
-            }
-            record_number++;
+            azimuths[azi] = sweep.getAzimuth(azi);
         }
         int[]     sortToOld  = QuickSort.sort(azimuths);
         float[][] domainVals = new float[(want3D)
@@ -574,10 +536,9 @@ public class Level2Adapter implements RadarAdapter {
         int          moment        = VELOCITY;
         int          numbTilts     = VCP.getNumCuts(data.getVCP());
         int          bins          = 0,
-                     dec           = 1,
-                     record_number = 0;
+                     dec           = 1;
         double       elevation     = 19.5;
-        Level2Record record        = null;
+        Level2Sweep  sweep         = null;
         while (bins == 0) {
             int ii = numbTilts - dec;
             if (ii < 0) {
@@ -604,18 +565,18 @@ public class Level2Adapter implements RadarAdapter {
                     local_cut = local_cut + 3;
                 }
             }
-            record        = new Level2Record();
-            record_number = data.getCutStart(local_cut);
-            record.readHeader(data.getDataInput(), record_number);
-            bins = record.getBinNum(moment);
+            sweep = data.getSweep(local_cut, moment);
+            bins  = (sweep == null)
+                    ? 0
+                    : sweep.getNumBins();
             dec++;
         }
         int      numbVel           = bins / 4;
-        int num_radials = record.readCut(data.getDataInput(), record_number);
+        int      num_radials       = sweep.getNumRadials();
         double[] range             = new double[bins];
         double[] altitude          = new double[bins];
-        double   range_step        = record.dopl_size / 1000.0;  // 0.25 km
-        double range_to_first_gate = (double) (record.doppler_range / 1000.0);
+        double   range_step        = sweep.getBinSize() / 1000.0;  // 0.25 km
+        double range_to_first_gate = sweep.getRangeToFirstGate() / 1000.0;
         range[0] = (double) (range_to_first_gate + range_step / 2);
         boolean gotlimit   = false;
         int     limitIndex = bins;
@@ -634,23 +595,15 @@ public class Level2Adapter implements RadarAdapter {
                 gotlimit   = true;
             }
         }
-        float   azimuth;
         float[] azimuths      = new float[num_radials];
         float[] windspeed     = new float[num_radials * bins];
         int     azimuth_num   = 0,
                 value_counter = 0;
         for (int ac = 0; ac < num_radials; ac++) {
-            azimuth = data.getAzimuth(record_number);
-            while (azimuth < 0.0) {
-                record_number++;
-                azimuth = data.getAzimuth(record_number);
-            }
-            azimuths[azimuth_num++] = azimuth;
+            azimuths[azimuth_num++] = sweep.getAzimuth(ac);
             for (int bin = 0; bin < limitIndex; bin++) {
-                windspeed[value_counter++] = record.getBinValue(moment, ac,
-                        bin);
+                windspeed[value_counter++] = sweep.getValue(ac, bin);
             }
-            record_number++;
         }
         int[] shiftedIndices = QuickSort.sort(azimuths);
         // wind speed and direction with height by preliminary simple method.
@@ -776,7 +729,6 @@ public class Level2Adapter implements RadarAdapter {
         double    halfBeamWidth;
         // from Kevin Manross, NWS: WSR-88D beam width in vertical direction is 0.95 deg
         halfBeamWidth = 0.95 / 2;
-        int     record_number;
         boolean found;
         int     numbTilts      = VCP.getNumCuts(data.getVCP());
         int     number_of_bins = 0;
@@ -790,8 +742,7 @@ public class Level2Adapter implements RadarAdapter {
         }
         float[][]    values   = new float[numbTilts][bincounter];
         double[][]   ranges   = new double[numbTilts][bincounter];
-        DateTime     beamtime = new DateTime();
-        Level2Record record;
+        DateTime     beamtime    = new DateTime();
         int          tiltcounter = 0;
         for (int ti = 0; ti < numbTilts; ti++) {
             found = false;
@@ -815,26 +766,27 @@ public class Level2Adapter implements RadarAdapter {
                     local_cut = local_cut + 3;
                 }
             }
-            record_number = data.getCutStart(local_cut);
-            int nextcut = data.getCutStart(local_cut + 1);
-            for (int j = record_number; j < nextcut; j++) {
-                float azi = data.getAzimuth(j);
+            Level2Sweep sweep = data.getSweep(local_cut, moment);
+            if (sweep == null) {
+                continue;
+            }
+            for (int j = 0; j < sweep.getNumRadials(); j++) {
+                float azi = sweep.getAzimuth(j);
                 if (Math.abs(azi - rhiAz) <= halfBeamWidth) {
-                    found  = true;
-                    record = new Level2Record();
-                    record.readRecord(data.getDataInput(), j);
-                    range_to_first_gate = (float) (record.first_bin / 1000.0);
+                    found               = true;
+                    range_to_first_gate = (float) (sweep.getFirstBin()
+                            / 1000.0);
                     if (moment == REFLECTIVITY) {
                         range_step = 1.0;
                     } else {
                         range_step = 0.25;
                     }
-                    number_of_bins = record.getBinNum(moment);
+                    number_of_bins = sweep.getNumBins();
                     bincount[ti]   = number_of_bins;
                     if (number_of_bins == 0) {
                         continue;
                     }
-                    float el = record.getElevation();
+                    float el = sweep.getElevation(j);
                     if (el == 0.0f) {
                         break;
                     }
@@ -846,10 +798,10 @@ public class Level2Adapter implements RadarAdapter {
                     }
                     ranges[ti][0] = (double) (range_to_first_gate
                             + range_step / 2);
-                    values[ti][0] = record.getBinValue(moment, 0, 0);
+                    values[ti][0] = sweep.getValue(j, 0);
                     value_counter++;
                     for (int bi = 1; bi < number_of_bins; bi++) {
-                        values[ti][bi] = record.getBinValue(moment, 0, bi);
+                        values[ti][bi] = sweep.getValue(j, bi);
                         ranges[ti][bi] = (double) (ranges[ti][bi - 1]
                                 + range_step);
                         value_counter++;
@@ -974,18 +926,15 @@ public class Level2Adapter implements RadarAdapter {
         int    numbTilts           = VCP.getNumCuts(dataVCP);
         int    totalbins           = 0;
         int    binCount            = 1000;
-        int    record_number;
         double levelInMeters = level.getValue(CommonUnit.meter);
-        if (moment == REFLECTIVITY) {
-            binCount      = 500;
-            record_number = data.getCutStart(0);
-        } else {
-            record_number = data.getCutStart(1);
+        Level2Sweep lowSweep = data.getSweep((moment == REFLECTIVITY)
+                ? 0
+                : 1, moment);
+        if (lowSweep == null) {
+            return null;
         }
-        Level2Record record = new Level2Record();
-        record.readHeader(data.getDataInput(), record_number);
-        int low_bins = record.getBinNum(moment);
-        range_to_first_gate = (float) (record.first_bin / 1000.0);
+        int low_bins = lowSweep.getNumBins();
+        range_to_first_gate = (float) (lowSweep.getFirstBin() / 1000.0);
         binCount            = low_bins;
         if (moment == REFLECTIVITY) {
             range_step = (float) 1.0;
@@ -1038,8 +987,6 @@ public class Level2Adapter implements RadarAdapter {
                 }
             }
 
-            record_number = data.getCutStart(local_cut);
-            record.readHeader(data.getDataInput(), record_number);
             /* keep for future demands for times of each sweep
             int seconds = (int) (record.milliseconds/1000);
             int hour   = (int) (seconds/3600);
@@ -1048,7 +995,6 @@ public class Level2Adapter implements RadarAdapter {
             System.out.println(
                 "   tilt "+ti+"  first radial time "+hour+":"+minute+
                 ":"+second+" UT   - Height "+levelInMeters+" meters");  */
-            numberOfBins = record.getBinNum(moment);
             //System.out.println("Number of bins = " +numberOfBins);
             //if (numberOfBins == 0) {
             //    continue;
@@ -1093,9 +1039,10 @@ public class Level2Adapter implements RadarAdapter {
                     local_cut = local_cut + 2;
                 }
             }
-            record_number = data.getCutStart(local_cut);
-            record.readHeader(data.getDataInput(), record_number);
-            numberOfBins = record.getBinNum(moment);
+            Level2Sweep sweep = data.getSweep(local_cut, moment);
+            numberOfBins = (sweep == null)
+                           ? 0
+                           : sweep.getNumBins();
 
             if (numberOfBins == 0) {
                 continue;
@@ -1108,17 +1055,14 @@ public class Level2Adapter implements RadarAdapter {
             //System.out.println("bininner = " + bininner);
             //System.out.println("ringcounter = " + ringcounter);
 
-            int num_radials = record.readCut(data.getDataInput(),
-                                             record_number);
-            int bc = 0;
+            int num_radials = sweep.getNumRadials();
+            int bc          = 0;
             for (int ac = 0; ac < numAz; ac++) {
                 // IRAS uses integer azimuths here:
-                azimuth = data.getAzimuth(record_number);  //exact azimuth for beam
-                while (azimuth < 0.0) {
-                    record_number++;
-                    azimuth = data.getAzimuth(record_number);
-                }
-                bc = 0;
+                azimuth = (ac < num_radials)
+                          ? sweep.getAzimuth(ac)  //exact azimuth for beam
+                          : 360.0f;
+                bc      = 0;
                 for (int binIndex = binouter - 1; binIndex >= bininner;
                         binIndex--) {
                     int rc = ringcounter + bc;
@@ -1126,16 +1070,16 @@ public class Level2Adapter implements RadarAdapter {
                         cappiRadius[rc] = ranges[binIndex];
                     }
                     if (ac < num_radials) {
-                        cappiAz[rc][ac] = azimuth;
-                        cappiValue[rc][ac] = record.getBinValue(moment, ac,
-                                binIndex);
+                        cappiAz[rc][ac]    = azimuth;
+                        cappiValue[rc][ac] = (binIndex < numberOfBins)
+                                             ? sweep.getValue(ac, binIndex)
+                                             : Float.NaN;
                     } else {
                         cappiAz[rc][ac]    = 360.0f;
                         cappiValue[rc][ac] = Float.NaN;
                     }
                     bc++;
                 }
-                record_number++;
             }
             for (int bd = 0; bd < bc; bd++) {
                 shiftedIndex[ringcounter + bd] =
@@ -1353,7 +1297,6 @@ public class Level2Adapter implements RadarAdapter {
         double       range_step;
         double       range_to_first_gate;
         int          value_counter = 0;
-        Level2Record record        = new Level2Record();
         int          tiltcounter   = 0;
         for (int ti = 0; ti < numberOfSweeps; ti++) {
             double tilt = tilts[ti];
@@ -1377,45 +1320,33 @@ public class Level2Adapter implements RadarAdapter {
                     local_cut = local_cut + 3;
                 }
             }
-            int record_number = data.getCutStart(local_cut);
-            record.readHeader(data.getDataInput(), record_number);
-            int numberOfBins = record.getBinNum(moment);
+            Level2Sweep sweep        = data.getSweep(local_cut, moment);
+            int         numberOfBins = (sweep == null)
+                                       ? 0
+                                       : sweep.getNumBins();
             if (numberOfBins <= 0) {
                 continue;
             }
-            if (moment == REFLECTIVITY) {
-                range_step          = record.surv_size / 1000.;
-                range_to_first_gate = (double) (record.first_bin / 1000.0);
-            } else {
-                range_step          = record.dopl_size / 1000.;
-                range_to_first_gate = (double) (record.doppler_range
-                        / 1000.0);
-            }
+            range_step          = sweep.getBinSize() / 1000.;
+            range_to_first_gate = sweep.getRangeToFirstGate() / 1000.0;
             ranges[ti][0] = (double) (range_to_first_gate + range_step / 2);
             for (int i = 1; i < bincounter; i++) {
                 ranges[ti][i] = (double) (ranges[ti][i - 1] + range_step);
             }
-            int num_radials = record.readCut(data.getDataInput(),
-                                             record_number);
-            int nbi = 370;
+            int num_radials = sweep.getNumRadials();
+            int nbi         = 370;
             if (num_radials < 370) {
                 nbi = num_radials;
             }
             for (int bi = 0; bi < nbi; bi++) {
-                azimuth = data.getAzimuth(record_number);
-                while (azimuth < 0.0) {
-                    record_number++;
-                    azimuth = data.getAzimuth(record_number);
-                }
+                azimuth = sweep.getAzimuth(bi);
                 int si = (int) (azimuth + 0.5);
                 azimuths[ti][si]   = azimuth;
-                elevations[ti][si] = record.getElevation();
+                elevations[ti][si] = sweep.getElevation(bi);
                 for (int binj = 0; binj < numberOfBins; binj++) {
-                    values[ti][si][binj] = record.getBinValue(moment, bi,
-                            binj);
+                    values[ti][si][binj] = sweep.getValue(bi, binj);
                     value_counter++;
                 }
-                record_number++;
             }
             tiltcounter++;
         }
@@ -43,13 +43,27 @@ import java.io.EOFException;
 import java.io.File;
 import java.io.IOException;
 
+import java.lang.ref.SoftReference;
+
 import java.net.URL;
 
+import java.nio.ByteBuffer;
+
+import java.util.HashMap;
+import java.util.Map;
+
 
 /**
  * This class reads a NEXRAD level II data  file and keeps track
  * of cut start and other info. Will probably change in the future.<p>
  *
+ * One pass over the record headers of the (decompressed) volume builds
+ * an index of the radials in each cut and the sweeps are decoded on
+ * demand with {@link #getSweep(int, int)}, reading just the records of
+ * the cut. The file is not memory mapped since the mapping is only let go
+ * when it is garbage collected, which keeps the (tmp) file from being
+ * deleted on Windows.<p>
+ *
  * Adapted with permission from the Java Iras software developed
  * by David Priegnitz at NSSL.<p>
  *
@@ -74,6 +88,15 @@ public class Level2Data {
     /** File header size */
     private static final int FILE_HEADER_SIZE = 24;
 
+    /** Size of the part of a record header we read */
+    private static final int RECORD_INFO_SIZE = 84;
+
+    /** Offset of the bin data from the start of the message */
+    private static final int DATA_OFFSET = 16;
+
+    /** Size of the bin data in a record */
+    private static final int DATA_SIZE = 2304;
+
     /** Volume coverage pattern */
     private int vcp = 0;
 
@@ -95,6 +118,19 @@ public class Level2Data {
     /** cut start locations */
     private int[] cut_start = new int[100];
 
+    /** the data records in each cut */
+    private int[][] cutRecords = new int[0][];
+
+    /** size of the (decompressed) volume file */
+    private long volumeSize;
+
+    /** number of records read at a time when indexing */
+    private static final int RECORDS_PER_READ = 512;
+
+    /** decoded sweeps */
+    private Map<Integer, SoftReference<Level2Sweep>> sweeps =
+        new HashMap<Integer, SoftReference<Level2Sweep>>();
+
     /** number of cuts */
     private int numberOfCuts = 0;
 
@@ -286,6 +322,9 @@ public class Level2Data {
                                    + dout.getFilePointer());
                     }
                 } catch (EOFException eof) {}  // ignore
+                dout.close();
+                dout = new RandomAccessFile(tmpfile.toString(), "r",
+                                            DEFAULT_FILE_BUFFER);
             } else {
                 dout = new RandomAccessFile(tmpfile.toString(), "r",
                                             DEFAULT_FILE_BUFFER);
@@ -297,6 +336,68 @@ public class Level2Data {
         readHeaderInfo();
         vcp               = 0;
         number_of_records = 0;
+        volumeSize        = new File(filename).length();
+    }
+
+    /**
+     * Read records of the (decompressed) file. The file is opened just
+     * for the read.
+     *
+     * @param first  first record
+     * @param last  last record
+     *
+     * @return the records. The message of a record is at
+     *         {@link #getMessageOffset(int)} less
+     *         {@link #getRecordOffset(int)} of the first record
+     *
+     * @throws IOException problem reading the file
+     */
+    private ByteBuffer readRecords(int first, int last) throws IOException {
+        long   start = getRecordOffset(first);
+        long   end   = Math.min(volumeSize, getRecordOffset(last + 1));
+        byte[] bytes = new byte[(int) Math.max(0, end - start)];
+        java.io.RandomAccessFile raf = new java.io.RandomAccessFile(filename,
+                                           "r");
+        try {
+            raf.seek(start);
+            raf.readFully(bytes);
+        } finally {
+            raf.close();
+        }
+        return ByteBuffer.wrap(bytes);
+    }
+
+    /**
+     * Get the number of whole records in the volume
+     *
+     * @return number of records
+     */
+    private int getRecordCount() {
+        return (int) ((volumeSize - FILE_HEADER_SIZE) / RADAR_DATA_MSG_SIZE);
+    }
+
+    /**
+     * Get the offset in the volume of a record
+     *
+     * @param record  record number
+     *
+     * @return offset of the record
+     */
+    private static long getRecordOffset(int record) {
+        return (long) record * Level2Record.RADAR_DATA_SIZE
+               + FILE_HEADER_SIZE;
+    }
+
+    /**
+     * Get the offset in the volume of the message in a record.
+     * This is past the record header.
+     *
+     * @param record  record number
+     *
+     * @return offset of the message
+     */
+    private static long getMessageOffset(int record) {
+        return getRecordOffset(record) + Level2Record.RECORD_HEADER_SIZE;
     }
 
     /**
@@ -344,138 +445,235 @@ public class Level2Data {
     /**
      * Method to read the file.
      * If * <code>onlyVCP</code>, only read enough data to get the
-     * levels.
+     * levels. Otherwise read the headers of all of the records and
+     * index the radials in each cut.
      *
      * @param startFlag  starting record number (unused)
      * @param onlyVCP    if true, only read until we get the VCP info
      */
-    public void read(int startFlag, boolean onlyVCP) {
-
-        /*  Read the file until we get an I/O exception (i.e., EOF)
-            or until we get the VCP if onlyVCP == true */
-
-        float        azi;
-        float        ele;
-        int          i;
-
-        byte[]       bins         = new byte[2332];
+    public synchronized void read(int startFlag, boolean onlyVCP) {
 
-        Level2Record level2record = new Level2Record();
-
-        // Read the entire file and return when we get an end-of-file
-        // exception.
-        for (record = number_of_records; record < 10000; record++) {
+        if (readAll) {
+            return;
+        }
+        try {
+            readRecordHeaders(onlyVCP);
+        } catch (IOException exc) {
+            log_.error("Error reading " + filename + ": " + exc);
+        }
+    }
 
-            if (onlyVCP && (vcp != 0)) {
-                log_.debug("vcp = " + vcp);
-                return;
+    /**
+     * Read the record headers, a chunk of records at a time
+     *
+     * @param onlyVCP    if true, only read until we get the VCP info
+     *
+     * @throws IOException problem reading the file
+     */
+    private void readRecordHeaders(boolean onlyVCP) throws IOException {
+        int        numRecords = getRecordCount();
+        ByteBuffer volume     = null;
+        long       base       = 0;
+        if (onlyVCP) {
+            for (int i = 0; (i < numRecords) && (vcp == 0); i++) {
+                if (i % RECORDS_PER_READ == 0) {
+                    volume = readRecords(i, i + RECORDS_PER_READ - 1);
+                    base   = getRecordOffset(i);
+                }
+                int offset = (int) (getMessageOffset(i) - base);
+                if (volume.get(offset + 3) == 1) {
+                    vcp = volume.getShort(offset + 60);
+                }
             }
-            level2record.readHeader(din, record);
-
-            if (level2record.eof() != 0) {
-
-                cut_start[old_cut + 1] = record;
-                log_.debug(" did read all");
-                readAll = true;
-                return;
+            log_.debug("vcp = " + vcp);
+            return;
+        }
 
-            }
+        if (azimuth.length <= numRecords) {
+            azimuth   = new float[numRecords + 1];
+            elevation = new float[numRecords + 1];
+        }
+        short[] recordCut = new short[numRecords];
+        int[]   cutCounts = new int[cut_start.length];
+        number_of_records = 0;
 
-            // Check to see if this is the last radial in the volume.  If 
-            // so, set the end of volume flag to 1.
-            if (level2record.radial_status != 1) {
-                log_.debug("Radial status [" + level2record.radial_status
-                           + "] for record " + record);
+        for (record = 0; record < numRecords; record++) {
+            if (record % RECORDS_PER_READ == 0) {
+                volume = readRecords(record, record + RECORDS_PER_READ - 1);
+                base   = getRecordOffset(record);
             }
-            if (level2record.radial_status == 4) {
-                end_of_volume = 1;
-            } else {
-                end_of_volume = 0;
+            int offset = (int) (getMessageOffset(record) - base);
+            if (offset + RECORD_INFO_SIZE > volume.limit()) {
+                break;
             }
-
-            // Only process digital radar data messages.  Ignore the 
-            // rest for  now. 
-            if (level2record.getMessageType() == 1) {
-
-                // If the vcp has yet to be initialized set it.  Right now 
-                // we assume that the VCP is one of the following: 
-                // 11, 21, 31, 32.
-
-                if (vcp == 0) {
-
-                    vcp = level2record.vcp;
-                }
-
-                // Extract the azimuth and elevation angles of the radial.
-
-                azimuth[record]   = level2record.getAzimuth();
-                elevation[record] = level2record.getElevation();
-
-                // If a new elevation cut has started, update the cut LUT
-
-                if (old_cut != level2record.getElevationNum()) {
-
-                    log_.debug("message_size [" + level2record.message_size
-                               + "]");
-
-                    if (level2record.getElevationNum() > 0) {
-
-                        log_.debug("New cut --> "
-                                   + level2record.getElevationNum()
-                                   + " angle[" + level2record.getElevation()
-                                   + "] at record " + record);
-                        old_cut = level2record.getElevationNum();
-                        cut_start[level2record.getElevationNum() - 1] =
-                            record;
-                        cutElevation[numberOfCuts] = elevation[record];
-                        deltaElevation = Math.abs(elevation[record]
-                                - oldElevation);
-                        if ((double) deltaElevation > 0.10) {
-                            trueElevation[numberOfTrueCuts] =
-                                elevation[record];
-                            numberOfTrueCuts++;
-                        }
-                        oldElevation           = elevation[record];
-                        cutIndex[numberOfCuts] = numberOfTrueCuts;
-                        numberOfCuts++;
-
-                        log_.debug(
-                            "dBZ bins ["
-                            + level2record.getBinNum(
-                                level2record.REFLECTIVITY) + "]");
-                        log_.debug(
-                            "Vel bins ["
-                            + level2record.getBinNum(level2record.VELOCITY)
-                            + "]");
-
-                    } else {
-
-                        return;
-
-                    }
-                }
-
-                number_of_records++;
-
-            } else {
-
+            short radialStatus = volume.getShort(offset + 28);
+            end_of_volume = (radialStatus == 4)
+                            ? 1
+                            : 0;
+
+            // Only process digital radar data messages.  Ignore the
+            // rest for  now.
+            if (volume.get(offset + 3) != 1) {
                 // Since this message doesn't contain radar data, set the
-                // azimuth/elevation LUT table entries to -1 to indicate 
+                // azimuth/elevation LUT table entries to -1 to indicate
                 // this record doesn't contain radar data.
-
-                log_.debug("Message type " + level2record.getMessageType()
-                           + " detected");
                 azimuth[record]   = -1;
                 elevation[record] = -1;
-
+                continue;
             }
+            if (vcp == 0) {
+                vcp = volume.getShort(offset + 60);
+            }
+            azimuth[record] = 180.0f * volume.getChar(offset + 24) / 32768;
+            elevation[record] = 180.0f * volume.getShort(offset + 30)
+                                / 32768;
+            short elevationNum = volume.getShort(offset + 32);
+
+            // If a new elevation cut has started, update the cut LUT
+            if (old_cut != elevationNum) {
+                if ((elevationNum <= 0)
+                        || (elevationNum > cut_start.length)) {
+                    break;
+                }
+                log_.debug("New cut --> " + elevationNum + " angle["
+                           + elevation[record] + "] at record " + record);
+                old_cut                      = elevationNum;
+                cut_start[elevationNum - 1]  = record;
+                cutElevation[numberOfCuts]   = elevation[record];
+                deltaElevation = Math.abs(elevation[record] - oldElevation);
+                if ((double) deltaElevation > 0.10) {
+                    trueElevation[numberOfTrueCuts] = elevation[record];
+                    numberOfTrueCuts++;
+                }
+                oldElevation           = elevation[record];
+                cutIndex[numberOfCuts] = numberOfTrueCuts;
+                numberOfCuts++;
+            }
+            recordCut[record] = elevationNum;
+            cutCounts[elevationNum - 1]++;
+            number_of_records++;
+        }
+        if ((old_cut > 0) && (old_cut < cut_start.length)) {
+            cut_start[old_cut] = record;
         }
-        readAll = true;  // end of file reached?
 
+        // Index the data records of each cut
+        cutRecords = new int[cutCounts.length][];
+        for (int i = 0; i < cutCounts.length; i++) {
+            cutRecords[i] = new int[cutCounts[i]];
+            cutCounts[i]  = 0;
+        }
+        for (int i = 0; i < record; i++) {
+            if (recordCut[i] > 0) {
+                int cut = recordCut[i] - 1;
+                cutRecords[cut][cutCounts[cut]++] = i;
+            }
+        }
+        log_.debug(" did read all");
+        readAll = true;
+    }
 
-        /* System.out.println ("  hit eof"); */
-        /* System.out.println (" vvv readall is "+readAll); */
+    /**
+     * Get one moment of an elevation cut. The radials of the cut are
+     * decoded the first time this is called and the result is kept
+     * around until memory is needed.
+     *
+     * @param cut_num  cut number (as in {@link #getCutStart(int)})
+     * @param moment  REFLECTIVITY, VELOCITY or SPECTRUM_WIDTH
+     *
+     * @return the sweep or null if there are no radials in the cut
+     */
+    public synchronized Level2Sweep getSweep(int cut_num, int moment) {
+        if ( !readAll) {
+            read(0);
+        }
+        if ((cut_num < 0) || (cut_num >= cutRecords.length)
+                || (cutRecords[cut_num].length == 0)) {
+            return null;
+        }
+        Integer                    key   = new Integer(cut_num * 3 + moment);
+        SoftReference<Level2Sweep> ref   = sweeps.get(key);
+        Level2Sweep                sweep = ((ref == null)
+                                            ? null
+                                            : ref.get());
+        if (sweep == null) {
+            try {
+                sweep = decodeSweep(cutRecords[cut_num], moment);
+            } catch (IOException exc) {
+                log_.error("Error reading " + filename + ": " + exc);
+                return null;
+            }
+            sweeps.put(key, new SoftReference<Level2Sweep>(sweep));
+        }
+        return sweep;
+    }
 
+    /**
+     * Decode one moment from the given radials
+     *
+     * @param records  the records of the radials
+     * @param moment  the moment
+     *
+     * @return the sweep
+     *
+     * @throws IOException problem reading the file
+     */
+    private Level2Sweep decodeSweep(int[] records, int moment)
+            throws IOException {
+        // the records of a cut are in order so read them in one go
+        ByteBuffer volume = readRecords(records[0],
+                                        records[records.length - 1]);
+        long       base   = getRecordOffset(records[0]);
+        int        first  = (int) (getMessageOffset(records[0]) - base);
+        int     firstBin     = volume.getShort(first + 34);
+        int     dopplerRange = volume.getShort(first + 36);
+        short   resolution   = volume.getShort(first + 58);
+        int     binSize;
+        int     numBins;
+        int     pointerOffset;
+        float[] lut;
+        if (moment == Level2Record.REFLECTIVITY) {
+            binSize       = volume.getShort(first + 38);
+            numBins       = volume.getShort(first + 42);
+            pointerOffset = 52;
+            lut           = Level2Record.Reflectivity_LUT;
+        } else {
+            binSize       = volume.getShort(first + 40);
+            numBins       = volume.getShort(first + 44);
+            pointerOffset = (moment == Level2Record.VELOCITY)
+                            ? 54
+                            : 56;
+            lut = ((moment == Level2Record.VELOCITY)
+                   && (resolution == Level2Record.DOPPLER_RESOLUTION_LOW))
+                  ? Level2Record.Velocity_1km_LUT
+                  : Level2Record.Velocity_hkm_LUT;
+        }
+        numBins = Math.max(numBins, 0);
+        int     numRadials = records.length;
+        float[] azimuths   = new float[numRadials];
+        float[] elevations = new float[numRadials];
+        float[] values     = new float[numRadials * numBins];
+        int     idx        = 0;
+        for (int i = 0; i < numRadials; i++) {
+            int offset = (int) (getMessageOffset(records[i]) - base);
+            azimuths[i]   = azimuth[records[i]];
+            elevations[i] = elevation[records[i]];
+            int start = volume.getShort(offset + pointerOffset) - 100;
+            if (start < 0) {
+                start = DATA_SIZE;
+            }
+            int end  = Math.min(start + numBins, DATA_SIZE);
+            int data = offset + DATA_OFFSET + 100;
+            for (int bin = start; bin < end; bin++) {
+                values[idx++] = lut[volume.get(data + bin) & 0xff];
+            }
+            for (int bin = Math.max(end, start); bin < start + numBins;
+                    bin++) {
+                values[idx++] = Float.NaN;
+            }
+        }
+        return new Level2Sweep(moment, numBins, azimuths, elevations,
+                               values, firstBin, dopplerRange, binSize);
     }
 
     /**
@@ -0,0 +1,185 @@
+/*
+ * Copyright 1997-2020 Unidata Program Center/University Corporation for
+ * Atmospheric Research, P.O. Box 3000, Boulder, CO 80307,
+ * support@unidata.ucar.edu.
+ *
+ * This library is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation; either version 2.1 of the License, or (at
+ * your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU Lesser
+ * General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this library; if not, write to the Free Software Foundation,
+ * Inc., 59 Temple Place, Suite 330, Boston, MA 02111-1307 USA
+ */
+
+package ucar.unidata.data.radar;
+
+
+/**
+ * One moment of one elevation cut of a NEXRAD level II volume, decoded
+ * into primitive arrays. These are made by {@link Level2Data#getSweep}.
+ *
+ * @author IDV Development Team
+ */
+public class Level2Sweep {
+
+    /** the moment */
+    private int moment;
+
+    /** number of radials */
+    private int numRadials;
+
+    /** number of bins in each radial */
+    private int numBins;
+
+    /** azimuth of each radial */
+    private float[] azimuths;
+
+    /** elevation of each radial */
+    private float[] elevations;
+
+    /** the values, radial by radial */
+    private float[] values;
+
+    /** range to the first reflectivity bin (m) */
+    private int firstBin;
+
+    /** range to the first doppler bin (m) */
+    private int dopplerRange;
+
+    /** bin size (m) */
+    private int binSize;
+
+    /**
+     * Create a new sweep
+     *
+     * @param moment  the moment
+     * @param numBins  number of bins in each radial
+     * @param azimuths  azimuth of each radial
+     * @param elevations  elevation of each radial
+     * @param values  the values, numBins for each radial
+     * @param firstBin  range to the first reflectivity bin (m)
+     * @param dopplerRange  range to the first doppler bin (m)
+     * @param binSize  bin size for this moment (m)
+     */
+    Level2Sweep(int moment, int numBins, float[] azimuths,
+                float[] elevations, float[] values, int firstBin,
+                int dopplerRange, int binSize) {
+        this.moment       = moment;
+        this.numRadials   = azimuths.length;
+        this.numBins      = numBins;
+        this.azimuths     = azimuths;
+        this.elevations   = elevations;
+        this.values       = values;
+        this.firstBin     = firstBin;
+        this.dopplerRange = dopplerRange;
+        this.binSize      = binSize;
+    }
+
+    /**
+     * Get the moment
+     *
+     * @return the moment
+     */
+    public int getMoment() {
+        return moment;
+    }
+
+    /**
+     * Get the number of radials
+     *
+     * @return number of radials
+     */
+    public int getNumRadials() {
+        return numRadials;
+    }
+
+    /**
+     * Get the number of bins in each radial
+     *
+     * @return number of bins. 0 if this moment is not in the cut
+     */
+    public int getNumBins() {
+        return numBins;
+    }
+
+    /**
+     * Get the azimuth of a radial
+     *
+     * @param radial  radial index
+     *
+     * @return azimuth (degrees)
+     */
+    public float getAzimuth(int radial) {
+        return azimuths[radial];
+    }
+
+    /**
+     * Get the elevation of a radial
+     *
+     * @param radial  radial index
+     *
+     * @return elevation (degrees)
+     */
+    public float getElevation(int radial) {
+        return elevations[radial];
+    }
+
+    /**
+     * Get a value
+     *
+     * @param radial  radial index
+     * @param bin  bin index
+     *
+     * @return the value
+     */
+    public float getValue(int radial, int bin) {
+        return values[radial * numBins + bin];
+    }
+
+    /**
+     * Get the values. These are numBins values for each radial.
+     * Do not modify these.
+     *
+     * @return the values
+     */
+    public float[] getValues() {
+        return values;
+    }
+
+    /**
+     * Get the range to the first reflectivity bin
+     *
+     * @return range (m)
+     */
+    public int getFirstBin() {
+        return firstBin;
+    }
+
+    /**
+     * Get the range to the first bin of this moment
+     *
+     * @return range (m)
+     */
+    public int getRangeToFirstGate() {
+        return (moment == Level2Record.REFLECTIVITY)
+               ? firstBin
+               : dopplerRange;
+    }
+
+    /**
+     * Get the bin size of this moment
+     *
+     * @return bin size (m)
+     */
+    public int getBinSize() {
+        return binSize;
+    }
+
+}
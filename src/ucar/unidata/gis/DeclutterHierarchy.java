@@ -0,0 +1,371 @@
+/*
+ * Copyright 1997-2020 Unidata Program Center/University Corporation for
+ * Atmospheric Research, P.O. Box 3000, Boulder, CO 80307,
+ * support@unidata.ucar.edu.
+ *
+ * This library is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation; either version 2.1 of the License, or (at
+ * your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU Lesser
+ * General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this library; if not, write to the Free Software Foundation,
+ * Inc., 59 Temple Place, Suite 330, Boston, MA 02111-1307 USA
+ */
+
+package ucar.unidata.gis;
+
+
+import java.awt.geom.Rectangle2D;
+
+import java.util.Arrays;
+
+
+/**
+ * A precomputed declutter ordering of a set of points. Each point is given
+ * a radius: the points with a radius of at least some scale are all
+ * at least that scale apart. So the points to show at any one zoom are
+ * a prefix of the ordering. Zooming in only adds points and zooming out
+ * only takes them away.
+ * <p>
+ * Distances are measured in units of a cell (e.g., the size of the glyph
+ * drawn at each point) and two points are apart when their cells, placed
+ * at the points, do not overlap. The ordering is made by adding the points,
+ * in their given order, at a shrinking separation, so where it can the
+ * ordering keeps the points that come first.
+ *
+ * @author IDV Development Team
+ */
+public class DeclutterHierarchy {
+
+    /** How much the separation shrinks at each level */
+    private static final double LEVEL_RATIO = 1.25;
+
+    /** Most number of levels we go through */
+    private static final int MAX_LEVELS = 200;
+
+    /** x of each point */
+    private float[] xs;
+
+    /** y of each point */
+    private float[] ys;
+
+    /** cell width */
+    private double cellWidth;
+
+    /** cell height */
+    private double cellHeight;
+
+    /** The points, in order */
+    private int[] order;
+
+    /** The radius of each point in order */
+    private double[] radii;
+
+    /**
+     * Make the hierarchy
+     *
+     * @param xs x of each point. Points with NaN locations are left out
+     * @param ys y of each point
+     * @param cellWidth width of the cell drawn at each point
+     * @param cellHeight height of the cell drawn at each point
+     */
+    public DeclutterHierarchy(float[] xs, float[] ys, double cellWidth,
+                              double cellHeight) {
+        this.xs         = xs;
+        this.ys         = ys;
+        this.cellWidth  = cellWidth;
+        this.cellHeight = cellHeight;
+        build();
+    }
+
+    /**
+     * Get the cell width
+     *
+     * @return cell width
+     */
+    public double getCellWidth() {
+        return cellWidth;
+    }
+
+    /**
+     * Get the cell height
+     *
+     * @return cell height
+     */
+    public double getCellHeight() {
+        return cellHeight;
+    }
+
+    /**
+     * Get the number of points in the ordering
+     *
+     * @return number of points
+     */
+    public int size() {
+        return order.length;
+    }
+
+    /**
+     * Find the points to show when the cells are drawn at the given scale.
+     * This only looks at the points that are kept at the scale.
+     *
+     * @param scale  scale of the cells
+     * @param bounds  only take points whose (scaled) cell is centered in
+     *                here. May be null
+     *
+     * @return indices of the points, in order of priority
+     */
+    public int[] select(double scale, Rectangle2D bounds) {
+        double halfWidth  = cellWidth * scale / 2;
+        double halfHeight = cellHeight * scale / 2;
+        int[]  selected   = new int[order.length];
+        int    cnt        = 0;
+        for (int i = 0; (i < order.length) && (radii[i] >= scale); i++) {
+            int index = order[i];
+            if ((bounds != null)
+                    && !bounds.contains(xs[index] + halfWidth,
+                                        ys[index] + halfHeight)) {
+                continue;
+            }
+            selected[cnt++] = index;
+        }
+        int[] result = new int[cnt];
+        System.arraycopy(selected, 0, result, 0, cnt);
+        return result;
+    }
+
+    /**
+     * Make the ordering
+     */
+    private void build() {
+        int    numPoints = Math.min(xs.length, ys.length);
+        double minU      = Double.POSITIVE_INFINITY;
+        double minV      = Double.POSITIVE_INFINITY;
+        double maxU      = Double.NEGATIVE_INFINITY;
+        double maxV      = Double.NEGATIVE_INFINITY;
+        int    numValid  = 0;
+        for (int i = 0; i < numPoints; i++) {
+            if (Float.isNaN(xs[i]) || Float.isNaN(ys[i])) {
+                continue;
+            }
+            double u = xs[i] / cellWidth;
+            double v = ys[i] / cellHeight;
+            minU = Math.min(minU, u);
+            minV = Math.min(minV, v);
+            maxU = Math.max(maxU, u);
+            maxV = Math.max(maxV, v);
+            numValid++;
+        }
+        order = new int[numValid];
+        radii = new double[numValid];
+        if (numValid == 0) {
+            return;
+        }
+
+        // points with no location are never added
+        boolean[] added = new boolean[numPoints];
+        for (int i = 0; i < numPoints; i++) {
+            added[i] = Float.isNaN(xs[i]) || Float.isNaN(ys[i]);
+        }
+        int    numAdded = 0;
+        double extent   = Math.max(maxU - minU, maxV - minV);
+        double sep      = extent;
+        double lastSep  = Double.MAX_VALUE;
+        // The distance to the nearest added point the last time we looked.
+        // It only gets smaller as points are added so when it is less than
+        // the separation we don't need to look again
+        double[] nearests = new double[numPoints];
+        Arrays.fill(nearests, Double.MAX_VALUE);
+        for (int level = 0; (level < MAX_LEVELS) && (numAdded < numValid)
+                && (sep > 0); level++) {
+            boolean anyToCheck = false;
+            for (int i = 0; (i < numPoints) && !anyToCheck; i++) {
+                anyToCheck = !added[i] && (nearests[i] >= sep);
+            }
+            if ( !anyToCheck) {
+                lastSep = sep;
+                sep     = sep / LEVEL_RATIO;
+                continue;
+            }
+            // the points added so far, hashed on cells big enough that
+            // we only need to look at the neighboring cells
+            double   cellSize = Math.min(lastSep, extent);
+            CellHash cells    = new CellHash(numPoints);
+            for (int i = 0; i < numAdded; i++) {
+                cells.add(order[i], cellKey(order[i], cellSize, minU, minV));
+            }
+            for (int i = 0; i < numPoints; i++) {
+                if (added[i] || (nearests[i] < sep)) {
+                    continue;
+                }
+                double u       = xs[i] / cellWidth;
+                double v       = ys[i] / cellHeight;
+                long   cellX   = (long) Math.floor((u - minU) / cellSize);
+                long   cellY   = (long) Math.floor((v - minV) / cellSize);
+                double nearest = lastSep;
+                for (long cy = cellY - 1; cy <= cellY + 1; cy++) {
+                    for (long cx = cellX - 1; cx <= cellX + 1; cx++) {
+                        for (int other = cells.first(key(cx, cy));
+                                other >= 0; other = cells.next(other)) {
+                            double dist = Math.max(Math.abs(u
+                                              - xs[other]
+                                              / cellWidth), Math.abs(v
+                                                  - ys[other]
+                                                  / cellHeight));
+                            nearest = Math.min(nearest, dist);
+                        }
+                    }
+                }
+                nearests[i] = nearest;
+                if (nearest < sep) {
+                    continue;
+                }
+                added[i]        = true;
+                order[numAdded] = i;
+                radii[numAdded] = nearest;
+                numAdded++;
+                cells.add(i, cellKey(i, cellSize, minU, minV));
+            }
+            lastSep = sep;
+            sep     = sep / LEVEL_RATIO;
+        }
+
+        // the rest sit on top of other points
+        for (int i = 0; (i < numPoints) && (numAdded < numValid); i++) {
+            if (added[i]) {
+                continue;
+            }
+            order[numAdded] = i;
+            radii[numAdded] = 0;
+            numAdded++;
+        }
+    }
+
+    /**
+     * Get the key of the cell a point is in
+     *
+     * @param index index of the point
+     * @param cellSize cell size
+     * @param minU min u
+     * @param minV min v
+     *
+     * @return the key
+     */
+    private long cellKey(int index, double cellSize, double minU,
+                         double minV) {
+        long cellX = (long) Math.floor((xs[index] / cellWidth - minU)
+                                       / cellSize);
+        long cellY = (long) Math.floor((ys[index] / cellHeight - minV)
+                                       / cellSize);
+        return key(cellX, cellY);
+    }
+
+    /**
+     * Make the key for a cell
+     *
+     * @param cellX cell x index
+     * @param cellY cell y index
+     *
+     * @return the key
+     */
+    private static long key(long cellX, long cellY) {
+        return (cellX << 32) ^ (cellY & 0xffffffffL);
+    }
+
+
+    /**
+     * A hash of cell key to the points in the cell. The points in a cell
+     * are linked through an array so there is no boxing.
+     */
+    private static class CellHash {
+
+        /** The cell keys */
+        private long[] keys;
+
+        /** First point in each cell. -1 if the slot is empty */
+        private int[] heads;
+
+        /** Next point in the same cell for each point. -1 at the end */
+        private int[] nexts;
+
+        /** mask for the slots */
+        private int mask;
+
+        /**
+         * Create the hash. It has at least twice as many slots as there
+         * are points so it never gets more than half full, even if one
+         * level adds all of the points.
+         *
+         * @param numPoints total number of points
+         */
+        private CellHash(int numPoints) {
+            int size = 16;
+            while (size < 2 * numPoints) {
+                size *= 2;
+            }
+            keys  = new long[size];
+            heads = new int[size];
+            nexts = new int[numPoints];
+            mask  = size - 1;
+            Arrays.fill(heads, -1);
+        }
+
+        /**
+         * Find the slot for a key
+         *
+         * @param key the key
+         *
+         * @return the slot
+         */
+        private int slot(long key) {
+            int slot = (int) ((key ^ (key >>> 29)) * 0x9E3779B97F4A7C15L
+                              >>> 32) & mask;
+            while ((heads[slot] >= 0) && (keys[slot] != key)) {
+                slot = (slot + 1) & mask;
+            }
+            return slot;
+        }
+
+        /**
+         * Add a point
+         *
+         * @param index the point
+         * @param key the key of its cell
+         */
+        private void add(int index, long key) {
+            int slot = slot(key);
+            keys[slot]   = key;
+            nexts[index] = heads[slot];
+            heads[slot]  = index;
+        }
+
+        /**
+         * Get the first point in a cell
+         *
+         * @param key the key of the cell
+         *
+         * @return the point or -1
+         */
+        private int first(long key) {
+            return heads[slot(key)];
+        }
+
+        /**
+         * Get the next point in the same cell
+         *
+         * @param index the point
+         *
+         * @return the next point or -1
+         */
+        private int next(int index) {
+            return nexts[index];
+        }
+    }
+
+}
@@ -35,9 +35,12 @@ import java.io.InputStream;
 import java.net.MalformedURLException;
 import java.net.URL;
 
+import java.nio.ByteBuffer;
+
 
 /**
- * Class to read a dbase file in its entirety.
+ * Class to read a dbase file in its entirety. For a local file each
+ * column is only read from the file the first time it is asked for.
  *
  * @author  Kirk Waters, NOAA Coastal Services Center, 1997.
  * @author  Russ Rew, modified to restrict access to read-only
@@ -104,6 +107,12 @@ public class DbaseFile extends Object {
     /** _more_ */
     DataInputStream ds = null;
 
+    /** The local file, if we were made from one. Its columns are read lazily */
+    private File file;
+
+    /** Offset in the file of each (not deleted) record */
+    private int[] recordOffsets;
+
     /**
      * Instantiates a new dbase file.
      *
@@ -127,6 +136,7 @@ public class DbaseFile extends Object {
             url    = new URL(spec);
             stream = url.openStream();
         } catch (java.net.MalformedURLException e) {
+            file   = new File(spec);
             stream = new FileInputStream(spec);
             if (stream == null) {
                 System.out.println("Got a null trying to open " + spec);
@@ -142,7 +152,8 @@ public class DbaseFile extends Object {
      */
     public DbaseFile(File file) {
         try {
-            stream = new FileInputStream(file);
+            this.file = file;
+            stream    = new FileInputStream(file);
         } catch (java.io.FileNotFoundException e) {
             System.out.println("Failed to open file " + file);
             stream = null;
@@ -206,7 +217,10 @@ public class DbaseFile extends Object {
             data      = new DbaseData[nfields];
             for (int i = 0; i < nfields; i++) {
                 FieldDesc[i] = new DbaseFieldDesc(ds, filetype);
-                data[i]      = new DbaseData(FieldDesc[i], nrecords);
+                // columns of local files are made when they are read
+                if (file == null) {
+                    data[i] = new DbaseData(FieldDesc[i], nrecords);
+                }
             }
 
             /* read the last byte of the header (0x0d) */
@@ -236,6 +250,9 @@ public class DbaseFile extends Object {
         if (s == null) {
             return -1;
         }
+        if (file != null) {
+            return indexData();
+        }
         try {
             /* read in the data */
             for (int i = 0; i < nrecords; i++) {
@@ -276,6 +293,81 @@ public class DbaseFile extends Object {
         return 0;
     }
 
+    /**
+     *  Find the records of the file that are not deleted. The columns
+     *  are read when they are asked for.
+     *  @return 0 for success, -1 for failure
+     */
+    private int indexData() {
+        int[] offsets = new int[Math.max(nrecords, 0)];
+        int   cnt     = 0;
+        try {
+            stream.close();
+            FileWindow window = new FileWindow(file);
+            try {
+                long length = window.length();
+                for (int i = 0; i < offsets.length; i++) {
+                    long offset = nbytesheader + (long) i * nbytesrecord;
+                    if ((offset + nbytesrecord > length)
+                            || (offset > Integer.MAX_VALUE)) {
+                        break;
+                    }
+                    /* a deleted record if it isn't flagged with a blank */
+                    ByteBuffer bb = window.get(offset, 1);
+                    if (bb.get(bb.position()) == 0x20) {
+                        offsets[cnt++] = (int) offset;
+                    }
+                }
+            } finally {
+                window.close();
+            }
+        } catch (java.io.IOException e) {
+            return -1;
+        }
+        recordOffsets = new int[cnt];
+        System.arraycopy(offsets, 0, recordOffsets, 0, cnt);
+        nrecords   = cnt;
+        dataLoaded = true;
+        return 0;
+    }
+
+    /**
+     *  Read a column of a local file
+     *  @param index Column number of the field to read.
+     *  @return true for success, false if the file couldn't be read
+     */
+    private boolean loadColumn(int index) {
+        int fieldOffset = 1;  // skip the record flag
+        for (int i = 0; i < index; i++) {
+            fieldOffset += FieldDesc[i].FieldLength;
+        }
+        DbaseData column = new DbaseData(FieldDesc[index], nrecords);
+        try {
+            FileWindow window = new FileWindow(file);
+            try {
+                for (int i = 0; i < nrecords; i++) {
+                    ByteBuffer bb =
+                        window.get(recordOffsets[i] + fieldOffset,
+                                   FieldDesc[index].FieldLength);
+                    try {
+                        column.readRowN(bb, i);
+                    } catch (NumberFormatException nfe) {
+                        System.err.println("nfe field=" + index + " row="
+                                           + i);
+                        System.err.println("data:" + column.getType());
+                        throw nfe;
+                    }
+                }
+            } finally {
+                window.close();
+            }
+        } catch (java.io.IOException e) {
+            return false;
+        }
+        data[index] = column;
+        return true;
+    }
+
     /**
      * Close.
      *
@@ -300,10 +392,18 @@ public class DbaseFile extends Object {
      *  @param index Column number of the field to extract.
      *  @return A DbaseData object if the column is within bounds. Otherwise, null.
      */
-    public DbaseData getField(int index) {
+    public synchronized DbaseData getField(int index) {
         if ((index < 0) || (index >= nfields)) {
             return null;
         }
+        if (data[index] == null) {
+            if ( !dataLoaded && (loadData() != 0)) {
+                return null;
+            }
+            if ( !loadColumn(index)) {
+                return null;
+            }
+        }
         return data[index];
     }
 
@@ -315,7 +415,7 @@ public class DbaseFile extends Object {
     public DbaseData getField(String Name) {
         for (int i = 0; i < nfields; i++) {
             if (FieldDesc[i].Name.equals(Name)) {
-                return data[i];
+                return getField(i);
             }
         }
         return null;
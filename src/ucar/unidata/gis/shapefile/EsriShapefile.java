@@ -26,6 +26,7 @@ import ucar.unidata.gis.GisFeature;
 import ucar.unidata.gis.GisPart;
 import ucar.unidata.io.BeLeDataInputStream;
 import ucar.unidata.util.IOUtil;
+import ucar.unidata.util.WrapperException;
 
 
 import java.awt.geom.Rectangle2D;
@@ -33,12 +34,17 @@ import java.awt.geom.Rectangle2D;
 import java.io.BufferedInputStream;
 import java.io.ByteArrayInputStream;
 import java.io.DataInputStream;
+import java.io.File;
 import java.io.FileInputStream;
 import java.io.IOException;
 import java.io.InputStream;
 
 import java.net.URL;
 
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
 import java.util.ArrayList;
 import java.util.Iterator;
 import java.util.List;
@@ -53,6 +59,11 @@ import java.util.zip.ZipInputStream;
  * Encapsulates details of ESRI Shapefile format, documented at
  * http://www.esri.com/library/whitepapers/pdfs/shapefile.pdf
  *
+ * Local files are indexed and their features are only read from the file
+ * when they are asked for, using a {@link ShapefileIndex} of the records
+ * to find the ones in a region. The file is only open while it is being
+ * read. Streams are read in their entirety.
+ *
  * @author Russ Rew
  */
 public class EsriShapefile {
@@ -119,6 +130,21 @@ public class EsriShapefile {
     /** the shapefile data stream */
     private BeLeDataInputStream bdis;
 
+    /** the local shapefile, when it is indexed */
+    private File file;
+
+    /** the part of the local shapefile being read */
+    private ByteBuffer buffer;
+
+    /** index of the records in the local shapefile */
+    private ShapefileIndex index;
+
+    /** the features read so far from the local shapefile, by record */
+    private EsriFeature[] recordFeatures;
+
+    /** the records in the local shapefile selected at construction */
+    private int[] selectedRecords;
+
     /** bytes in file, according to header */
     private int fileBytes;
 
@@ -131,8 +157,8 @@ public class EsriShapefile {
     /** file shape type */
     private int fileShapeType;  // not used here
 
-    /** EsriFeatures as List */
-    private ArrayList<GisFeature> features;  // EsriFeatures in List
+    /** EsriFeatures as List. Made when first asked for if indexed */
+    private List<GisFeature> features;  // EsriFeatures in List
 
     /** bounds from shapefile */
     private Rectangle2D listBounds;  // bounds from shapefile
@@ -243,7 +269,13 @@ public class EsriShapefile {
      */
     public EsriShapefile(String filename, Rectangle2D bBox, double coarseness)
             throws IOException {
-        this(new FileInputStream(filename), bBox, coarseness);
+        setCoarseness(coarseness);
+        File file = new File(filename);
+        if (canIndex(file)) {
+            readIndexed(file, bBox);
+        } else {
+            read(new FileInputStream(filename), bBox);
+        }
     }
 
     /**
@@ -292,14 +324,35 @@ public class EsriShapefile {
     public EsriShapefile(InputStream iStream, Rectangle2D bBox,
                          double coarseness)
             throws IOException {
+        setCoarseness(coarseness);
+        read(iStream, bBox);
+    }
 
-        BufferedInputStream bin = new BufferedInputStream(iStream);
-
+    /**
+     * Set the coarseness
+     *
+     * @param coarseness the coarseness. Negative for the default
+     */
+    private void setCoarseness(double coarseness) {
         if (coarseness < 0.0f) {
             this.coarseness = defaultCoarseness;
         } else {
             this.coarseness = coarseness;
         }
+    }
+
+    /**
+     * Read the shapefile, or a zip file holding it, from a stream
+     *
+     * @param iStream input from which to read
+     * @param bBox bounding box specifying which features to select. If
+     * null, bounding box of whole shapefile is used
+     * @throws IOException Signals that an I/O exception has occurred.
+     */
+    private void read(InputStream iStream, Rectangle2D bBox)
+            throws IOException {
+        BufferedInputStream bin = new BufferedInputStream(iStream);
+
         if (isZipStream(bin)) {
             BeLeDataInputStream dbInputStream = null;
             byte[]              shapeBytes    = null;
@@ -393,6 +446,64 @@ public class EsriShapefile {
         return false;
     }
 
+    /**
+     * Can the file be indexed and read on demand. It has to be a local
+     * shapefile (not a zip file) with offsets that fit in an int.
+     *
+     * @param file the file
+     * @return  true if it can
+     * @throws IOException Signals that an I/O exception has occurred.
+     */
+    private static boolean canIndex(File file) throws IOException {
+        if ( !file.isFile() || (file.length() > Integer.MAX_VALUE)) {
+            return false;
+        }
+        InputStream is = new BufferedInputStream(new FileInputStream(file));
+        try {
+            return !isZipStream(is);
+        } finally {
+            is.close();
+        }
+    }
+
+    /**
+     * Index the records of a local shapefile. The features are read from
+     * the file when they are asked for. The attributes are read from the
+     * .dbf file next to the shapefile, if there is one, a column at a time.
+     *
+     * @param file the shapefile
+     * @param bBox bounding box specifying which features to select. If
+     * null, bounding box of whole shapefile is used
+     * @throws IOException Signals that an I/O exception has occurred.
+     */
+    private void readIndexed(File file, Rectangle2D bBox)
+            throws IOException {
+        FileWindow window = new FileWindow(file);
+        try {
+            buffer = window.get(0, 100);
+            bBox   = readHeader(bBox);
+        } catch (BufferUnderflowException bue) {
+            throw new IOException("Truncated shapefile: " + file);
+        } finally {
+            buffer = null;
+            window.close();
+        }
+        this.file = file;
+        index     = ShapefileIndex.getIndex(file, fileBytes);
+        recordFeatures  = new EsriFeature[index.size()];
+        selectedRecords = index.find(bBox);
+        if (index.size() > 0) {
+            featureType = index.getType(index.size() - 1);
+        }
+        File dbf = ShapefileIndex.getSibling(file, ".dbf");
+        if (dbf.isFile()) {
+            dbFile = new DbaseFile(dbf);
+            if ((dbFile.loadHeader() != 0) || (dbFile.loadData() != 0)) {
+                dbFile = null;
+            }
+        }
+    }
+
     /**
      * Initialize with the bounding box
      *
@@ -401,6 +512,36 @@ public class EsriShapefile {
      * @throws IOException  problem reading from the file
      */
     private void Init(Rectangle2D bBox) throws IOException {
+        bBox = readHeader(bBox);
+
+        /* Read through file, filtering out features that don't
+           intersect bounding box. */
+        features = new ArrayList<GisFeature>();
+
+
+        while (bytesSeen < fileBytes) {
+            GisFeature  gf       = nextFeature();
+            Rectangle2D gfBounds = gf.getBounds2D();
+            if (isSelected(gfBounds, bBox)) {
+                features.add(gf);
+                //              if(features.size()>10) break;
+            }
+        }
+        //System.err.println("features:" + features.size() + " num points:"
+        //                   + NUMPOINTS);
+    }
+
+    /**
+     * Read the file header
+     *
+     * @param bBox  bounding box in shape coordinates. May be null
+     *
+     * @return the bounding box to select features with. The bounds of
+     *         the shapefile if bBox is null.
+     *
+     * @throws IOException  problem reading from the file
+     */
+    private Rectangle2D readHeader(Rectangle2D bBox) throws IOException {
         int fileCode = readInt();
         if (fileCode != SHAPEFILE_CODE) {
             throw (new IOException("Not a shapefile"));
@@ -430,24 +571,67 @@ public class EsriShapefile {
         //      System.err.println("coarseness:" + coarseness +" resolution:" + resolution);
 
         skipBytes(32);  // skip to start of first record header
+        return bBox;
+    }
 
-        /* Read through file, filtering out features that don't
-           intersect bounding box. */
-        features = new ArrayList<GisFeature>();
-
+    /**
+     * Should a feature be selected by the bounding box. It is if its
+     * bounds intersect the box or it has no area.
+     *
+     * @param gfBounds the bounds of the feature. May be null
+     * @param bBox the bounding box
+     *
+     * @return  true if it is selected
+     */
+    private static boolean isSelected(Rectangle2D gfBounds,
+                                      Rectangle2D bBox) {
+        return (gfBounds == null) || (gfBounds.getWidth() == 0)
+               || (gfBounds.getHeight() == 0) || gfBounds.intersects(bBox);
+    }
 
-        while (bytesSeen < fileBytes) {
-            GisFeature  gf       = nextFeature();
-            Rectangle2D gfBounds = gf.getBounds2D();
-            if ((gfBounds == null) || (gfBounds.getWidth() == 0)
-                    || (gfBounds.getHeight() == 0)
-                    || gfBounds.intersects(bBox)) {
-                features.add(gf);
-                //              if(features.size()>10) break;
+    /**
+     * Get the features of the local shapefile in the given records,
+     * reading the ones that haven't been read yet. The file is opened for
+     * this and closed again when done.
+     *
+     * @param records the records
+     *
+     * @return the features
+     */
+    private synchronized List<GisFeature> getRecordFeatures(int[] records) {
+        List<GisFeature> list   = new ArrayList<GisFeature>(records.length);
+        FileWindow       window = null;
+        try {
+            for (int record : records) {
+                if (recordFeatures[record] == null) {
+                    if (window == null) {
+                        window = new FileWindow(file);
+                    }
+                    int        offset = index.getOffset(record);
+                    ByteBuffer header = window.get(offset, 8);
+                    int contentLength = header.order(
+                                            ByteOrder.BIG_ENDIAN).getInt(
+                                            header.position() + 4);
+                    if (contentLength < 0) {
+                        throw new IOException("Bad record length in "
+                                              + file + ": " + contentLength);
+                    }
+                    buffer = window.get(offset, 8 + 2 * contentLength);
+                    recordFeatures[record] = nextFeature();
+                }
+                list.add(recordFeatures[record]);
+            }
+        } catch (IOException ioe) {
+            throw new WrapperException("Reading shapefile", ioe);
+        } catch (BufferUnderflowException bue) {
+            throw new WrapperException("Reading shapefile", bue);
+        } finally {
+            buffer = null;
+            if (window != null) {
+                window.close();
             }
         }
-        //System.err.println("features:" + features.size() + " num points:"
-        //                   + NUMPOINTS);
+        return list;
     }
 
 
@@ -465,6 +649,9 @@ public class EsriShapefile {
      * @return number of features in shapefile
      */
     public int getNumFeatures() {
+        if (features == null) {
+            return selectedRecords.length;
+        }
         return features.size();
     }
 
@@ -473,7 +660,7 @@ public class EsriShapefile {
      * @deprecated
      */
     public int numShapes() {
-        return features.size();
+        return getNumFeatures();
     }
 
     /**
@@ -557,6 +744,9 @@ public class EsriShapefile {
      */
     private int readLEInt() throws IOException {
         bytesSeen += 4;
+        if (buffer != null) {
+            return buffer.order(ByteOrder.LITTLE_ENDIAN).getInt();
+        }
         return bdis.readLEInt();
     }
 
@@ -568,6 +758,9 @@ public class EsriShapefile {
      */
     private int readInt() throws IOException {
         bytesSeen += 4;
+        if (buffer != null) {
+            return buffer.order(ByteOrder.BIG_ENDIAN).getInt();
+        }
         return bdis.readInt();
     }
 
@@ -579,6 +772,9 @@ public class EsriShapefile {
      */
     private double readLEDouble() throws IOException {
         bytesSeen += 8;
+        if (buffer != null) {
+            return buffer.order(ByteOrder.LITTLE_ENDIAN).getDouble();
+        }
         return bdis.readLEDouble();
     }
 
@@ -590,7 +786,13 @@ public class EsriShapefile {
      * @throws IOException Signals that an I/O exception has occurred.
      */
     private void readLEDoubles(double[] d, int n) throws IOException {
-        bdis.readLEDoubles(d, n);
+        if (buffer != null) {
+            buffer.order(ByteOrder.LITTLE_ENDIAN).asDoubleBuffer().get(d, 0,
+                         n);
+            buffer.position(buffer.position() + 8 * n);
+        } else {
+            bdis.readLEDoubles(d, n);
+        }
         bytesSeen += 8 * n;
     }
 
@@ -601,7 +803,11 @@ public class EsriShapefile {
      * @throws IOException Signals that an I/O exception has occurred.
      */
     private void skipBytes(int n) throws IOException {
-        bdis.skip(n);
+        if (buffer != null) {
+            buffer.position(buffer.position() + n);
+        } else {
+            bdis.skip(n);
+        }
         bytesSeen += n;
     }
 
@@ -626,20 +832,27 @@ public class EsriShapefile {
     /**
      * Get a List of all the GisFeatures in the shapefile.  This is
      * very fast after the constructor has been called, since it is
-     * created during construction.
+     * created during construction (or, for a local file, the first
+     * time this is called).
      *
      * @return a List of features
      */
     public List getFeatures() {
+        synchronized (this) {
+            if (features == null) {
+                features = getRecordFeatures(selectedRecords);
+            }
+        }
         return features;
     }
 
     /**
      * Get a List of all the features in the shapefile that intersect
-     * the specified bounding box.  This requires testing every
-     * feature in the List created at construction, so it's faster to
-     * just give a bounding box o the constructor if you will only do
-     * this once.
+     * the specified bounding box.  For a stream this requires testing
+     * every feature in the List created at construction, so it's faster
+     * to just give a bounding box o the constructor if you will only do
+     * this once. For a local file only the features in the box are read.
+     * Features with no area are always returned.
      *
      * @param bBox specifying the bounding box with which all
      * the returned features bounding boxes have a non-empty
@@ -650,12 +863,30 @@ public class EsriShapefile {
      */
     public List getFeatures(Rectangle2D bBox) {
         if (bBox == null) {
-            return features;
+            return getFeatures();
+        }
+        if (index != null) {
+            int[] records = index.find(bBox);
+            int   cnt     = 0;
+            // only those selected at construction
+            for (int i = 0, j = 0; i < records.length; i++) {
+                while ((j < selectedRecords.length)
+                        && (selectedRecords[j] < records[i])) {
+                    j++;
+                }
+                if ((j < selectedRecords.length)
+                        && (selectedRecords[j] == records[i])) {
+                    records[cnt++] = records[i];
+                }
+            }
+            int[] both = new int[cnt];
+            System.arraycopy(records, 0, both, 0, cnt);
+            return getRecordFeatures(both);
         }
         List list = new ArrayList();
         for (Iterator i = features.iterator(); i.hasNext(); ) {
             EsriFeature gf = (EsriFeature) i.next();
-            if (gf.getBounds2D().intersects(bBox)) {
+            if (isSelected(gf.getBounds2D(), bBox)) {
                 list.add(gf);
             }
         }
@@ -1113,7 +1344,9 @@ public class EsriShapefile {
 
     /**
      * Implementation of GisPart for Esri specific features, x and y are
-     * converted to lon/lat if a ProjFile is available
+     * converted to lon/lat if a ProjFile is available. The points are
+     * held as floats, which is all the displays use, to halve the memory
+     * the features take.
      */
     class EsriPart implements GisPart {
 
@@ -1121,10 +1354,10 @@ public class EsriShapefile {
         private int numPoints = 0;
 
         /** the x values */
-        private double[] x;
+        private float[] x;
 
         /** the y values */
-        private double[] y;
+        private float[] y;
 
         /**
          * Construct an EsriPart by eliding duplicates from array
@@ -1153,31 +1386,61 @@ public class EsriShapefile {
             }
 
             /* second pass: store nonduplicated points */
-            x   = new double[numPoints];
-            y   = new double[numPoints];
+            double[] dx = new double[numPoints];
+            double[] dy = new double[numPoints];
             ixy = xyOffset;
             int j = 0;
-            x[j] = xyPoints[ixy++];
-            y[j] = xyPoints[ixy++];
-            xx   = x[j];
-            yy   = y[j];
+            dx[j] = xyPoints[ixy++];
+            dy[j] = xyPoints[ixy++];
+            xx    = dx[j];
+            yy    = dy[j];
             for (int i = 1; i < num; i++) {
                 xi = xyPoints[ixy++];
                 yi = xyPoints[ixy++];
                 if ((xi != xx) || (yi != yy)) {
                     j++;
-                    x[j] = xi;
-                    y[j] = yi;
-                    xx   = x[j];
-                    yy   = y[j];
+                    dx[j] = xi;
+                    dy[j] = yi;
+                    xx    = dx[j];
+                    yy    = dy[j];
                 }
             }
             double[][] xy = makeLatLon(new double[][] {
-                x, y
+                dx, dy
             });
-            x = xy[0];
-            y = xy[1];
+            x = toFloats(xy[0]);
+            y = toFloats(xy[1]);
+
+        }
 
+        /**
+         * Convert to floats
+         *
+         * @param d  the values
+         *
+         * @return  the values as floats
+         */
+        private float[] toFloats(double[] d) {
+            float[] f = new float[d.length];
+            for (int i = 0; i < d.length; i++) {
+                f[i] = (float) d[i];
+            }
+            return f;
+        }
+
+        /**
+         * Convert to doubles
+         *
+         * @param f  the values
+         *
+         * @return  the values as doubles
+         */
+        private double[] toDoubles(float[] f) {
+            double[] d = new double[f.length];
+            for (int i = 0; i < f.length; i++) {
+                d[i] = f[i];
+            }
+            return d;
         }
 
         /**
@@ -1193,7 +1456,7 @@ public class EsriShapefile {
          * @return  the x values
          */
         public double[] getX() {
-            return x;
+            return toDoubles(x);
         }
 
         /**
@@ -1201,7 +1464,7 @@ public class EsriShapefile {
          * @return the Y values
          */
         public double[] getY() {
-            return y;
+            return toDoubles(y);
         }
 
         /**
@@ -0,0 +1,120 @@
+/*
+ * Copyright 1997-2020 Unidata Program Center/University Corporation for
+ * Atmospheric Research, P.O. Box 3000, Boulder, CO 80307,
+ * support@unidata.ucar.edu.
+ *
+ * This library is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation; either version 2.1 of the License, or (at
+ * your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU Lesser
+ * General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this library; if not, write to the Free Software Foundation,
+ * Inc., 59 Temple Place, Suite 330, Boston, MA 02111-1307 USA
+ */
+package ucar.unidata.gis.shapefile;
+
+
+import java.io.EOFException;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+
+import java.nio.ByteBuffer;
+
+
+/**
+ * Reads a local file through a window that is filled from the file as
+ * it is asked for parts of it. This is used in place of a memory map so
+ * the file is not held open, or locked on Windows, once it is closed.
+ *
+ * @author IDV Development Team
+ */
+class FileWindow {
+
+    /** Default size of the window */
+    static final int DEFAULT_SIZE = 1024 * 1024;
+
+    /** The file */
+    private RandomAccessFile raf;
+
+    /** The part of the file we have read */
+    private ByteBuffer window;
+
+    /** Offset in the file of the window */
+    private long start = -1;
+
+    /**
+     * Open the file
+     *
+     * @param file the file
+     *
+     * @throws IOException problem opening the file
+     */
+    FileWindow(File file) throws IOException {
+        raf    = new RandomAccessFile(file, "r");
+        window = ByteBuffer.allocate(DEFAULT_SIZE);
+    }
+
+    /**
+     * Get the length of the file
+     *
+     * @return the length
+     *
+     * @throws IOException problem reading the file
+     */
+    long length() throws IOException {
+        return raf.length();
+    }
+
+    /**
+     * Get the given part of the file, reading it if it is not in the
+     * window. The returned buffer is positioned at the offset and is only
+     * good until the next call. Its byte order is left as the caller set
+     * it.
+     *
+     * @param offset offset in the file
+     * @param length number of bytes wanted
+     *
+     * @return the buffer
+     *
+     * @throws IOException problem reading the file or it is not that long
+     */
+    ByteBuffer get(long offset, int length) throws IOException {
+        if ((start < 0) || (offset < start)
+                || (offset + length > start + window.limit())) {
+            if (length > window.capacity()) {
+                window = ByteBuffer.allocate(length).order(window.order());
+            }
+            window.clear();
+            int  size = window.capacity();
+            long left = raf.length() - offset;
+            if (left < size) {
+                size = (int) Math.max(0, left);
+            }
+            raf.seek(offset);
+            raf.readFully(window.array(), 0, size);
+            window.limit(size);
+            start = offset;
+            if (size < length) {
+                throw new EOFException("Read past the end of the file");
+            }
+        }
+        window.position((int) (offset - start));
+        return window;
+    }
+
+    /**
+     * Close the file
+     */
+    void close() {
+        try {
+            raf.close();
+        } catch (IOException ioe) {}
+    }
+}
@@ -0,0 +1,450 @@
+/*
+ * Copyright 1997-2020 Unidata Program Center/University Corporation for
+ * Atmospheric Research, P.O. Box 3000, Boulder, CO 80307,
+ * support@unidata.ucar.edu.
+ *
+ * This library is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation; either version 2.1 of the License, or (at
+ * your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU Lesser
+ * General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this library; if not, write to the Free Software Foundation,
+ * Inc., 59 Temple Place, Suite 330, Boston, MA 02111-1307 USA
+ */
+
+package ucar.unidata.gis.shapefile;
+
+
+import java.awt.geom.Rectangle2D;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+
+/**
+ * The offset and bounding box of each record of a shapefile, so the
+ * records that intersect a region can be found without reading them.
+ * The offsets come from the .shx file if there is one. The index is
+ * cached in a .bix file next to the shapefile (when the directory can be
+ * written to) and is made again if the shapefile changes.
+ *
+ * @author IDV Development Team
+ */
+class ShapefileIndex {
+
+    /** Suffix of the cached index */
+    static final String INDEX_SUFFIX = ".bix";
+
+    /** Magic number of the cached index */
+    private static final int MAGIC = 0x42495831;  // BIX1
+
+    /** Size of the shapefile header */
+    private static final int HEADER_BYTES = 100;
+
+    /** Byte offset of each record (its header) in the shapefile */
+    private int[] offsets;
+
+    /** Shape type of each record */
+    private int[] types;
+
+    /**
+     * Bounds of each record, as (minX, minY, maxX, maxY). NaN for null
+     * shapes
+     */
+    private double[] bounds;
+
+    /**
+     * Create the index
+     *
+     * @param offsets record offsets
+     * @param types record shape types
+     * @param bounds record bounds
+     */
+    private ShapefileIndex(int[] offsets, int[] types, double[] bounds) {
+        this.offsets = offsets;
+        this.types   = types;
+        this.bounds  = bounds;
+    }
+
+    /**
+     * Get the index of a shapefile, from the cache if it is there and up
+     * to date, otherwise by reading the record headers
+     *
+     * @param shpFile the shapefile
+     * @param fileBytes length of the shapefile, from its header
+     *
+     * @return the index
+     *
+     * @throws IOException problem reading the shapefile or it has a shape
+     *                     type that can't be read
+     */
+    static ShapefileIndex getIndex(File shpFile, int fileBytes)
+            throws IOException {
+        File           indexFile = getSibling(shpFile, INDEX_SUFFIX);
+        ShapefileIndex index     = readCache(indexFile, shpFile);
+        if (index != null) {
+            return index;
+        }
+        index = makeIndex(shpFile, fileBytes);
+        index.writeCache(indexFile, shpFile);
+        return index;
+    }
+
+    /**
+     * Find the file with the same name as the shapefile and the given
+     * suffix. Looks for both lower and upper case suffixes
+     *
+     * @param shpFile the shapefile
+     * @param suffix suffix (e.g., ".dbf")
+     *
+     * @return the file. It may not exist
+     */
+    static File getSibling(File shpFile, String suffix) {
+        String path = shpFile.getPath();
+        int    dot  = path.lastIndexOf('.');
+        if (dot > path.lastIndexOf(File.separatorChar)) {
+            path = path.substring(0, dot);
+        }
+        File lower = new File(path + suffix.toLowerCase());
+        if (lower.exists()) {
+            return lower;
+        }
+        File upper = new File(path + suffix.toUpperCase());
+        if (upper.exists()) {
+            return upper;
+        }
+        return lower;
+    }
+
+    /**
+     * Read the record headers of the shapefile
+     *
+     * @param shpFile the shapefile
+     * @param fileBytes length of the shapefile, from its header
+     *
+     * @return the index
+     *
+     * @throws IOException problem reading the files
+     */
+    private static ShapefileIndex makeIndex(File shpFile, int fileBytes)
+            throws IOException {
+        FileWindow shp = new FileWindow(shpFile);
+        try {
+            return makeIndex(shpFile, shp,
+                             (int) Math.min(fileBytes, shp.length()));
+        } finally {
+            shp.close();
+        }
+    }
+
+    /**
+     * Make the index from the .shx file, or by walking the record headers
+     * if there isn't one.
+     *
+     * @param shpFile the shapefile
+     * @param shp window on the shapefile
+     * @param limit number of usable bytes in the shapefile
+     *
+     * @return the index
+     *
+     * @throws IOException problem reading the files
+     */
+    private static ShapefileIndex makeIndex(File shpFile, FileWindow shp,
+                                            int limit)
+            throws IOException {
+        int[] offsets = readShx(getSibling(shpFile, ".shx"));
+        if (offsets == null) {
+            // walk the record headers
+            int cnt = 0;
+            for (int pos = HEADER_BYTES; pos + 8 <= limit;
+                    pos = nextRecord(shp, pos)) {
+                cnt++;
+            }
+            offsets = new int[cnt];
+            cnt     = 0;
+            for (int pos = HEADER_BYTES; pos + 8 <= limit;
+                    pos = nextRecord(shp, pos)) {
+                offsets[cnt++] = pos;
+            }
+        }
+        int[]    types  = new int[offsets.length];
+        double[] bounds = new double[4 * offsets.length];
+        for (int i = 0; i < offsets.length; i++) {
+            int pos = offsets[i] + 8;
+            if ((offsets[i] < HEADER_BYTES) || (pos + 4 > limit)) {
+                throw new IOException("Bad record offset in shapefile");
+            }
+            // shape type and bounding box, whatever of it is in the file
+            ByteBuffer le = shp.get(pos, Math.min(36, limit - pos));
+            le.order(ByteOrder.LITTLE_ENDIAN);
+            int base = le.position();
+            types[i] = le.getInt(base);
+            switch (types[i]) {
+
+              case EsriShapefile.NULL :
+                  for (int j = 0; j < 4; j++) {
+                      bounds[4 * i + j] = Double.NaN;
+                  }
+                  break;
+
+              case EsriShapefile.POINT :
+              case EsriShapefile.POINTZ :
+                  bounds[4 * i]     = le.getDouble(base + 4);
+                  bounds[4 * i + 1] = le.getDouble(base + 12);
+                  bounds[4 * i + 2] = bounds[4 * i];
+                  bounds[4 * i + 3] = bounds[4 * i + 1];
+                  break;
+
+              case EsriShapefile.MULTIPOINT :
+              case EsriShapefile.POLYLINE :
+              case EsriShapefile.POLYLINEZ :
+              case EsriShapefile.POLYGON :
+              case EsriShapefile.POLYGONZ :
+                  for (int j = 0; j < 4; j++) {
+                      bounds[4 * i + j] = le.getDouble(base + 4 + 8 * j);
+                  }
+                  break;
+
+              default :
+                  throw new IOException("can't handle shapefile shape type "
+                                        + types[i]);
+            }
+        }
+        return new ShapefileIndex(offsets, types, bounds);
+    }
+
+    /**
+     * Find the offset of the record after the one at the given offset
+     *
+     * @param shp window on the shapefile
+     * @param pos offset of the record header
+     *
+     * @return offset of the next record
+     *
+     * @throws IOException if the content length in the header is bad
+     */
+    private static int nextRecord(FileWindow shp, int pos)
+            throws IOException {
+        ByteBuffer be            = shp.get(pos, 8);
+        int        contentLength =
+            be.order(ByteOrder.BIG_ENDIAN).getInt(be.position() + 4);
+        long       next          = pos + 8 + 2L * contentLength;
+        if ((contentLength < 0) || (next > Integer.MAX_VALUE)) {
+            throw new IOException("Bad record length in shapefile: "
+                                  + contentLength + " at " + pos);
+        }
+        return (int) next;
+    }
+
+    /**
+     * Read the record offsets from the .shx file
+     *
+     * @param shxFile the .shx file
+     *
+     * @return the offsets or null if there is no .shx file
+     *
+     * @throws IOException problem reading the file
+     */
+    private static int[] readShx(File shxFile) throws IOException {
+        if ( !shxFile.isFile() || (shxFile.length() < HEADER_BYTES)) {
+            return null;
+        }
+        RandomAccessFile raf = new RandomAccessFile(shxFile, "r");
+        try {
+            byte[] bytes = new byte[(int) raf.length()];
+            raf.readFully(bytes);
+            ByteBuffer shx     = ByteBuffer.wrap(bytes);
+            int[]      offsets = new int[(shx.limit() - HEADER_BYTES) / 8];
+            for (int i = 0; i < offsets.length; i++) {
+                // in 16 bit words
+                offsets[i] = 2 * shx.getInt(HEADER_BYTES + 8 * i);
+            }
+            return offsets;
+        } finally {
+            raf.close();
+        }
+    }
+
+    /**
+     * Read the cached index
+     *
+     * @param indexFile the cache
+     * @param shpFile the shapefile
+     *
+     * @return the index or null if there isn't one for this version of
+     *         the shapefile
+     */
+    private static ShapefileIndex readCache(File indexFile, File shpFile) {
+        if ( !indexFile.isFile()) {
+            return null;
+        }
+        DataInputStream dis = null;
+        try {
+            dis = new DataInputStream(
+                new BufferedInputStream(new FileInputStream(indexFile)));
+            if ((dis.readInt() != MAGIC)
+                    || (dis.readLong() != shpFile.length())
+                    || (dis.readLong() != shpFile.lastModified())) {
+                return null;
+            }
+            int n = dis.readInt();
+            if ((n < 0) || (indexFile.length() != 24 + 40L * n)) {
+                return null;
+            }
+            int[]    offsets = new int[n];
+            int[]    types   = new int[n];
+            double[] bounds  = new double[4 * n];
+            for (int i = 0; i < n; i++) {
+                offsets[i] = dis.readInt();
+                types[i]   = dis.readInt();
+                for (int j = 0; j < 4; j++) {
+                    bounds[4 * i + j] = dis.readDouble();
+                }
+            }
+            return new ShapefileIndex(offsets, types, bounds);
+        } catch (IOException ioe) {
+            return null;
+        } finally {
+            if (dis != null) {
+                try {
+                    dis.close();
+                } catch (IOException ignore) {}
+            }
+        }
+    }
+
+    /**
+     * Write the index to the cache. Failures (e.g., a read only directory)
+     * are ignored
+     *
+     * @param indexFile the cache
+     * @param shpFile the shapefile
+     */
+    private void writeCache(File indexFile, File shpFile) {
+        File             tmpFile = new File(indexFile.getPath() + ".tmp");
+        DataOutputStream dos     = null;
+        try {
+            dos = new DataOutputStream(
+                new BufferedOutputStream(new FileOutputStream(tmpFile)));
+            dos.writeInt(MAGIC);
+            dos.writeLong(shpFile.length());
+            dos.writeLong(shpFile.lastModified());
+            dos.writeInt(offsets.length);
+            for (int i = 0; i < offsets.length; i++) {
+                dos.writeInt(offsets[i]);
+                dos.writeInt(types[i]);
+                for (int j = 0; j < 4; j++) {
+                    dos.writeDouble(bounds[4 * i + j]);
+                }
+            }
+            dos.close();
+            dos = null;
+            // so a partly written cache is never read
+            indexFile.delete();
+            if ( !tmpFile.renameTo(indexFile)) {
+                tmpFile.delete();
+            }
+        } catch (IOException ioe) {
+            tmpFile.delete();
+        } finally {
+            if (dos != null) {
+                try {
+                    dos.close();
+                } catch (IOException ignore) {}
+                tmpFile.delete();
+            }
+        }
+    }
+
+    /**
+     * Get the number of records
+     *
+     * @return number of records
+     */
+    int size() {
+        return offsets.length;
+    }
+
+    /**
+     * Get the byte offset of a record in the shapefile
+     *
+     * @param record the record
+     *
+     * @return the offset of its header
+     */
+    int getOffset(int record) {
+        return offsets[record];
+    }
+
+    /**
+     * Get the shape type of a record
+     *
+     * @param record the record
+     *
+     * @return the type
+     */
+    int getType(int record) {
+        return types[record];
+    }
+
+    /**
+     * Should the record be read for the bounding box. This is true if
+     * its bounds intersect the box or it has no area (null shapes, points
+     * and horizontal or vertical lines).
+     *
+     * @param record the record
+     * @param bBox the bounding box
+     *
+     * @return true if it should be read
+     */
+    boolean isSelected(int record, Rectangle2D bBox) {
+        double minX = bounds[4 * record];
+        double minY = bounds[4 * record + 1];
+        if (Double.isNaN(minX)) {
+            return true;
+        }
+        double width  = bounds[4 * record + 2] - minX;
+        double height = bounds[4 * record + 3] - minY;
+        return (width == 0) || (height == 0)
+               || bBox.intersects(minX, minY, width, height);
+    }
+
+    /**
+     * Find the records to read for the bounding box
+     *
+     * @param bBox the bounding box
+     *
+     * @return the records, in order
+     *
+     * @see #isSelected(int, Rectangle2D)
+     */
+    int[] find(Rectangle2D bBox) {
+        int[] found = new int[offsets.length];
+        int   cnt   = 0;
+        for (int i = 0; i < offsets.length; i++) {
+            if (isSelected(i, bBox)) {
+                found[cnt++] = i;
+            }
+        }
+        int[] result = new int[cnt];
+        System.arraycopy(found, 0, result, 0, cnt);
+        return result;
+    }
+
+}
@@ -342,6 +342,20 @@ public interface IdvConstants {
     /** The monitor port id */
     public static final String PROP_MONITORPORT = "idv.monitorport";
 
+    /** Number of idvs that render image server requests */
+    public static final String PROP_IMAGESERVER_WORKERS =
+        "idv.imageserver.workers";
+
+    /** Use the pooled http client for remote reads */
+    public static final String PROP_HTTP_POOL = "idv.http.pool";
+
+    /** Most pooled http connections */
+    public static final String PROP_HTTP_MAXCONNECTIONS =
+        "idv.http.maxconnections";
+
+    /** Most pooled http connections to one host */
+    public static final String PROP_HTTP_MAXPERHOST = "idv.http.maxperhost";
+
     /** The id for the maximum number of rendering threads preference */
     public static final String PREF_THREADS_RENDER = "idv.threads.render.max";
 
@@ -592,6 +606,14 @@ public interface IdvConstants {
     /** IDV use time driver preference */
     public static final String PROP_USE_DISPLAYAREA = "idv.usedisplayarea";
 
+    /** Number of animation steps to read ahead */
+    public static final String PROP_ANIMATION_PREFETCH =
+        "idv.animation.prefetch";
+
+    /** Max MB of data to read ahead of the animation */
+    public static final String PROP_ANIMATION_PREFETCH_MAXMB =
+        "idv.animation.prefetch.maxmb";
+
     /** Preference to store what choosers to show */
     public static final String PROP_CHOOSERS = "idv.choosers";
 
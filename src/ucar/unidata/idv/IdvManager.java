@@ -44,6 +44,8 @@ import java.awt.*;
 
 import java.lang.management.*;
 
+import java.util.List;
+
 import javax.swing.*;
 
 
@@ -386,6 +388,10 @@ public abstract class IdvManager extends WindowHolder implements IdvConstants {
      */
     public static void waitUntilDisplaysAreDone(IdvUIManager uiManager,
             long timeToWait) {
+        if (uiManager.getIdv().getSharesJvm()) {
+            waitUntilIdvIsDone(uiManager, timeToWait);
+            return;
+        }
         Trace.call1("Waiting on displays");
         int  successiveTimesWithNoActive = 0;
         int  sleepTime                   = 10;
@@ -434,6 +440,61 @@ public abstract class IdvManager extends WindowHolder implements IdvConstants {
     }
 
 
+    /**
+     * Wait until the displays of one IDV are finished being created. This
+     * first looks at that IDV's DisplayControls, data sources and wait
+     * cursor count so other IDVs in the same JVM (e.g., those of a
+     * {@link RenderPool}) that are loading data don't hold it up. Once
+     * those are quiet it still waits on the JVM wide visad transforms and
+     * java3d rendering since the last of our displays may be in there.
+     *
+     * @param uiManager The ui manager of the IDV
+     * @param timeToWait (milliseconds) elapsed time to wait for nothing to
+     *                   be active
+     */
+    private static void waitUntilIdvIsDone(IdvUIManager uiManager,
+                                           long timeToWait) {
+        Trace.call1("Waiting on idv displays");
+        IntegratedDataViewer idv                         = uiManager.getIdv();
+        int                  successiveTimesWithNoActive = 0;
+        int                  sleepTime                   = 10;
+        long                 firstTime = System.currentTimeMillis();
+        while (true) {
+            boolean anyActive = (uiManager.getWaitCursorCount() > 0)
+                                || !idv.getAllDisplaysIntialized();
+            List dataSources = idv.getDataSources();
+            for (int i = 0; (i < dataSources.size()) && !anyActive; i++) {
+                Object dataSource = dataSources.get(i);
+                anyActive = (dataSource instanceof DataSourceImpl)
+                            && (((DataSourceImpl) dataSource)
+                                .getActiveGetDataCalls() > 0);
+            }
+            if ( !anyActive) {
+                anyActive = (ActionImpl.getTaskCount() > 0)
+                            || anyJava3dThreadsActive();
+            }
+            if (anyActive) {
+                successiveTimesWithNoActive = 0;
+            } else {
+                successiveTimesWithNoActive++;
+            }
+            if ((timeToWait == 0) && !anyActive) {
+                break;
+            }
+            if (successiveTimesWithNoActive * sleepTime > timeToWait) {
+                break;
+            }
+            Misc.sleep(sleepTime);
+            //At most wait 120 seconds
+            if (System.currentTimeMillis() - firstTime > 120000) {
+                System.err.println("Error waiting for to be done:"
+                                   + LogUtil.getStackDump(false));
+                break;
+            }
+        }
+        Trace.call2("Waiting on idv displays");
+    }
+
     /**
      * A total hack to see if there are any active Java3D threads running
      *
@@ -377,6 +377,7 @@ public class IdvPreferenceManager extends IdvManager implements ActionListener {
 
                 store.put(key, new Integer(value));
                 visad.util.ThreadManager.setGlobalMaxThreads(value);
+                ucar.unidata.util.ComputePool.setMaxThreads(value);
 
                 continue;
             }
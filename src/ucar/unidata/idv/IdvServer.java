@@ -45,6 +45,12 @@ public class IdvServer {
     /** _more_          */
     private File userDir;
 
+    /** Evaluates the isl when there is more than one idv. May be null */
+    private RenderPool renderPool;
+
+    /** Do other IDVs in this JVM render at the same time */
+    private boolean sharesJvm = false;
+
 
     /**
      * _more_
@@ -54,12 +60,68 @@ public class IdvServer {
      * @throws Exception _more_
      */
     public IdvServer(File userDir) throws Exception {
-        idv = new MyIdv(((userDir == null)
-                         ? null
-                         : userDir.toString()));
+        this.userDir = userDir;
+        idv          = makeIdv();
+    }
+
+    /**
+     * Create the server with a pool of IDVs that evaluate isl requests at
+     * the same time
+     *
+     * @param userDir user directory for the IDVs. May be null
+     * @param numIdvs number of IDVs. If 1 this is the same as
+     *                {@link #IdvServer(File)}
+     *
+     * @throws Exception problem making an IDV
+     */
+    public IdvServer(File userDir, int numIdvs) throws Exception {
+        this.userDir = userDir;
+        if (numIdvs > 1) {
+            renderPool = new RenderPool(numIdvs, userDir);
+        } else {
+            idv = makeIdv();
+        }
+    }
+
+    /**
+     * Make a new idv
+     *
+     * @return the idv
+     *
+     * @throws Exception On badness
+     */
+    private MyIdv makeIdv() throws Exception {
+        MyIdv idv = new MyIdv(((userDir == null)
+                               ? null
+                               : userDir.toString()));
         idv.getStateManager().putProperty(IdvConstants.PROP_MAP_MAP_LEVEL,
                                           "0");
-        this.userDir = userDir;
+        idv.setSharesJvm(sharesJvm);
+        return idv;
+    }
+
+    /**
+     * Set whether other IDVs in this JVM render at the same time as this
+     * server's
+     *
+     * @param value true if the JVM is shared
+     */
+    public void setSharesJvm(boolean value) {
+        synchronized (MUTEX) {
+            sharesJvm = value;
+            if (idv != null) {
+                idv.setSharesJvm(value);
+            }
+        }
+    }
+
+    /**
+     * Get the pool of IDVs
+     *
+     * @return the pool or null if there is just one IDV
+     */
+    public RenderPool getRenderPool() {
+        return renderPool;
     }
 
 
@@ -85,15 +147,15 @@ public class IdvServer {
      */
     public void evaluateIsl(StringBuffer isl, Hashtable properties)
             throws Exception {
+        if (renderPool != null) {
+            renderPool.evaluateIsl(isl, properties);
+            return;
+        }
         synchronized (MUTEX) {
             //Make a new one every 100 calls
             if (callCnt++ > 100) {
                 idv.cleanup();
-                idv = new MyIdv(((userDir == null)
-                                 ? null
-                                 : userDir.toString()));
-                idv.getStateManager().putProperty(
-                    IdvConstants.PROP_MAP_MAP_LEVEL, "0");
+                idv     = makeIdv();
                 callCnt = 0;
             }
             idv.getImageGenerator().processScriptFile("xml:" + isl,
@@ -107,7 +169,7 @@ public class IdvServer {
     /**
      * _more_
      *
-     * @return _more_
+     * @return the idv or null if this server has a pool of them
      */
     public MyIdv getIdv() {
         return idv;
@@ -21,6 +21,8 @@
 package ucar.unidata.idv;
 
 
+import ucar.unidata.data.DataSource;
+
 import ucar.unidata.idv.ui.IdvUIManager;
 
 import ucar.unidata.util.GuiUtils;
@@ -41,6 +43,7 @@ import java.net.URL;
 import java.util.Date;
 
 import java.util.Hashtable;
+import java.util.List;
 
 
 
@@ -86,9 +89,21 @@ public class ImageServer extends HttpServer {
     /** http image arg */
     public static final String REQ_EXIT = "exit";
 
+    /** http request for the render pool status */
+    public static final String REQ_STATUS = "status";
+
+    /**
+     * http arg to load the bundle even if a render pool worker has it.
+     * Without it a worker that has the bundle just reloads its data
+     */
+    public static final String ARG_RELOAD = "reload";
+
     /** The idv */
     IntegratedDataViewer idv;
 
+    /** Renders the requests when not null. Otherwise the idv does */
+    private RenderPool renderPool;
+
     /**
      * ctor
      *
@@ -112,6 +127,24 @@ public class ImageServer extends HttpServer {
         this.idv = idv;
     }
 
+    /**
+     * Render the requests in a pool of idvs instead of the one idv
+     *
+     * @param renderPool the pool. null to use the idv
+     */
+    public void setRenderPool(RenderPool renderPool) {
+        this.renderPool = renderPool;
+    }
+
+    /**
+     * Get the render pool
+     *
+     * @return the pool or null if the idv renders the requests
+     */
+    public RenderPool getRenderPool() {
+        return renderPool;
+    }
+
     /**
      * Create the request handler for the connection
      *
@@ -196,11 +229,93 @@ public class ImageServer extends HttpServer {
          *
          * @throws Exception On badness
          */
-        protected void handleRequestInner(String path, Hashtable formArgs,
+        protected void handleRequestInner(String path,
+                                          final Hashtable formArgs,
                                           Hashtable httpArgs, String content)
                 throws Exception {
+            String request = (String) formArgs.get(ARG_REQUEST);
+            if (request == null) {
+                request = REQ_MAKEIMAGE;
+            }
+            if (request.equals(REQ_EXIT)) {
+                writeResult(true, "<response>ok</response>", "text/xml");
+                System.exit(0);
+            }
+            RenderPool renderPool = (server instanceof ImageServer)
+                                    ? ((ImageServer) server).getRenderPool()
+                                    : null;
+            if (request.equals(REQ_STATUS)) {
+                writeResult(true, ((renderPool == null)
+                                   ? "<response>ok</response>"
+                                   : renderPool.getStatusXml()), "text/xml");
+                return;
+            }
+            final boolean doMovie  = request.equals(REQ_MAKEMOVIE);
+            String        mimeType = (doMovie
+                                      ? "video/quicktime"
+                                      : "image/png");
+            String bundle = (String) server.getProperties().get("bundle");
+            if (bundle == null) {
+                bundle = (String) formArgs.get(ARG_BUNDLE);
+            }
+            final String theBundle = bundle;
+
+            String imageFile;
+            if (renderPool == null) {
+                imageFile = render(idv, formArgs, theBundle, doMovie, false);
+                idv.cleanup();
+            } else {
+                // the same bundle at the same size can be captured again
+                // without loading it again, unless asked to
+                String bundleKey = null;
+                if ((bundle != null) && !doMovie
+                        && !Misc.getProperty(formArgs, ARG_RELOAD, false)) {
+                    File bundleFile = new File(bundle);
+                    bundleKey = bundleFile.getAbsolutePath() + ":"
+                                + bundleFile.lastModified() + ":"
+                                + Misc.getProperty(formArgs, ARG_WIDTH, -1)
+                                + "x"
+                                + Misc.getProperty(formArgs, ARG_HEIGHT,
+                                    -1);
+                }
+                final boolean keepBundle = bundleKey != null;
+                imageFile = renderPool.run(bundleKey,
+                                           new RenderPool.Task<String>() {
+                    public String run(IntegratedDataViewer workerIdv,
+                                      boolean bundleLoaded)
+                            throws Exception {
+                        String file = render(workerIdv, formArgs,
+                                             theBundle, doMovie,
+                                             bundleLoaded);
+                        if ( !keepBundle) {
+                            workerIdv.cleanup();
+                        }
+                        return file;
+                    }
+                });
+            }
+            File f = new File(imageFile);
+            writeBytes(new FileInputStream(f), mimeType, f.length());
+        }
+
+        /**
+         * Load the bundle or create the display and capture the image
+         *
+         * @param idv the idv to use
+         * @param formArgs the request args
+         * @param bundle the bundle. May be null
+         * @param doMovie capture a movie
+         * @param bundleLoaded true if the bundle is already loaded
+         *
+         * @return the image file
+         *
+         * @throws Exception On badness
+         */
+        protected String render(IntegratedDataViewer idv, Hashtable formArgs,
+                                String bundle, boolean doMovie,
+                                boolean bundleLoaded)
+                throws Exception {
             String imageFile      = (String) formArgs.get(ARG_FILE);
-            String request        = (String) formArgs.get(ARG_REQUEST);
             String dataSourceName = (String) formArgs.get(ARG_DATASOURCE);
             String paramName      = (String) formArgs.get(ARG_PARAM);
             String displayName    = (String) formArgs.get(ARG_DISPLAY);
@@ -213,17 +328,6 @@ public class ImageServer extends HttpServer {
                         height));
             }
 
-            if (request == null) {
-                request = REQ_MAKEIMAGE;
-            }
-            if (request.equals(REQ_EXIT)) {
-                writeResult(true, "<response>ok</response>", "text/xml");
-                System.exit(0);
-            }
-            boolean doMovie  = request.equals(REQ_MAKEMOVIE);
-            String  mimeType = (doMovie
-                                ? "video/quicktime"
-                                : "image/png");
             if (imageFile == null) {
                 String uid = "image_" + Misc.getUniqueId() + (doMovie
                         ? ".mov"
@@ -232,14 +336,18 @@ public class ImageServer extends HttpServer {
             }
 
             System.err.println("image:" + imageFile);
-            String bundle = (String) server.getProperties().get("bundle");
-            if (bundle == null) {
-                bundle = (String) formArgs.get(ARG_BUNDLE);
-            }
 
 
             long t1 = System.currentTimeMillis();
-            if (bundle != null) {
+            if (bundleLoaded) {
+                // the displays are still there but the data may have
+                // changed since the bundle was loaded
+                log("Reusing bundle:" + bundle);
+                List dataSources = idv.getDataSources();
+                for (int i = 0; i < dataSources.size(); i++) {
+                    ((DataSource) dataSources.get(i)).reloadData();
+                }
+            } else if (bundle != null) {
                 if ( !(new File(bundle)).exists()) {
                     throw new IllegalArgumentException("Bad bundle file:"
                             + bundle);
@@ -264,7 +372,9 @@ public class ImageServer extends HttpServer {
 
             log("Waiting until displays are done");
             IdvManager.waitUntilDisplaysAreDone(idv.getIdvUIManager());
-            Misc.sleep(2000);
+            if ( !bundleLoaded) {
+                Misc.sleep(2000);
+            }
             log("Done waiting");
             long t3 = System.currentTimeMillis();
 
@@ -275,13 +385,10 @@ public class ImageServer extends HttpServer {
                 idv.getImageGenerator().captureImage(imageFile);
                 log("Done capturing image");
             }
-            File f = new File(imageFile);
-            writeBytes(new FileInputStream(f), mimeType, f.length());
             long t4 = System.currentTimeMillis();
             log("Total Time:" + (t4 - t1) + " Load bundle:" + (t2 - t1)
                 + " Wait: " + (t3 - t2) + " Capture:" + (t4 - t3));
-
-            idv.cleanup();
+            return imageFile;
         }
 
 
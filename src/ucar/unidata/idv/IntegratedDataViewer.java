@@ -42,8 +42,10 @@ import ucar.unidata.idv.ui.IdvWindow;
 import ucar.unidata.idv.ui.QuicklinkPanel;
 import ucar.unidata.ui.symbol.StationModelManager;
 import ucar.unidata.util.CacheManager;
+import ucar.unidata.util.ComputePool;
 import ucar.unidata.util.FileManager;
 import ucar.unidata.util.GuiUtils;
+import ucar.unidata.util.HttpClientPool;
 import ucar.unidata.util.IOUtil;
 import ucar.unidata.util.JobManager;
 import ucar.unidata.util.LogUtil;
@@ -139,6 +141,9 @@ public class IntegratedDataViewer extends IdvBase implements ControlContext,
     /** Is set to true after the idv has been fully initialized */
     private boolean haveInitialized = false;
 
+    /** Do other IDVs in this JVM render at the same time */
+    private boolean sharesJvm = false;
+
 
     /**
      *  Should we go about removing a display contorl from the menus, etc.
@@ -438,6 +443,26 @@ public class IntegratedDataViewer extends IdvBase implements ControlContext,
         IdvManager.waitUntilDisplaysAreDone(getIdvUIManager());
     }
 
+    /**
+     * Set whether other IDVs in this JVM render at the same time as this
+     * one (e.g., the IDVs of a {@link RenderPool}). If so, waiting for the
+     * displays to be done only looks at this IDV.
+     *
+     * @param value true if the JVM is shared
+     */
+    public void setSharesJvm(boolean value) {
+        sharesJvm = value;
+    }
+
+    /**
+     * Do other IDVs in this JVM render at the same time as this one
+     *
+     * @return true if the JVM is shared
+     */
+    public boolean getSharesJvm() {
+        return sharesJvm;
+    }
+
     /**
      * Try to connect to another idv and, if connected, pass it the command line args
      * and exit.
@@ -793,6 +818,10 @@ Misc.run(new Runnable() {
         //We save off megabytes
         double size = getStore().get(PREF_CACHESIZE, 20.0);
         CacheManager.setMaxFileCacheSize((int) (size * 1000000));
+        ComputePool.setMaxThreads(getMaxRenderThreadCount());
+        HttpClientPool.setEnabled(getProperty(PROP_HTTP_POOL, true));
+        HttpClientPool.setMaxConnections(getProperty(PROP_HTTP_MAXCONNECTIONS,
+                64), getProperty(PROP_HTTP_MAXPERHOST, 6));
         CacheManager.addCacheListener(new ActionListener() {
             public void actionPerformed(ActionEvent ae) {
                 clearCachedData();
@@ -3260,6 +3289,21 @@ Misc.run(new Runnable() {
             imageServer = new ImageServer(this, port);
         }
         getArgsManager().setIsOffScreen(true);
+        //Render the requests concurrently in a pool of idvs
+        int    workers       = getProperty(PROP_IMAGESERVER_WORKERS, 1);
+        Object serverWorkers = imageServer.getProperties().get("workers");
+        if (serverWorkers != null) {
+            workers = Integer.parseInt(serverWorkers.toString().trim());
+        }
+        if (workers > 1) {
+            try {
+                imageServer.setRenderPool(
+                    new RenderPool(
+                        workers, getObjectStore().getUserDirectory()));
+            } catch (Exception exc) {
+                logException("Creating the image server render pool", exc);
+            }
+        }
         imageServer.init();
     }
 
@@ -44,6 +44,7 @@ import ucar.unidata.idv.ui.JythonShell;
 import ucar.unidata.ui.Help;
 import ucar.unidata.ui.TextSearcher;
 import ucar.unidata.ui.TreePanel;
+import ucar.unidata.util.ComputePool;
 import ucar.unidata.util.FileManager;
 import ucar.unidata.util.GuiUtils;
 import ucar.unidata.util.IOUtil;
@@ -181,6 +182,32 @@ public class JythonManager extends IdvManager implements ActionListener {
      */
     private PythonInterpreter derivedDataInterpreter;
 
+    /**
+     *  The derived data interpreters that are not checked out.
+     *  See {@link #checkOutDerivedDataInterpreter(String)}
+     */
+    private List<PythonInterpreter> idleDerivedDataInterpreters =
+        new ArrayList<PythonInterpreter>();
+
+    /** How many derived data interpreters we have made */
+    private int numDerivedDataInterpreters = 0;
+
+    /**
+     *  The derived data interpreters each thread has checked out. A
+     *  derived data choice can get the data of another one while being
+     *  evaluated so a thread can have more than one.
+     */
+    private ThreadLocal<List<PythonInterpreter>> checkedOutInterpreters =
+        new ThreadLocal<List<PythonInterpreter>>() {
+        protected List<PythonInterpreter> initialValue() {
+            return new ArrayList<PythonInterpreter>();
+        }
+    };
+
+    /** The methods each derived data interpreter has imported */
+    private Hashtable<PythonInterpreter, Hashtable> interpreterMethods =
+        new Hashtable<PythonInterpreter, Hashtable>();
+
 
     /** The jython editor */
     private LibHolder mainHolder;
@@ -191,7 +218,7 @@ public class JythonManager extends IdvManager implements ActionListener {
      * the user changes the jython library we can reevaluate the code
      * in each interpreter.
      */
-    private List interpreters = new ArrayList();
+    private List interpreters = new Vector();
 
 
     /** The edit menu item */
@@ -2198,28 +2225,141 @@ public class JythonManager extends IdvManager implements ActionListener {
         synchronized (MUTEX) {
             if (derivedDataInterpreter == null) {
                 derivedDataInterpreter = createInterpreter();
+                //It is the first one in the pool
+                synchronized (idleDerivedDataInterpreters) {
+                    numDerivedDataInterpreters++;
+                    idleDerivedDataInterpreters.add(derivedDataInterpreter);
+                }
             }
+            importMethod(derivedDataInterpreter, methodName);
+        }
+        return derivedDataInterpreter;
+    }
+
 
-            if ((methodName != null)
-                    && (seenMethods.get(methodName) == null)) {
-                seenMethods.put(methodName, methodName);
-                int i1 = methodName.lastIndexOf(".");
-                int i2 = methodName.indexOf(".");
-                if ((i1 >= 0) && (i2 >= 0)) {
-                    String fullPath = methodName.substring(0, i1);
-                    if ((i1 != i2) && (seenPaths.get(fullPath) == null)) {
-                        i1 = fullPath.lastIndexOf(".");
-                        String pkg       = fullPath.substring(0, i1);
-                        String className = fullPath.substring(i1 + 1);
-                        derivedDataInterpreter.exec("sys.add_package('" + pkg
-                                + "')");
-                        derivedDataInterpreter.exec("from " + pkg
-                                + " import " + className);
+    /**
+     *  Check out a derived data interpreter for evaluating one derived
+     *  data choice. We keep a pool of these, up to the number of compute
+     *  threads, so derived data can be computed at the same time. This
+     *  blocks until an interpreter is free. If they are all out and this
+     *  thread already has one (i.e., a derived data choice that is getting
+     *  the data of another one) then it gets that one back again, as it
+     *  did when there was just the one interpreter. The interpreter has to
+     *  be given back with
+     *  {@link #returnDerivedDataInterpreter(PythonInterpreter)}
+     *
+     *  @param methodName Used to initialize the interpreter (if non -null)
+     * @return A derived data interpreter for the use of the caller
+     */
+    public PythonInterpreter checkOutDerivedDataInterpreter(
+            String methodName) {
+        //Make sure we have the main one
+        getDerivedDataInterpreter(null);
+        List<PythonInterpreter> mine   = checkedOutInterpreters.get();
+        PythonInterpreter       interp = null;
+        synchronized (idleDerivedDataInterpreters) {
+            while (interp == null) {
+                if (idleDerivedDataInterpreters.size() > 0) {
+                    interp = idleDerivedDataInterpreters.remove(
+                        idleDerivedDataInterpreters.size() - 1);
+                } else if (numDerivedDataInterpreters
+                           < ComputePool.getMaxThreads()) {
+                    numDerivedDataInterpreters++;
+                    break;
+                } else if (mine.size() > 0) {
+                    interp = mine.get(mine.size() - 1);
+                } else {
+                    try {
+                        idleDerivedDataInterpreters.wait();
+                    } catch (InterruptedException ie) {
+                        throw new DataCancelException();
                     }
                 }
             }
         }
-        return derivedDataInterpreter;
+        if (interp == null) {
+            //Create a new one outside of the lock. This runs the imports
+            //and the jython libraries so it takes a while
+            try {
+                interp = createInterpreter();
+            } catch (RuntimeException exc) {
+                synchronized (idleDerivedDataInterpreters) {
+                    numDerivedDataInterpreters--;
+                    idleDerivedDataInterpreters.notify();
+                }
+                throw exc;
+            }
+        }
+        synchronized (MUTEX) {
+            importMethod(interp, methodName);
+        }
+        mine.add(interp);
+        return interp;
+    }
+
+
+    /**
+     *  Give back a derived data interpreter gotten with
+     *  {@link #checkOutDerivedDataInterpreter(String)}.
+     *
+     *  @param interp The interpreter
+     */
+    public void returnDerivedDataInterpreter(PythonInterpreter interp) {
+        if (interp == null) {
+            return;
+        }
+        List<PythonInterpreter> mine = checkedOutInterpreters.get();
+        int                     idx  = mine.lastIndexOf(interp);
+        if (idx >= 0) {
+            mine.remove(idx);
+        }
+        if (mine.contains(interp)) {
+            //Still in use further up this thread's stack
+            return;
+        }
+        try {
+            interp.set("derivedDataChoice", null);
+        } catch (Exception ignore) {}
+        synchronized (idleDerivedDataInterpreters) {
+            idleDerivedDataInterpreters.add(interp);
+            idleDerivedDataInterpreters.notify();
+        }
+    }
+
+
+    /**
+     *  Import the class of the given method into the interpreter if
+     *  the method is of the form: some.package.path.SomeClass.someMethod
+     *
+     *  @param interp The interpreter
+     *  @param methodName The method. May be null
+     */
+    private void importMethod(PythonInterpreter interp, String methodName) {
+        if (methodName == null) {
+            return;
+        }
+        Hashtable seen = interpreterMethods.get(interp);
+        if (seen == null) {
+            seen = new Hashtable();
+            interpreterMethods.put(interp, seen);
+        }
+        if (seen.get(methodName) != null) {
+            return;
+        }
+        seen.put(methodName, methodName);
+        seenMethods.put(methodName, methodName);
+        int i1 = methodName.lastIndexOf(".");
+        int i2 = methodName.indexOf(".");
+        if ((i1 >= 0) && (i2 >= 0)) {
+            String fullPath = methodName.substring(0, i1);
+            if ((i1 != i2) && (seenPaths.get(fullPath) == null)) {
+                i1 = fullPath.lastIndexOf(".");
+                String pkg       = fullPath.substring(0, i1);
+                String className = fullPath.substring(i1 + 1);
+                interp.exec("sys.add_package('" + pkg + "')");
+                interp.exec("from " + pkg + " import " + className);
+            }
+        }
     }
 
 
@@ -0,0 +1,348 @@
+/*
+ * Copyright 1997-2020 Unidata Program Center/University Corporation for
+ * Atmospheric Research, P.O. Box 3000, Boulder, CO 80307,
+ * support@unidata.ucar.edu.
+ *
+ * This library is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation; either version 2.1 of the License, or (at
+ * your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU Lesser
+ * General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this library; if not, write to the Free Software Foundation,
+ * Inc., 59 Temple Place, Suite 330, Boston, MA 02111-1307 USA
+ */
+
+package ucar.unidata.idv;
+
+
+import java.io.File;
+
+import java.util.ArrayList;
+import java.util.Hashtable;
+import java.util.LinkedList;
+import java.util.List;
+
+
+/**
+ * A pool of headless IDVs (each in an {@link IdvServer}) that renders
+ * ISL and image server requests concurrently. Each worker has its own
+ * ViewManagers and ImageGenerator, and waits only on its own displays
+ * and data (see {@link IntegratedDataViewer#setSharesJvm(boolean)}).
+ * Requests wait in order for a free worker. A worker keeps the last
+ * bundle it loaded for an image request so the same bundle asked for
+ * again only has its data reloaded, not its displays remade, and such
+ * requests go to that worker when it is free.
+ *
+ * @author IDV development team
+ */
+public class RenderPool {
+
+    /** The workers */
+    private List<Worker> workers = new ArrayList<Worker>();
+
+    /** The free workers */
+    private LinkedList<Worker> idle = new LinkedList<Worker>();
+
+    /** Waiting requests, in the order they came */
+    private LinkedList<Object> waiting = new LinkedList<Object>();
+
+    /** Number of requests */
+    private long requestCnt = 0;
+
+    /** Number of requests that failed */
+    private long failedCnt = 0;
+
+    /** Number of requests that reused a loaded bundle */
+    private long bundleReuseCnt = 0;
+
+    /** Most requests waiting at once */
+    private int maxWaiting = 0;
+
+    /** Total time requests waited for a worker */
+    private long totalWaitTime = 0;
+
+    /** Total time to render the requests */
+    private long totalRenderTime = 0;
+
+    /** Longest render time */
+    private long maxRenderTime = 0;
+
+    /** Longest wait plus render time */
+    private long maxLatency = 0;
+
+    /**
+     * A task that is run with the IDV of a worker
+     *
+     * @param <T> result type
+     */
+    public interface Task<T> {
+
+        /**
+         * Run the task
+         *
+         * @param idv the worker's IDV
+         * @param bundleLoaded true if the bundle of the request is already
+         *                     loaded in the IDV
+         *
+         * @return the result
+         *
+         * @throws Exception On badness
+         */
+        public T run(IntegratedDataViewer idv, boolean bundleLoaded)
+                throws Exception;
+    }
+
+    /**
+     * One IDV of the pool
+     */
+    private static class Worker {
+
+        /** The idv */
+        IdvServer server;
+
+        /** Key of the bundle that is loaded. null if none */
+        String bundleKey;
+
+        /** How long the current request waited for this worker */
+        long waitTime;
+
+        /**
+         * ctor
+         *
+         * @param server the idv
+         */
+        Worker(IdvServer server) {
+            this.server = server;
+        }
+    }
+
+    /**
+     * Create the pool and start its IDVs
+     *
+     * @param numWorkers number of IDVs
+     * @param userDir user directory for the IDVs. May be null
+     *
+     * @throws Exception problem making an IDV
+     */
+    public RenderPool(int numWorkers, File userDir) throws Exception {
+        for (int i = 0; i < Math.max(1, numWorkers); i++) {
+            IdvServer server = new IdvServer(userDir);
+            // so the workers don't wait on each other's displays
+            server.setSharesJvm(numWorkers > 1);
+            Worker worker = new Worker(server);
+            workers.add(worker);
+            idle.add(worker);
+        }
+    }
+
+    /**
+     * Get the number of workers
+     *
+     * @return number of workers
+     */
+    public int getNumWorkers() {
+        return workers.size();
+    }
+
+    /**
+     * Evaluate the ISL on a free worker
+     *
+     * @param isl the isl
+     * @param properties properties for the isl
+     *
+     * @throws Exception On badness
+     */
+    public void evaluateIsl(final StringBuffer isl,
+                            final Hashtable properties)
+            throws Exception {
+        Worker worker = acquire(null);
+        long   t1     = System.currentTimeMillis();
+        // the isl loads its own bundles and the idv is cleaned up after
+        worker.bundleKey = null;
+        boolean ok = false;
+        try {
+            worker.server.evaluateIsl(isl, properties);
+            ok = true;
+        } finally {
+            release(worker, t1, ok);
+        }
+    }
+
+    /**
+     * Run the task on a free worker. If the bundle key is not null the
+     * worker that has that bundle loaded is used if it is free and the
+     * bundle is left loaded. Otherwise the worker's IDV is cleaned up
+     * before the task is run.
+     *
+     * @param bundleKey identifies the bundle (and anything else that
+     *                  changes how it is loaded). null for none
+     * @param task the task
+     * @param <T> result type
+     *
+     * @return the task's result
+     *
+     * @throws Exception On badness
+     */
+    public <T> T run(String bundleKey, Task<T> task) throws Exception {
+        Worker  worker = acquire(bundleKey);
+        long    t1     = System.currentTimeMillis();
+        boolean ok     = false;
+        try {
+            IntegratedDataViewer idv    = worker.server.getIdv();
+            boolean              loaded = (bundleKey != null)
+                                          && bundleKey.equals(
+                                              worker.bundleKey);
+            if (loaded) {
+                synchronized (this) {
+                    bundleReuseCnt++;
+                }
+            } else if (worker.bundleKey != null) {
+                idv.cleanup();
+            }
+            worker.bundleKey = null;
+            T result = task.run(idv, loaded);
+            worker.bundleKey = bundleKey;
+            ok               = true;
+            return result;
+        } finally {
+            if ( !ok) {
+                try {
+                    worker.server.getIdv().cleanup();
+                } catch (Exception ignore) {}
+            }
+            release(worker, t1, ok);
+        }
+    }
+
+    /**
+     * Wait for a free worker. Requests are served in the order they came
+     *
+     * @param bundleKey the bundle of the request. The worker that has it
+     *                  loaded is used if it is free
+     *
+     * @return the worker
+     *
+     * @throws InterruptedException interrupted while waiting
+     */
+    private synchronized Worker acquire(String bundleKey)
+            throws InterruptedException {
+        Object ticket = new Object();
+        long   t1     = System.currentTimeMillis();
+        requestCnt++;
+        waiting.add(ticket);
+        maxWaiting = Math.max(maxWaiting, waiting.size());
+        try {
+            while ((waiting.getFirst() != ticket) || idle.isEmpty()) {
+                wait();
+            }
+        } catch (InterruptedException exc) {
+            waiting.remove(ticket);
+            notifyAll();
+            throw exc;
+        }
+        waiting.removeFirst();
+        Worker worker = null;
+        if (bundleKey != null) {
+            for (Worker w : idle) {
+                if (bundleKey.equals(w.bundleKey)) {
+                    worker = w;
+                    break;
+                }
+            }
+        }
+        if (worker == null) {
+            // prefer one without a bundle so loaded ones stay loaded
+            for (Worker w : idle) {
+                if (w.bundleKey == null) {
+                    worker = w;
+                    break;
+                }
+            }
+        }
+        if (worker == null) {
+            worker = idle.getFirst();
+        }
+        idle.remove(worker);
+        worker.waitTime = System.currentTimeMillis() - t1;
+        totalWaitTime   += worker.waitTime;
+        // let the next one in line look for a worker
+        notifyAll();
+        return worker;
+    }
+
+    /**
+     * Give back a worker
+     *
+     * @param worker the worker
+     * @param startTime when the worker was acquired
+     * @param ok did the request succeed
+     */
+    private synchronized void release(Worker worker, long startTime,
+                                      boolean ok) {
+        long renderTime = System.currentTimeMillis() - startTime;
+        totalRenderTime += renderTime;
+        maxRenderTime   = Math.max(maxRenderTime, renderTime);
+        maxLatency      = Math.max(maxLatency, worker.waitTime + renderTime);
+        if ( !ok) {
+            failedCnt++;
+            worker.bundleKey = null;
+        }
+        // most recently used first so warm workers are reused
+        idle.addFirst(worker);
+        notifyAll();
+    }
+
+    /**
+     * Get the number of requests waiting for a worker
+     *
+     * @return queue length
+     */
+    public synchronized int getQueueLength() {
+        return waiting.size();
+    }
+
+    /**
+     * Get the number of workers that are rendering
+     *
+     * @return busy workers
+     */
+    public synchronized int getBusyCount() {
+        return workers.size() - idle.size();
+    }
+
+    /**
+     * Get the request counts and times as xml
+     *
+     * @return xml
+     */
+    public synchronized String getStatusXml() {
+        long done = requestCnt - waiting.size() - getBusyCount();
+        long avgWait = (requestCnt - waiting.size() == 0)
+                       ? 0
+                       : totalWaitTime / (requestCnt - waiting.size());
+        long avgRender = (done == 0)
+                         ? 0
+                         : totalRenderTime / done;
+        StringBuffer sb = new StringBuffer("<renderpool");
+        sb.append(" workers=\"" + workers.size() + "\"");
+        sb.append(" busy=\"" + getBusyCount() + "\"");
+        sb.append(" queued=\"" + waiting.size() + "\"");
+        sb.append(" maxqueued=\"" + maxWaiting + "\"");
+        sb.append(" requests=\"" + requestCnt + "\"");
+        sb.append(" failed=\"" + failedCnt + "\"");
+        sb.append(" bundlereuse=\"" + bundleReuseCnt + "\"");
+        sb.append(" avgwaitms=\"" + avgWait + "\"");
+        sb.append(" avgrenderms=\"" + avgRender + "\"");
+        sb.append(" maxrenderms=\"" + maxRenderTime + "\"");
+        sb.append(" maxlatencyms=\"" + maxLatency + "\"");
+        sb.append("/>");
+        return sb.toString();
+    }
+
+}
@@ -78,6 +78,7 @@ import ucar.visad.UtcDate;
 import ucar.visad.Util;
 import ucar.visad.data.CalendarDateTime;
 import ucar.visad.data.CalendarDateTimeSet;
+import ucar.visad.data.FieldPrefetcher;
 import ucar.visad.display.Animation;
 import ucar.visad.display.AnimationInfo;
 import ucar.visad.display.AnimationWidget;
@@ -230,6 +231,9 @@ public abstract class DisplayControlImpl extends DisplayControlBase implements D
     /** The animation held solely by this display control */
     private Animation internalAnimation;
 
+    /** Reads the data for the coming animation steps */
+    private FieldPrefetcher prefetcher;
+
     /** Animation info */
     private AnimationInfo animationInfo;
 
@@ -2807,7 +2811,47 @@ public abstract class DisplayControlImpl extends DisplayControlBase implements D
 
             if (animation != null) {
                 timeChanged(animation.getAniValue());
+                prefetchTimeSteps(animation);
+            }
+        }
+    }
+
+    /**
+     * Start reading the data this control will need for the coming
+     * steps of the animation. The number of steps is set with the
+     * {@link IdvConstants#PROP_ANIMATION_PREFETCH} property.
+     *
+     * @param animation The animation
+     */
+    protected void prefetchTimeSteps(Animation animation) {
+        if (prefetcher == null) {
+            int steps = getIdv().getStateManager().getProperty(
+                            IdvConstants.PROP_ANIMATION_PREFETCH, 0);
+            int maxMB = getIdv().getStateManager().getProperty(
+                            IdvConstants.PROP_ANIMATION_PREFETCH_MAXMB, 256);
+            prefetcher = new FieldPrefetcher(steps, maxMB * 1024L * 1024L);
+        }
+        if (prefetcher.getStepsAhead() <= 0) {
+            return;
+        }
+        try {
+            List<FieldImpl> fields = new ArrayList<FieldImpl>();
+            for (Object o : getDisplayInfos()) {
+                Displayable displayable = ((DisplayInfo) o).getDisplayable();
+                if ( !(displayable instanceof DisplayableData)
+                        || !((DisplayableData) displayable).hasData()) {
+                    continue;
+                }
+                Data data = ((DisplayableData) displayable).getData();
+                if ((data instanceof FieldImpl)
+                        && GridUtil.isTimeSequence((FieldImpl) data)) {
+                    fields.add((FieldImpl) data);
+                }
             }
+            prefetcher.setCurrent(animation.getSet(),
+                                  animation.getCurrent(), fields);
+        } catch (Exception exc) {
+            logException("Prefetching data", exc);
         }
     }
 
@@ -7267,6 +7311,11 @@ public abstract class DisplayControlImpl extends DisplayControlBase implements D
             internalAnimation = null;
         }
 
+        if (prefetcher != null) {
+            prefetcher.cancel();
+            prefetcher = null;
+        }
+
 
         displayUnit = null;
         colorUnit   = null;
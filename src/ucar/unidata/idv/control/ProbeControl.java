@@ -28,6 +28,7 @@ import ucar.unidata.data.grid.GridUtil;
 import ucar.unidata.data.point.PointDataInstance;
 import ucar.unidata.data.point.PointOb;
 import ucar.unidata.data.point.PointObFactory;
+import ucar.unidata.data.point.PointObIndex;
 import ucar.unidata.geoloc.LatLonPointImpl;
 import ucar.unidata.geoloc.LatLonRect;
 import ucar.unidata.idv.control.chart.LineState;
@@ -51,6 +52,7 @@ import ucar.visad.display.PointProbe;
 import ucar.visad.display.SelectorDisplayable;
 import ucar.visad.display.SelectorPoint;
 
+import visad.CommonUnit;
 import visad.Data;
 import visad.FieldImpl;
 import visad.Real;
@@ -2526,29 +2528,26 @@ public class ProbeControl extends DisplayControlImpl implements DisplayableData
             if (pointObs == null) {
                 return null;
             }
-            int     numObs      = pointObs.getDomainSet().getLength();
-            List    obs         = new ArrayList();
-
-            PointOb closest     = null;
-            double  minDistance = 0;
-
-            for (int i = 0; i < numObs; i++) {
-                PointOb ob = (PointOb) pointObs.getSample(i);
-                double distance =
-                    ucar.visad.Util.bearingDistance(ob.getEarthLocation(),
-                        elt).getValue();
-                if ((closest == null) || (distance < minDistance)) {
-                    closest     = ob;
-                    minDistance = distance;
-                }
-            }
-            if (closest == null) {
+            List         obs   = new ArrayList();
+            PointObIndex index = PointObIndex.getIndex(pointObs);
+            int closestIdx =
+                index.findNearest(llp.getLatitude().getValue(
+                    CommonUnit.degree), llp.getLongitude().getValue(
+                    CommonUnit.degree));
+            if (closestIdx < 0) {
                 return null;
             }
+            PointOb closest = (PointOb) pointObs.getSample(closestIdx);
 
+            //The obs at the same place as the closest one
             EarthLocation closestEL = closest.getEarthLocation();
-            for (int i = 0; i < numObs; i++) {
-                PointOb ob = (PointOb) pointObs.getSample(i);
+            int[] sameLocation =
+                index.findInBounds(index.getLatitude(closestIdx),
+                                   index.getLatitude(closestIdx),
+                                   index.getLongitude(closestIdx),
+                                   index.getLongitude(closestIdx));
+            for (int i = 0; i < sameLocation.length; i++) {
+                PointOb ob = (PointOb) pointObs.getSample(sameLocation[i]);
                 if (ob.getEarthLocation().equals(closestEL)) {
                     obs.add(ob);
                 }
@@ -26,7 +26,7 @@ import ucar.unidata.data.DataTimeRange;
 import ucar.unidata.data.grid.GridUtil;
 import ucar.unidata.data.point.*;
 import ucar.unidata.geoloc.Bearing;
-import ucar.unidata.gis.SpatialGrid;
+import ucar.unidata.gis.DeclutterHierarchy;
 import ucar.unidata.idv.ControlContext;
 import ucar.unidata.idv.control.chart.LineState;
 import ucar.unidata.idv.control.chart.PointParam;
@@ -40,6 +40,7 @@ import ucar.unidata.ui.symbol.StationModelManager;
 import ucar.unidata.ui.symbol.TextSymbol;
 import ucar.unidata.ui.symbol.ValueSymbol;
 import ucar.unidata.util.ColorTable;
+import ucar.unidata.util.ComputePool;
 import ucar.unidata.util.FileManager;
 import ucar.unidata.util.GuiUtils;
 import ucar.unidata.util.LayoutUtil;
@@ -107,9 +108,12 @@ import java.rmi.RemoteException;
 
 import java.util.ArrayList;
 import java.util.Hashtable;
+import java.util.IdentityHashMap;
 import java.util.Iterator;
 import java.util.List;
+import java.util.Map;
 import java.util.Vector;
+import java.util.concurrent.Callable;
 
 import javax.swing.BorderFactory;
 import javax.swing.BoxLayout;
@@ -259,8 +263,9 @@ public class StationModelControl extends ObsDisplayControl {
     String modelName;
 
 
-    /** grid for decluttering */
-    private SpatialGrid stationGrid;
+    /** The declutter hierarchy of each time step of the data */
+    private final Map<FieldImpl, DeclutterHierarchy> declutterHierarchies =
+        new IdentityHashMap<FieldImpl, DeclutterHierarchy>();
 
     /** flag for decluttering */
     private boolean declutter = true;
@@ -1222,7 +1227,9 @@ public class StationModelControl extends ObsDisplayControl {
         double      minDistance = 20;
         //        System.err.println ("click:" + clickPt[0]+"/"+clickPt[1] + " " +minDistance);
 
-        for (int i = 0; i < numObs; i++) {
+        int[] nearObs = findObsNear(clickPt, (int) minDistance, theField);
+        for (int nearIdx = 0; nearIdx < nearObs.length; nearIdx++) {
+            int    i   = nearObs[nearIdx];
             Object tmp = theField.getSample(i);
             if ( !(tmp instanceof PointOb)) {
                 continue;
@@ -1240,6 +1247,74 @@ public class StationModelControl extends ObsDisplayControl {
         return closestOb;
     }
 
+    /**
+     * Find the obs that might be within some distance of a screen
+     * location. This looks up the lat/lon box around the location in the
+     * index of the obs. If the box can't be found (e.g., off the edge of
+     * the globe) this is all of the obs.
+     *
+     * @param screenPt  the screen location
+     * @param radius  distance (pixels)
+     * @param theField  the obs
+     *
+     * @return the indices of the obs
+     *
+     * @throws RemoteException   Java RMI problem
+     * @throws VisADException    VisAD problem
+     */
+    private int[] findObsNear(int[] screenPt, int radius, FieldImpl theField)
+            throws VisADException, RemoteException {
+        double south     = Double.POSITIVE_INFINITY;
+        double north     = Double.NEGATIVE_INFINITY;
+        double west      = Double.POSITIVE_INFINITY;
+        double east      = Double.NEGATIVE_INFINITY;
+        double centerLon = Double.NaN;
+        boolean ok       = true;
+        //Look at the center, corners and sides of the square around the point
+        for (int i = 0; i < 9; i++) {
+            int dx = (i == 0)
+                     ? 0
+                     : ((i - 1) % 3) - 1;
+            int dy = (i == 0)
+                     ? 0
+                     : ((i - 1) / 3) - 1;
+            EarthLocation corner = screenToEarth(screenPt[0] + dx * radius,
+                                       screenPt[1] + dy * radius);
+            if (corner == null) {
+                ok = false;
+                break;
+            }
+            double lat = corner.getLatitude().getValue(CommonUnit.degree);
+            double lon = corner.getLongitude().getValue(CommonUnit.degree);
+            if (Double.isNaN(lat) || Double.isNaN(lon)) {
+                ok = false;
+                break;
+            }
+            if (i == 0) {
+                centerLon = lon;
+            } else {
+                //Keep the box on the same side of the date line
+                lon = centerLon + Misc.normalizeLongitude(lon - centerLon);
+            }
+            south = Math.min(south, lat);
+            north = Math.max(north, lat);
+            west  = Math.min(west, lon);
+            east  = Math.max(east, lon);
+        }
+        if ( !ok) {
+            int[] all = new int[theField.getDomainSet().getLength()];
+            for (int i = 0; i < all.length; i++) {
+                all[i] = i;
+            }
+            return all;
+        }
+        //The projection is not linear so pad the box
+        double latPad = (north - south) / 4;
+        double lonPad = (east - west) / 4;
+        return PointObIndex.getIndex(theField).findInBounds(south - latPad,
+                north + latPad, west - lonPad, east + lonPad);
+    }
+
 
     /**
      * Extract the observation values from the given ob and update the
@@ -2018,6 +2093,10 @@ public class StationModelControl extends ObsDisplayControl {
      */
     public void projectionChanged() {
         super.projectionChanged();
+        //The hierarchies are in display coordinates
+        synchronized (declutterHierarchies) {
+            declutterHierarchies.clear();
+        }
         //Handle this in a thread
         Misc.run(new Runnable() {
             public void run() {
@@ -3244,30 +3323,55 @@ public class StationModelControl extends ObsDisplayControl {
      * @throws RemoteException  Java RMI error
      * @throws VisADException   VisAD Error
      */
-    private FieldImpl doDeclutter(FieldImpl obs, int timestamp)
+    private FieldImpl doDeclutter(FieldImpl obs, final int timestamp)
             throws VisADException, RemoteException {
 
         long      millis           = System.currentTimeMillis();
         boolean   isTimeSequence   = GridUtil.isTimeSequence(obs);
         FieldImpl declutteredField = null;
+        //These are the same for all times
+        final Rectangle2D bounds = getBounds();
+        final float       scale  = getScale() * .0025f * getDeclutterFilter();
         if (isTimeSequence) {
             Set timeSet = obs.getDomainSet();
             declutteredField = new FieldImpl((FunctionType) obs.getType(),
                                              timeSet);
-            int numTimes = timeSet.getLength();
+            int                       numTimes = timeSet.getLength();
+            List<FieldImpl>           times    = new ArrayList<FieldImpl>();
+            List<Callable<FieldImpl>> tasks    =
+                new ArrayList<Callable<FieldImpl>>();
             for (int i = 0; i < numTimes; i++) {
-                FieldImpl oneTime = (FieldImpl) obs.getSample(i);
-                FieldImpl subTime = doTheActualDecluttering(oneTime,
-                                        timestamp);
-                if (timestamp != loadDataTimestamp) {
-                    return null;
-                }
+                final FieldImpl oneTime = (FieldImpl) obs.getSample(i);
+                times.add(oneTime);
+                tasks.add(new Callable<FieldImpl>() {
+                    public FieldImpl call() throws Exception {
+                        return doTheActualDecluttering(oneTime, timestamp,
+                                bounds, scale);
+                    }
+                });
+            }
+            List<FieldImpl> subTimes;
+            try {
+                subTimes = ComputePool.invokeAll(tasks);
+            } catch (VisADException | RemoteException | RuntimeException exc) {
+                throw exc;
+            } catch (Exception exc) {
+                throw new VisADException(exc.toString());
+            }
+            if (timestamp != loadDataTimestamp) {
+                return null;
+            }
+            for (int i = 0; i < numTimes; i++) {
+                FieldImpl subTime = subTimes.get(i);
                 if (subTime != null) {
                     declutteredField.setSample(i, subTime, false);
                 }
             }
+            retainDeclutterHierarchies(times);
         } else {
-            declutteredField = doTheActualDecluttering(obs, timestamp);
+            declutteredField = doTheActualDecluttering(obs, timestamp,
+                    bounds, scale);
+            retainDeclutterHierarchies(Misc.newList(obs));
         }
         //System.out.println("Subsetting took : " +
         //    (System.currentTimeMillis() - millis) + " ms");
@@ -3275,10 +3379,13 @@ public class StationModelControl extends ObsDisplayControl {
     }
 
     /**
-     * a     * Declutters a single timestep of observations.
+     * Declutters a single timestep of observations. The obs to show
+     * are picked from the declutter hierarchy of the time step.
      *
      * @param pointObs  point observations for one timestep.
      * @param timestamp  the timestamp
+     * @param bounds  the visible part of the display
+     * @param myScale  the scale of the glyphs
      *
      * @return a decluttered version of pointObs
      *
@@ -3286,68 +3393,52 @@ public class StationModelControl extends ObsDisplayControl {
      * @throws VisADException   VisAD Error
      */
     private FieldImpl doTheActualDecluttering(FieldImpl pointObs,
-            int timestamp)
+            int timestamp, Rectangle2D bounds, float myScale)
             throws VisADException, RemoteException {
         if ((pointObs == null) || pointObs.isMissing()) {
             return pointObs;
         }
-        FieldImpl   retField          = null;
-        Set         domainSet         = pointObs.getDomainSet();
-        int         numObs            = domainSet.getLength();
-        Vector      v                 = new Vector();
-
-        long        t1                = System.currentTimeMillis();
-        Rectangle   glyphBounds       = getStationModel().getBounds();
-
-        float       myScale = getScale() * .0025f * getDeclutterFilter();
-
-        Rectangle2D scaledGlyphBounds =
-            new Rectangle2D.Double(glyphBounds.getX() * myScale,
-                                   glyphBounds.getY() * myScale,
-                                   glyphBounds.getWidth() * myScale,
-                                   glyphBounds.getHeight() * myScale);
-        NavigatedDisplay   navDisplay = getNavigatedDisplay();
-
-        Rectangle2D.Double obBounds   = new Rectangle2D.Double();
-        obBounds.width  = scaledGlyphBounds.getWidth();
-        obBounds.height = scaledGlyphBounds.getHeight();
-
-        Rectangle2D bounds = getBounds();
-        //        System.out.println("my bounds: x:" + bounds.getX()+"-" +(bounds.getX()+bounds.getWidth())+" y:" +
-        //                           bounds.getY()+"-" +(bounds.getY()+bounds.getHeight()));
-
+        FieldImpl retField    = null;
+        Set       domainSet   = pointObs.getDomainSet();
+        int       numObs      = domainSet.getLength();
+        Vector    v           = new Vector();
+        Rectangle glyphBounds = getStationModel().getBounds();
+        if ((glyphBounds.getWidth() <= 0) || (glyphBounds.getHeight() <= 0)) {
+            return pointObs;
+        }
 
-        if (stationGrid == null) {
-            stationGrid = new SpatialGrid(200, 200);
+        DeclutterHierarchy hierarchy = getDeclutterHierarchy(pointObs,
+                                           glyphBounds, timestamp);
+        if (hierarchy == null) {
+            return null;
         }
-        stationGrid.clear();
-        stationGrid.setGrid(bounds, scaledGlyphBounds);
-        if (getDeclutterFilter() < 0.3f) {
-            //      stationGrid.setOverlap((int)((1.0-getDeclutterFilter())*100));
-            //      stationGrid.setOverlap(          (int)((.5f-getDeclutterFilter())*100));
-        } else {
-            //      stationGrid.setOverlap(0);
+        //We used to mark the obs on a grid of at most 200x200 cells
+        //so never show more than that
+        double minScale = Math.max(bounds.getWidth()
+                                   / (200 * glyphBounds.getWidth()),
+                                   bounds.getHeight()
+                                   / (200 * glyphBounds.getHeight()));
+        int[]     indices = hierarchy.select(Math.max(myScale, minScale),
+                                             bounds);
+        boolean[] keep    = new boolean[numObs];
+        for (int i = 0; i < indices.length; i++) {
+            keep[indices[i]] = true;
         }
-
-        double[] xyz = new double[3];
-        //TODO: The repeated getSpatialCoords is a bit expensive
-        for (int i = 0; i < numObs; i++) {
-            if (timestamp != loadDataTimestamp) {
-                return null;
+        if ((selectedObId != null) || (selectedObLocation != null)) {
+            for (int i = 0; i < numObs; i++) {
+                if ( !keep[i] && isSelected((PointOb) pointObs.getSample(i))) {
+                    keep[i] = true;
+                }
             }
-            PointOb ob = (PointOb) pointObs.getSample(i);
-            xyz = navDisplay.getSpatialCoordinates(ob.getEarthLocation(),
-                    xyz, 0);
-            obBounds.x = xyz[0];
-            obBounds.y = xyz[1];
-            //            if(i<30)
-            //                System.err.println("\tel:" + ob.getEarthLocation() +" obBounds:" + obBounds.x +"/" + obBounds.y);
-            if (stationGrid.markIfClear(obBounds, "") || isSelected(ob)) {
-                v.add(ob);  // is in the bounds
+        }
+        for (int i = 0; i < numObs; i++) {
+            if (keep[i]) {
+                v.add(pointObs.getSample(i));
             }
         }
-        //      stationGrid.print();
-        long t2 = System.currentTimeMillis();
+        if (timestamp != loadDataTimestamp) {
+            return null;
+        }
 
 
         if (v.isEmpty()) {
@@ -3367,11 +3458,78 @@ public class StationModelControl extends ObsDisplayControl {
                                 false, false);
         }
 
-        long t3 = System.currentTimeMillis();
-        //System.err.println("size:" + v.size() +" declutter:" + (t2-t1) + " " + (t3-t2));
+        return retField;
+    }
 
+    /**
+     * Get the declutter hierarchy for one time step of obs, making it if
+     * needed. This is done in display coordinates, all of the obs
+     * locations being transformed at once, and is kept until the
+     * projection or the obs change.
+     *
+     * @param pointObs  point observations for one timestep.
+     * @param glyphBounds  the bounds of the station model
+     * @param timestamp  the timestamp
+     *
+     * @return the hierarchy or null if the load was superseded
+     *
+     * @throws RemoteException  Java RMI error
+     * @throws VisADException   VisAD Error
+     */
+    private DeclutterHierarchy getDeclutterHierarchy(FieldImpl pointObs,
+            Rectangle glyphBounds, int timestamp)
+            throws VisADException, RemoteException {
+        DeclutterHierarchy hierarchy;
+        synchronized (declutterHierarchies) {
+            hierarchy = declutterHierarchies.get(pointObs);
+        }
+        if ((hierarchy != null)
+                && (hierarchy.getCellWidth() == glyphBounds.getWidth())
+                && (hierarchy.getCellHeight() == glyphBounds.getHeight())) {
+            return hierarchy;
+        }
+        int     numObs = pointObs.getDomainSet().getLength();
+        float[] lats   = new float[numObs];
+        float[] lons   = new float[numObs];
+        for (int i = 0; i < numObs; i++) {
+            if (timestamp != loadDataTimestamp) {
+                return null;
+            }
+            EarthLocation el = ((PointOb) pointObs.getSample(i))
+                .getEarthLocation();
+            lats[i] = (float) el.getLatitude().getValue(CommonUnit.degree);
+            lons[i] = (float) el.getLongitude().getValue(CommonUnit.degree);
+        }
+        float[][] xyz = getNavigatedDisplay().getSpatialCoordinates(lats,
+                            lons, 0);
+        hierarchy = new DeclutterHierarchy(xyz[0], xyz[1],
+                                           glyphBounds.getWidth(),
+                                           glyphBounds.getHeight());
+        synchronized (declutterHierarchies) {
+            declutterHierarchies.put(pointObs, hierarchy);
+        }
+        return hierarchy;
+    }
 
-        return retField;
+    /**
+     * Only keep the declutter hierarchies of the given time steps. The map
+     * is rebuilt in place since it is also its own lock.
+     *
+     * @param times  the time steps of the current data
+     */
+    private void retainDeclutterHierarchies(List<FieldImpl> times) {
+        synchronized (declutterHierarchies) {
+            Map<FieldImpl, DeclutterHierarchy> current =
+                new IdentityHashMap<FieldImpl, DeclutterHierarchy>();
+            for (FieldImpl time : times) {
+                DeclutterHierarchy hierarchy = declutterHierarchies.get(time);
+                if (hierarchy != null) {
+                    current.put(time, hierarchy);
+                }
+            }
+            declutterHierarchies.clear();
+            declutterHierarchies.putAll(current);
+        }
     }
 
 
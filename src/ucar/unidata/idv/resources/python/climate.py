@@ -93,6 +93,12 @@ def clmDay(grid, use366=1):
   """
   return DerivedGridFactory.createDailyClimatology(grid, use366)
 
+def clmDayStdev(grid, use366=1):
+  """ Create a daily climatology of the standard deviation from a grid
+      of daily data over a period of years.
+  """
+  return DerivedGridFactory.createDailyClimatology(grid, use366, GridMath.FUNC_STDEV)
+
 def calcDayAnom(daily, ltm, asPercent=0):
   """ Calculate the daily anomaly from a long term mean. <br>
       grid - daily values <br>
@@ -100,3 +106,12 @@ def calcDayAnom(daily, ltm, asPercent=0):
       asPercent - if 1, return percentage of climatology normal (+/-) <br>
   """
   return DerivedGridFactory.calculateDailyAnomaly(daily, ltm, asPercent)
+
+def calcDayAnomStream(daily, ltm, asPercent=0):
+  """ Calculate the daily anomaly from a long term mean, making each
+      day's anomaly only when it is used. <br>
+      grid - daily values <br>
+      ltm  - long term mean (climatology) <br>
+      asPercent - if 1, return percentage of climatology normal (+/-) <br>
+  """
+  return DerivedGridFactory.calculateStreamingDailyAnomaly(daily, ltm, asPercent)
@@ -5292,9 +5292,15 @@ public class ImageGenerator extends IdvManager {
                             ImageUtils.toBufferedImage(resize(image, child));
                     String thumbFile = applyMacros(child, ATTR_FILE,
                             (String) null);
-                    if (thumbFile == null) {
-                        thumbFile = IOUtil.stripExtension(filename) + "_thumb"
-                                + IOUtil.getFileExtension(filename);
+                    // the movie grabber can hand us an in memory image
+                    // with no file so fall back to its image path
+                    String imageFile = (filename != null)
+                                       ? filename
+                                       : (String) props.get(PROP_IMAGEPATH);
+                    if ((thumbFile == null) && (imageFile != null)) {
+                        thumbFile = IOUtil.stripExtension(imageFile)
+                                    + "_thumb"
+                                    + IOUtil.getFileExtension(imageFile);
                     }
                     processImage(thumbImage, thumbFile, child, null, viewManager,
                             new Hashtable());
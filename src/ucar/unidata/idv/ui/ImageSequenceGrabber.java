@@ -36,6 +36,7 @@ import ucar.unidata.ui.AnimatedGifEncoder;
 import ucar.unidata.ui.ImagePanel;
 import ucar.unidata.ui.ImageUtils;
 import ucar.unidata.ui.JpegImagesToMovie;
+import ucar.unidata.ui.StreamingGifEncoder;
 import ucar.unidata.util.FileManager;
 import ucar.unidata.util.GuiUtils;
 import ucar.unidata.util.IOUtil;
@@ -299,6 +300,16 @@ public class ImageSequenceGrabber implements Runnable, ActionListener {
     /** flag for just capturing the images */
     private boolean justCaptureAnimation = false;
 
+    /**
+     * When scripting, the gif movies we are writing as the frames are
+     * captured, keyed by movie file name
+     */
+    private Hashtable<String, StreamingGifEncoder> gifEncoders =
+        new Hashtable<String, StreamingGifEncoder>();
+
+    /** Do we write out each captured frame to an image file */
+    private boolean writeImageFiles = true;
+
     /** capture flythrough */
     private JCheckBox grabFlythroughCbx = new JCheckBox("Capture Flythrough",
                                               false);
@@ -1144,6 +1155,7 @@ public class ImageSequenceGrabber implements Runnable, ActionListener {
     private void runAnimationCapture(int timestamp) {
 
         try {
+            startStreaming();
             getAnimation().setAnimating(false);
 
             if ((animationResetCbx != null)
@@ -1276,6 +1288,9 @@ public class ImageSequenceGrabber implements Runnable, ActionListener {
             writeMovie();
         }
 
+        // Anything not written out above is abandoned
+        cancelStreaming();
+
         // This implies we write the animation and then are done
         if (imageGenerator != null) {
 
@@ -1891,10 +1906,20 @@ public class ImageSequenceGrabber implements Runnable, ActionListener {
                         imageGenerator.putIndex(props,
                                 ImageGenerator.PROP_IMAGEINDEX,
                                 images.size());
-                        imageGenerator.processImage(image, path,
-                                scriptingNode, props, viewManager,
-                                imageProperties);
+                        image = imageGenerator.processImage(image,
+                                writeImageFiles
+                                ? path
+                                : null, scriptingNode, props, viewManager,
+                                        imageProperties);
+                        if (image == null) {
+                            // the isl made no image so skip the frame
+                            return;
+                        }
                         subsetBounds(bounds, imageProperties);
+                        for (StreamingGifEncoder gifEncoder :
+                                gifEncoders.values()) {
+                            gifEncoder.addFrame(image);
+                        }
                     } else {
                         List<Component> components =
                             new LinkedList<Component>();
@@ -2096,19 +2121,98 @@ public class ImageSequenceGrabber implements Runnable, ActionListener {
             size = new Dimension(600, 400);
         }
 
+        createMovie(movieFile, images, size, getDisplayRate(), scriptingNode,
+                    getEndPause());
+    }
+
+    /**
+     * Get the movie frame rate
+     *
+     * @return frames per second
+     */
+    private double getDisplayRate() {
         double displayRate =
             (new Double(displayRateFld.getText())).doubleValue();
-        double endPause = (new Double(endPauseFld.getText())).doubleValue();
 
         if (scriptingNode != null) {
             displayRate = imageGenerator.applyMacros(scriptingNode,
                     imageGenerator.ATTR_FRAMERATE, displayRate);
+        }
+
+        return displayRate;
+    }
+
+    /**
+     * Get the pause on the last frame
+     *
+     * @return end pause (seconds) or -1 for none
+     */
+    private double getEndPause() {
+        double endPause = (new Double(endPauseFld.getText())).doubleValue();
+
+        if (scriptingNode != null) {
             endPause = imageGenerator.applyMacros(scriptingNode,
                     imageGenerator.ATTR_ENDFRAMEPAUSE, -1);
         }
 
-        createMovie(movieFile, images, size, displayRate, scriptingNode,
-                    endPause);
+        return endPause;
+    }
+
+    /**
+     * When scripting a capture, start up the encoders for any gif movies
+     * so each frame is encoded, in another thread, as it is captured.
+     * The frames are then only written to image files if some other
+     * movie format needs them or the isl asked for them with the
+     * imagedir, imageprefix or imagetemplate attributes.
+     */
+    private void startStreaming() {
+        cancelStreaming();
+        writeImageFiles = true;
+
+        if ((imageGenerator == null) || (scriptingNode == null)
+                || (movieFileName == null)
+                || scriptingNode.getTagName().equals("panel")) {
+            return;
+        }
+
+        boolean needFiles =
+            XmlUtil.hasAttribute(scriptingNode, ATTR_IMAGEDIR)
+            || XmlUtil.hasAttribute(scriptingNode, ATTR_IMAGEPREFIX)
+            || XmlUtil.hasAttribute(scriptingNode, ATTR_IMAGETEMPLATE);
+        List fileToks = StringUtil.split(movieFileName, ",", true, true);
+
+        for (int i = 0; i < fileToks.size(); i++) {
+            String movieFile = (String) fileToks.get(i);
+
+            if ( !movieFile.toLowerCase().endsWith(FileManager.SUFFIX_GIF)) {
+                needFiles = true;
+
+                continue;
+            }
+
+            double rate     = 1.0 / getDisplayRate();
+            double endPause = getEndPause();
+
+            gifEncoders.put(movieFile,
+                            new StreamingGifEncoder(movieFile,
+                                AnimatedGifEncoder.REPEAT_FOREVER,
+                                (int) (rate * 1000), (int) ((endPause == -1)
+                    ? -1
+                    : endPause * 1000), getGlobalPaletteValue()));
+        }
+
+        writeImageFiles = needFiles || gifEncoders.isEmpty();
+    }
+
+    /**
+     * Stop any gif encoders that have not been finished
+     */
+    private void cancelStreaming() {
+        for (StreamingGifEncoder gifEncoder : gifEncoders.values()) {
+            gifEncoder.cancel();
+        }
+
+        gifEncoders.clear();
     }
 
     /**
@@ -2228,7 +2332,8 @@ public class ImageSequenceGrabber implements Runnable, ActionListener {
                 // for n-panel views because ATTR_HEIGHT, ATTR_WIDTH are set
                 // for one panel in ImageGenerator.captureMovie.
 
-                if (( !isInteractive()) && (images.size() > 0)) {
+                if (( !isInteractive()) && (images.size() > 0)
+                        && writeImageFiles) {
 
                     BufferedImage image = ImageUtils.toBufferedImage(
                                               ImageUtils.readImage(
@@ -2243,14 +2348,23 @@ public class ImageSequenceGrabber implements Runnable, ActionListener {
                 // System.err.println("createMovie:" + movieFile);
                 if (movieFile.toLowerCase().endsWith(
                         FileManager.SUFFIX_GIF)) {
-                    double  rate   = 1.0 / displayRate;
-                    boolean useGCT = getGlobalPaletteValue();
-                    AnimatedGifEncoder.createGif(movieFile,
-                            ImageWrapper.makeFileList(images),
-                            AnimatedGifEncoder.REPEAT_FOREVER,
-                            (int) (rate * 1000), (int) ((endPause == -1)
-                            ? -1
-                            : endPause * 1000), useGCT);
+                    StreamingGifEncoder gifEncoder =
+                        gifEncoders.remove(movieFile);
+
+                    if (gifEncoder != null) {
+
+                        // The frames have already been handed to the encoder
+                        gifEncoder.finish();
+                    } else {
+                        double  rate   = 1.0 / displayRate;
+                        boolean useGCT = getGlobalPaletteValue();
+                        AnimatedGifEncoder.createGif(movieFile,
+                                ImageWrapper.makeFileList(images),
+                                AnimatedGifEncoder.REPEAT_FOREVER,
+                                (int) (rate * 1000), (int) ((endPause == -1)
+                                ? -1
+                                : endPause * 1000), useGCT);
+                    }
                 } else if (movieFile.toLowerCase().endsWith(".htm")
                            || movieFile.toLowerCase().endsWith(".html")) {
                     createAnisHtml(movieFile, images, size, displayRate,
@@ -35,6 +35,8 @@ import ij.plugin.PlugIn;
 import ij.process.ByteProcessor;
 import ij.process.ImageProcessor;
 
+import ucar.unidata.util.ComputePool;
+
 import java.awt.Image;
 import java.awt.image.ColorModel;
 import java.awt.image.IndexColorModel;
@@ -44,7 +46,12 @@ import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.OutputStream;
 
+import java.util.ArrayList;
+import java.util.LinkedList;
 import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
 
 
 /**
@@ -218,6 +225,28 @@ public class AnimatedGifEncoder {
     /** gct overide color flag */
     protected boolean GCToverideColor = false;  //if true Color at Transparent index is set to GCTred, GCTgrn GCTbl
 
+    /** Max number of frames used to make a global color table from many frames */
+    public static final int MAX_PALETTE_FRAMES = 8;
+
+    /** Max number of pixels given to the quantizer for a multi-frame global color table */
+    private static final int MAX_PALETTE_PIXELS = 1000000;
+
+    /** Bits per color component in the global color table lookup */
+    private static final int LOOKUP_BITS = 6;
+
+    /** Quantize and map the RGB frames in parallel */
+    protected boolean parallel = false;
+
+    /** The frames being quantized in parallel, in frame order */
+    private LinkedList<Future<Frame>> pendingFrames =
+        new LinkedList<Future<Frame>>();
+
+    /** rgb to global color table index lookup */
+    private byte[] gctLookup;
+
+    /** The color table the lookup was made from */
+    private byte[] gctLookupTable;
+
 
 
     /**
@@ -301,10 +330,29 @@ public class AnimatedGifEncoder {
                                  int delay, int endDelay,
                                  boolean useGlobalTable) {
         AnimatedGifEncoder e = new AnimatedGifEncoder();
+        e.setParallel(true);
         e.setGCT(useGlobalTable);
         e.setRepeat(repeat);
         e.setDelay(delay);
         e.start(filename);
+        if (useGlobalTable && (images.size() > 1)) {
+            List<ImagePlus> paletteFrames = new ArrayList<ImagePlus>();
+            int numFrames = Math.min(MAX_PALETTE_FRAMES, images.size());
+            for (int i = 0; i < numFrames; i++) {
+                int idx = (int) ((long) i * (images.size() - 1)
+                                 / Math.max(1, numFrames - 1));
+                ImagePlus paletteFrame =
+                    new ImagePlus(images.get(idx).toString());
+                if (paletteFrame.getType() != ImagePlus.COLOR_RGB) {
+                    paletteFrames = null;
+                    break;
+                }
+                paletteFrames.add(paletteFrame);
+            }
+            if (paletteFrames != null) {
+                e.extractGCTrgb(paletteFrames);
+            }
+        }
         ImagePlus image = null;
         for (int i = 0; i < images.size(); i++) {
             image = new ImagePlus(images.get(i).toString());
@@ -347,31 +395,16 @@ public class AnimatedGifEncoder {
         if ((image == null) || !started) {
             return false;
         }
+        // When the global color table comes from the first frame that
+        // frame has to be done before any others can be mapped
+        if (parallel && !(gctused && (gct == null))) {
+            return queueFrame(image, theDelay);
+        }
         boolean ok = true;
         try {
+            flushFrames(0);
             if (firstFrame) {
-                if ( !sizeSet) {
-                    // use first frame's size
-                    setSize(image.getWidth(), image.getHeight());
-                }
-                if (gctused) {
-                    writeLSDgct();               // logical screen descriptior
-                }
-                if (GCTloadedExternal) {         //Using external image as color table 
-                    colorTab = gct;
-                    TransparentIndex(colorTab);  //check transparency color
-                    writePalette();              // write global color table
-                    if (repeat >= 0) {
-                        writeNetscapeExt();  // use NS app extension to indicate reps
-                    }
-                }
-                if ( !gctused) {
-                    writeLSD();
-                    if (repeat >= 0) {
-                        writeNetscapeExt();  // use NS app extension to indicate reps
-                    }
-                }
-                firstFrame = false;
+                writeHeader(image.getWidth(), image.getHeight());
             }
 
             int type = image.getType();
@@ -413,6 +446,267 @@ public class AnimatedGifEncoder {
         return ok;
     }
 
+    /**
+     * Write the logical screen descriptor, global color table and
+     * repeat extension before the first frame
+     *
+     * @param w  width of the first frame
+     * @param h  height of the first frame
+     *
+     * @throws IOException  problem writing
+     */
+    private void writeHeader(int w, int h) throws IOException {
+        if ( !sizeSet) {
+            // use first frame's size
+            setSize(w, h);
+        }
+        if (gctused) {
+            writeLSDgct();               // logical screen descriptior
+        }
+        if (GCTloadedExternal) {         //Using external image as color table 
+            colorTab = gct;
+            TransparentIndex(colorTab);  //check transparency color
+            writePalette();              // write global color table
+            if (repeat >= 0) {
+                writeNetscapeExt();  // use NS app extension to indicate reps
+            }
+        }
+        if ( !gctused) {
+            writeLSD();
+            if (repeat >= 0) {
+                writeNetscapeExt();  // use NS app extension to indicate reps
+            }
+        }
+        firstFrame = false;
+    }
+
+    /**
+     * If true then RGB frames are quantized and mapped to their color
+     * table in the {@link ComputePool} while earlier frames are being
+     * compressed and written. When a global color table is used the
+     * pixels are mapped through a lookup table of the nearest color for
+     * each 18 bit RGB value rather than searching the table for each pixel.
+     *
+     * @param value  the parallel flag
+     */
+    public void setParallel(boolean value) {
+        parallel = value;
+    }
+
+    /**
+     * Start the quantization of the frame in the compute pool and write
+     * out any earlier frames that are done
+     *
+     * @param image  the frame
+     * @param theDelay delay in loop
+     *
+     * @return true if successful.
+     */
+    private boolean queueFrame(final ImagePlus image, final int theDelay) {
+        try {
+            final byte[] table  = gctused
+                                  ? gct
+                                  : null;
+            final byte[] lookup = gctused
+                                  ? getGctLookup()
+                                  : null;
+            pendingFrames.add(ComputePool.getPool().submit(
+                new Callable<Frame>() {
+                public Frame call() {
+                    return quantize(image, table, lookup, theDelay);
+                }
+            }));
+            flushFrames(2 * ComputePool.getMaxThreads());
+        } catch (IOException e) {
+            return false;
+        }
+        return true;
+    }
+
+    /**
+     * Write out the queued frames, waiting on them if needed, until
+     * there are no more than the given number left
+     *
+     * @param maxPending  number of frames that can be left in the queue
+     *
+     * @throws IOException  problem writing
+     */
+    private void flushFrames(int maxPending) throws IOException {
+        while (pendingFrames.size() > maxPending) {
+            Future<Frame> future = pendingFrames.removeFirst();
+            try {
+                writeFrame(future.get());
+            } catch (InterruptedException ie) {
+                throw new java.io.InterruptedIOException();
+            } catch (ExecutionException ee) {
+                throw new IOException("Error quantizing frame",
+                                      ee.getCause());
+            }
+        }
+    }
+
+    /**
+     * Write a frame that has been quantized
+     *
+     * @param frame  the frame
+     *
+     * @throws IOException  problem writing
+     */
+    private void writeFrame(Frame frame) throws IOException {
+        if (firstFrame) {
+            writeHeader(frame.width, frame.height);
+        }
+        if (frame.image != null) {
+            Process8bitCLT(frame.image);
+        } else {
+            colorTab      = frame.colorTab;
+            indexedPixels = frame.indexedPixels;
+            colorDepth    = 8;
+            lctSize       = 7;
+        }
+        TransparentIndex(colorTab);      //check transparency color
+        writeGraphicCtrlExt(frame.delay);  // write graphic control extension
+        writeImageDesc();                // image descriptor
+        if ( !gctused) {
+            writePalette();              // local color table
+        }
+        writePixels();                   // encode and write pixel data
+        indexedPixels = null;
+    }
+
+    /**
+     * Make the color table and the indexed pixels for an RGB frame. This
+     * does not touch the state of the encoder so frames can be done in
+     * parallel. 8 bit frames are passed through to be handled when written.
+     *
+     * @param image  the frame
+     * @param table  global color table. null to make a local one
+     * @param lookup  rgb lookup into the global table
+     * @param theDelay delay in loop
+     *
+     * @return  the quantized frame
+     */
+    private static Frame quantize(ImagePlus image, byte[] table,
+                                  byte[] lookup, int theDelay) {
+        Frame frame = new Frame();
+        frame.width  = image.getWidth();
+        frame.height = image.getHeight();
+        frame.delay  = theDelay;
+        int type = image.getType();
+        if ((type == 0) || (type == 3)) {    //8 bit images
+            frame.image = image;
+            return frame;
+        }
+        if (type != 4) {
+            throw new IllegalArgumentException("Image must be 8-bit or RGB");
+        }
+        int[]  pix     = (int[]) image.getProcessor().getPixels();
+        int    len     = frame.width * frame.height;
+        byte[] indexed = new byte[len];
+        if (table != null) {
+            int shift = 8 - LOOKUP_BITS;
+            for (int i = 0; i < len; i++) {
+                int p = pix[i];
+                indexed[i] = lookup[((((p >> 16) & 0xff) >> shift)
+                                     << (2 * LOOKUP_BITS)) | ((((p >> 8)
+                                         & 0xff) >> shift)
+                                             << LOOKUP_BITS) | ((p & 0xff)
+                                                 >> shift)];
+            }
+            frame.colorTab = table;
+        } else {
+            byte[]   pixels = packrgb(pix, len);
+            NeuQuant nq     = new NeuQuant(pixels, pixels.length,
+                                           getSampleFactor(len));
+            byte[]   tab    = nq.process();
+            // convert map from BGR to RGB
+            for (int i = 0; i < tab.length; i += 3) {
+                byte temp = tab[i];
+                tab[i]     = tab[i + 2];
+                tab[i + 2] = temp;
+            }
+            int k = 0;
+            for (int i = 0; i < len; i++) {
+                indexed[i] = (byte) nq.map(pixels[k++] & 0xff,
+                                           pixels[k++] & 0xff,
+                                           pixels[k++] & 0xff);
+            }
+            frame.colorTab = tab;
+        }
+        frame.indexedPixels = indexed;
+        return frame;
+    }
+
+    /**
+     * Get the rgb to color index lookup for the global color table,
+     * making it if needed. Each entry is the color closest to the center
+     * of its rgb cell.
+     *
+     * @return  the lookup
+     *
+     * @throws IOException  problem making the lookup
+     */
+    private byte[] getGctLookup() throws IOException {
+        if ((gctLookup != null) && (gctLookupTable == gct)) {
+            return gctLookup;
+        }
+        final byte[] table  = gct;
+        final int    size   = 1 << LOOKUP_BITS;
+        final int    shift  = 8 - LOOKUP_BITS;
+        final byte[] lookup = new byte[size * size * size];
+        List<Callable<Object>> tasks = new ArrayList<Callable<Object>>();
+        for (int r = 0; r < size; r++) {
+            final int red = r;
+            tasks.add(new Callable<Object>() {
+                public Object call() {
+                    int idx = red * size * size;
+                    int rv  = (red << shift) | (1 << (shift - 1));
+                    for (int g = 0; g < size; g++) {
+                        int gv = (g << shift) | (1 << (shift - 1));
+                        for (int b = 0; b < size; b++) {
+                            int bv = (b << shift) | (1 << (shift - 1));
+                            lookup[idx++] = (byte) findClosest(table, rv,
+                                    gv, bv);
+                        }
+                    }
+                    return null;
+                }
+            });
+        }
+        try {
+            ComputePool.invokeAll(tasks);
+        } catch (Exception exc) {
+            throw new IOException("Error making color lookup", exc);
+        }
+        gctLookup      = lookup;
+        gctLookupTable = table;
+        return lookup;
+    }
+
+    /**
+     * A frame that has been quantized
+     */
+    private static class Frame {
+
+        /** 8 bit image that still needs to be processed */
+        ImagePlus image;
+
+        /** RGB palette */
+        byte[] colorTab;
+
+        /** pixels indexed to the palette */
+        byte[] indexedPixels;
+
+        /** frame width */
+        int width;
+
+        /** frame height */
+        int height;
+
+        /** frame delay */
+        int delay;
+    }
+
     /**
      * Handles transparency color Index
      * Assumes colors and index are already checked for validity
@@ -757,6 +1051,15 @@ public class AnimatedGifEncoder {
             return false;
         }
         boolean ok = true;
+        try {
+            flushFrames(0);
+        } catch (IOException e) {
+            ok = false;
+        }
+        for (Future<Frame> future : pendingFrames) {
+            future.cancel(true);
+        }
+        pendingFrames.clear();
         started = false;
         try {
             out.write(0x3b);  // gif trailer
@@ -824,6 +1127,77 @@ public class AnimatedGifEncoder {
         pixels = null;
     }
 
+    /**
+     * Function to extract a Global Color Table from a number of RGB
+     * frames so the colors of the whole loop are represented. At most
+     * {@link #MAX_PALETTE_FRAMES} frames are used and the pixels are
+     * subsampled. This function has to be called before addFrame
+     *
+     * @param images the frames
+     */
+    public void extractGCTrgb(List<ImagePlus> images) {
+        if (images.size() > MAX_PALETTE_FRAMES) {
+            List<ImagePlus> sample = new ArrayList<ImagePlus>();
+            for (int i = 0; i < MAX_PALETTE_FRAMES; i++) {
+                sample.add(images.get((int) ((long) i * (images.size() - 1)
+                        / (MAX_PALETTE_FRAMES - 1))));
+            }
+            images = sample;
+        }
+        long total = 0;
+        for (ImagePlus image : images) {
+            if ((image == null) || (4 != image.getType())) {
+                throw new IllegalArgumentException(
+                    "Color Table Image must be RGB");
+            }
+            total += image.getWidth() * image.getHeight();
+        }
+        int    stride = (int) Math.max(1, total / MAX_PALETTE_PIXELS);
+        byte[] packed = new byte[(int) (total / stride + images.size()) * 3];
+        int    k      = 0;
+        for (ImagePlus image : images) {
+            int[] pix = (int[]) image.getProcessor().getPixels();
+            int   len = image.getWidth() * image.getHeight();
+            for (int i = 0; i < len; i += stride) {
+                packed[k++] = (byte) (pix[i] & 0x0000ff);          //blue
+                packed[k++] = (byte) ((pix[i] & 0x00ff00) >> 8);   //green
+                packed[k++] = (byte) ((pix[i] & 0xff0000) >> 16);  //red
+            }
+        }
+        NeuQuant nq = new NeuQuant(packed, k, getSampleFactor(k / 3));
+        gct = nq.process();
+        // convert map from BGR to RGB
+        for (int i = 0; i < gct.length; i += 3) {
+            byte temp = gct[i];
+            gct[i]     = gct[i + 2];
+            gct[i + 2] = temp;
+        }
+        gctused           = true;
+        GCTextracted      = true;
+        GCTloadedExternal = true;
+        colorDepth        = 8;
+        lctSize           = 7;
+    }
+
+    /**
+     * Pack the rgb values into a BGR byte array
+     *
+     * @param pix  the rgb pixels
+     * @param len  number of pixels
+     *
+     * @return  the packed pixels
+     */
+    private static byte[] packrgb(int[] pix, int len) {
+        byte[] pixels = new byte[len * 3];
+        for (int i = 0; i < len; i++) {
+            int k = i * 3;
+            pixels[k + 2] = (byte) ((pix[i] & 0xff0000) >> 16);  //red
+            pixels[k + 1] = (byte) ((pix[i] & 0x00ff00) >> 8);   //green
+            pixels[k]     = (byte) (pix[i] & 0x0000ff);          //blue
+        }
+        return pixels;
+    }
+
     /**
      * Pack the rgb value
      *
@@ -1051,15 +1425,27 @@ public class AnimatedGifEncoder {
      * @param npixs  the number of pixels
      */
     public void OverRideQuality(int npixs) {
+        sample = getSampleFactor(npixs);
+    }
+
+    /**
+     * Get the quantizer sample factor for an image size
+     *
+     * @param npixs  the number of pixels
+     *
+     * @return  the sample factor
+     */
+    private static int getSampleFactor(int npixs) {
+        int factor;
         if (npixs > 100000) {
-            sample = 10;
+            factor = 10;
         } else {
-            sample = npixs / 10000;
+            factor = npixs / 10000;
         }
-        if (sample < 1) {
-            sample = 1;
+        if (factor < 1) {
+            factor = 1;
         }
-
+        return factor;
     }
 
     /**
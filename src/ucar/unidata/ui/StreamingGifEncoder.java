@@ -0,0 +1,273 @@
+/*
+ * Copyright 1997-2020 Unidata Program Center/University Corporation for
+ * Atmospheric Research, P.O. Box 3000, Boulder, CO 80307,
+ * support@unidata.ucar.edu.
+ *
+ * This library is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation; either version 2.1 of the License, or (at
+ * your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU Lesser
+ * General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this library; if not, write to the Free Software Foundation,
+ * Inc., 59 Temple Place, Suite 330, Boston, MA 02111-1307 USA
+ */
+
+package ucar.unidata.ui;
+
+
+import ij.ImagePlus;
+
+import ucar.unidata.util.Misc;
+
+import java.awt.Image;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CountDownLatch;
+
+
+/**
+ * Writes an animated GIF from images handed to it one at a time. The
+ * frames are encoded in a separate thread so the caller can go on and
+ * render the next frame. The frames are held in a bounded queue so a
+ * slow encoder will block the caller instead of piling up images in memory.
+ *
+ * @author IDV Development Team
+ */
+public class StreamingGifEncoder {
+
+    /** Default number of frames that can be waiting to be encoded */
+    public static final int DEFAULT_QUEUE_SIZE = 4;
+
+    /** Marks the end of the frames */
+    private static final Object END = new Object();
+
+    /** The file we write to */
+    private String filename;
+
+    /** The frames waiting to be encoded */
+    private BlockingQueue<Object> queue;
+
+    /** The encoder */
+    private AnimatedGifEncoder encoder;
+
+    /** delay between frames (ms) */
+    private int delay;
+
+    /** delay on the last frame (ms). -1 for none */
+    private int endDelay;
+
+    /** Counted down when the encoding thread is done */
+    private CountDownLatch done = new CountDownLatch(1);
+
+    /** Error from the encoding thread */
+    private volatile Throwable error;
+
+    /** Have we been cancelled */
+    private volatile boolean cancelled = false;
+
+    /** Has finish or cancel been called */
+    private boolean closed = false;
+
+    /** Number of frames added */
+    private int frameCount = 0;
+
+    /**
+     * Create the encoder and start the encoding thread
+     *
+     * @param filename  output file name
+     * @param repeat    number of times to repeat
+     * @param delay     delay between images
+     * @param endDelay  delay on last image
+     * @param useGlobalTable true to use a global color table
+     */
+    public StreamingGifEncoder(String filename, int repeat, int delay,
+                               int endDelay, boolean useGlobalTable) {
+        this(filename, repeat, delay, endDelay, useGlobalTable,
+             DEFAULT_QUEUE_SIZE);
+    }
+
+    /**
+     * Create the encoder and start the encoding thread
+     *
+     * @param filename  output file name
+     * @param repeat    number of times to repeat
+     * @param delay     delay between images
+     * @param endDelay  delay on last image
+     * @param useGlobalTable true to use a global color table
+     * @param queueSize max number of frames waiting to be encoded
+     */
+    public StreamingGifEncoder(String filename, int repeat, int delay,
+                               int endDelay, boolean useGlobalTable,
+                               int queueSize) {
+        this.filename = filename;
+        this.delay    = delay;
+        this.endDelay = endDelay;
+        this.queue    = new ArrayBlockingQueue<Object>(Math.max(1,
+                queueSize));
+        encoder = new AnimatedGifEncoder();
+        encoder.setParallel(true);
+        encoder.setGCT(useGlobalTable);
+        encoder.setRepeat(repeat);
+        encoder.setDelay(delay);
+        Misc.run(new Runnable() {
+            public void run() {
+                encode();
+            }
+        });
+    }
+
+    /**
+     * Get the file we are writing to
+     *
+     * @return the file name
+     */
+    public String getFilename() {
+        return filename;
+    }
+
+    /**
+     * Get the number of frames added so far
+     *
+     * @return number of frames
+     */
+    public int getFrameCount() {
+        return frameCount;
+    }
+
+    /**
+     * Add the next frame. This blocks if the encoder has fallen too far
+     * behind. The image should not be modified after it is added.
+     *
+     * @param image the frame
+     *
+     * @throws IOException if the encoding has failed or we were interrupted
+     */
+    public void addFrame(Image image) throws IOException {
+        if (closed) {
+            throw new IllegalStateException("Encoder has been closed");
+        }
+        checkError();
+        try {
+            queue.put(image);
+            frameCount++;
+        } catch (InterruptedException ie) {
+            cancel();
+            throw new InterruptedIOException("Writing " + filename);
+        }
+    }
+
+    /**
+     * Wait for all of the frames to be encoded and close the file
+     *
+     * @throws IOException if the encoding failed
+     */
+    public void finish() throws IOException {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        try {
+            queue.put(END);
+            done.await();
+        } catch (InterruptedException ie) {
+            cancelled = true;
+            queue.clear();
+            queue.offer(END);
+            throw new InterruptedIOException("Writing " + filename);
+        }
+        checkError();
+    }
+
+    /**
+     * Stop encoding, drop any waiting frames and remove the partial file
+     */
+    public void cancel() {
+        if (closed) {
+            return;
+        }
+        closed    = true;
+        cancelled = true;
+        queue.clear();
+        queue.offer(END);
+        try {
+            done.await();
+        } catch (InterruptedException ie) {}
+        new File(filename).delete();
+    }
+
+    /**
+     * Throw the error from the encoding thread if there was one
+     *
+     * @throws IOException the error
+     */
+    private void checkError() throws IOException {
+        Throwable exc = error;
+        if (exc == null) {
+            return;
+        }
+        if (exc instanceof IOException) {
+            throw (IOException) exc;
+        }
+        throw new IOException("Error writing " + filename + ": " + exc, exc);
+    }
+
+    /**
+     * Take frames off of the queue and encode them until we see END.
+     * If there is an error we keep taking frames so the producer
+     * does not block.
+     */
+    private void encode() {
+        ImagePlus last = null;
+        try {
+            if ( !encoder.start(filename)) {
+                error = new IOException("Could not open " + filename);
+            }
+            while (true) {
+                Object frame = queue.take();
+                if (frame == END) {
+                    break;
+                }
+                if ((error != null) || cancelled) {
+                    continue;
+                }
+                try {
+                    last = new ImagePlus("", (Image) frame);
+                    if ( !encoder.addFrame(last)) {
+                        error = new IOException("Error writing " + filename);
+                    }
+                } catch (Throwable exc) {
+                    error = exc;
+                }
+            }
+            if ((error == null) && !cancelled && (last != null)
+                    && (endDelay != -1)) {
+                int endPause = endDelay - delay;
+                if (endPause > 0) {
+                    encoder.setDelay(endPause);
+                    encoder.addFrame(last);
+                }
+            }
+        } catch (Throwable exc) {
+            if (error == null) {
+                error = exc;
+            }
+        } finally {
+            if ( !encoder.finish() && (error == null) && !cancelled) {
+                error = new IOException("Error closing " + filename);
+            }
+            done.countDown();
+        }
+    }
+
+}
@@ -32,20 +32,35 @@ import java.awt.event.*;
 import java.io.*;
 
 
+import java.lang.reflect.Array;
+
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+
 import java.util.ArrayList;
-import java.util.Enumeration;
+import java.util.Collections;
+import java.util.Comparator;
 import java.util.Hashtable;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
 
 
 /**
  * A static class to manage a set of data caches.  Each object
  * could have a cache of data for specific
  * data objects associated with it.  This class is a central
- * manager for all the caches.  Effectively, it is a Hashtable of
- * Hashtables.  The key for the managed cache is the owner
- * of the cached data.  The value for the owner key is a Hashtable
+ * manager for all the caches.  The key for the managed cache is the owner
+ * of the cached data.  The value for the owner key is a concurrent map
  * of cached Data objects.
+ * <p>
+ * Each cached object is weighed (see {@link Weigher}) and the total weight
+ * of the memory cache is kept below {@link #setMaxMemoryCacheSize(long)}
+ * by evicting the least recently used entries across all owners.
+ * Hit, miss and eviction counts are kept per owner.
  *
  * @author IDV development team
  * @version $Revision: 1.15 $
@@ -67,11 +82,28 @@ public class CacheManager {
         ucar.unidata.util.LogUtil.getLogInstance(
             CacheManager.class.getName());
 
-    /** mutex */
-    private static Object MUTEX = new Object();
-
     /** cache of owned caches */
-    private static Hashtable caches = new Hashtable();
+    private static ConcurrentHashMap<Object, OwnerCache> caches =
+        new ConcurrentHashMap<Object, OwnerCache>();
+
+    /** Used to keep the eviction down to one thread at a time */
+    private static ReentrantLock evictionLock = new ReentrantLock();
+
+    /** Logical clock used to order cache accesses */
+    private static AtomicLong accessClock = new AtomicLong();
+
+    /** The approximate number of bytes in the memory cache */
+    private static AtomicLong currentMemorySize = new AtomicLong();
+
+    /** The max memory cache size in bytes. Default is 25% of the max heap */
+    private static long maxMemorySize = Runtime.getRuntime().maxMemory()
+                                        / 4;
+
+    /** Weight used for objects we don't know how to weigh */
+    public static final long DEFAULT_WEIGHT = 1024;
+
+    /** Weighs the cached objects */
+    private static Weigher weigher;
 
     /** initialization flag */
     private static boolean haveInitialized = false;
@@ -84,7 +116,29 @@ public class CacheManager {
 
 
     /** The current file cache size */
-    private static long currentCacheSize = -1;
+    private static AtomicLong currentCacheSize = new AtomicLong();
+
+    /** Name of the file cache index file kept in the cache dir */
+    public static final String FILE_CACHE_INDEX = ".cacheindex";
+
+    /** Tmp file the index is written to before it is renamed */
+    private static final String FILE_CACHE_INDEX_TMP = FILE_CACHE_INDEX
+                                                       + ".tmp";
+
+    /** Files at least this big are read straight into a sized array */
+    private static final long DIRECT_READ_THRESHOLD = 64 * 1024;
+
+    /**
+     * The file cache index. Maps the path (relative to the cache dir)
+     * to its entry. Loaded from the FILE_CACHE_INDEX file when first needed.
+     */
+    private static ConcurrentHashMap<String, FileCacheEntry> fileIndex;
+
+    /** Is there a file cache cleanup pending */
+    private static AtomicBoolean fileCleanupScheduled = new AtomicBoolean();
+
+    /** Is there a write of the file cache index pending */
+    private static AtomicBoolean indexSaveScheduled = new AtomicBoolean();
 
 
     /** List of action listeners to notify when we clear the cache */
@@ -123,7 +177,10 @@ public class CacheManager {
      * @param dir cache dir
      */
     public static void setCacheDir(File dir) {
-        cacheDir = dir;
+        synchronized (CacheManager.class) {
+            cacheDir  = dir;
+            fileIndex = null;
+        }
     }
 
 
@@ -237,17 +294,67 @@ public class CacheManager {
             if (f == null) {
                 return null;
             }
+            Map<String, FileCacheEntry> index = getFileIndex();
+            String                      key   = getIndexKey(f);
+            FileCacheEntry              entry = index.get(key);
             if ( !f.exists()) {
+                if ((entry != null) && index.remove(key, entry)) {
+                    currentCacheSize.addAndGet(-entry.size);
+                }
                 return null;
             }
-            f.setLastModified(System.currentTimeMillis());
-            return IOUtil.readBytes(new FileInputStream(f));
+            if (entry == null) {
+                //Someone else put the file there
+                entry = new FileCacheEntry(group, f.length(),
+                                           System.currentTimeMillis());
+                addToIndex(key, entry);
+            }
+            entry.lastAccess = System.currentTimeMillis();
+            scheduleIndexSave();
+            return readCachedFile(f);
+        } catch (FileNotFoundException fnfe) {
+            //The file was removed out from under us
+            return null;
         } catch (Exception exc) {
             throw new IllegalArgumentException("Error reading cache:" + exc);
         }
     }
 
 
+    /**
+     * Read the bytes of the cached file. Big files are read through
+     * the file channel into an array of the file size. We don't memory
+     * map them since the mapping is not released until it is garbage
+     * collected, which keeps the file from being deleted on Windows.
+     *
+     * @param f the file
+     *
+     * @return the bytes
+     *
+     * @throws IOException On badness
+     */
+    private static byte[] readCachedFile(File f) throws IOException {
+        if (f.length() < DIRECT_READ_THRESHOLD) {
+            return IOUtil.readBytes(new FileInputStream(f));
+        }
+        FileInputStream fis = new FileInputStream(f);
+        try {
+            FileChannel channel = fis.getChannel();
+            byte[]      bytes   = new byte[(int) channel.size()];
+            ByteBuffer  buffer  = ByteBuffer.wrap(bytes);
+            while (buffer.hasRemaining()) {
+                if (channel.read(buffer) < 0) {
+                    throw new EOFException("Cache file was truncated:"
+                                           + f);
+                }
+            }
+            return bytes;
+        } finally {
+            fis.close();
+        }
+    }
+
+
     /**
      * Set the max limit on the file cache size
      *
@@ -278,7 +385,10 @@ public class CacheManager {
             id = prepareCacheFilename(id);
             f  = new File(IOUtil.joinDir(f, id));
             IOUtil.writeBytes(f, bytes);
-            currentCacheSize = getCacheSize() + bytes.length;
+            addToIndex(getIndexKey(f),
+                       new FileCacheEntry(group, bytes.length,
+                                          System.currentTimeMillis()));
+            scheduleIndexSave();
             checkCacheSize();
         } catch (Exception exc) {
             throw new IllegalArgumentException("Error reading cache:" + exc);
@@ -287,55 +397,277 @@ public class CacheManager {
 
 
     /**
-     * Remove files in the cache if we have blown past our limit
+     * Add the entry to the file cache index, replacing any existing entry
+     *
+     * @param key index key
+     * @param entry the entry
+     */
+    private static void addToIndex(String key, FileCacheEntry entry) {
+        Map<String, FileCacheEntry> index = getFileIndex();
+        currentCacheSize.addAndGet(entry.size);
+        FileCacheEntry old = index.put(key, entry);
+        if (old != null) {
+            currentCacheSize.addAndGet(-old.size);
+        }
+    }
+
+
+    /**
+     * Get the key used in the file index for the given cache file
+     *
+     * @param f file in the cache dir
+     *
+     * @return path relative to the cache dir
+     */
+    private static String getIndexKey(File f) {
+        String path = f.getPath();
+        String root = cacheDir.getPath();
+        if (path.startsWith(root)) {
+            path = path.substring(root.length());
+        }
+        while (path.startsWith(File.separator)) {
+            path = path.substring(1);
+        }
+        return path.replace(File.separatorChar, '/');
+    }
+
+
+    /**
+     * Get the file cache index, loading it from the index file in the
+     * cache dir if needed. If there is no index file then the cache dir
+     * is walked once to build it.
+     *
+     * @return the file index
+     */
+    private static synchronized ConcurrentHashMap<String,
+            FileCacheEntry> getFileIndex() {
+        if (fileIndex != null) {
+            return fileIndex;
+        }
+        ConcurrentHashMap<String, FileCacheEntry> index =
+            new ConcurrentHashMap<String, FileCacheEntry>();
+        long    size    = 0;
+        boolean rebuilt = false;
+        if ((cacheDir != null) && cacheDir.exists()) {
+            File indexFile = new File(cacheDir, FILE_CACHE_INDEX);
+            if ( !readFileIndex(indexFile, index)) {
+                index.clear();
+                for (File f : IOUtil.getFiles(cacheDir, true)) {
+                    if (f.getName().equals(FILE_CACHE_INDEX)
+                            || f.getName().equals(FILE_CACHE_INDEX_TMP)) {
+                        continue;
+                    }
+                    String key   = getIndexKey(f);
+                    int    idx   = key.lastIndexOf("/");
+                    String group = ((idx > 0)
+                                    ? key.substring(0, idx)
+                                    : "");
+                    index.put(key,
+                              new FileCacheEntry(group, f.length(),
+                                  f.lastModified()));
+                }
+                rebuilt = true;
+            }
+            for (FileCacheEntry entry : index.values()) {
+                size += entry.size;
+            }
+        }
+        fileIndex = index;
+        currentCacheSize.set(size);
+        if (rebuilt) {
+            scheduleIndexSave();
+        }
+        return fileIndex;
+    }
+
+
+    /**
+     * Read the index file. Each line is:
+     * size, last access time, group and path separated by tabs.
+     *
+     * @param indexFile the index file
+     * @param index  the index to add to
+     *
+     * @return true if the index file was read
+     */
+    private static boolean readFileIndex(File indexFile,
+                                         Map<String, FileCacheEntry> index) {
+        if ( !indexFile.exists()) {
+            return false;
+        }
+        try {
+            List<String> lines = StringUtil.split(IOUtil.readContents(indexFile),
+                                     "\n", true, true);
+            for (String line : lines) {
+                String[] toks = line.split("\t", 4);
+                if (toks.length != 4) {
+                    return false;
+                }
+                index.put(toks[3],
+                          new FileCacheEntry(toks[2],
+                                             Long.parseLong(toks[0]),
+                                             Long.parseLong(toks[1])));
+            }
+            return true;
+        } catch (Exception exc) {
+            LogUtil.printException(log_,
+                                   "Error reading cache index:"
+                                   + indexFile, exc);
+            return false;
+        }
+    }
+
+
+    /**
+     * Write the index file. We write to a tmp file and then rename it
+     * so a partial index is never left behind.
+     */
+    private static void writeFileIndex() {
+        Map<String, FileCacheEntry> index = fileIndex;
+        File                        dir   = cacheDir;
+        if ((index == null) || (dir == null) || !dir.exists()) {
+            return;
+        }
+        StringBuffer sb = new StringBuffer();
+        for (Map.Entry<String, FileCacheEntry> entry : index.entrySet()) {
+            FileCacheEntry fce = entry.getValue();
+            sb.append(fce.size);
+            sb.append("\t");
+            sb.append(fce.lastAccess);
+            sb.append("\t");
+            sb.append(fce.group);
+            sb.append("\t");
+            sb.append(entry.getKey());
+            sb.append("\n");
+        }
+        try {
+            File tmpFile = new File(dir, FILE_CACHE_INDEX_TMP);
+            IOUtil.writeFile(tmpFile, sb.toString());
+            File indexFile = new File(dir, FILE_CACHE_INDEX);
+            indexFile.delete();
+            tmpFile.renameTo(indexFile);
+        } catch (Exception exc) {
+            LogUtil.printException(log_, "Error writing cache index", exc);
+        }
+    }
+
+
+    /**
+     * Write the file index in a bit in a background thread. Multiple
+     * calls within that time result in one write.
+     */
+    private static void scheduleIndexSave() {
+        if ( !indexSaveScheduled.compareAndSet(false, true)) {
+            return;
+        }
+        Misc.runInABit(5000, new Runnable() {
+            public void run() {
+                indexSaveScheduled.set(false);
+                writeFileIndex();
+            }
+        });
+    }
+
+
+    /**
+     * Remove files in the cache, in the background, if we have blown
+     * past our limit
      */
     private static void checkCacheSize() {
-        currentCacheSize = getCacheSize();
-        if (currentCacheSize > maxCacheSize) {
-            File[] allFiles = IOUtil.sortFilesOnAge(
-                                  IOUtil.toFiles(
-                                      IOUtil.getFiles(
-                                          cacheDir, true)), false);
-            int fileIdx = 0;
-            //Go a bit below the limit so we don't thrash
-            long limit = (long) (maxCacheSize * 0.75);
-            while ((currentCacheSize > limit)
-                    && (fileIdx < allFiles.length)) {
-                currentCacheSize -= allFiles[fileIdx].length();
-                allFiles[fileIdx].delete();
-                fileIdx++;
+        if (getCacheSize() <= maxCacheSize) {
+            return;
+        }
+        if ( !fileCleanupScheduled.compareAndSet(false, true)) {
+            return;
+        }
+        Misc.run(new Runnable() {
+            public void run() {
+                try {
+                    cleanupFileCache();
+                } finally {
+                    fileCleanupScheduled.set(false);
+                }
+            }
+        });
+    }
+
+
+    /**
+     * Delete the least recently accessed files until we are under our limit
+     */
+    private static void cleanupFileCache() {
+        if (getCacheSize() <= maxCacheSize) {
+            return;
+        }
+        Map<String, FileCacheEntry> index = getFileIndex();
+        List<Map.Entry<String, FileCacheEntry>> entries =
+            new ArrayList<Map.Entry<String, FileCacheEntry>>(
+                index.entrySet());
+        Collections.sort(entries,
+                         new Comparator<Map.Entry<String,
+                             FileCacheEntry>>() {
+            public int compare(Map.Entry<String, FileCacheEntry> e1,
+                               Map.Entry<String, FileCacheEntry> e2) {
+                long t1 = e1.getValue().lastAccess;
+                long t2 = e2.getValue().lastAccess;
+                return (t1 < t2)
+                       ? -1
+                       : ((t1 == t2)
+                          ? 0
+                          : 1);
+            }
+        });
+        //Go a bit below the limit so we don't thrash
+        long limit = (long) (maxCacheSize * 0.75);
+        for (int i = 0;
+                (i < entries.size()) && (currentCacheSize.get() > limit);
+                i++) {
+            Map.Entry<String, FileCacheEntry> entry = entries.get(i);
+            if (index.remove(entry.getKey(), entry.getValue())) {
+                currentCacheSize.addAndGet(-entry.getValue().size);
+                new File(cacheDir, entry.getKey()).delete();
             }
-            currentCacheSize = findCacheSize();
         }
+        writeFileIndex();
     }
 
     /**
-     * This sets the cache size if it has not been set yet and then returns it
+     * Get the current size of the file cache
      *
      * @return cache size
      */
     private static long getCacheSize() {
-        if (currentCacheSize < 0) {
-            currentCacheSize = findCacheSize();
-        }
-        return currentCacheSize;
+        getFileIndex();
+        return currentCacheSize.get();
     }
 
+
     /**
-     * This searches the cache dir and calculates the total size of the files there
-     *
-     * @return Cache size
+     * Holds the size, last access time and group of a file in the cache
      */
-    private static int findCacheSize() {
-        if (cacheDir == null) {
-            return 0;
+    private static class FileCacheEntry {
+
+        /** the cache group */
+        final String group;
+
+        /** file size */
+        final long size;
+
+        /** last access time */
+        volatile long lastAccess;
+
+        /**
+         * ctor
+         *
+         * @param group cache group
+         * @param size file size
+         * @param lastAccess last access time
+         */
+        FileCacheEntry(String group, long size, long lastAccess) {
+            this.group      = group;
+            this.size       = size;
+            this.lastAccess = lastAccess;
         }
-        List files = IOUtil.getFiles(cacheDir, true);
-        int  size  = 0;
-        for (int i = 0; i < files.size(); i++) {
-            size += ((File) files.get(i)).length();
-        }
-        return size;
     }
 
 
@@ -355,6 +687,106 @@ public class CacheManager {
         //        MemoryMonitor mm = new MemoryMonitor(90);
     }
 
+    /**
+     * Set the max size, in bytes, of the memory cache
+     *
+     * @param maxSize max size in bytes
+     */
+    public static void setMaxMemoryCacheSize(long maxSize) {
+        maxMemorySize = maxSize;
+        checkMemorySize();
+    }
+
+    /**
+     * Get the max size, in bytes, of the memory cache
+     *
+     * @return max size in bytes
+     */
+    public static long getMaxMemoryCacheSize() {
+        return maxMemorySize;
+    }
+
+    /**
+     * Get the approximate number of bytes held in the memory cache
+     *
+     * @return memory cache size in bytes
+     */
+    public static long getMemoryCacheSize() {
+        return currentMemorySize.get();
+    }
+
+    /**
+     * Set the weigher used to estimate the size of cached objects.
+     * This allows packages that know about their data types
+     * (e.g., VisAD FlatFields) to provide better weights.
+     *
+     * @param w The weigher. If null then the default weighing is used.
+     */
+    public static void setWeigher(Weigher w) {
+        weigher = w;
+    }
+
+    /**
+     * Estimate the size in bytes of the object. This uses the
+     * weigher if one has been set, otherwise it handles primitive
+     * arrays and uses {@link #DEFAULT_WEIGHT} for everything else.
+     *
+     * @param value The object
+     *
+     * @return approximate size in bytes
+     */
+    public static long weigh(Object value) {
+        if (value == null) {
+            return 0;
+        }
+        if (weigher != null) {
+            long weight = weigher.weigh(value);
+            if (weight >= 0) {
+                return weight;
+            }
+        }
+        return weighArray(value);
+    }
+
+    /**
+     * Estimate the size of the given primitive or object array.
+     *
+     * @param value The object
+     *
+     * @return approximate size in bytes or DEFAULT_WEIGHT if value
+     *         is not an array
+     */
+    public static long weighArray(Object value) {
+        Class c = value.getClass();
+        if ( !c.isArray()) {
+            return DEFAULT_WEIGHT;
+        }
+        Class component = c.getComponentType();
+        int   length    = Array.getLength(value);
+        if (component == double.class || component == long.class) {
+            return 8L * length;
+        }
+        if (component == float.class || component == int.class) {
+            return 4L * length;
+        }
+        if (component == short.class || component == char.class) {
+            return 2L * length;
+        }
+        if (component == byte.class || component == boolean.class) {
+            return length;
+        }
+        long weight = 4L * length;
+        for (int i = 0; i < length; i++) {
+            Object o = Array.get(value, i);
+            if (o != null) {
+                weight += (o.getClass().isArray()
+                           ? weighArray(o)
+                           : weigh(o));
+            }
+        }
+        return weight;
+    }
+
     /**
      * Put an object in the cache
      *
@@ -376,22 +808,35 @@ public class CacheManager {
      */
     public static void put(Object owner, Object key, Object value,
                            boolean force) {
-        synchronized (MUTEX) {
-            if (doCache || force) {
-                Hashtable ht = findOrCreate(owner);
-                ht.put(key, value);
-            }
+        if ( !(doCache || force)) {
+            return;
+        }
+        long weight = weigh(value);
+        if (weight > maxMemorySize) {
+            //Too big to ever fit. Don't flush everything else for it.
+            OwnerCache cache = find(owner, true);
+            cache.evictions.incrementAndGet();
+            cache.remove(key);
+            return;
         }
+        OwnerCache cache = find(owner, true);
+        cache.put(key, new CacheEntry(value, weight));
+        //If the owner was removed while we were putting then back out
+        if (caches.get(owner) != cache) {
+            cache.clear();
+        }
+        checkMemorySize();
     }
 
     /**
      * Clear the cache.
      */
     public static void clearCache() {
-        synchronized (MUTEX) {
-            //      System.err.println ("clear cache");
-            caches = new Hashtable();
-
+        //      System.err.println ("clear cache");
+        for (Object owner : new ArrayList(caches.keySet())) {
+            remove(owner);
+        }
+        synchronized (cacheListeners) {
             for (int i = 0; i < cacheListeners.size(); i++) {
                 ActionListener al = (ActionListener) cacheListeners.get(i);
                 al.actionPerformed(new ActionEvent("CacheManager", 0,
@@ -407,21 +852,28 @@ public class CacheManager {
      * @param a cache listener
      */
     public static void addCacheListener(ActionListener a) {
-        cacheListeners.add(a);
+        synchronized (cacheListeners) {
+            cacheListeners.add(a);
+        }
     }
 
 
     /**
      * Find the cache associated with <code>owner</code> and if not there,
-     * create a new cache
+     * create a new cache. Note: this returns a snapshot of the
+     * owner's cache. Changes to the returned table are not reflected in
+     * the cache.
      *
      * @param owner   owner to search for
-     * @return  caching table
+     * @return  copy of the caching table
      */
     public static Hashtable findOrCreate(Object owner) {
-        synchronized (MUTEX) {
-            return find(owner, true);
+        OwnerCache cache = find(owner, true);
+        Hashtable  ht    = new Hashtable();
+        for (Map.Entry<Object, CacheEntry> entry : cache.entries.entrySet()) {
+            ht.put(entry.getKey(), entry.getValue().value);
         }
+        return ht;
     }
 
     /**
@@ -431,7 +883,7 @@ public class CacheManager {
      * @param owner    owner for cache
      * @return  associated cache  or <code>null</code>
      */
-    private static Hashtable find(Object owner) {
+    private static OwnerCache find(Object owner) {
         return find(owner, false);
     }
 
@@ -444,15 +896,18 @@ public class CacheManager {
      * @param orCreate  true to create one if one does not exist.
      * @return  a data cache for the owner
      */
-    private static Hashtable find(Object owner, boolean orCreate) {
+    private static OwnerCache find(Object owner, boolean orCreate) {
         init();
-        Hashtable ht = (Hashtable) caches.get(owner);
-        if ((ht == null) && orCreate) {
-            //      System.err.println ("Creating new ht:" + owner);
-            ht = new Hashtable();
-            caches.put(owner, ht);
+        OwnerCache cache = caches.get(owner);
+        if ((cache == null) && orCreate) {
+            //      System.err.println ("Creating new cache:" + owner);
+            cache = new OwnerCache(owner);
+            OwnerCache existing = caches.putIfAbsent(owner, cache);
+            if (existing != null) {
+                cache = existing;
+            }
         }
-        return ht;
+        return cache;
     }
 
     /**
@@ -475,17 +930,14 @@ public class CacheManager {
      * @return  the cached object
      */
     public static Object get(Object owner, Object key, boolean force) {
-        synchronized (MUTEX) {
-            if (doCache || force) {
-                Hashtable ht = find(owner);
-                if (ht == null) {
-                    return null;
-                }
-                return ht.get(key);
-            } else {
-                return null;
-            }
+        if ( !(doCache || force)) {
+            return null;
+        }
+        OwnerCache cache = find(owner);
+        if (cache == null) {
+            return null;
         }
+        return cache.get(key);
     }
 
 
@@ -495,8 +947,9 @@ public class CacheManager {
      * @param owner    owner of the cache
      */
     public static void remove(Object owner) {
-        synchronized (MUTEX) {
-            caches.remove(owner);
+        OwnerCache cache = caches.remove(owner);
+        if (cache != null) {
+            cache.clear();
         }
     }
 
@@ -507,11 +960,73 @@ public class CacheManager {
      * @param key     key for object to remove
      */
     public static void remove(Object owner, Object key) {
-        synchronized (MUTEX) {
-            Hashtable ht = find(owner);
-            if (ht != null) {
-                ht.remove(key);
+        OwnerCache cache = find(owner);
+        if (cache != null) {
+            cache.remove(key);
+        }
+    }
+
+    /**
+     * Get the statistics for the given owner's cache
+     *
+     * @param owner owner of the cache
+     *
+     * @return The stats or null if there is no cache for the owner
+     */
+    public static Stats getStats(Object owner) {
+        OwnerCache cache = find(owner);
+        if (cache == null) {
+            return null;
+        }
+        return new Stats(cache);
+    }
+
+    /**
+     * If the memory cache is over its max size then evict the least
+     * recently used entries, across all owners, until we are a bit
+     * below the limit
+     */
+    private static void checkMemorySize() {
+        if (currentMemorySize.get() <= maxMemorySize) {
+            return;
+        }
+        //If some other thread is already evicting then let it do the work
+        if ( !evictionLock.tryLock()) {
+            return;
+        }
+        try {
+            List<Object[]> all = new ArrayList<Object[]>();
+            for (OwnerCache cache : caches.values()) {
+                for (Map.Entry<Object, CacheEntry> entry :
+                        cache.entries.entrySet()) {
+                    all.add(new Object[] { cache, entry.getKey(),
+                                           entry.getValue() });
+                }
             }
+            Collections.sort(all, new Comparator<Object[]>() {
+                public int compare(Object[] o1, Object[] o2) {
+                    long t1 = ((CacheEntry) o1[2]).lastAccess;
+                    long t2 = ((CacheEntry) o2[2]).lastAccess;
+                    return (t1 < t2)
+                           ? -1
+                           : ((t1 == t2)
+                              ? 0
+                              : 1);
+                }
+            });
+            //Go a bit below the limit so we don't thrash
+            long limit = (long) (maxMemorySize * 0.75);
+            for (int i = 0;
+                    (i < all.size()) && (currentMemorySize.get() > limit);
+                    i++) {
+                Object[]   tuple = all.get(i);
+                OwnerCache cache = (OwnerCache) tuple[0];
+                if (cache.remove(tuple[1], (CacheEntry) tuple[2])) {
+                    cache.evictions.incrementAndGet();
+                }
+            }
+        } finally {
+            evictionLock.unlock();
         }
     }
 
@@ -519,14 +1034,273 @@ public class CacheManager {
      * Print the statistics for this cache.  Glorified toString().
      */
     public static void printStats() {
-        System.err.println("\tCacheManager: #caches:" + caches.size());
-        for (Enumeration keys = caches.keys(); keys.hasMoreElements(); ) {
-            Object    key   = keys.nextElement();
-            Hashtable cache = (Hashtable) caches.get(key);
-            System.err.println("\tKey:" + key + " size:" + cache.size());
+        System.err.println("\tCacheManager: #caches:" + caches.size()
+                           + " memory:" + currentMemorySize.get() + "/"
+                           + maxMemorySize);
+        for (OwnerCache cache : caches.values()) {
+            System.err.println("\tKey:" + cache.owner + " "
+                               + new Stats(cache));
         }
     }
 
 
-}
+    /**
+     * Estimates the size in bytes of objects put in the memory cache
+     */
+    public interface Weigher {
+
+        /**
+         * Estimate the size of the object
+         *
+         * @param value The object
+         *
+         * @return size in bytes or a negative number if this weigher
+         *         does not know how to weigh the object
+         */
+        public long weigh(Object value);
+    }
+
+
+    /**
+     * Holds the statistics for one owner's cache
+     */
+    public static class Stats {
+
+        /** number of entries */
+        private int size;
+
+        /** approximate bytes */
+        private long bytes;
+
+        /** number of hits */
+        private long hits;
+
+        /** number of misses */
+        private long misses;
+
+        /** number of evictions */
+        private long evictions;
+
+        /**
+         * ctor
+         *
+         * @param cache The cache to get the stats from
+         */
+        private Stats(OwnerCache cache) {
+            size      = cache.entries.size();
+            bytes     = cache.bytes.get();
+            hits      = cache.hits.get();
+            misses    = cache.misses.get();
+            evictions = cache.evictions.get();
+        }
+
+        /**
+         * Get the number of entries
+         *
+         * @return number of entries
+         */
+        public int getSize() {
+            return size;
+        }
+
+        /**
+         * Get the approximate number of bytes held
+         *
+         * @return bytes
+         */
+        public long getBytes() {
+            return bytes;
+        }
+
+        /**
+         * Get the number of cache hits
+         *
+         * @return hits
+         */
+        public long getHits() {
+            return hits;
+        }
+
+        /**
+         * Get the number of cache misses
+         *
+         * @return misses
+         */
+        public long getMisses() {
+            return misses;
+        }
+
+        /**
+         * Get the number of entries evicted to stay under the memory limit
+         *
+         * @return evictions
+         */
+        public long getEvictions() {
+            return evictions;
+        }
+
+        /**
+         * to string
+         *
+         * @return string
+         */
+        public String toString() {
+            return "size:" + size + " bytes:" + bytes + " hits:" + hits
+                   + " misses:" + misses + " evictions:" + evictions;
+        }
+    }
+
+
+    /**
+     * A cached value with its weight and last access time
+     */
+    private static class CacheEntry {
+
+        /** the cached value */
+        final Object value;
+
+        /** approximate size in bytes */
+        final long weight;
+
+        /** when this was last accessed */
+        volatile long lastAccess;
+
+        /**
+         * ctor
+         *
+         * @param value the value
+         * @param weight its weight
+         */
+        CacheEntry(Object value, long weight) {
+            this.value  = value;
+            this.weight = weight;
+            lastAccess  = accessClock.incrementAndGet();
+        }
+    }
+
+
+    /**
+     * The cache for one owner
+     */
+    private static class OwnerCache {
+
+        /** the owner */
+        final Object owner;
+
+        /** the entries */
+        final ConcurrentHashMap<Object, CacheEntry> entries =
+            new ConcurrentHashMap<Object, CacheEntry>();
+
+        /** approximate bytes held by this owner */
+        final AtomicLong bytes = new AtomicLong();
+
+        /** hit count */
+        final AtomicLong hits = new AtomicLong();
+
+        /** miss count */
+        final AtomicLong misses = new AtomicLong();
+
+        /** eviction count */
+        final AtomicLong evictions = new AtomicLong();
+
+        /**
+         * ctor
+         *
+         * @param owner the owner
+         */
+        OwnerCache(Object owner) {
+            this.owner = owner;
+        }
+
+        /**
+         * Get the value for the key
+         *
+         * @param key key
+         *
+         * @return value or null
+         */
+        Object get(Object key) {
+            CacheEntry entry = entries.get(key);
+            if (entry == null) {
+                misses.incrementAndGet();
+                return null;
+            }
+            hits.incrementAndGet();
+            entry.lastAccess = accessClock.incrementAndGet();
+            return entry.value;
+        }
+
+        /**
+         * Put the entry
+         *
+         * @param key key
+         * @param entry entry
+         */
+        void put(Object key, CacheEntry entry) {
+            added(entry);
+            CacheEntry old = entries.put(key, entry);
+            if (old != null) {
+                removed(old);
+            }
+        }
 
+        /**
+         * Remove the entry for the key
+         *
+         * @param key key
+         */
+        void remove(Object key) {
+            CacheEntry old = entries.remove(key);
+            if (old != null) {
+                removed(old);
+            }
+        }
+
+        /**
+         * Remove the key only if it still maps to the given entry
+         *
+         * @param key key
+         * @param entry the entry
+         *
+         * @return true if removed
+         */
+        boolean remove(Object key, CacheEntry entry) {
+            if (entries.remove(key, entry)) {
+                removed(entry);
+                return true;
+            }
+            return false;
+        }
+
+        /**
+         * Remove all entries
+         */
+        void clear() {
+            for (Object key : entries.keySet()) {
+                remove(key);
+            }
+        }
+
+        /**
+         * Account for an added entry
+         *
+         * @param entry the entry
+         */
+        private void added(CacheEntry entry) {
+            bytes.addAndGet(entry.weight);
+            currentMemorySize.addAndGet(entry.weight);
+        }
+
+        /**
+         * Account for a removed entry
+         *
+         * @param entry the entry
+         */
+        private void removed(CacheEntry entry) {
+            bytes.addAndGet(-entry.weight);
+            currentMemorySize.addAndGet(-entry.weight);
+        }
+    }
+
+
+}
@@ -0,0 +1,142 @@
+/*
+ * Copyright 1997-2020 Unidata Program Center/University Corporation for
+ * Atmospheric Research, P.O. Box 3000, Boulder, CO 80307,
+ * support@unidata.ucar.edu.
+ *
+ * This library is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation; either version 2.1 of the License, or (at
+ * your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU Lesser
+ * General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this library; if not, write to the Free Software Foundation,
+ * Inc., 59 Temple Place, Suite 330, Boston, MA 02111-1307 USA
+ */
+
+
+package ucar.unidata.util;
+
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinWorkerThread;
+import java.util.concurrent.Future;
+
+
+/**
+ * A single, bounded pool of threads used for cpu bound computations
+ * (e.g., trajectories, ensemble statistics) across the application.
+ * This is a fork/join pool so tasks running in the pool can themselves
+ * submit and wait on other tasks without tying up threads.
+ *
+ * @author IDV development team
+ */
+public class ComputePool {
+
+    /** The pool */
+    private static ForkJoinPool pool;
+
+    /** max number of threads */
+    private static int maxThreads =
+        Runtime.getRuntime().availableProcessors();
+
+    /**
+     * Default ctor
+     */
+    private ComputePool() {}
+
+    /**
+     * Set the max number of threads in the pool. If the pool has already
+     * been created then a new one is made and the old one is shut down
+     * once its current tasks are done.
+     *
+     * @param threads max number of threads
+     */
+    public static synchronized void setMaxThreads(int threads) {
+        threads = Math.max(1, threads);
+        if (threads == maxThreads) {
+            return;
+        }
+        maxThreads = threads;
+        if (pool != null) {
+            pool.shutdown();
+            pool = null;
+        }
+    }
+
+    /**
+     * Get the max number of threads in the pool
+     *
+     * @return max threads
+     */
+    public static synchronized int getMaxThreads() {
+        return maxThreads;
+    }
+
+    /**
+     * Get the pool, creating it if needed
+     *
+     * @return The pool
+     */
+    public static synchronized ForkJoinPool getPool() {
+        if (pool == null) {
+            ForkJoinPool.ForkJoinWorkerThreadFactory factory =
+                new ForkJoinPool.ForkJoinWorkerThreadFactory() {
+                public ForkJoinWorkerThread newThread(ForkJoinPool p) {
+                    ForkJoinWorkerThread thread =
+                        ForkJoinPool.defaultForkJoinWorkerThreadFactory
+                            .newThread(p);
+                    thread.setName("Compute pool-" + thread.getPoolIndex());
+                    thread.setDaemon(true);
+                    return thread;
+                }
+            };
+            pool = new ForkJoinPool(maxThreads, factory, null, false);
+        }
+        return pool;
+    }
+
+    /**
+     * Run the tasks in the pool and wait for them to finish.
+     *
+     * @param tasks The tasks
+     * @param <T> result type
+     *
+     * @return The results, in the same order as the tasks
+     *
+     * @throws Exception The first exception thrown by any of the tasks
+     */
+    public static <T> List<T> invokeAll(List<? extends Callable<T>> tasks)
+            throws Exception {
+        List<T> results = new ArrayList<T>(tasks.size());
+        if (tasks.size() == 1) {
+            results.add(tasks.get(0).call());
+            return results;
+        }
+        List<Future<T>> futures = getPool().invokeAll(tasks);
+        for (Future<T> future : futures) {
+            try {
+                results.add(future.get());
+            } catch (ExecutionException exc) {
+                Throwable cause = exc.getCause();
+                if (cause instanceof Exception) {
+                    throw (Exception) cause;
+                }
+                if (cause instanceof Error) {
+                    throw (Error) cause;
+                }
+                throw exc;
+            }
+        }
+        return results;
+    }
+
+}
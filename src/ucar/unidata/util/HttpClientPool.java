@@ -0,0 +1,698 @@
+/*
+ * Copyright 1997-2020 Unidata Program Center/University Corporation for
+ * Atmospheric Research, P.O. Box 3000, Boulder, CO 80307,
+ * support@unidata.ucar.edu.
+ *
+ * This library is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation; either version 2.1 of the License, or (at
+ * your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU Lesser
+ * General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this library; if not, write to the Free Software Foundation,
+ * Inc., 59 Temple Place, Suite 330, Boston, MA 02111-1307 USA
+ */
+
+package ucar.unidata.util;
+
+
+import org.apache.http.Header;
+import org.apache.http.HttpEntity;
+import org.apache.http.HttpStatus;
+import org.apache.http.client.config.RequestConfig;
+import org.apache.http.client.methods.CloseableHttpResponse;
+import org.apache.http.client.methods.HttpGet;
+import org.apache.http.client.methods.HttpHead;
+import org.apache.http.client.methods.HttpRequestBase;
+import org.apache.http.conn.ConnectionPoolTimeoutException;
+import org.apache.http.impl.client.CloseableHttpClient;
+import org.apache.http.impl.client.HttpClients;
+import org.apache.http.impl.client.LaxRedirectStrategy;
+import org.apache.http.impl.conn.PoolingHttpClientConnectionManager;
+import org.apache.http.util.EntityUtils;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.RandomAccessFile;
+
+import java.net.HttpURLConnection;
+import java.net.URLConnection;
+
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+
+/**
+ * The shared http client used by {@link IOUtil} to read urls. Connections
+ * are kept alive and pooled with a limit on the number of connections to
+ * each host, responses are sent gzipped when the server can, cached
+ * content can be revalidated with its ETag and Last-Modified headers and
+ * large files are downloaded in parallel ranges.
+ *
+ * @author IDV Development Team
+ */
+public class HttpClientPool {
+
+    /** Timeout for connecting and reading, in milliseconds */
+    public static final int TIMEOUT = 30000;
+
+    /**
+     * How long to wait for a pooled connection, in milliseconds. When they
+     * are all in use we soon fall back to a plain url stream
+     */
+    public static final int POOL_TIMEOUT = 500;
+
+    /** Files at least this big are downloaded in ranges */
+    public static final long RANGE_THRESHOLD = 16 * 1024 * 1024;
+
+    /** Smallest range */
+    private static final long MIN_RANGE = 4 * 1024 * 1024;
+
+    /** Use the pool. If false IOUtil uses URLConnection */
+    private static boolean enabled = true;
+
+    /** Most connections */
+    private static int maxConnections = 64;
+
+    /** Most connections to one host */
+    private static int maxConnectionsPerHost = 6;
+
+    /** The connection pool */
+    private static PoolingHttpClientConnectionManager connectionManager;
+
+    /** The client */
+    private static CloseableHttpClient client;
+
+    /** Reads the ranges of downloads */
+    private static ExecutorService rangeExecutor;
+
+    /** Number of requests */
+    private static long requestCnt = 0;
+
+    /** Number of revalidations that were not modified */
+    private static long notModifiedCnt = 0;
+
+    /**
+     * The result of a conditional get
+     */
+    public static class Result {
+
+        /** The status code */
+        private int status;
+
+        /** The content. null if not modified */
+        private byte[] bytes;
+
+        /** The ETag header. May be null */
+        private String etag;
+
+        /** The Last-Modified header. May be null */
+        private String lastModified;
+
+        /**
+         * ctor
+         *
+         * @param status status code
+         * @param bytes content
+         * @param etag ETag
+         * @param lastModified Last-Modified
+         */
+        Result(int status, byte[] bytes, String etag, String lastModified) {
+            this.status       = status;
+            this.bytes        = bytes;
+            this.etag         = etag;
+            this.lastModified = lastModified;
+        }
+
+        /**
+         * Was the content not modified
+         *
+         * @return true if the server said it wasn't modified
+         */
+        public boolean isNotModified() {
+            return status == HttpStatus.SC_NOT_MODIFIED;
+        }
+
+        /**
+         * Get the content
+         *
+         * @return the bytes. null if not modified
+         */
+        public byte[] getBytes() {
+            return bytes;
+        }
+
+        /**
+         * Get the ETag
+         *
+         * @return ETag or null
+         */
+        public String getEtag() {
+            return etag;
+        }
+
+        /**
+         * Get the Last-Modified date
+         *
+         * @return Last-Modified or null
+         */
+        public String getLastModified() {
+            return lastModified;
+        }
+    }
+
+    /**
+     * Turn the pool on or off
+     *
+     * @param value true to use the pool
+     */
+    public static void setEnabled(boolean value) {
+        enabled = value;
+    }
+
+    /**
+     * Is the pool used
+     *
+     * @return true if used
+     */
+    public static boolean getEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Set the connection limits
+     *
+     * @param total most connections
+     * @param perHost most connections to one host
+     */
+    public static synchronized void setMaxConnections(int total,
+            int perHost) {
+        maxConnections        = Math.max(1, total);
+        maxConnectionsPerHost = Math.max(1, perHost);
+        if (connectionManager != null) {
+            connectionManager.setMaxTotal(maxConnections);
+            connectionManager.setDefaultMaxPerRoute(maxConnectionsPerHost);
+        }
+    }
+
+    /**
+     * Get the client, making it if needed
+     *
+     * @return the client
+     */
+    private static synchronized CloseableHttpClient getClient() {
+        if (client == null) {
+            connectionManager = new PoolingHttpClientConnectionManager();
+            connectionManager.setMaxTotal(maxConnections);
+            connectionManager.setDefaultMaxPerRoute(maxConnectionsPerHost);
+            RequestConfig config =
+                RequestConfig.custom().setConnectTimeout(TIMEOUT)
+                    .setSocketTimeout(TIMEOUT)
+                    .setConnectionRequestTimeout(POOL_TIMEOUT).build();
+            // content compression (gzip, deflate) is on by default
+            client = HttpClients.custom().useSystemProperties()
+                .setConnectionManager(connectionManager)
+                .setDefaultRequestConfig(config)
+                .setRedirectStrategy(new LaxRedirectStrategy())
+                .evictExpiredConnections()
+                .evictIdleConnections(30L, TimeUnit.SECONDS).build();
+        }
+        requestCnt++;
+        return client;
+    }
+
+    /**
+     * Execute the request, asking for a username and password if the
+     * server wants one
+     *
+     * @param request the request
+     * @param accountManager asks for the username and password. May be
+     *                       null
+     *
+     * @return the response
+     *
+     * @throws IOException On badness
+     */
+    private static CloseableHttpResponse execute(HttpRequestBase request,
+            IOUtil.UserAccountManager accountManager)
+            throws IOException {
+        CloseableHttpResponse response = getClient().execute(request);
+        if ((response.getStatusLine().getStatusCode()
+                != HttpStatus.SC_UNAUTHORIZED) || (accountManager == null)) {
+            return response;
+        }
+        Header auth = response.getFirstHeader("WWW-Authenticate");
+        if (auth == null) {
+            return response;
+        }
+        String host = request.getURI().getHost();
+        while (true) {
+            UserInfo userInfo =
+                accountManager.getUserNamePassword(host + ":"
+                    + auth.getValue(), "<html>The server: <i>" + host
+                                       + "<i> requires a username/password"
+                                       + "</html>");
+            if (userInfo == null) {
+                return response;
+            }
+            response.close();
+            request.setHeader("Authorization",
+                              "Basic "
+                              + ucar.unidata.xml.XmlUtil.encodeBase64(
+                                  new String(userInfo.getUserId() + ":"
+                                             + userInfo.getPassword())
+                                                 .getBytes()));
+            response = getClient().execute(request);
+            if (response.getStatusLine().getStatusCode()
+                    != HttpStatus.SC_UNAUTHORIZED) {
+                return response;
+            }
+        }
+    }
+
+    /**
+     * Throw an error if the response isn't ok. The response is closed if
+     * it isn't.
+     *
+     * @param url the url
+     * @param response the response
+     *
+     * @throws IOException if not ok
+     */
+    private static void checkStatus(String url,
+                                    CloseableHttpResponse response)
+            throws IOException {
+        int status = response.getStatusLine().getStatusCode();
+        if ((status >= 200) && (status < 300)) {
+            return;
+        }
+        response.close();
+        throw new IOException("Error reading " + url + ": "
+                              + response.getStatusLine());
+    }
+
+    /**
+     * Open a stream for the url. The connection goes back to the pool when
+     * the stream is read to the end or closed, so the caller must do one
+     * of those.
+     *
+     * @param url the url
+     * @param accountManager asks for the username and password if the
+     *                       server wants one. May be null
+     *
+     * @return the stream
+     *
+     * @throws IOException On badness
+     */
+    public static InputStream getInputStream(String url,
+            IOUtil.UserAccountManager accountManager)
+            throws IOException {
+        final CloseableHttpResponse response;
+        try {
+            response = execute(new HttpGet(url), accountManager);
+        } catch (ConnectionPoolTimeoutException exc) {
+            // the connections to the host are all in use, probably by
+            // streams that were never closed
+            return IOUtil.getURL(url, IOUtil.class).openStream();
+        }
+        checkStatus(url, response);
+        HttpEntity entity = response.getEntity();
+        if (entity == null) {
+            response.close();
+            return new ByteArrayInputStream(new byte[0]);
+        }
+        return new FilterInputStream(entity.getContent()) {
+            public void close() throws IOException {
+                try {
+                    super.close();
+                } finally {
+                    response.close();
+                }
+            }
+        };
+    }
+
+    /**
+     * Read the url unless it hasn't changed since it was last read
+     *
+     * @param url the url
+     * @param etag the ETag from the last read. May be null
+     * @param lastModified the Last-Modified from the last read. May be null
+     * @param accountManager asks for the username and password if the
+     *                       server wants one. May be null
+     *
+     * @return the result
+     *
+     * @throws IOException On badness
+     */
+    public static Result get(String url, String etag, String lastModified,
+                             IOUtil.UserAccountManager accountManager)
+            throws IOException {
+        HttpGet request = new HttpGet(url);
+        if (etag != null) {
+            request.setHeader("If-None-Match", etag);
+        }
+        if (lastModified != null) {
+            request.setHeader("If-Modified-Since", lastModified);
+        }
+        CloseableHttpResponse response;
+        try {
+            response = execute(request, accountManager);
+        } catch (ConnectionPoolTimeoutException exc) {
+            URLConnection connection = IOUtil.getURL(url,
+                                           IOUtil.class).openConnection();
+            byte[] bytes = IOUtil.readBytes(connection.getInputStream());
+            return new Result(HttpStatus.SC_OK, bytes,
+                              connection.getHeaderField("ETag"),
+                              connection.getHeaderField("Last-Modified"));
+        }
+        try {
+            int status = response.getStatusLine().getStatusCode();
+            if (status == HttpStatus.SC_NOT_MODIFIED) {
+                synchronized (HttpClientPool.class) {
+                    notModifiedCnt++;
+                }
+                return new Result(status, null, etag, lastModified);
+            }
+            checkStatus(url, response);
+            HttpEntity entity = response.getEntity();
+            byte[]     bytes  = (entity == null)
+                                ? new byte[0]
+                                : EntityUtils.toByteArray(entity);
+            return new Result(status, bytes,
+                              getHeader(response, "ETag"),
+                              getHeader(response, "Last-Modified"));
+        } finally {
+            response.close();
+        }
+    }
+
+    /**
+     * Get a header
+     *
+     * @param response the response
+     * @param name header name
+     *
+     * @return the value or null
+     */
+    private static String getHeader(CloseableHttpResponse response,
+                                    String name) {
+        Header header = response.getFirstHeader(name);
+        return (header == null)
+               ? null
+               : header.getValue();
+    }
+
+    /**
+     * Download the url to the file. Files of at least
+     * {@link #RANGE_THRESHOLD} bytes from servers that accept ranges are
+     * read in ranges in parallel.
+     *
+     * @param url the url
+     * @param file the file
+     * @param loadId A JobManager loadId that, if set, can be used to
+     *               stop the load
+     *
+     * @return number of bytes written. -1 if the load was stopped
+     *
+     * @throws IOException On badness
+     */
+    public static long download(final String url, File file,
+                                final Object loadId)
+            throws IOException {
+        long    length = -1;
+        boolean ranges = false;
+        HttpHead head = new HttpHead(url);
+        head.setHeader("Accept-Encoding", "identity");
+        CloseableHttpResponse response;
+        try {
+            response = execute(head, null);
+        } catch (ConnectionPoolTimeoutException exc) {
+            return writeTo(IOUtil.getURL(url, IOUtil.class).openStream(),
+                           file, loadId, -1);
+        }
+        try {
+            if (response.getStatusLine().getStatusCode() == HttpStatus.SC_OK) {
+                String value = getHeader(response, "Content-Length");
+                if (value != null) {
+                    length = Long.parseLong(value.trim());
+                }
+                ranges = "bytes".equals(getHeader(response,
+                        "Accept-Ranges"));
+            }
+        } catch (NumberFormatException nfe) {
+            length = -1;
+        } finally {
+            response.close();
+        }
+        if ( !ranges || (length < RANGE_THRESHOLD)) {
+            return writeTo(getInputStream(url, null), file, loadId, length);
+        }
+
+        int numRanges = (int) Math.min(maxConnectionsPerHost,
+                                       Math.max(1, length / MIN_RANGE));
+        long                   rangeSize = (length + numRanges - 1)
+                                           / numRanges;
+        final RandomAccessFile raf       = new RandomAccessFile(file, "rw");
+        final AtomicLong       progress  = new AtomicLong();
+        final long             fileSize  = length;
+        List<Future<Long>>     futures   = new ArrayList<Future<Long>>();
+        boolean                ok        = false;
+        try {
+            raf.setLength(length);
+            final FileChannel channel = raf.getChannel();
+            for (int i = 0; i < numRanges; i++) {
+                final long start = i * rangeSize;
+                final long end   = Math.min(length, start + rangeSize) - 1;
+                futures.add(getRangeExecutor().submit(new Callable<Long>() {
+                    public Long call() throws Exception {
+                        return readRange(url, channel, start, end,
+                                         progress, fileSize, loadId);
+                    }
+                }));
+            }
+            long total = 0;
+            for (Future<Long> future : futures) {
+                total += future.get();
+            }
+            ok = (total == length);
+            if ( !ok) {
+                if ( !JobManager.getManager().canContinue(loadId)) {
+                    return -1;
+                }
+                throw new IOException("Short read of " + url);
+            }
+            return total;
+        } catch (InterruptedException exc) {
+            throw new IOException("Interrupted reading " + url);
+        } catch (ExecutionException exc) {
+            Throwable cause = exc.getCause();
+            if (cause instanceof IOException) {
+                throw (IOException) cause;
+            }
+            throw new IOException("Error reading " + url + ": " + cause);
+        } finally {
+            for (Future<Long> future : futures) {
+                future.cancel(true);
+            }
+            raf.close();
+            if ( !ok) {
+                file.delete();
+            }
+        }
+    }
+
+    /**
+     * Write the stream to the file and close it
+     *
+     * @param is the stream
+     * @param file the file
+     * @param loadId A JobManager loadId that, if set, can be used to
+     *               stop the load
+     * @param length expected length. -1 if not known
+     *
+     * @return number of bytes written. -1 if the load was stopped
+     *
+     * @throws IOException On badness
+     */
+    private static long writeTo(InputStream is, File file, Object loadId,
+                                long length)
+            throws IOException {
+        FileOutputStream fos = null;
+        try {
+            fos = new FileOutputStream(file);
+            return IOUtil.writeTo(is, fos, loadId, length);
+        } finally {
+            IOUtil.close(fos);
+            IOUtil.close(is);
+        }
+    }
+
+    /**
+     * Read a range of the url into the file. If no pooled connection to
+     * the server frees up in time (e.g., other downloads from it are
+     * using them) the range is read through its own connection.
+     *
+     * @param url the url
+     * @param channel the file
+     * @param start first byte
+     * @param end last byte
+     * @param progress bytes read by all of the ranges
+     * @param length size of the file
+     * @param loadId A JobManager loadId that, if set, can be used to
+     *               stop the load
+     *
+     * @return number of bytes read. Less than the range if stopped
+     *
+     * @throws IOException On badness, including the server not sending
+     *                     the range
+     */
+    private static long readRange(String url, FileChannel channel,
+                                  long start, long end, AtomicLong progress,
+                                  long length, Object loadId)
+            throws IOException {
+        String  range   = "bytes=" + start + "-" + end;
+        HttpGet request = new HttpGet(url);
+        request.setHeader("Range", range);
+        request.setHeader("Accept-Encoding", "identity");
+        CloseableHttpResponse response;
+        try {
+            response = execute(request, null);
+        } catch (ConnectionPoolTimeoutException exc) {
+            HttpURLConnection connection =
+                (HttpURLConnection) IOUtil.getURL(url,
+                    IOUtil.class).openConnection();
+            connection.setRequestProperty("Range", range);
+            connection.setRequestProperty("Accept-Encoding", "identity");
+            InputStream is = connection.getInputStream();
+            try {
+                if (connection.getResponseCode()
+                        != HttpStatus.SC_PARTIAL_CONTENT) {
+                    throw new IOException("Server did not send a range of "
+                                          + url + ": "
+                                          + connection.getResponseCode());
+                }
+                return readRange(is, channel, start, end, progress, length,
+                                 loadId);
+            } finally {
+                IOUtil.close(is);
+            }
+        }
+        try {
+            if (response.getStatusLine().getStatusCode()
+                    != HttpStatus.SC_PARTIAL_CONTENT) {
+                throw new IOException("Server did not send a range of "
+                                      + url + ": "
+                                      + response.getStatusLine());
+            }
+            return readRange(response.getEntity().getContent(), channel,
+                             start, end, progress, length, loadId);
+        } finally {
+            response.close();
+        }
+    }
+
+    /**
+     * Copy a range read from the stream into the file
+     *
+     * @param is the stream with the bytes of the range
+     * @param channel the file
+     * @param start first byte
+     * @param end last byte
+     * @param progress bytes read by all of the ranges
+     * @param length size of the file
+     * @param loadId A JobManager loadId that, if set, can be used to
+     *               stop the load
+     *
+     * @return number of bytes read. Less than the range if stopped
+     *
+     * @throws IOException On badness
+     */
+    private static long readRange(InputStream is, FileChannel channel,
+                                  long start, long end, AtomicLong progress,
+                                  long length, Object loadId)
+            throws IOException {
+        byte[] buffer   = new byte[64 * 1024];
+        long   position = start;
+        int    cnt      = 0;
+        while (position <= end) {
+            int read = is.read(buffer, 0,
+                               (int) Math.min(buffer.length,
+                                   end + 1 - position));
+            if (read < 0) {
+                break;
+            }
+            ByteBuffer bb = ByteBuffer.wrap(buffer, 0, read);
+            while (bb.hasRemaining()) {
+                position += channel.write(bb, position);
+            }
+            long total = progress.addAndGet(read);
+            if ((++cnt % 16) == 0) {
+                if ( !JobManager.getManager().canContinue(loadId)) {
+                    break;
+                }
+                JobManager.getManager().setDialogLabel2(loadId,
+                        "Transferred " + (total / 1000) + "/"
+                        + (length / 1000) + " Kbytes ");
+            }
+        }
+        return position - start;
+    }
+
+    /**
+     * Get the executor for ranges, making it if needed
+     *
+     * @return the executor
+     */
+    private static synchronized ExecutorService getRangeExecutor() {
+        if (rangeExecutor == null) {
+            rangeExecutor = Executors.newCachedThreadPool(new ThreadFactory() {
+                public Thread newThread(Runnable r) {
+                    Thread thread = new Thread(r, "HTTP range reader");
+                    thread.setDaemon(true);
+                    return thread;
+                }
+            });
+        }
+        return rangeExecutor;
+    }
+
+    /**
+     * Get the number of requests
+     *
+     * @return count
+     */
+    public static synchronized long getRequestCount() {
+        return requestCnt;
+    }
+
+    /**
+     * Get the number of revalidations that were not modified
+     *
+     * @return count
+     */
+    public static synchronized long getNotModifiedCount() {
+        return notModifiedCnt;
+    }
+
+}
@@ -589,6 +589,11 @@ public class IOUtil {
      * @throws Exception _more_
      */
     public static String readContents(URL url) throws Exception {
+        if (HttpClientPool.getEnabled() && isHttpProtocol(url.toString())) {
+            return readContents(
+                HttpClientPool.getInputStream(
+                    url.toString(), userAccountManager));
+        }
         URLConnection connection = url.openConnection();
         InputStream   is         = connection.getInputStream();
         return readContents(is);
@@ -609,6 +614,18 @@ public class IOUtil {
      */
     public static long writeTo(URL from, File file, Object loadId)
             throws IOException {
+        if (HttpClientPool.getEnabled() && isHttpProtocol(from.toString())) {
+            long numBytes = -1;
+            try {
+                numBytes = HttpClientPool.download(from.toString(), file,
+                        loadId);
+            } finally {
+                if (numBytes <= 0) {
+                    file.delete();
+                }
+            }
+            return numBytes;
+        }
         URLConnection    connection = from.openConnection();
         InputStream      is         = connection.getInputStream();
         int              length     = connection.getContentLength();
@@ -1643,7 +1660,7 @@ public class IOUtil {
             throws FileNotFoundException, IOException {
         //If a bad url then try it as a file
 
-        InputStream s = IOUtil.getInputStream(contentName, origin);
+        InputStream s = getInputStreamToReadFully(contentName, origin);
         if (s == null) {
             return null;
         }
@@ -1654,6 +1671,36 @@ public class IOUtil {
         return results;
     }
 
+    /**
+     * Get an input stream for the filename that the caller reads to the end
+     * and closes. Http urls are read with the pooled {@link HttpClientPool}
+     * connections, which only go back to the pool when the stream is read
+     * to the end or closed, so this is only for callers that do that.
+     * {@link #getInputStream(String, Class)} does not use the pool since
+     * many of its callers do neither.
+     *
+     * @param filename    name of file
+     * @param origin      relative origin point for file location
+     * @return  corresponding input stream
+     *
+     * @throws FileNotFoundException     couldn't find the file
+     * @throws IOException               problem opening stream
+     */
+    private static InputStream getInputStreamToReadFully(String filename,
+            Class origin)
+            throws FileNotFoundException, IOException {
+        if ( !HttpClientPool.getEnabled() || !isHttpProtocol(filename)) {
+            return getInputStream(filename, origin);
+        }
+        try {
+            return HttpClientPool.getInputStream(filename,
+                    userAccountManager);
+        } catch (Exception exc) {
+            throw new IOException("Could not load resource:" + filename
+                                  + " error:" + exc);
+        }
+    }
+
 
 
     /**
@@ -1709,6 +1756,10 @@ public class IOUtil {
         //If a bad url then try it as a file
         //        System.err.println ("readBytesAndCache:" + contentName);
         byte[] bytes = null;
+        if (HttpClientPool.getEnabled() && isHttpProtocol(contentName)) {
+            return readBytesAndRevalidate(contentName, cacheGroup,
+                                          unzipIfNeeded);
+        }
         if ( !(new File(contentName)).exists()) {
             bytes = CacheManager.getCachedFile(cacheGroup, contentName);
             if (bytes != null) {
@@ -1720,22 +1771,116 @@ public class IOUtil {
         bytes = readBytes(IOUtil.getInputStream(contentName, IOUtil.class));
         if (bytes != null) {
             if (unzipIfNeeded && contentName.endsWith(".zip")) {
-                //                System.err.println("Reading zip:" + bytes.length);
-                ZipInputStream zin =
-                    new ZipInputStream(new ByteArrayInputStream(bytes));
-                ZipEntry ze = null;
-                while ((ze = zin.getNextEntry()) != null) {
-                    String name = ze.getName().toLowerCase();
-                    bytes = IOUtil.readBytes(zin);
-                    //                    System.err.println ("Zipped file:" + name + "  " + bytes.length);
-                    break;
-                }
+                bytes = unzipFirstEntry(bytes);
             }
             CacheManager.putCachedFile(cacheGroup, contentName, bytes);
         }
         return bytes;
     }
 
+    /** Suffix of the cache entry that holds the ETag and Last-Modified */
+    private static final String VALIDATORS_SUFFIX = ".validators";
+
+    /**
+     * Read the url unless the cached copy is still good. The cached copy is
+     * revalidated with the ETag and Last-Modified headers the server sent
+     * with it. If the server didn't send those the cached copy is used as
+     * is, and it is also used if the server can't be reached.
+     *
+     * @param url the url
+     * @param cacheGroup Cache group
+     * @param unzipIfNeeded IF true and if the url is a zip file then unzip it
+     *
+     * @return Bytes read
+     *
+     * @throws IOException On badness
+     */
+    private static byte[] readBytesAndRevalidate(String url,
+            String cacheGroup, boolean unzipIfNeeded)
+            throws IOException {
+        byte[]   cached     = CacheManager.getCachedFile(cacheGroup, url);
+        String[] validators = null;
+        if (cached != null) {
+            byte[] tmp = CacheManager.getCachedFile(cacheGroup,
+                             url + VALIDATORS_SUFFIX);
+            if ((tmp != null) && (tmp.length > 0)) {
+                validators = new String(tmp, "UTF-8").split("\n", -1);
+            }
+            if ((validators == null) || (validators.length != 2)) {
+                return cached;
+            }
+        }
+        String etag         = null;
+        String lastModified = null;
+        if (validators != null) {
+            etag         = emptyToNull(validators[0]);
+            lastModified = emptyToNull(validators[1]);
+        }
+        HttpClientPool.Result result;
+        try {
+            result = HttpClientPool.get(url, etag, lastModified,
+                                        userAccountManager);
+        } catch (IOException exc) {
+            if (cached != null) {
+                return cached;
+            }
+            throw new IOException("Could not load resource:" + url
+                                  + " error:" + exc);
+        }
+        if (result.isNotModified() && (cached != null)) {
+            return cached;
+        }
+        byte[] bytes = result.getBytes();
+        if (unzipIfNeeded && url.endsWith(".zip")) {
+            bytes = unzipFirstEntry(bytes);
+        }
+        CacheManager.putCachedFile(cacheGroup, url, bytes);
+        etag         = result.getEtag();
+        lastModified = result.getLastModified();
+        String tmp = "";
+        if ((etag != null) || (lastModified != null)) {
+            tmp = ((etag == null)
+                   ? ""
+                   : etag) + "\n" + ((lastModified == null)
+                                     ? ""
+                                     : lastModified);
+        }
+        CacheManager.putCachedFile(cacheGroup, url + VALIDATORS_SUFFIX,
+                                   tmp.getBytes("UTF-8"));
+        return bytes;
+    }
+
+    /**
+     * Return null for an empty string
+     *
+     * @param s the string
+     *
+     * @return s or null if it is empty
+     */
+    private static String emptyToNull(String s) {
+        return ((s == null) || (s.length() == 0))
+               ? null
+               : s;
+    }
+
+    /**
+     * Get the contents of the first entry of a zip file
+     *
+     * @param bytes the zip file
+     *
+     * @return the entry's bytes. The given bytes if there are no entries
+     *
+     * @throws IOException On badness
+     */
+    private static byte[] unzipFirstEntry(byte[] bytes) throws IOException {
+        ZipInputStream zin =
+            new ZipInputStream(new ByteArrayInputStream(bytes));
+        if (zin.getNextEntry() != null) {
+            bytes = IOUtil.readBytes(zin);
+        }
+        return bytes;
+    }
+
 
 
 
@@ -2261,6 +2261,33 @@ public abstract class MapProjectionDisplay extends NavigatedDisplay {
         return xyz;
     }
 
+    /**
+     * Returns the spatial (XYZ) coordinates of a set of lat/lon points.
+     * They are all transformed in one call to the coordinate system.
+     *
+     * @param lats  latitudes (degrees)
+     * @param lons  longitudes (degrees)
+     * @param altitude the altitude
+     *
+     * @return  x, y and z of each point
+     *
+     * @throws RemoteException    Java RMI problem
+     * @throws VisADException     VisAD problem
+     */
+    public float[][] getSpatialCoordinates(float[] lats, float[] lons,
+                                           double altitude)
+            throws VisADException, RemoteException {
+        float[] altValues = new float[lats.length];
+        if ((altitudeMap != null) && !Double.isNaN(altitude)) {
+            Arrays.fill(altValues, altitudeMap.scaleValues(new double[] {
+                altitude })[0]);
+        }
+        return coordinateSystem.toReference(new float[][] {
+            latitudeMap.scaleValues(lats), longitudeMap.scaleValues(lons),
+            altValues
+        });
+    }
+
 
     /**
      * Method called to reset all the map parameters after a change.
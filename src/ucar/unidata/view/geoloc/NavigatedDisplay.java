@@ -51,6 +51,7 @@ import visad.VisADException;
 import visad.VisADRay;
 
 import visad.georef.EarthLocation;
+import visad.georef.EarthLocationTuple;
 import visad.georef.MapProjection;
 
 import visad.java3d.DisplayRendererJ3D;
@@ -994,6 +995,36 @@ public abstract class NavigatedDisplay extends DisplayMaster {
             double[] xyz, double altitude)
      throws VisADException, RemoteException;
 
+    /**
+     * Returns the spatial (XYZ) coordinates of a set of lat/lon points.
+     * This just transforms them one at a time. Derived classes can
+     * override it to do them all at once.
+     *
+     * @param lats  latitudes (degrees)
+     * @param lons  longitudes (degrees)
+     * @param altitude the altitude
+     *
+     * @return  x, y and z of each point
+     *
+     * @throws  RemoteException   If there was a problem making this
+     *                            change in a remote collaborative display.
+     * @throws  VisADException    Couldn't create the necessary VisAD object
+     */
+    public float[][] getSpatialCoordinates(float[] lats, float[] lons,
+                                           double altitude)
+            throws VisADException, RemoteException {
+        float[][] xyz = new float[3][lats.length];
+        double[]  tmp = new double[3];
+        for (int i = 0; i < lats.length; i++) {
+            tmp = getSpatialCoordinates(new EarthLocationTuple(lats[i],
+                    lons[i], altitude), tmp, altitude);
+            xyz[0][i] = (float) tmp[0];
+            xyz[1][i] = (float) tmp[1];
+            xyz[2][i] = (float) tmp[2];
+        }
+        return xyz;
+    }
+
     /**
      * Return the real altitude from a ZAxis (or displayAltitudeType) value
      *
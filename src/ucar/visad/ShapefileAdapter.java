@@ -358,6 +358,11 @@ public class ShapefileAdapter {
                 sets = doReadXml(name, iStream);
             } else if (name.endsWith(".xgrf")) {
                 sets = doReadXml(name, iStream);
+            } else if ((iStream == null) && new File(name).isFile()) {
+                // local files are mapped and only the features in the
+                // box are read
+                sets = doRead(new EsriShapefile(name, null, coarseness),
+                              bBox);
             } else {
                 try {
                     if (iStream == null) {
@@ -611,7 +616,7 @@ public class ShapefileAdapter {
 
 
         this.shapefile = shapefile;
-        List               features = shapefile.getFeatures();
+        List               features = shapefile.getFeatures(bbox);
         java.util.Iterator si       = features.iterator();
         dbFile = shapefile.getDbFile();
         List s0       = new ArrayList();
@@ -0,0 +1,358 @@
+/*
+ * Copyright 1997-2020 Unidata Program Center/University Corporation for
+ * Atmospheric Research, P.O. Box 3000, Boulder, CO 80307,
+ * support@unidata.ucar.edu.
+ *
+ * This library is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation; either version 2.1 of the License, or (at
+ * your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU Lesser
+ * General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this library; if not, write to the Free Software Foundation,
+ * Inc., 59 Temple Place, Suite 330, Boston, MA 02111-1307 USA
+ */
+
+package ucar.visad.data;
+
+
+import visad.*;
+import visad.Set;
+
+import visad.data.CachedFlatField;
+
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+
+/**
+ * Reads the time steps of time sequences ahead of an animation so the
+ * data is in memory by the time the animation gets to them. The
+ * {@link CachedFlatField}s (e.g., {@link GeoGridFlatField}) for the
+ * next few animation steps, in the direction the animation is going, are
+ * read in background threads. Reads of steps that are no longer coming
+ * up (the user jumped to another time or the loop changed) are cancelled
+ * if they have not started.
+ *
+ * @author IDV Development Team
+ */
+public class FieldPrefetcher {
+
+    /** Number of threads reading the data */
+    private static final int NUM_THREADS = 2;
+
+    /** The readers. Shared by all prefetchers */
+    private static ThreadPoolExecutor executor;
+
+    /** How many animation steps to read ahead */
+    private int stepsAhead;
+
+    /** Max number of bytes to read ahead */
+    private long maxBytes;
+
+    /** The animation set we last saw */
+    private Set lastSet;
+
+    /** The fields we last saw */
+    private List<FieldImpl> lastFields = new ArrayList<FieldImpl>();
+
+    /** The animation index we last saw */
+    private int lastIndex = -1;
+
+    /** The direction the animation is going. 1 or -1 */
+    private int direction = 1;
+
+    /** Times of each field in the units of the animation set */
+    private Map<FieldImpl, double[]> fieldTimes = new IdentityHashMap<FieldImpl,
+                                                      double[]>();
+
+    /** The reads we have asked for that are still coming up */
+    private Map<FlatField, Future<?>> pending = new IdentityHashMap<FlatField,
+                                                    Future<?>>();
+
+    /**
+     * Create a prefetcher
+     *
+     * @param stepsAhead how many animation steps to read ahead. 0 for none
+     * @param maxBytes max number of bytes to read ahead
+     */
+    public FieldPrefetcher(int stepsAhead, long maxBytes) {
+        this.stepsAhead = stepsAhead;
+        this.maxBytes   = maxBytes;
+    }
+
+    /**
+     * Get the number of animation steps we read ahead
+     *
+     * @return steps ahead
+     */
+    public int getStepsAhead() {
+        return stepsAhead;
+    }
+
+    /**
+     * The animation has moved to a new step. Read the coming steps of the
+     * given time sequences.
+     *
+     * @param aniSet the animation set
+     * @param index the current animation index
+     * @param fields the time sequences being animated
+     */
+    public synchronized void setCurrent(Set aniSet, int index,
+                                        List<FieldImpl> fields) {
+        if ((stepsAhead <= 0) || (aniSet == null) || (index < 0)) {
+            cancel();
+            return;
+        }
+        try {
+            int numSteps = aniSet.getLength();
+            if ( !isSameLoop(aniSet, fields)) {
+                cancel();
+                fieldTimes.clear();
+                lastSet    = aniSet;
+                lastFields = new ArrayList<FieldImpl>(fields);
+                direction  = 1;
+            } else if (index == lastIndex) {
+                return;
+            } else if ((index == lastIndex + 1)
+                       || ((lastIndex == numSteps - 1) && (index == 0))) {
+                direction = 1;
+            } else if ((index == lastIndex - 1)
+                       || ((lastIndex == 0) && (index == numSteps - 1))) {
+                direction = -1;
+            } else {
+                // a jump. what was coming up is not any more
+                cancel();
+            }
+            lastIndex = index;
+
+            Unit aniUnit = aniSet.getSetUnits()[0];
+            List<FlatField>         toRead = new ArrayList<FlatField>();
+            Map<FlatField, Boolean> seen   = new IdentityHashMap<FlatField,
+                                                 Boolean>();
+            long                    bytes  = 0;
+            int                     step   = index;
+            for (int i = 0; (i < stepsAhead) && (i < numSteps - 1); i++) {
+                step = (step + direction + numSteps) % numSteps;
+                double time = aniSet.indexToDouble(new int[] { step })[0][0];
+                for (FieldImpl field : fields) {
+                    int sampleIndex = findSample(field, time, aniUnit);
+                    if (sampleIndex < 0) {
+                        continue;
+                    }
+                    Data sample = field.getSample(sampleIndex, false);
+                    for (FlatField ff : getCachedFields(sample)) {
+                        if (seen.containsKey(ff)) {
+                            continue;
+                        }
+                        bytes += getSize(ff);
+                        if (bytes > maxBytes) {
+                            break;
+                        }
+                        seen.put(ff, Boolean.TRUE);
+                        toRead.add(ff);
+                    }
+                }
+                if (bytes > maxBytes) {
+                    break;
+                }
+            }
+
+            // cancel what is no longer coming up
+            for (Iterator<Map.Entry<FlatField, Future<?>>> iter =
+                    pending.entrySet().iterator();
+                    iter.hasNext(); ) {
+                Map.Entry<FlatField, Future<?>> entry = iter.next();
+                if ( !seen.containsKey(entry.getKey())) {
+                    entry.getValue().cancel(false);
+                    iter.remove();
+                }
+            }
+            // nearest steps first
+            for (FlatField ff : toRead) {
+                if ( !pending.containsKey(ff)) {
+                    pending.put(ff, getExecutor().submit(new Reader(ff)));
+                }
+            }
+        } catch (Exception exc) {
+            // Nothing lost. The display reads the data when it needs it
+            cancel();
+        }
+    }
+
+    /**
+     * Cancel any reads that have not started
+     */
+    public synchronized void cancel() {
+        for (Future<?> future : pending.values()) {
+            future.cancel(false);
+        }
+        pending.clear();
+        lastIndex = -1;
+    }
+
+    /**
+     * Is this the same animation set and fields as last time
+     *
+     * @param aniSet the animation set
+     * @param fields the fields
+     *
+     * @return true if it is the same loop
+     */
+    private boolean isSameLoop(Set aniSet, List<FieldImpl> fields) {
+        if ((lastSet == null) || (lastIndex < 0)
+                || (fields.size() != lastFields.size())) {
+            return false;
+        }
+        for (int i = 0; i < fields.size(); i++) {
+            if (fields.get(i) != lastFields.get(i)) {
+                return false;
+            }
+        }
+        return (aniSet == lastSet) || aniSet.equals(lastSet);
+    }
+
+    /**
+     * Find the sample of the field closest to the given time
+     *
+     * @param field the time sequence
+     * @param time the time
+     * @param aniUnit unit of the time
+     *
+     * @return index of the sample or -1
+     *
+     * @throws VisADException problem with the times
+     */
+    private int findSample(FieldImpl field, double time, Unit aniUnit)
+            throws VisADException {
+        double[] times = fieldTimes.get(field);
+        if (times == null) {
+            Set domain = field.getDomainSet();
+            if (domain.getDimension() != 1) {
+                return -1;
+            }
+            times = domain.getDoubles(true)[0];
+            Unit unit = domain.getSetUnits()[0];
+            if ((aniUnit != null) && (unit != null)
+                    && !aniUnit.equals(unit)) {
+                times = aniUnit.toThis(times, unit);
+            }
+            fieldTimes.put(field, times);
+        }
+        int    closest = -1;
+        double minDiff = Double.POSITIVE_INFINITY;
+        for (int i = 0; i < times.length; i++) {
+            double diff = Math.abs(times[i] - time);
+            if (diff < minDiff) {
+                minDiff = diff;
+                closest = i;
+            }
+        }
+        return closest;
+    }
+
+    /**
+     * Find the cached fields in a sample. This is the sample itself or,
+     * e.g., the members of an ensemble.
+     *
+     * @param sample the sample
+     *
+     * @return the cached fields
+     *
+     * @throws Exception problem getting the members
+     */
+    private List<FlatField> getCachedFields(Data sample) throws Exception {
+        List<FlatField> fields = new ArrayList<FlatField>();
+        if (sample instanceof CachedFlatField) {
+            fields.add((FlatField) sample);
+        } else if ((sample instanceof FieldImpl)
+                   && !(sample instanceof FlatField)) {
+            FieldImpl fi = (FieldImpl) sample;
+            for (int i = 0; i < fi.getLength(); i++) {
+                Data member = fi.getSample(i, false);
+                if (member instanceof CachedFlatField) {
+                    fields.add((FlatField) member);
+                }
+            }
+        }
+        return fields;
+    }
+
+    /**
+     * Estimate the size of a field's values
+     *
+     * @param ff the field
+     *
+     * @return number of bytes
+     */
+    private long getSize(FlatField ff) {
+        int numRange =
+            ((FunctionType) ff.getType()).getFlatRange().getDimension();
+        return 4L * ff.getLength() * numRange;
+    }
+
+    /**
+     * Get the executor, creating it if needed
+     *
+     * @return the executor
+     */
+    private static synchronized ThreadPoolExecutor getExecutor() {
+        if (executor == null) {
+            executor = new ThreadPoolExecutor(NUM_THREADS, NUM_THREADS, 60,
+                    TimeUnit.SECONDS, new LinkedBlockingQueue<Runnable>(),
+                    new ThreadFactory() {
+                public Thread newThread(Runnable r) {
+                    Thread thread = new Thread(r, "Animation prefetch");
+                    thread.setDaemon(true);
+                    thread.setPriority(Thread.MIN_PRIORITY);
+                    return thread;
+                }
+            });
+            executor.allowCoreThreadTimeOut(true);
+        }
+        return executor;
+    }
+
+    /**
+     * Reads the values of one field
+     */
+    private static class Reader implements Runnable {
+
+        /** The field */
+        private FlatField field;
+
+        /**
+         * Create the reader
+         *
+         * @param field the field
+         */
+        private Reader(FlatField field) {
+            this.field = field;
+        }
+
+        /**
+         * Read the values
+         */
+        public void run() {
+            try {
+                field.getFloats(false);
+            } catch (Exception exc) {
+                // the display reports it when it reads the field itself
+            }
+        }
+    }
+
+}
@@ -202,7 +202,11 @@ public class GeoGridFlatField extends CachedFlatField {
     }
 
 
-    /** a mutex */
+    /**
+     * The lock used by fields that were not given one. Data sources
+     * give each field the lock of the file handle it reads through (see
+     * {@link ucar.unidata.data.ReadLockManager}) so this is only a fallback.
+     */
     public static Object ALLMUTEX = new Object();
 
 
@@ -0,0 +1,66 @@
+/*
+ * Copyright 1997-2020 Unidata Program Center/University Corporation for
+ * Atmospheric Research, P.O. Box 3000, Boulder, CO 80307,
+ * support@unidata.ucar.edu.
+ * 
+ * This library is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation; either version 2.1 of the License, or (at
+ * your option) any later version.
+ * 
+ * This library is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU Lesser
+ * General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this library; if not, write to the Free Software Foundation,
+ * Inc., 59 Temple Place, Suite 330, Boston, MA 02111-1307 USA
+ */
+
+package ucar.unidata.gis;
+
+
+import org.junit.Test;
+
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+
+/**
+ * The tests for the DeclutterHierarchy.
+ */
+public class DeclutterHierarchyTest {
+
+    /**
+     * A dense regular grid adds many points in a single level. This used to
+     * fill the cell hash so the build never returned.
+     */
+    @Test(timeout = 30000)
+    public void testDenseRegularGrid() {
+        int     n  = 128;
+        float[] xs = new float[n * n];
+        float[] ys = new float[n * n];
+        for (int j = 0; j < n; j++) {
+            for (int i = 0; i < n; i++) {
+                xs[j * n + i] = i;
+                ys[j * n + i] = j;
+            }
+        }
+        DeclutterHierarchy hierarchy = new DeclutterHierarchy(xs, ys, 1, 1);
+        assertEquals(n * n, hierarchy.size());
+
+        //At the cell size every point fits
+        assertEquals(n * n, hierarchy.select(1, null).length);
+
+        //Zooming out only takes points away
+        int last = n * n;
+        for (double scale = 1; scale < 200; scale *= 2) {
+            int cnt = hierarchy.select(scale, null).length;
+            assertTrue(cnt <= last);
+            last = cnt;
+        }
+        assertTrue(last >= 1);
+    }
+}
@@ -0,0 +1,121 @@
+/*
+ * Copyright 1997-2020 Unidata Program Center/University Corporation for
+ * Atmospheric Research, P.O. Box 3000, Boulder, CO 80307,
+ * support@unidata.ucar.edu.
+ * 
+ * This library is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation; either version 2.1 of the License, or (at
+ * your option) any later version.
+ * 
+ * This library is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU Lesser
+ * General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this library; if not, write to the Free Software Foundation,
+ * Inc., 59 Temple Place, Suite 330, Boston, MA 02111-1307 USA
+ */
+
+package ucar.unidata.util;
+
+
+import org.junit.After;
+import org.junit.Test;
+
+
+import java.io.File;
+
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+
+/**
+ * The tests for the CacheManager memory cache.
+ */
+public class CacheManagerTest {
+
+    /**
+     * Reset the cache after each test
+     */
+    @After
+    public void tearDown() {
+        CacheManager.clearCache();
+        CacheManager.setMaxMemoryCacheSize(Runtime.getRuntime().maxMemory()
+                                           / 4);
+    }
+
+    /**
+     * Test that the least recently used entries are evicted when the
+     * memory cache goes over its limit.
+     */
+    @Test
+    public void testLruEviction() {
+        Object owner = "owner";
+        CacheManager.setMaxMemoryCacheSize(4000);
+        CacheManager.put(owner, "a", new byte[1000]);
+        CacheManager.put(owner, "b", new byte[1000]);
+        CacheManager.put(owner, "c", new byte[1000]);
+        //Touch a so b is the oldest
+        assertNotNull(CacheManager.get(owner, "a"));
+        CacheManager.put(owner, "d", new byte[1500]);
+
+        assertNull("b should have been evicted",
+                   CacheManager.get(owner, "b"));
+        assertNotNull(CacheManager.get(owner, "d"));
+        CacheManager.Stats stats = CacheManager.getStats(owner);
+        assertEquals(stats.getBytes(), CacheManager.getMemoryCacheSize());
+        assertEquals(1, stats.getMisses());
+    }
+
+    /**
+     * Test the memory accounting when replacing and removing entries
+     */
+    @Test
+    public void testAccounting() {
+        Object owner = "owner";
+        CacheManager.put(owner, "a", new float[100]);
+        assertEquals(400, CacheManager.getMemoryCacheSize());
+        CacheManager.put(owner, "a", new double[100]);
+        assertEquals(800, CacheManager.getMemoryCacheSize());
+        CacheManager.remove(owner, "a");
+        assertEquals(0, CacheManager.getMemoryCacheSize());
+        CacheManager.put(owner, "b", new int[10]);
+        CacheManager.remove(owner);
+        assertEquals(0, CacheManager.getMemoryCacheSize());
+        assertNull(CacheManager.getStats(owner));
+    }
+
+    /**
+     * Test that a big cached file reads back and can be deleted once
+     * it has been read
+     *
+     * @throws Exception On badness
+     */
+    @Test
+    public void testBigCachedFile() throws Exception {
+        File dir = File.createTempFile("cachetest", "");
+        dir.delete();
+        dir.mkdirs();
+        try {
+            CacheManager.setCacheDir(dir);
+            byte[] bytes = new byte[200 * 1024];
+            for (int i = 0; i < bytes.length; i++) {
+                bytes[i] = (byte) i;
+            }
+            CacheManager.putCachedFile("group", "big", bytes);
+            assertArrayEquals(bytes,
+                              CacheManager.getCachedFile("group", "big"));
+            File f = CacheManager.getCachedFilePath("group", "big");
+            assertTrue("cached file should delete", f.delete());
+        } finally {
+            CacheManager.setCacheDir(null);
+            IOUtil.deleteDirectory(dir);
+        }
+    }
+}